@@ -0,0 +1,151 @@
+/*-
+ * -\-\-
+ * Spotify Styx API Service
+ * --
+ * Copyright (C) 2017 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.api;
+
+import static com.spotify.styx.util.ParameterUtil.toParameter;
+import static com.spotify.styx.util.TimeUtil.streamInstantsInRange;
+
+import com.google.common.collect.Iterators;
+import com.spotify.styx.model.Resource;
+import com.spotify.styx.model.Schedule;
+import com.spotify.styx.model.Workflow;
+import com.spotify.styx.model.WorkflowId;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.storage.Storage;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Plans backfills without materializing their partitions. The partitions are generated lazily and
+ * checked for conflicts in batches, looking up the active states of only those partitions.
+ */
+class BackfillPlanner {
+
+  private static final int CONFLICT_CHECK_BATCH_SIZE = 1000;
+
+  private final Storage storage;
+
+  BackfillPlanner(Storage storage) {
+    this.storage = Objects.requireNonNull(storage);
+  }
+
+  /**
+   * Summarize a backfill of the given workflow.
+   *
+   * @param partitionDuration the expected duration of a partition, defaults to the running
+   *                          timeout of the workflow
+   */
+  BackfillPlanPayload plan(Workflow workflow, Instant start, Instant end, int concurrency,
+                           Optional<Duration> partitionDuration) throws IOException {
+    final List<String> conflicts = new ArrayList<>();
+    final long partitions =
+        checkConflicts(workflow.id(), workflow.configuration().schedule(), start, end, conflicts);
+
+    final long effectiveConcurrency = effectiveConcurrency(workflow, concurrency);
+    final Optional<Duration> estimatedDuration;
+    if (effectiveConcurrency > 0) {
+      // the partitions run in rounds of at most the effective concurrency
+      final long rounds = ceilDiv(partitions, effectiveConcurrency);
+      estimatedDuration = partitionDuration.or(() -> workflow.configuration().runningTimeout())
+          .map(duration -> duration.multipliedBy(rounds));
+    } else {
+      estimatedDuration = Optional.empty();
+    }
+
+    return BackfillPlanPayload.create(partitions, conflicts, effectiveConcurrency, estimatedDuration);
+  }
+
+  /**
+   * Return the parameters of the partitions in the range that are already active.
+   */
+  List<String> activePartitions(WorkflowId workflowId, Schedule schedule, Instant start, Instant end)
+      throws IOException {
+    final List<String> conflicts = new ArrayList<>();
+    checkConflicts(workflowId, schedule, start, end, conflicts);
+    return conflicts;
+  }
+
+  /**
+   * Check the partitions in the range for conflicts batch by batch, adding the parameters of the
+   * active partitions to the conflicts.
+   *
+   * @return the number of partitions in the range
+   */
+  private long checkConflicts(WorkflowId workflowId, Schedule schedule, Instant start, Instant end,
+                              List<String> conflicts) throws IOException {
+    final Iterator<List<WorkflowInstance>> batches = partitionBatches(workflowId, schedule, start, end);
+
+    long partitions = 0;
+    while (batches.hasNext()) {
+      final List<WorkflowInstance> batch = batches.next();
+      partitions += batch.size();
+      conflicts.addAll(activeInBatch(batch));
+    }
+    return partitions;
+  }
+
+  private static Iterator<List<WorkflowInstance>> partitionBatches(WorkflowId workflowId, Schedule schedule,
+                                                                  Instant start, Instant end) {
+    return Iterators.partition(
+        streamInstantsInRange(start, end, schedule)
+            .map(instant -> WorkflowInstance.create(workflowId, toParameter(schedule, instant)))
+            .iterator(),
+        CONFLICT_CHECK_BATCH_SIZE);
+  }
+
+  private List<String> activeInBatch(List<WorkflowInstance> batch) throws IOException {
+    final Map<WorkflowInstance, RunState> activeStates = storage.readActiveStates(batch);
+    final List<String> active = new ArrayList<>();
+    for (WorkflowInstance instance : batch) {
+      if (activeStates.containsKey(instance)) {
+        active.add(instance.parameter());
+      }
+    }
+    return active;
+  }
+
+  private long effectiveConcurrency(Workflow workflow, int concurrency) throws IOException {
+    long effectiveConcurrency = concurrency;
+    for (String resourceId : workflow.configuration().resources()) {
+      final Optional<Resource> resource = storage.resource(resourceId);
+      if (resource.isPresent()) {
+        effectiveConcurrency = Math.min(effectiveConcurrency, resource.get().concurrency());
+      }
+    }
+    final Optional<Long> globalConcurrency = storage.config().globalConcurrency();
+    if (globalConcurrency.isPresent()) {
+      effectiveConcurrency = Math.min(effectiveConcurrency, globalConcurrency.get());
+    }
+    return effectiveConcurrency;
+  }
+
+  private static long ceilDiv(long dividend, long divisor) {
+    return (dividend + divisor - 1) / divisor;
+  }
+}
@@ -25,13 +25,15 @@ import static com.spotify.styx.api.Api.Version.V3;
 import static com.spotify.styx.api.Middlewares.authedEntity;
 import static com.spotify.styx.serialization.Json.serialize;
 import static com.spotify.styx.util.CloserUtil.register;
+import static com.spotify.styx.util.ParameterUtil.parseAlignedInstant;
 import static com.spotify.styx.util.ParameterUtil.toParameter;
-import static com.spotify.styx.util.TimeUtil.instantsInRange;
 import static com.spotify.styx.util.TimeUtil.nextInstant;
+import static com.spotify.styx.util.TimeUtil.previousInstant;
+import static com.spotify.styx.util.TimeUtil.streamInstantsInRange;
+import static com.spotify.styx.util.TriggerUtil.activeInstancesCounterId;
 import static java.util.stream.Collectors.toList;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Streams;
 import com.google.common.io.Closer;
 import com.spotify.apollo.Client;
@@ -63,19 +65,23 @@ import com.spotify.styx.storage.Storage;
 import com.spotify.styx.util.RandomGenerator;
 import com.spotify.styx.util.ReplayEvents;
 import com.spotify.styx.util.ResourceNotFoundException;
+import com.spotify.styx.util.ShardedCounter;
+import com.spotify.styx.util.ShardedCounterSnapshotFactory;
 import com.spotify.styx.util.Time;
 import com.spotify.styx.util.TimeUtil;
 import com.spotify.styx.util.WorkflowValidator;
 import java.io.Closeable;
 import java.io.IOException;
+import java.time.DateTimeException;
+import java.time.Duration;
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ForkJoinPool;
@@ -105,6 +111,7 @@ public final class BackfillResource implements Closeable {
 
   private final ForkJoinPool forkJoinPool;
   private final WorkflowActionAuthorizer workflowActionAuthorizer;
+  private final BackfillPlanner backfillPlanner;
 
   public BackfillResource(String schedulerServiceBaseUrl, Storage storage,
                           WorkflowValidator workflowValidator,
@@ -117,6 +124,7 @@ public final class BackfillResource implements Closeable {
     this.workflowActionAuthorizer = Objects.requireNonNull(workflowActionAuthorizer,
         "workflowActionAuthorizer");
     this.forkJoinPool = register(closer, new ForkJoinPool(CONCURRENCY), "backfill-resource");
+    this.backfillPlanner = new BackfillPlanner(storage);
   }
 
   public Stream<Route<AsyncHandler<Response<ByteString>>>> routes(RequestAuthenticator authenticator) {
@@ -132,6 +140,10 @@ public final class BackfillResource implements Closeable {
             authedEntity(authenticator, em.response(BackfillInput.class, Backfill.class)),
             "POST", BASE,
             ac -> rc -> payload -> postBackfill(ac, rc, payload)),
+        Route.with(
+            em.response(BackfillInput.class, BackfillPlanPayload.class),
+            "POST", BASE + "/plan",
+            rc -> payload -> planBackfill(rc, payload)),
         Route.with(
             em.serializerResponse(BackfillPayload.class),
             "GET", BASE + "/<bid>",
@@ -186,11 +198,12 @@ public final class BackfillResource implements Closeable {
     }
 
     final List<BackfillPayload> backfillPayloads = backfills
-        .map(backfill -> forkJoinPool.submit(() -> BackfillPayload.create(
-            backfill,
-            includeStatuses
-            ? Optional.of(RunStateDataPayload.create(retrieveBackfillStatuses(backfill)))
-            : Optional.empty())))
+        .map(backfill -> forkJoinPool.submit(() -> includeStatuses
+            ? BackfillPayload.create(
+                backfill,
+                Optional.of(RunStateDataPayload.create(retrieveBackfillStatuses(backfill))),
+                retrieveActiveInstances(backfill))
+            : BackfillPayload.create(backfill, Optional.empty())))
         .collect(toList())
         .stream()
         .map(ForkJoinTask::join)
@@ -214,9 +227,20 @@ public final class BackfillResource implements Closeable {
     }
     final Backfill backfill = backfillOpt.get();
     if (includeStatuses) {
-      final List<RunStateData> statuses = retrieveBackfillStatuses(backfill);
+      final String offset = rc.request().parameter("offset").orElse("");
+      final int limit;
+      try {
+        limit = rc.request().parameter("limit").map(Integer::parseInt).orElse(Integer.MAX_VALUE);
+      } catch (NumberFormatException e) {
+        return Response.forStatus(Status.BAD_REQUEST.withReasonPhrase("invalid limit"));
+      }
+      if (limit < 0) {
+        return Response.forStatus(Status.BAD_REQUEST.withReasonPhrase("invalid limit"));
+      }
+      final List<RunStateData> statuses = retrieveBackfillStatuses(backfill, offset, limit);
       return Response.forPayload(BackfillPayload.create(
-          backfill, Optional.of(RunStateDataPayload.create(statuses))));
+          backfill, Optional.of(RunStateDataPayload.create(statuses)),
+          retrieveActiveInstances(backfill)));
     } else {
       return Response.forPayload(BackfillPayload.create(backfill, Optional.empty()));
     }
@@ -236,6 +260,7 @@ public final class BackfillResource implements Closeable {
         final Backfill backfill = backfillOptional.get();
         workflowActionAuthorizer.authorizeWorkflowAction(authContext, backfill.workflowId());
         storage.storeBackfill(backfill.builder().halted(true).build());
+        deleteActiveInstancesCounter(backfill);
         return haltActiveBackfillInstances(backfill, rc.requestScopedClient());
       } else {
         return CompletableFuture.completedFuture(
@@ -344,13 +369,6 @@ public final class BackfillResource implements Closeable {
 
     workflowActionAuthorizer.authorizeWorkflowAction(ac, workflow);
 
-    final Set<WorkflowInstance> activeWorkflowInstances;
-    try {
-      activeWorkflowInstances = storage.readActiveStates(input.component()).keySet();
-    } catch (Exception e) {
-      throw new RuntimeException(e);
-    }
-
     final Optional<String> error = validate(rc, input, workflow);
     if (error.isPresent()) {
       return Response.forStatus(Status.BAD_REQUEST.withReasonPhrase(error.get()));
@@ -358,17 +376,15 @@ public final class BackfillResource implements Closeable {
 
     final Schedule schedule = workflow.configuration().schedule();
 
-    final List<Instant> instants = instantsInRange(input.start(), input.end(), schedule);
-    final List<WorkflowInstance> alreadyActive =
-        instants.stream()
-            .map(instant -> WorkflowInstance.create(workflowId, toParameter(schedule, instant)))
-            .filter(activeWorkflowInstances::contains)
-            .collect(toList());
+    final List<String> alreadyActive;
+    try {
+      alreadyActive = backfillPlanner.activePartitions(workflowId, schedule, input.start(), input.end());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
 
     if (!alreadyActive.isEmpty()) {
-      final String alreadyActiveMessage = alreadyActive.stream()
-          .map(WorkflowInstance::parameter)
-          .collect(Collectors.joining(", "));
+      final String alreadyActiveMessage = String.join(", ", alreadyActive);
       return Response.forStatus(
           Status.CONFLICT
               .withReasonPhrase("these partitions are already active: " + alreadyActiveMessage));
@@ -383,7 +399,7 @@ public final class BackfillResource implements Closeable {
         .end(input.end())
         .schedule(schedule)
         .nextTrigger(input.reverse()
-                     ? Iterables.getLast(instants)
+                     ? previousInstant(input.end(), schedule)
                      : input.start())
         .description(input.description())
         .reverse(input.reverse())
@@ -393,14 +409,57 @@ public final class BackfillResource implements Closeable {
     final Backfill backfill = builder.build();
 
     try {
-      storage.storeBackfill(backfill);
+      storage.runInTransaction(tx -> {
+        // the counter only counts the active instances of the backfill, it does not limit them
+        tx.updateLimitForCounter(activeInstancesCounterId(backfill.id()), Long.MAX_VALUE);
+        return tx.store(backfill);
+      });
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
 
+    // create the counter shards up front, in a few batched commits, instead of when the scheduler
+    // first reads the counter, which still creates any shards missing after a failure here
+    try {
+      ShardedCounterSnapshotFactory.initialize(storage, activeInstancesCounterId(backfill.id()));
+    } catch (RuntimeException e) {
+      log.warn("Failed to initialize active instances counter of backfill {}", backfill.id(), e);
+    }
+
     return Response.forPayload(backfill);
   }
 
+  private Response<BackfillPlanPayload> planBackfill(RequestContext rc, BackfillInput input) {
+    final WorkflowId workflowId = WorkflowId.create(input.component(), input.workflow());
+    final Workflow workflow;
+    try {
+      workflow = storage.workflow(workflowId)
+          .orElseThrow(() -> new ResponseException(
+              Response.forStatus(Status.NOT_FOUND.withReasonPhrase("workflow not found"))));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+
+    final Optional<String> error = validate(rc, input, workflow);
+    if (error.isPresent()) {
+      return Response.forStatus(Status.BAD_REQUEST.withReasonPhrase(error.get()));
+    }
+
+    final Optional<Duration> partitionDuration;
+    try {
+      partitionDuration = rc.request().parameter("partitionDuration").map(Duration::parse);
+    } catch (DateTimeParseException e) {
+      return Response.forStatus(Status.BAD_REQUEST.withReasonPhrase("invalid partitionDuration"));
+    }
+
+    try {
+      return Response.forPayload(backfillPlanner.plan(
+          workflow, input.start(), input.end(), input.concurrency(), partitionDuration));
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private Response<Backfill> updateBackfill(AuthContext ac, String id,
       EditableBackfillInput backfillInput) {
     if (!backfillInput.id().equals(id)) {
@@ -429,60 +488,95 @@ public final class BackfillResource implements Closeable {
     return Response.forStatus(Status.OK).withPayload(backfill);
   }
 
+  private Optional<Long> retrieveActiveInstances(Backfill backfill) {
+    try {
+      final Optional<Long> counted =
+          ShardedCounter.readCounter(storage, activeInstancesCounterId(backfill.id()));
+      if (counted.isPresent()) {
+        return counted;
+      }
+      // backfills created before active instances were counted have no counter, and the counter
+      // is deleted when the backfill is all triggered or halted
+      return Optional.of((long) storage.readActiveStatesByTriggerId(backfill.id()).size());
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void deleteActiveInstancesCounter(Backfill backfill) {
+    try {
+      ShardedCounter.deleteCounter(storage, activeInstancesCounterId(backfill.id()));
+    } catch (IOException e) {
+      log.warn("Failed to delete active instances counter of backfill {}", backfill.id(), e);
+    }
+  }
+
   private List<RunStateData> retrieveBackfillStatuses(Backfill backfill) {
-    final List<RunStateData> processedStates;
-    final List<RunStateData> waitingStates;
+    return retrieveBackfillStatuses(backfill, "", Integer.MAX_VALUE);
+  }
 
+  /**
+   * Retrieve the statuses of the backfill partitions in parameter order, starting from the
+   * partition with parameter {@code offset} and including at most {@code limit} partitions.
+   */
+  private List<RunStateData> retrieveBackfillStatuses(Backfill backfill, String offset, int limit) {
     final Map<WorkflowInstance, RunState> activeWorkflowInstances;
+    final Map<WorkflowInstance, RunStateData> storedStatuses;
     try {
       // this is weakly consistent and is tolerable in this case because no critical action
       // depends on this
       activeWorkflowInstances = storage.readActiveStatesByTriggerId(backfill.id());
+      storedStatuses = storage.backfillStatuses(backfill.id(), offset, limit).stream()
+          .collect(Collectors.toMap(RunStateData::workflowInstance, status -> status));
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
 
-    final List<Instant> processedInstants;
-    if (backfill.reverse()) {
-      final Instant firstInstant = nextInstant(backfill.nextTrigger(), backfill.schedule());
-      processedInstants = instantsInRange(firstInstant, backfill.end(), backfill.schedule());
-    } else {
-      processedInstants = instantsInRange(backfill.start(), backfill.nextTrigger(), backfill.schedule());
-    }
-    processedStates = processedInstants.stream()
+    // the partitions of both forward and reverse backfills are listed in parameter order
+    return streamInstantsInRange(seekInstant(backfill, offset), backfill.end(), backfill.schedule())
+        .filter(instant -> toParameter(backfill.schedule(), instant).compareTo(offset) >= 0)
+        .limit(limit)
         .map(instant -> forkJoinPool.submit(() ->
-            getRunStateData(backfill, activeWorkflowInstances, instant)))
+            getRunStateData(backfill, activeWorkflowInstances, storedStatuses, instant)))
         .collect(toList())
         .stream()
         .map(ForkJoinTask::join)
         .collect(toList());
+  }
 
-    final List<Instant> waitingInstants;
-    if (backfill.reverse()) {
-      final Instant lastInstant = nextInstant(backfill.nextTrigger(), backfill.schedule());
-      waitingInstants = instantsInRange(backfill.start(), lastInstant, backfill.schedule());
-    } else {
-      waitingInstants = instantsInRange(backfill.nextTrigger(), backfill.end(), backfill.schedule());
-    }
-    waitingStates = waitingInstants.stream()
-        .map(instant -> {
-          final WorkflowInstance wfi = WorkflowInstance.create(
-              backfill.workflowId(), toParameter(backfill.schedule(), instant));
-          return RunStateData.create(wfi, WAITING, StateData.zero());
-        })
-        .collect(toList());
-
-    return backfill.reverse()
-        ? Stream.concat(waitingStates.stream(), processedStates.stream()).collect(toList())
-        : Stream.concat(processedStates.stream(), waitingStates.stream()).collect(toList());
+  /**
+   * Get the first partition instant of the backfill that is not before the partition with
+   * parameter {@code offset}, or an instant just before it, so that listing the partitions from
+   * an offset does not walk them from the start of the backfill.
+   */
+  private static Instant seekInstant(Backfill backfill, String offset) {
+    if (offset.isEmpty()) {
+      return backfill.start();
+    }
+    final Instant instant;
+    try {
+      instant = parseAlignedInstant(offset, backfill.schedule());
+    } catch (IllegalArgumentException | DateTimeException e) {
+      // not a partition parameter, so compare it to all of them
+      return backfill.start();
+    }
+    if (instant.isBefore(backfill.start())) {
+      return backfill.start();
+    }
+    return instant.isAfter(backfill.end()) ? backfill.end() : instant;
   }
 
   private RunStateData getRunStateData(Backfill backfill,
-      Map<WorkflowInstance, RunState> activeWorkflowInstances, Instant instant) {
+      Map<WorkflowInstance, RunState> activeWorkflowInstances,
+      Map<WorkflowInstance, RunStateData> storedStatuses, Instant instant) {
 
     final WorkflowInstance wfi = WorkflowInstance
         .create(backfill.workflowId(), toParameter(backfill.schedule(), instant));
 
+    if (!isProcessed(backfill, instant)) {
+      return RunStateData.create(wfi, WAITING, StateData.zero());
+    }
+
     if (activeWorkflowInstances.containsKey(wfi)) {
       final RunState state = activeWorkflowInstances.get(wfi);
       return RunStateData.newBuilder()
@@ -493,7 +587,21 @@ public final class BackfillResource implements Closeable {
           .build();
     }
 
+    final RunStateData storedStatus = storedStatuses.get(wfi);
+    if (storedStatus != null && RunState.State.valueOf(storedStatus.state()).isTerminal()) {
+      return storedStatus;
+    }
+
+    // partitions processed before their status was stored have to be replayed
     return ReplayEvents.getBackfillRunStateData(wfi, storage, backfill.id())
         .orElse(RunStateData.create(wfi, UNKNOWN, StateData.zero()));
   }
+
+  private static boolean isProcessed(Backfill backfill, Instant instant) {
+    if (backfill.reverse()) {
+      return !instant.isBefore(nextInstant(backfill.nextTrigger(), backfill.schedule()));
+    } else {
+      return instant.isBefore(backfill.nextTrigger());
+    }
+  }
 }
@@ -0,0 +1,136 @@
+/*-
+ * -\-\-
+ * Spotify Styx API Service
+ * --
+ * Copyright (C) 2017 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.api;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.spotify.styx.model.Resource;
+import com.spotify.styx.model.Schedule;
+import com.spotify.styx.model.StyxConfig;
+import com.spotify.styx.model.Workflow;
+import com.spotify.styx.model.WorkflowConfiguration;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.storage.Storage;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BackfillPlannerTest {
+
+  private static final Workflow WORKFLOW = Workflow.create("component", WorkflowConfiguration.builder()
+      .id("workflow")
+      .schedule(Schedule.HOURS)
+      .resources(List.of("resource"))
+      .build());
+
+  private static final WorkflowInstance ACTIVE_INSTANCE =
+      WorkflowInstance.create(WORKFLOW.id(), "2017-02-01T05");
+
+  @Mock private Storage storage;
+  @Mock private StyxConfig config;
+
+  private BackfillPlanner backfillPlanner;
+
+  @Before
+  public void setUp() throws Exception {
+    when(storage.readActiveStates(anyList())).thenAnswer(a -> {
+      final List<WorkflowInstance> instances = a.getArgument(0);
+      return instances.contains(ACTIVE_INSTANCE)
+          ? Map.of(ACTIVE_INSTANCE, RunState.fresh(ACTIVE_INSTANCE))
+          : Map.of();
+    });
+    backfillPlanner = new BackfillPlanner(storage);
+  }
+
+  @Test
+  public void shouldLookUpActivePartitionsInBatches() throws Exception {
+    final List<String> activePartitions = backfillPlanner.activePartitions(WORKFLOW.id(), Schedule.HOURS,
+        Instant.parse("2017-01-01T00:00:00Z"), Instant.parse("2017-04-15T04:00:00Z"));
+
+    assertThat(activePartitions, contains("2017-02-01T05"));
+    // 2500 partitions
+    verify(storage, times(3)).readActiveStates(anyList());
+  }
+
+  @Test
+  public void shouldPlanBackfill() throws Exception {
+    when(storage.config()).thenReturn(config);
+    when(config.globalConcurrency()).thenReturn(Optional.of(5L));
+    when(storage.resource("resource")).thenReturn(Optional.of(Resource.create("resource", 2L)));
+
+    final BackfillPlanPayload plan = backfillPlanner.plan(WORKFLOW,
+        Instant.parse("2017-02-01T00:00:00Z"), Instant.parse("2017-02-01T07:00:00Z"), 10,
+        Optional.of(Duration.ofMinutes(30)));
+
+    assertThat(plan.partitions(), is(7L));
+    assertThat(plan.conflicts(), contains("2017-02-01T05"));
+    assertThat(plan.effectiveConcurrency(), is(2L));
+    assertThat(plan.estimatedDuration(), is(Optional.of(Duration.ofHours(2))));
+  }
+
+  @Test
+  public void shouldEstimateDurationFromRunningTimeout() throws Exception {
+    when(storage.config()).thenReturn(config);
+    final Workflow workflow = Workflow.create("component", WorkflowConfiguration.builder()
+        .id("workflow")
+        .schedule(Schedule.HOURS)
+        .runningTimeout(Duration.ofHours(1))
+        .build());
+
+    final BackfillPlanPayload plan = backfillPlanner.plan(workflow,
+        Instant.parse("2017-01-01T00:00:00Z"), Instant.parse("2017-01-02T00:00:00Z"), 5,
+        Optional.empty());
+
+    assertThat(plan.partitions(), is(24L));
+    assertThat(plan.conflicts(), is(empty()));
+    assertThat(plan.effectiveConcurrency(), is(5L));
+    assertThat(plan.estimatedDuration(), is(Optional.of(Duration.ofHours(5))));
+  }
+
+  @Test
+  public void shouldNotEstimateDurationWithoutPartitionDuration() throws Exception {
+    when(storage.config()).thenReturn(config);
+    when(storage.resource("resource")).thenReturn(Optional.empty());
+
+    final BackfillPlanPayload plan = backfillPlanner.plan(WORKFLOW,
+        Instant.parse("2017-01-01T00:00:00Z"), Instant.parse("2017-01-02T00:00:00Z"), 5,
+        Optional.empty());
+
+    assertThat(plan.effectiveConcurrency(), is(5L));
+    assertThat(plan.estimatedDuration(), is(Optional.empty()));
+  }
+}
@@ -28,6 +28,9 @@ import static com.spotify.styx.api.JsonMatchers.assertJson;
 import static com.spotify.styx.api.JsonMatchers.assertNoJson;
 import static com.spotify.styx.testdata.TestData.EXECUTION_DESCRIPTION;
 import static com.spotify.styx.testdata.TestData.RESOURCE_IDS;
+import static com.spotify.styx.util.TriggerUtil.activeInstancesCounterId;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -54,6 +57,7 @@ import com.spotify.apollo.StatusType;
 import com.spotify.apollo.test.StubClient;
 import com.spotify.apollo.test.response.ResponseWithDelay;
 import com.spotify.apollo.test.response.Responses;
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
 import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.BackfillInput;
 import com.spotify.styx.model.EditableBackfillInput;
@@ -74,6 +78,7 @@ import com.spotify.styx.storage.AggregateStorage;
 import com.spotify.styx.storage.BigtableMocker;
 import com.spotify.styx.storage.BigtableStorage;
 import com.spotify.styx.storage.Storage;
+import com.spotify.styx.util.ShardedCounter;
 import com.spotify.styx.util.WorkflowValidator;
 import java.io.IOException;
 import java.time.Duration;
@@ -376,8 +381,8 @@ public class BackfillResourceTest extends VersionedApiTest {
     storage.writeEvent(SequenceEvent.create(
         Event.triggerExecution(wfi, Trigger.backfill("backfill-1"), TRIGGER_PARAMETERS),        1L, 1L));
     storage.writeEvent(SequenceEvent.create(Event.dequeue(wfi, RESOURCE_IDS),                   2L, 2L));
-    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1"), 3L, 3L));
-    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1"),                     4L, 4L));
+    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1", null), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1", null),                     4L, 4L));
     storage.writeEvent(SequenceEvent.create(Event.started(wfi),                                 5L, 5L));
     storage.writeActiveState(wfi, RunState.create(wfi, State.RUNNING,
         StateData.newBuilder()
@@ -411,9 +416,9 @@ public class BackfillResourceTest extends VersionedApiTest {
     storage.writeEvent(SequenceEvent.create(
         Event.triggerExecution(wfi, Trigger.backfill("backfill-2"), TRIGGER_PARAMETERS),        1L, 1L));
     storage.writeEvent(SequenceEvent.create(Event.dequeue(wfi, RESOURCE_IDS),                   2L, 2L));
-    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1"), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1", null), 3L, 3L));
     storage.writeEvent(SequenceEvent.create(Event.started(wfi),                                 5L, 5L));
-    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1"),                     4L, 4L));
+    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1", null),                     4L, 4L));
     storage.writeActiveState(wfi, RunState.create(wfi, State.RUNNING,
         StateData.newBuilder()
             .trigger(Trigger.backfill(BACKFILL_2.id()))
@@ -446,8 +451,8 @@ public class BackfillResourceTest extends VersionedApiTest {
     storage.writeEvent(SequenceEvent.create(
         Event.triggerExecution(wfi, Trigger.backfill("backfill-2"), TRIGGER_PARAMETERS),        1L, 1L));
     storage.writeEvent(SequenceEvent.create(Event.dequeue(wfi, RESOURCE_IDS),                   2L, 2L));
-    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1"), 3L, 3L));
-    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1"),                     4L, 4L));
+    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1", null), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1", null),                     4L, 4L));
     storage.writeEvent(SequenceEvent.create(Event.started(wfi),                                 5L, 5L));
     storage.writeActiveState(wfi, RunState.create(wfi, State.RUNNING,
         StateData.newBuilder()
@@ -516,13 +521,95 @@ public class BackfillResourceTest extends VersionedApiTest {
     storage.writeEvent(SequenceEvent.create(
         Event.triggerExecution(wfi, Trigger.backfill(backfillId), TRIGGER_PARAMETERS),          1L, 1L));
     storage.writeEvent(SequenceEvent.create(Event.dequeue(wfi, RESOURCE_IDS),                   2L, 2L));
-    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1"), 3L, 3L));
-    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1"),                     4L, 4L));
+    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1", null), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1", null),                     4L, 4L));
     storage.writeEvent(SequenceEvent.create(Event.started(wfi),                                 5L, 5L));
     storage.writeEvent(SequenceEvent.create(Event.terminate(wfi, Optional.of(0)),               6L, 6L));
     storage.writeEvent(SequenceEvent.create(Event.success(wfi),                                 7L, 7L));
   }
 
+  @Test
+  public void shouldGetStoredBackfillStatusesWithPagination() throws Exception {
+    sinceVersion(Api.Version.V3);
+
+    WorkflowInstance wfi = WorkflowInstance.create(BACKFILL_1.workflowId(), "2017-01-01T01");
+    storage.storeBackfill(BACKFILL_1.builder().nextTrigger(Instant.parse("2017-01-01T02:00:00Z")).build());
+    storage.runInTransaction(tx -> {
+      tx.storeBackfillStatus(BACKFILL_1.id(), RunStateData.newBuilder()
+          .workflowInstance(wfi)
+          .state(State.DONE.name())
+          .stateData(StateData.newBuilder().trigger(Trigger.backfill(BACKFILL_1.id())).build())
+          .initialTimestamp(1L)
+          .latestTimestamp(7L)
+          .build());
+      return null;
+    });
+
+    Response<ByteString> response = awaitResponse(serviceHelper.request("GET",
+        path("/" + BACKFILL_1.id() + "?offset=2017-01-01T01&limit=2")));
+
+    assertThat(response, hasStatus(belongsToFamily(StatusType.Family.SUCCESSFUL)));
+    assertJson(response, "statuses.active_states", hasSize(2));
+    assertJson(response, "statuses.active_states[0].workflow_instance.parameter", equalTo("2017-01-01T01"));
+    assertJson(response, "statuses.active_states[0].state", equalTo("DONE"));
+    assertJson(response, "statuses.active_states[0].initial_timestamp", equalTo(1));
+    assertJson(response, "statuses.active_states[0].latest_timestamp", equalTo(7));
+    assertJson(response, "statuses.active_states[1].state", equalTo("WAITING"));
+
+    verify(storage, never()).readEvents(wfi);
+  }
+
+  @Test
+  public void shouldGetBackfillStatusesFromUnalignedOffset() throws Exception {
+    sinceVersion(Api.Version.V3);
+
+    storage.storeBackfill(BACKFILL_1);
+
+    Response<ByteString> response = awaitResponse(serviceHelper.request("GET",
+        path("/" + BACKFILL_1.id() + "?offset=2017-01-01T22:30&limit=5")));
+
+    assertThat(response, hasStatus(belongsToFamily(StatusType.Family.SUCCESSFUL)));
+    assertJson(response, "statuses.active_states", hasSize(1));
+    assertJson(response, "statuses.active_states[0].workflow_instance.parameter", equalTo("2017-01-01T23"));
+  }
+
+  @Test
+  public void shouldGetNoBackfillStatusesFromOffsetAfterEnd() throws Exception {
+    sinceVersion(Api.Version.V3);
+
+    storage.storeBackfill(BACKFILL_1);
+
+    Response<ByteString> response = awaitResponse(serviceHelper.request("GET",
+        path("/" + BACKFILL_1.id() + "?offset=2017-02-01T00&limit=5")));
+
+    assertThat(response, hasStatus(belongsToFamily(StatusType.Family.SUCCESSFUL)));
+    assertJson(response, "statuses.active_states", hasSize(0));
+  }
+
+  @Test
+  public void shouldRejectNonNumericBackfillStatusesLimit() throws Exception {
+    sinceVersion(Api.Version.V3);
+
+    storage.storeBackfill(BACKFILL_1);
+
+    Response<ByteString> response = awaitResponse(serviceHelper.request("GET",
+        path("/" + BACKFILL_1.id() + "?limit=abc")));
+
+    assertThat(response.status(), is(Status.BAD_REQUEST.withReasonPhrase("invalid limit")));
+  }
+
+  @Test
+  public void shouldRejectNegativeBackfillStatusesLimit() throws Exception {
+    sinceVersion(Api.Version.V3);
+
+    storage.storeBackfill(BACKFILL_1);
+
+    Response<ByteString> response = awaitResponse(serviceHelper.request("GET",
+        path("/" + BACKFILL_1.id() + "?limit=-1")));
+
+    assertThat(response.status(), is(Status.BAD_REQUEST.withReasonPhrase("invalid limit")));
+  }
+
   @Test
   public void shouldGetBackfillWithoutStatus() throws Exception {
     sinceVersion(Api.Version.V3);
@@ -591,6 +678,8 @@ public class BackfillResourceTest extends VersionedApiTest {
     assertThat(postedBackfill.allTriggered(), equalTo(false));
     assertThat(postedBackfill.halted(), equalTo(false));
     assertThat(postedBackfill.reverse(), equalTo(false));
+    assertThat(ShardedCounter.readCounter(storage, activeInstancesCounterId(postedBackfill.id())),
+        equalTo(Optional.of(0L)));
   }
 
   @Test
@@ -667,6 +756,54 @@ public class BackfillResourceTest extends VersionedApiTest {
   }
 
 
+  @Test
+  public void shouldFailPostBackfillWithActivePartitions() throws Exception {
+    sinceVersion(Api.Version.V3);
+
+    final WorkflowInstance wfi = WorkflowInstance.create(WORKFLOW_ID_2, "2017-01-01T05");
+    storage.writeActiveState(wfi, RunState.create(wfi, State.RUNNING, Instant.now()));
+
+    final String json = "{\"start\":\"2017-01-01T00:00:00Z\"," +
+                        "\"end\":\"2017-02-01T00:00:00Z\"," +
+                        "\"component\":\"component\"," +
+                        "\"workflow\":\"workflow2\","+
+                        "\"concurrency\":1}";
+
+    Response<ByteString> response =
+        awaitResponse(serviceHelper.request("POST", path(""), ByteString.encodeUtf8(json)));
+
+    assertThat(response, hasStatus(withCode(Status.CONFLICT)));
+    assertThat(response.status().reasonPhrase(),
+        is("these partitions are already active: 2017-01-01T05"));
+    verify(storage, never()).readActiveStates(WORKFLOW_ID_2.componentId());
+  }
+
+  @Test
+  public void shouldPlanBackfill() throws Exception {
+    sinceVersion(Api.Version.V3);
+
+    final WorkflowInstance wfi = WorkflowInstance.create(WORKFLOW_ID_2, "2017-01-01T05");
+    storage.writeActiveState(wfi, RunState.create(wfi, State.RUNNING, Instant.now()));
+
+    final String json = "{\"start\":\"2017-01-01T00:00:00Z\"," +
+                        "\"end\":\"2017-01-02T00:00:00Z\"," +
+                        "\"component\":\"component\"," +
+                        "\"workflow\":\"workflow2\","+
+                        "\"concurrency\":4}";
+
+    Response<ByteString> response = awaitResponse(serviceHelper.request("POST",
+        path("/plan?partitionDuration=PT30M"), ByteString.encodeUtf8(json)));
+
+    assertThat(response, hasStatus(belongsToFamily(StatusType.Family.SUCCESSFUL)));
+    final BackfillPlanPayload plan = Json.OBJECT_MAPPER.readValue(
+        response.payload().get().toByteArray(), BackfillPlanPayload.class);
+    assertThat(plan.partitions(), is(24L));
+    assertThat(plan.conflicts(), contains("2017-01-01T05"));
+    assertThat(plan.effectiveConcurrency(), is(4L));
+    assertThat(plan.estimatedDuration(), is(Optional.of(Duration.ofHours(3))));
+    assertThat(storage.backfillsForWorkflowId(true, WORKFLOW_ID_2), is(empty()));
+  }
+
   @Test
   public void shouldPostBackfillReversed() throws Exception {
     sinceVersion(Api.Version.V3);
@@ -915,14 +1052,15 @@ public class BackfillResourceTest extends VersionedApiTest {
 
     assertThat(storage.backfill(BACKFILL_1.id()).get().halted(), equalTo(true));
     verify(serviceHelper.stubClient(), times(1)).send(any());
+    verify(storage).deleteResource(activeInstancesCounterId(BACKFILL_1.id()));
   }
 
   private void storeRunningWorkflowInstance(WorkflowInstance wfi, String backfillId) throws IOException {
     storage.writeEvent(SequenceEvent.create(
         Event.triggerExecution(wfi, Trigger.backfill(backfillId), TRIGGER_PARAMETERS),          1L, 1L));
     storage.writeEvent(SequenceEvent.create(Event.dequeue(wfi, RESOURCE_IDS),                   2L, 2L));
-    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1"), 3L, 3L));
-    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1"),                     4L, 4L));
+    storage.writeEvent(SequenceEvent.create(Event.submit(wfi, EXECUTION_DESCRIPTION, "exec-1", null), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi, "exec-1", null),                     4L, 4L));
     storage.writeEvent(SequenceEvent.create(Event.started(wfi),                                 5L, 5L));
     storage.writeActiveState(wfi, RunState.create(wfi, State.RUNNING, StateData.zero(), Instant.now(), 5L));
   }
@@ -941,8 +1079,8 @@ public class BackfillResourceTest extends VersionedApiTest {
     storage.writeEvent(SequenceEvent.create(
         Event.triggerExecution(wfi1, Trigger.backfill("backfill-1"), TRIGGER_PARAMETERS),        1L, 1L));
     storage.writeEvent(SequenceEvent.create(Event.dequeue(wfi1, RESOURCE_IDS),                   2L, 2L));
-    storage.writeEvent(SequenceEvent.create(Event.submit(wfi1, EXECUTION_DESCRIPTION, "exec-1"), 3L, 3L));
-    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi1, "exec-1"),                     4L, 4L));
+    storage.writeEvent(SequenceEvent.create(Event.submit(wfi1, EXECUTION_DESCRIPTION, "exec-1", null), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi1, "exec-1", null),                     4L, 4L));
     storage.writeEvent(SequenceEvent.create(Event.started(wfi1),                                 5L, 5L));
     storage.writeActiveState(wfi1, RunState.create(wfi1, State.RUNNING,
         StateData.zero(), Instant.now(), 5L));
@@ -974,15 +1112,15 @@ public class BackfillResourceTest extends VersionedApiTest {
     storage.writeEvent(SequenceEvent.create(
         Event.triggerExecution(wfi1, Trigger.backfill("backfill-1"), TRIGGER_PARAMETERS),        1L, 1L));
     storage.writeEvent(SequenceEvent.create(Event.dequeue(wfi1, RESOURCE_IDS),                   2L, 2L));
-    storage.writeEvent(SequenceEvent.create(Event.submit(wfi1, EXECUTION_DESCRIPTION, "exec-1"), 3L, 3L));
-    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi1, "exec-1"),                     4L, 4L));
+    storage.writeEvent(SequenceEvent.create(Event.submit(wfi1, EXECUTION_DESCRIPTION, "exec-1", null), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi1, "exec-1", null),                     4L, 4L));
     storage.writeEvent(SequenceEvent.create(Event.started(wfi1),                                 5L, 5L));
 
     storage.writeEvent(SequenceEvent.create(
         Event.triggerExecution(wfi2, Trigger.backfill("backfill-1"), TRIGGER_PARAMETERS),        1L, 1L));
     storage.writeEvent(SequenceEvent.create(Event.dequeue(wfi2, RESOURCE_IDS),                   2L, 2L));
-    storage.writeEvent(SequenceEvent.create(Event.submit(wfi2, EXECUTION_DESCRIPTION, "exec-2"), 3L, 3L));
-    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi2, "exec-2"),                     4L, 4L));
+    storage.writeEvent(SequenceEvent.create(Event.submit(wfi2, EXECUTION_DESCRIPTION, "exec-2", null), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.submitted(wfi2, "exec-2", null),                     4L, 4L));
     storage.writeEvent(SequenceEvent.create(Event.started(wfi2),                                 5L, 5L));
 
     storage.writeActiveState(wfi1, RunState.create(wfi1, State.RUNNING,
@@ -1150,6 +1288,7 @@ public class BackfillResourceTest extends VersionedApiTest {
       new BigtableMocker(bigtable)
           .setNumFailures(0)
           .setupTable(BigtableStorage.EVENTS_TABLE_NAME)
+          .setupTable(BigtableStorage.WORKFLOW_INSTANCES_TABLE_NAME)
           .finalizeMocking();
     } catch (IOException e) {
       throw Throwables.propagate(e);
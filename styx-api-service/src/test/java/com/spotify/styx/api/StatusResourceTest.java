@@ -285,6 +285,7 @@ public class StatusResourceTest extends VersionedApiTest {
       new BigtableMocker(bigtable)
           .setNumFailures(0)
           .setupTable(BigtableStorage.EVENTS_TABLE_NAME)
+          .setupTable(BigtableStorage.WORKFLOW_INSTANCES_TABLE_NAME)
           .finalizeMocking();
     } catch (IOException e) {
       throw new RuntimeException(e);
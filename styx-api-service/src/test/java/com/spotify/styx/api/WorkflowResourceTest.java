@@ -800,6 +800,7 @@ public class WorkflowResourceTest extends VersionedApiTest {
       new BigtableMocker(bigtable)
           .setNumFailures(0)
           .setupTable(BigtableStorage.EVENTS_TABLE_NAME)
+          .setupTable(BigtableStorage.WORKFLOW_INSTANCES_TABLE_NAME)
           .finalizeMocking();
     } catch (IOException e) {
       throw Throwables.propagate(e);
@@ -83,7 +83,7 @@ public class JsonCliOutputTest {
 
   private static final String EXPECTED_OUTPUT_WITH_STATUS = "{\"backfill\":"
                                                             + EXPECTED_OUTPUT
-                                                            + ",\"statuses\":null}";
+                                                            + ",\"statuses\":null,\"active_instances\":null}";
 
   private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
 
@@ -35,10 +35,19 @@ public abstract class BackfillPayload {
   @JsonProperty
   public abstract Optional<RunStateDataPayload> statuses();
 
+  @JsonProperty
+  public abstract Optional<Long> activeInstances();
+
   @JsonCreator
   public static BackfillPayload create(
       @JsonProperty("backfill") Backfill backfill,
-      @JsonProperty("statuses") Optional<RunStateDataPayload> statuses) {
-    return new AutoValue_BackfillPayload(backfill, statuses);
+      @JsonProperty("statuses") Optional<RunStateDataPayload> statuses,
+      @JsonProperty("active_instances") Optional<Long> activeInstances) {
+    return new AutoValue_BackfillPayload(backfill, statuses, activeInstances);
+  }
+
+  public static BackfillPayload create(Backfill backfill,
+                                       Optional<RunStateDataPayload> statuses) {
+    return create(backfill, statuses, Optional.empty());
   }
 }
@@ -0,0 +1,64 @@
+/*-
+ * -\-\-
+ * Spotify Styx Common
+ * --
+ * Copyright (C) 2016 - 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The summary of a planned backfill, computed without creating the backfill.
+ */
+@AutoValue
+public abstract class BackfillPlanPayload {
+
+  @JsonProperty
+  public abstract long partitions();
+
+  /**
+   * The parameters of the partitions that are already active.
+   */
+  @JsonProperty
+  public abstract List<String> conflicts();
+
+  /**
+   * The number of partitions that can run at the same time, given the backfill concurrency and
+   * the resource limits of the workflow.
+   */
+  @JsonProperty
+  public abstract long effectiveConcurrency();
+
+  @JsonProperty
+  public abstract Optional<Duration> estimatedDuration();
+
+  @JsonCreator
+  public static BackfillPlanPayload create(
+      @JsonProperty("partitions") long partitions,
+      @JsonProperty("conflicts") List<String> conflicts,
+      @JsonProperty("effective_concurrency") long effectiveConcurrency,
+      @JsonProperty("estimated_duration") Optional<Duration> estimatedDuration) {
+    return new AutoValue_BackfillPlanPayload(partitions, conflicts, effectiveConcurrency,
+        estimatedDuration);
+  }
+}
@@ -99,13 +99,13 @@ class PersistentEvent {
 
     @Override
     public PersistentEvent submit(WorkflowInstance workflowInstance, ExecutionDescription executionDescription,
-        String executionId) {
-      return new Submit(workflowInstance.toKey(), executionDescription, executionId);
+        String executionId, String runnerId) {
+      return new Submit(workflowInstance.toKey(), executionDescription, executionId, runnerId);
     }
 
     @Override
-    public PersistentEvent submitted(WorkflowInstance workflowInstance, String executionId) {
-      return new Submitted(workflowInstance.toKey(), executionId);
+    public PersistentEvent submitted(WorkflowInstance workflowInstance, String executionId, String runnerId) {
+      return new Submitted(workflowInstance.toKey(), executionId, runnerId);
     }
 
     @Override
@@ -264,18 +264,21 @@ class PersistentEvent {
   public static class Submitted extends PersistentEvent {
 
     public final String executionId;
+    public final String runnerId;
 
     @JsonCreator
     public Submitted(
         @JsonProperty("workflow_instance") String workflowInstance,
-        @JsonProperty("execution_id") String executionId) {
+        @JsonProperty("execution_id") String executionId,
+        @JsonProperty("runner_id") String runnerId) {
       super("submitted", workflowInstance);
       this.executionId = executionId;
+      this.runnerId = runnerId;
     }
 
     @Override
     public Event toEvent() {
-      return Event.submitted(WorkflowInstance.parseKey(workflowInstance), executionId);
+      return Event.submitted(WorkflowInstance.parseKey(workflowInstance), executionId, runnerId);
     }
   }
 
@@ -373,20 +376,24 @@ class PersistentEvent {
 
     public final ExecutionDescription executionDescription;
     public final String executionId;
+    public final String runnerId;
 
     @JsonCreator
     public Submit(
         @JsonProperty("workflow_instance") String workflowInstance,
         @JsonProperty("execution_description") ExecutionDescription executionDescription,
-        @JsonProperty("execution_id") String executionId) {
+        @JsonProperty("execution_id") String executionId,
+        @JsonProperty("runner_id") String runnerId) {
       super("submit", workflowInstance);
       this.executionDescription = executionDescription;
       this.executionId = executionId;
+      this.runnerId = runnerId;
     }
 
     @Override
     public Event toEvent() {
-      return Event.submit(WorkflowInstance.parseKey(workflowInstance), executionDescription, executionId);
+      return Event.submit(WorkflowInstance.parseKey(workflowInstance), executionDescription, executionId,
+          runnerId);
     }
   }
 }
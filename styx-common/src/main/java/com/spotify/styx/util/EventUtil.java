@@ -129,13 +129,18 @@ public final class EventUtil {
 
     @Override
     public String submit(WorkflowInstance workflowInstance, ExecutionDescription executionDescription,
-        String executionId) {
-      return String.format("Execution description: %s, id: %s", executionDescription, executionId);
+        String executionId, String runnerId) {
+      return runnerId == null
+             ? String.format("Execution description: %s, id: %s", executionDescription, executionId)
+             : String.format("Execution description: %s, id: %s, runner id: %s", executionDescription,
+                 executionId, runnerId);
     }
 
     @Override
-    public String submitted(WorkflowInstance workflowInstance, String executionId) {
-      return String.format("Execution id: %s", executionId);
+    public String submitted(WorkflowInstance workflowInstance, String executionId, String runnerId) {
+      return runnerId == null
+             ? String.format("Execution id: %s", executionId)
+             : String.format("Execution id: %s, runner id: %s", executionId, runnerId);
     }
   }
 
@@ -219,12 +224,12 @@ public final class EventUtil {
 
     @Override
     public String submit(WorkflowInstance workflowInstance, ExecutionDescription executionDescription,
-        String executionId) {
+        String executionId, String runnerId) {
       return "submit";
     }
 
     @Override
-    public String submitted(WorkflowInstance workflowInstance, String executionId) {
+    public String submitted(WorkflowInstance workflowInstance, String executionId, String runnerId) {
       return "submitted";
     }
   }
@@ -21,7 +21,9 @@
 package com.spotify.styx.util;
 
 import static com.cronutils.model.definition.CronDefinitionBuilder.instanceDefinitionFor;
+import static com.spotify.styx.model.Schedule.WellKnown.UNKNOWN;
 import static java.time.ZoneOffset.UTC;
+import static java.util.stream.Collectors.toList;
 
 import com.cronutils.model.Cron;
 import com.cronutils.model.CronType;
@@ -29,20 +31,27 @@ import com.cronutils.model.definition.CronDefinition;
 import com.cronutils.model.time.ExecutionTime;
 import com.cronutils.parser.CronParser;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.spotify.styx.model.Schedule;
+import com.spotify.styx.model.Schedule.WellKnown;
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.Period;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.time.temporal.TemporalAmount;
-import java.time.temporal.UnsupportedTemporalTypeException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Static utility functions for manipulating time based on {@link Schedule} and offsets.
@@ -55,6 +64,13 @@ public class TimeUtil {
   private static final String MONTHLY_CRON = "0 0 1 * *";
   private static final String YEARLY_CRON = "0 0 1 1 *";
 
+  private static final int EXECUTION_TIME_CACHE_SIZE = 10_000;
+
+  // Compiled cron schedules, shared as parsing dominates the cost of a single schedule calculation
+  private static final LoadingCache<Schedule, ExecutionTime> EXECUTION_TIMES = CacheBuilder.newBuilder()
+      .maximumSize(EXECUTION_TIME_CACHE_SIZE)
+      .build(CacheLoader.from(schedule -> ExecutionTime.forCron(cron(schedule))));
+
   private static final Pattern OFFSET_PATTERN = Pattern.compile(
       "([-+]?)P([-+0-9YMWD]+)?(T([-+0-9HMS.,]+)?)?", Pattern.CASE_INSENSITIVE);
 
@@ -74,7 +90,11 @@ public class TimeUtil {
    * @return an instant at the last execution time
    */
   public static Instant lastInstant(Instant instant, Schedule schedule) {
-    final ExecutionTime executionTime = ExecutionTime.forCron(cron(schedule));
+    if (schedule.wellKnown() != UNKNOWN) {
+      return isAligned(instant, schedule) ? instant : executionBefore(instant, schedule.wellKnown());
+    }
+
+    final ExecutionTime executionTime = executionTime(schedule);
     final ZonedDateTime utcDateTime = instant.atZone(UTC);
 
     // executionTime.isMatch ignores seconds for unix cron
@@ -88,7 +108,11 @@ public class TimeUtil {
   }
 
   public static Instant previousInstant(Instant instant, Schedule schedule) {
-    final ExecutionTime executionTime = ExecutionTime.forCron(cron(schedule));
+    if (schedule.wellKnown() != UNKNOWN) {
+      return executionBefore(instant, schedule.wellKnown());
+    }
+
+    final ExecutionTime executionTime = executionTime(schedule);
     final ZonedDateTime utcDateTime = instant.atZone(UTC);
 
     return executionTime.lastExecution(utcDateTime)
@@ -106,7 +130,12 @@ public class TimeUtil {
    * @return an instant at the next execution time
    */
   public static Instant nextInstant(Instant instant, Schedule schedule) {
-    final ExecutionTime executionTime = ExecutionTime.forCron(cron(schedule));
+    if (schedule.wellKnown() != UNKNOWN) {
+      // Like the cron execution time, ignore sub-second values
+      return plus(floor(instant.truncatedTo(ChronoUnit.SECONDS), schedule.wellKnown()), schedule.wellKnown(), 1);
+    }
+
+    final ExecutionTime executionTime = executionTime(schedule);
     final ZonedDateTime utcDateTime = instant.atZone(UTC);
 
     return executionTime.nextExecution(utcDateTime)
@@ -125,25 +154,51 @@ public class TimeUtil {
    */
   public static List<Instant> instantsInRange(Instant firstInstant, Instant lastInstant,
                                               Schedule schedule) {
+    return streamInstantsInRange(firstInstant, lastInstant, schedule).collect(toList());
+  }
+
+  /**
+   * Lazily streams the instants between firstInstant (inclusive) and lastInstant (exclusive)
+   * according to the {@link Schedule}, in order. See {@link #instantsInRange}.
+   *
+   * @param firstInstant The first instant
+   * @param lastInstant  The last instant
+   * @param schedule     The schedule of the workflow
+   * @return instants within the range
+   */
+  public static Stream<Instant> streamInstantsInRange(Instant firstInstant, Instant lastInstant,
+                                                      Schedule schedule) {
     Preconditions.checkArgument(
         isAligned(firstInstant, schedule) && isAligned(lastInstant, schedule),
         "unaligned instant");
     Preconditions.checkArgument(!lastInstant.isBefore(firstInstant),
         "last instant should not be before first instant");
 
-    final ExecutionTime executionTime = ExecutionTime.forCron(cron(schedule));
-    final List<Instant> instants = new ArrayList<>();
+    return Stream.iterate(firstInstant, instant -> instant.isBefore(lastInstant),
+        instant -> nextInstant(instant, schedule));
+  }
 
-    Instant currentInstant = firstInstant;
-    while (currentInstant.isBefore(lastInstant)) {
-      instants.add(currentInstant);
-      final ZonedDateTime utcDateTime = currentInstant.atZone(UTC);
-      currentInstant = executionTime.nextExecution(utcDateTime)
-          .orElseThrow(IllegalArgumentException::new) // with unix cron, this should not happen
-          .toInstant();
-    }
+  /**
+   * Counts the instants between firstInstant (inclusive) and lastInstant (exclusive) according to
+   * the {@link Schedule}, without enumerating them for well-known schedules.
+   *
+   * @param firstInstant The first instant
+   * @param lastInstant  The last instant
+   * @param schedule     The schedule of the workflow
+   * @return the number of instants within the range
+   */
+  public static long countInstantsInRange(Instant firstInstant, Instant lastInstant,
+                                          Schedule schedule) {
+    Preconditions.checkArgument(
+        isAligned(firstInstant, schedule) && isAligned(lastInstant, schedule),
+        "unaligned instant");
+    Preconditions.checkArgument(!lastInstant.isBefore(firstInstant),
+        "last instant should not be before first instant");
 
-    return instants;
+    // Aligned instants of well-known schedules are exactly a whole number of units apart
+    return schedule.wellKnown().unit()
+        .map(unit -> unit.between(firstInstant.atZone(UTC), lastInstant.atZone(UTC)))
+        .orElseGet(() -> streamInstantsInRange(firstInstant, lastInstant, schedule).count());
   }
 
   /**
@@ -158,25 +213,45 @@ public class TimeUtil {
    */
   public static List<Instant> instantsInReversedRange(Instant firstInstant, Instant lastInstant,
                                                       Schedule schedule) {
+    return streamInstantsInReversedRange(firstInstant, lastInstant, schedule).collect(toList());
+  }
+
+  /**
+   * Lazily streams the instants between firstInstant (inclusive) and lastInstant (exclusive)
+   * according to the {@link Schedule}, in reversed order. See {@link #instantsInReversedRange}.
+   *
+   * @param firstInstant The first instant
+   * @param lastInstant  The last instant
+   * @param schedule     The schedule of the workflow
+   * @return instants within the range
+   */
+  public static Stream<Instant> streamInstantsInReversedRange(Instant firstInstant, Instant lastInstant,
+                                                              Schedule schedule) {
     Preconditions.checkArgument(
         isAligned(firstInstant, schedule) && isAligned(lastInstant, schedule),
         "unaligned instant");
     Preconditions.checkArgument(!lastInstant.isAfter(firstInstant),
         "last instant should not be after first instant");
 
-    final ExecutionTime executionTime = ExecutionTime.forCron(cron(schedule));
-    final List<Instant> instants = new ArrayList<>();
-
-    Instant currentInstant = firstInstant;
-    while (currentInstant.isAfter(lastInstant)) {
-      instants.add(currentInstant);
-      final ZonedDateTime utcDateTime = currentInstant.atZone(UTC);
-      currentInstant = executionTime.lastExecution(utcDateTime)
-          .orElseThrow(IllegalArgumentException::new) // with unix cron, this should not happen
-          .toInstant();
-    }
+    return Stream.iterate(firstInstant, instant -> instant.isAfter(lastInstant),
+        instant -> previousInstant(instant, schedule));
+  }
 
-    return instants;
+  /**
+   * Counts the instants between firstInstant (inclusive) and lastInstant (exclusive) in reversed
+   * order according to the {@link Schedule}, without enumerating them for well-known schedules.
+   *
+   * @param firstInstant The first instant
+   * @param lastInstant  The last instant
+   * @param schedule     The schedule of the workflow
+   * @return the number of instants within the range
+   */
+  public static long countInstantsInReversedRange(Instant firstInstant, Instant lastInstant,
+                                                  Schedule schedule) {
+    Preconditions.checkArgument(!lastInstant.isAfter(firstInstant),
+        "last instant should not be after first instant");
+    // (last, first] has as many instants as [last, first)
+    return countInstantsInRange(lastInstant, firstInstant, schedule);
   }
 
   /**
@@ -193,7 +268,11 @@ public class TimeUtil {
       return false;
     }
 
-    final ExecutionTime executionTime = ExecutionTime.forCron(cron(schedule));
+    if (schedule.wellKnown() != UNKNOWN) {
+      return floor(instant, schedule.wellKnown()).equals(instant);
+    }
+
+    final ExecutionTime executionTime = executionTime(schedule);
     final ZonedDateTime utcDateTime = instant.atZone(UTC);
 
     return executionTime.isMatch(utcDateTime);
@@ -245,6 +324,59 @@ public class TimeUtil {
     return new CronParser(cronDefinition).parse(cronExpression(schedule));
   }
 
+  private static ExecutionTime executionTime(Schedule schedule) {
+    try {
+      return EXECUTION_TIMES.getUnchecked(schedule);
+    } catch (UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw e;
+    }
+  }
+
+  /**
+   * The last execution instant of a well-known schedule strictly before the given instant, ignoring sub-second
+   * values like the cron execution time does.
+   */
+  private static Instant executionBefore(Instant instant, WellKnown wellKnown) {
+    final Instant seconds = instant.truncatedTo(ChronoUnit.SECONDS);
+    final Instant floor = floor(seconds, wellKnown);
+    return floor.isBefore(seconds) ? floor : plus(floor, wellKnown, -1);
+  }
+
+  /**
+   * The last execution instant of a well-known schedule at or before the given instant.
+   */
+  private static Instant floor(Instant instant, WellKnown wellKnown) {
+    switch (wellKnown) {
+      case HOURLY:
+        return instant.truncatedTo(ChronoUnit.HOURS);
+      case DAILY:
+        return instant.truncatedTo(ChronoUnit.DAYS);
+      case WEEKLY:
+        return instant.atZone(UTC).toLocalDate()
+            .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+            .atStartOfDay(UTC).toInstant();
+      case MONTHLY:
+        return instant.atZone(UTC).toLocalDate()
+            .withDayOfMonth(1)
+            .atStartOfDay(UTC).toInstant();
+      case YEARLY:
+        return instant.atZone(UTC).toLocalDate()
+            .withDayOfYear(1)
+            .atStartOfDay(UTC).toInstant();
+
+      default:
+        throw new IllegalArgumentException("Not a well-known schedule: " + wellKnown);
+    }
+  }
+
+  private static Instant plus(Instant instant, WellKnown wellKnown, long amount) {
+    // Instant only supports adding time-based units, while weeks, months and years need a date
+    return instant.atZone(UTC)
+        .plus(amount, wellKnown.unit().orElseThrow(IllegalArgumentException::new))
+        .toInstant();
+  }
+
   private static String cronExpression(Schedule schedule) {
     switch (schedule.wellKnown()) {
       case HOURLY:
@@ -265,25 +397,19 @@ public class TimeUtil {
 
   public static Instant offsetInstant(Instant origin, Schedule schedule, int offset) {
     Preconditions.checkArgument(isAligned(origin, schedule), "unaligned origin");
-    return schedule.wellKnown().unit()
-        .map(unit -> {
-          try {
-            return origin.plus(offset, unit);
-          } catch (UnsupportedTemporalTypeException ignored) {
-            return null;
-          }
-        })
-        .orElseGet(() -> {
-          final ExecutionTime executionTime = ExecutionTime.forCron(cron(schedule));
-          ZonedDateTime time = origin.atZone(UTC);
-          for (int i = 0; i < Math.abs(offset); i++) {
-            final Optional<ZonedDateTime> execution = offset <= 0
-                                                      ? executionTime.lastExecution(time)
-                                                      : executionTime.nextExecution(time);
-            time = execution
-                .orElseThrow(AssertionError::new); // with unix cron, this should not happen
-          }
-          return time.toInstant();
-        });
+    if (schedule.wellKnown() != UNKNOWN) {
+      return plus(origin, schedule.wellKnown(), offset);
+    }
+
+    final ExecutionTime executionTime = executionTime(schedule);
+    ZonedDateTime time = origin.atZone(UTC);
+    for (int i = 0; i < Math.abs(offset); i++) {
+      final Optional<ZonedDateTime> execution = offset <= 0
+                                                ? executionTime.lastExecution(time)
+                                                : executionTime.nextExecution(time);
+      time = execution
+          .orElseThrow(AssertionError::new); // with unix cron, this should not happen
+    }
+    return time.toInstant();
   }
 }
@@ -34,6 +34,8 @@ public class TriggerUtil {
 
   public static final String NATURAL_TRIGGER_ID = "natural-trigger";
 
+  private static final String ACTIVE_INSTANCES_COUNTER_PREFIX = "active-instances:";
+
   private TriggerUtil() {
     throw new UnsupportedOperationException();
   }
@@ -50,6 +52,21 @@ public class TriggerUtil {
     return trigger.accept(TriggerIdVisitor.INSTANCE);
   }
 
+  /**
+   * Returns the id of the counter of active workflow instances triggered by a trigger id.
+   */
+  public static String activeInstancesCounterId(String triggerId) {
+    return ACTIVE_INSTANCES_COUNTER_PREFIX + triggerId;
+  }
+
+  /**
+   * Returns true if the counter id is the id of an active instances counter, and not of a
+   * resource.
+   */
+  public static boolean isActiveInstancesCounterId(String counterId) {
+    return counterId.startsWith(ACTIVE_INSTANCES_COUNTER_PREFIX);
+  }
+
   public static List<String> triggerTypesList() {
     return Arrays.stream(TriggerVisitor.class.getDeclaredMethods())
         .map(Method::getName)
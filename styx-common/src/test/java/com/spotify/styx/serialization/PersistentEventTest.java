@@ -80,8 +80,10 @@ public class PersistentEventTest {
     assertRoundtrip(Event.stop(INSTANCE1));
     assertRoundtrip(Event.timeout(INSTANCE1));
     assertRoundtrip(Event.halt(INSTANCE1));
-    assertRoundtrip(Event.submit(INSTANCE1, EXECUTION_DESCRIPTION, POD_NAME));
-    assertRoundtrip(Event.submitted(INSTANCE1, POD_NAME));
+    assertRoundtrip(Event.submit(INSTANCE1, EXECUTION_DESCRIPTION, POD_NAME, null));
+    assertRoundtrip(Event.submit(INSTANCE1, EXECUTION_DESCRIPTION, POD_NAME, "cluster-1"));
+    assertRoundtrip(Event.submitted(INSTANCE1, POD_NAME, null));
+    assertRoundtrip(Event.submitted(INSTANCE1, POD_NAME, "cluster-1"));
   }
 
   @Test
@@ -103,7 +105,7 @@ public class PersistentEventTest {
                                                + "\"secret\":{\"name\":\"secret\",\"mount_path\":\"/dev/null\"},"
                                                + "\"commit_sha\":\"" + COMMIT_SHA
                                                + "\"}")),
-        is(Event.submit(INSTANCE1, EXECUTION_DESCRIPTION, null)));
+        is(Event.submit(INSTANCE1, EXECUTION_DESCRIPTION, null, null)));
     assertThat(deserializeEvent(json("submit", "\"execution_description\": { "
                                                + "\"docker_image\":\"" + DOCKER_IMAGE + "\","
                                                + "\"docker_args\":[\"foo\",\"bar\"],"
@@ -111,16 +113,28 @@ public class PersistentEventTest {
                                                + "\"commit_sha\":\"" + COMMIT_SHA
                                                + "\"}, "
                                                + "\"execution_id\": \"" + POD_NAME + "\"")),
-        is(Event.submit(INSTANCE1, EXECUTION_DESCRIPTION, POD_NAME)));
+        is(Event.submit(INSTANCE1, EXECUTION_DESCRIPTION, POD_NAME, null)));
+    assertThat(deserializeEvent(json("submit", "\"execution_description\": { "
+                                               + "\"docker_image\":\"" + DOCKER_IMAGE + "\","
+                                               + "\"docker_args\":[\"foo\",\"bar\"],"
+                                               + "\"secret\":{\"name\":\"secret\",\"mount_path\":\"/dev/null\"},"
+                                               + "\"commit_sha\":\"" + COMMIT_SHA
+                                               + "\"}, "
+                                               + "\"execution_id\": \"" + POD_NAME + "\","
+                                               + "\"runner_id\": \"cluster-1\"")),
+        is(Event.submit(INSTANCE1, EXECUTION_DESCRIPTION, POD_NAME, "cluster-1")));
     assertThat(
         deserializeEvent(json("info", "\"message\":{\"line\":\"InfoMessage\",\"level\":\"INFO\"}")),
         is(Event.info(INSTANCE1, Message.info("InfoMessage"))));
     assertThat(
         deserializeEvent(json("submitted")),
-        is(Event.submitted(INSTANCE1, null)));
+        is(Event.submitted(INSTANCE1, null, null)));
     assertThat(
         deserializeEvent(json("submitted", "\"execution_id\":\"" + POD_NAME + "\"")),
-        is(Event.submitted(INSTANCE1, POD_NAME)));
+        is(Event.submitted(INSTANCE1, POD_NAME, null)));
+    assertThat(
+        deserializeEvent(json("submitted", "\"execution_id\":\"" + POD_NAME + "\",\"runner_id\":\"cluster-1\"")),
+        is(Event.submitted(INSTANCE1, POD_NAME, "cluster-1")));
     assertThat(
         deserializeEvent(json("created", "\"execution_id\":\"" + POD_NAME + "\",\"docker_image\":\"" + DOCKER_IMAGE
             + "\"")),
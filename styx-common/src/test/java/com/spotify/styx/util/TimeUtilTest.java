@@ -21,14 +21,19 @@
 package com.spotify.styx.util;
 
 import static com.spotify.styx.util.TimeUtil.addOffset;
+import static com.spotify.styx.util.TimeUtil.countInstantsInRange;
+import static com.spotify.styx.util.TimeUtil.countInstantsInReversedRange;
 import static com.spotify.styx.util.TimeUtil.instantsInRange;
 import static com.spotify.styx.util.TimeUtil.instantsInReversedRange;
 import static com.spotify.styx.util.TimeUtil.isAligned;
 import static com.spotify.styx.util.TimeUtil.lastInstant;
 import static com.spotify.styx.util.TimeUtil.nextInstant;
 import static com.spotify.styx.util.TimeUtil.offsetInstant;
+import static com.spotify.styx.util.TimeUtil.streamInstantsInRange;
+import static com.spotify.styx.util.TimeUtil.streamInstantsInReversedRange;
 import static com.spotify.styx.util.TimeUtil.subtractOffset;
 import static java.time.Instant.parse;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertFalse;
@@ -483,6 +488,75 @@ public class TimeUtilTest {
     offsetInstant(parse("2016-01-19T09:10:00.00Z"), Schedule.HOURS, 0);
   }
 
+  @Parameters({
+      "hours",
+      "days",
+      "weeks",
+      "months",
+      "years",
+      "*/5 * * * *",
+      "0 0 * * MON-FRI",
+  })
+  @Test
+  public void shouldCountInstantsInRange(String expression) {
+    final Schedule schedule = Schedule.parse(expression);
+    final Instant first = lastInstant(parse("2015-11-19T09:11:22.333Z"), schedule);
+    final Instant last = offsetInstant(first, schedule, 200);
+
+    assertThat(countInstantsInRange(first, last, schedule), is(200L));
+    assertThat(countInstantsInRange(first, first, schedule), is(0L));
+    assertThat(countInstantsInReversedRange(last, first, schedule), is(200L));
+    assertThat(streamInstantsInRange(first, last, schedule).collect(toList()),
+        is(instantsInRange(first, last, schedule)));
+    assertThat(streamInstantsInReversedRange(last, first, schedule).collect(toList()),
+        is(instantsInReversedRange(last, first, schedule)));
+  }
+
+  @Test
+  public void shouldStreamInstantsInRangeLazily() {
+    final Instant first = parse("2000-01-01T00:00:00Z");
+    final Instant last = parse("3000-01-01T00:00:00Z");
+
+    assertThat(streamInstantsInRange(first, last, Schedule.HOURS).limit(2).collect(toList()),
+        contains(first, parse("2000-01-01T01:00:00Z")));
+    assertThat(streamInstantsInReversedRange(last, first, Schedule.HOURS).limit(2).collect(toList()),
+        contains(last, parse("2999-12-31T23:00:00Z")));
+    assertThat(countInstantsInRange(first, last, Schedule.HOURS), is(8_765_832L));
+  }
+
+  @Parameters({
+      "hours,   0 * * * *",
+      "days,    0 0 * * *",
+      "weeks,   0 0 * * MON",
+      "months,  0 0 1 * *",
+      "years,   0 0 1 1 *",
+  })
+  @Test
+  public void shouldCalculateWellKnownSchedulesLikeTheirCron(String wellKnown, String cron) {
+    final Schedule schedule = Schedule.parse(wellKnown);
+    final Schedule cronSchedule = Schedule.parse(cron);
+    final String[] instants = {
+        "2016-01-19T09:11:22.333Z", "2016-01-18T00:00:00Z", "2016-01-18T00:00:30Z", "2016-01-17T23:59:59.999Z",
+        "2016-02-29T12:00:00Z", "2016-03-01T00:00:00Z", "2016-12-31T23:00:00Z", "2017-01-01T00:00:00Z",
+        "2017-01-02T00:00:00.001Z", "2017-06-01T00:00:00Z",
+    };
+
+    for (String instantString : instants) {
+      final Instant instant = parse(instantString);
+      assertThat(instantString, lastInstant(instant, schedule), is(lastInstant(instant, cronSchedule)));
+      assertThat(instantString, TimeUtil.previousInstant(instant, schedule),
+          is(TimeUtil.previousInstant(instant, cronSchedule)));
+      assertThat(instantString, nextInstant(instant, schedule), is(nextInstant(instant, cronSchedule)));
+      assertThat(instantString, isAligned(instant, schedule), is(isAligned(instant, cronSchedule)));
+      if (isAligned(instant, schedule)) {
+        for (int offset = -3; offset <= 3; offset++) {
+          assertThat(instantString, offsetInstant(instant, schedule, offset),
+              is(offsetInstant(instant, cronSchedule, offset)));
+        }
+      }
+    }
+  }
+
   @Test
   public void shouldNotBeInstantiable() throws ReflectiveOperationException {
     assertThat(ClassEnforcer.assertNotInstantiable(TimeUtil.class), is(true));
@@ -20,6 +20,8 @@
 
 package com.spotify.styx.util;
 
+import static com.spotify.styx.util.TriggerUtil.activeInstancesCounterId;
+import static com.spotify.styx.util.TriggerUtil.isActiveInstancesCounterId;
 import static com.spotify.styx.util.TriggerUtil.trigger;
 import static com.spotify.styx.util.TriggerUtil.triggerType;
 import static org.hamcrest.Matchers.is;
@@ -45,4 +47,10 @@ public class TriggerUtilTest {
     assertThat(trigger("backfill", "bar"), is(Trigger.backfill("bar")));
     assertThat(trigger("unknown", "baz"), is(Trigger.unknown("baz")));
   }
+
+  @Test
+  public void testIsActiveInstancesCounterId() throws Exception {
+    assertThat(isActiveInstancesCounterId(activeInstancesCounterId("backfill-1")), is(true));
+    assertThat(isActiveInstancesCounterId("resource-1"), is(false));
+  }
 }
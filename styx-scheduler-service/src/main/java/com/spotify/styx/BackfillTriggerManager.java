@@ -22,30 +22,36 @@ package com.spotify.styx;
 
 import static com.google.common.base.CaseFormat.LOWER_UNDERSCORE;
 import static com.google.common.base.CaseFormat.UPPER_CAMEL;
-import static com.spotify.styx.util.ExceptionUtil.findCause;
+import static com.spotify.styx.util.CloserUtil.register;
 import static com.spotify.styx.util.GuardedRunnable.guard;
-import static com.spotify.styx.util.TimeUtil.instantsInRange;
-import static com.spotify.styx.util.TimeUtil.instantsInReversedRange;
+import static com.spotify.styx.util.TimeUtil.countInstantsInRange;
+import static com.spotify.styx.util.TimeUtil.countInstantsInReversedRange;
 import static com.spotify.styx.util.TimeUtil.nextInstant;
 import static com.spotify.styx.util.TimeUtil.previousInstant;
+import static com.spotify.styx.util.TimeUtil.streamInstantsInRange;
+import static com.spotify.styx.util.TimeUtil.streamInstantsInReversedRange;
+import static com.spotify.styx.util.TriggerUtil.activeInstancesCounterId;
+import static java.util.stream.Collectors.toList;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.Closer;
 import com.spotify.styx.model.Backfill;
-import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.Workflow;
 import com.spotify.styx.monitoring.Stats;
 import com.spotify.styx.state.StateManager;
-import com.spotify.styx.state.Trigger;
+import com.spotify.styx.storage.Lease;
 import com.spotify.styx.storage.Storage;
-import com.spotify.styx.storage.StorageTransaction;
-import com.spotify.styx.util.AlreadyInitializedException;
+import com.spotify.styx.util.ShardedCounter;
 import com.spotify.styx.util.Time;
+import io.grpc.Context;
 import io.opencensus.common.Scope;
 import io.opencensus.trace.AttributeValue;
 import io.opencensus.trace.Tracer;
 import io.opencensus.trace.Tracing;
 import io.opencensus.trace.samplers.Samplers;
+import java.io.Closeable;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
@@ -53,52 +59,80 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Triggers backfill executions for {@link Workflow}s.
+ *
+ * <p>Backfills are progressed in parallel, each backfill by a single task per tick. Progress of
+ * a single backfill is serialized by the storage transaction on the backfill entity.
+ *
+ * <p>Scheduler replicas split the backfills between them by leases: a replica only progresses a
+ * backfill while it holds its lease. Leases are not renewed and expire at random times, so that
+ * expired leases are picked up by whichever replica ticks next.
  */
-class BackfillTriggerManager {
+class BackfillTriggerManager implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(BackfillTriggerManager.class);
 
   private static final String TICK_TYPE = UPPER_CAMEL.to(
       LOWER_UNDERSCORE, BackfillTriggerManager.class.getSimpleName());
+  private static final int BACKFILL_CONCURRENCY = 32;
+  @VisibleForTesting
+  static final int MAX_PARTITIONS_PER_TRANSACTION = 10;
+  @VisibleForTesting
+  static final Duration MIN_LEASE_DURATION = Duration.ofSeconds(30);
 
   private static Consumer<List<Backfill>> DEFAULT_SHUFFLER = Collections::shuffle;
 
   private static final Tracer tracer = Tracing.getTracer();
 
+  private final Closer closer = Closer.create();
+
   private final TriggerListener triggerListener;
   private final Storage storage;
   private final StateManager stateManager;
+  private final ShardedCounter shardedCounter;
   private final Stats stats;
   private final Time time;
   private final Consumer<List<Backfill>> shuffler;
+  private final Executor executor;
+  private final String replicaId = UUID.randomUUID().toString();
 
   BackfillTriggerManager(StateManager stateManager,
                          Storage storage,
+                         ShardedCounter shardedCounter,
                          TriggerListener triggerListener,
                          Stats stats,
                          Time time) {
-    this(stateManager, storage, triggerListener, stats, time, DEFAULT_SHUFFLER);
+    this(stateManager, storage, shardedCounter, triggerListener, stats, time, DEFAULT_SHUFFLER);
   }
 
   @VisibleForTesting
   BackfillTriggerManager(StateManager stateManager,
                          Storage storage,
+                         ShardedCounter shardedCounter,
                          TriggerListener triggerListener,
                          Stats stats,
                          Time time,
                          Consumer<List<Backfill>> shuffler) {
     this.stateManager = Objects.requireNonNull(stateManager);
     this.storage = Objects.requireNonNull(storage);
+    this.shardedCounter = Objects.requireNonNull(shardedCounter);
     this.triggerListener = Objects.requireNonNull(triggerListener);
     this.stats = Objects.requireNonNull(stats);
     this.time = Objects.requireNonNull(time);
     this.shuffler = Objects.requireNonNull(shuffler);
+    final ForkJoinPool forkJoinPool = register(closer, new ForkJoinPool(BACKFILL_CONCURRENCY),
+        "backfill-trigger-manager");
+    this.executor = Context.currentContextExecutor(forkJoinPool);
   }
 
   void tick() {
@@ -123,7 +157,14 @@ class BackfillTriggerManager {
 
     shuffler.accept(backfills);
 
-    backfills.forEach(backfill -> guard(() -> triggerAndProgress(backfill)).run());
+    backfills.stream()
+        .map(backfill -> CompletableFuture.runAsync(guard(() -> {
+          if (tryAcquireLease(backfill)) {
+            triggerAndProgress(backfill);
+          }
+        }), executor))
+        .collect(toList()) // collect here to progress backfills in parallel
+        .forEach(CompletableFuture::join);
 
     final long durationMillis = t0.until(time.get(), ChronoUnit.MILLIS);
     stats.recordTickDuration(TICK_TYPE, durationMillis);
@@ -132,6 +173,81 @@ class BackfillTriggerManager {
         Map.of("backfills", AttributeValue.longAttributeValue(backfills.size())));
   }
 
+  /**
+   * Resyncs the active instances counters of the backfills with their active states, as the counters
+   * are only updated by deltas and could drift.
+   */
+  void reconcileActiveInstancesCounters() {
+    final List<Backfill> backfills;
+    try {
+      backfills = storage.backfills(false);
+    } catch (IOException e) {
+      LOG.warn("Failed to get backfills", e);
+      return;
+    }
+
+    backfills.stream()
+        .map(backfill -> CompletableFuture.runAsync(guard(() -> reconcileActiveInstancesCounter(backfill)),
+            executor))
+        .collect(toList())
+        .forEach(CompletableFuture::join);
+  }
+
+  @VisibleForTesting
+  void reconcileActiveInstancesCounter(Backfill backfill) {
+    final String counterId = activeInstancesCounterId(backfill.id());
+    try {
+      final Optional<Long> counted = ShardedCounter.readCounter(storage, counterId);
+      if (!counted.isPresent()) {
+        // backfills created before active instances were counted have no counter
+        return;
+      }
+      final long active = stateManager.getActiveStatesByTriggerId(backfill.id()).size();
+      if (counted.get() == active) {
+        return;
+      }
+      // the counter and the active states are updated together, so if the counter did not change
+      // while the active states were read, neither did they
+      final Map<Integer, Long> shards = storage.shardsForCounter(counterId);
+      if (shards.values().stream().mapToLong(Long::longValue).sum() != counted.get()) {
+        LOG.debug("Active instances counter of backfill {} changed, reconciling it later", backfill.id());
+        return;
+      }
+      final long adjusted = shardedCounter.adjustCounter(storage, counterId, shards, active - counted.get());
+      if (adjusted != 0) {
+        LOG.warn("Reconciled active instances counter of backfill {} from {} to {}",
+            backfill.id(), counted.get(), counted.get() + adjusted);
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to reconcile active instances counter of backfill {}", backfill.id(), e);
+    }
+  }
+
+  /**
+   * Acquires the lease of a backfill for this replica, unless another replica holds it.
+   *
+   * @return true if this replica holds the lease
+   */
+  private boolean tryAcquireLease(Backfill backfill) {
+    final Instant now = time.get();
+    try {
+      return storage.runInTransaction(tx -> {
+        final Optional<Lease> lease = tx.lease(backfill.id());
+        if (lease.isPresent() && lease.get().expiry().isAfter(now)) {
+          return lease.get().owner().equals(replicaId);
+        }
+        // randomize the expiry so that the leases do not all expire in the same tick
+        final long leaseMillis = MIN_LEASE_DURATION.toMillis()
+            + ThreadLocalRandom.current().nextLong(MIN_LEASE_DURATION.toMillis());
+        tx.store(Lease.create(backfill.id(), replicaId, now.plusMillis(leaseMillis)));
+        return true;
+      });
+    } catch (IOException e) {
+      LOG.debug("Failed to acquire lease of backfill {}", backfill.id(), e);
+      return false;
+    }
+  }
+
   private void triggerAndProgress(Backfill backfill) {
     // Do not include all backfill spans in parent tick span to avoid it growing too big
     tracer.spanBuilderWithExplicitParent("Styx.BackfillTriggerManager.triggerAndProgress", null)
@@ -149,106 +265,136 @@ class BackfillTriggerManager {
 
     if (!workflowOpt.isPresent()) {
       LOG.debug("workflow not found for backfill {}, halt it.", backfill);
-      storeBackfill(backfill.builder().halted(true).build());
+      if (storeBackfill(backfill.builder().halted(true).build())) {
+        deleteActiveInstancesCounter(backfill.id());
+      }
       return;
     }
 
     final Workflow workflow = workflowOpt.get();
 
-    // this is best effort because querying active states is not strongly consistent so the
+    // this is best effort because the active instances are read from a recent snapshot, so the
     // initial remaining capacity may already be wrong
-    final int remainingCapacity =
-        backfill.concurrency() - stateManager.getActiveStatesByTriggerId(backfill.id()).size();
+    final long activeInstances;
+    try {
+      activeInstances = activeInstances(backfill);
+    } catch (IOException e) {
+      LOG.warn("Failed to read active instances of backfill {}", backfill.id(), e);
+      return;
+    }
+    final int remainingCapacity = Math.toIntExact(backfill.concurrency() - activeInstances);
 
     if (remainingCapacity < 1) {
       LOG.debug("No capacity left for backfill {}", backfill);
       return;
     }
 
+    // trigger the partitions that fit in the remaining capacity in batches, each batch together
+    // with the backfill cursor in a single transaction
     final Instant initialNextTrigger = backfill.nextTrigger();
-    while (true) {
+    int triggeredPartitions;
+    do {
       try {
-        if (!storage.runInTransaction(tx ->
-            triggerNextPartitionAndProgress(tx, backfill.id(), workflow,
-                initialNextTrigger, remainingCapacity, backfill.reverse()))) {
-          break;
-        }
+        triggeredPartitions = triggerNextPartitionsAndProgress(backfill.id(), workflow,
+            initialNextTrigger, remainingCapacity, backfill.reverse());
       } catch (IOException e) {
         // if progressing the backfill fails, yield
         LOG.debug("Failure while trying to progress backfill {}", backfill, e);
-        break;
+        return;
       }
+    } while (triggeredPartitions > 0);
+  }
+
+  private long activeInstances(Backfill backfill) throws IOException {
+    try {
+      return shardedCounter.getCounter(activeInstancesCounterId(backfill.id()));
+    } catch (IllegalArgumentException e) {
+      // backfills created before active instances were counted have no counter
+      return stateManager.getActiveStatesByTriggerId(backfill.id()).size();
     }
   }
 
+  /**
+   * Reserves the next partitions of a backfill that fit in its remaining capacity, at most
+   * {@link #MAX_PARTITIONS_PER_TRANSACTION}, and triggers them together with moving the backfill
+   * cursor past them in a single transaction.
+   *
+   * @return the number of partitions the backfill cursor was moved past
+   */
   @VisibleForTesting
-  boolean triggerNextPartitionAndProgress(StorageTransaction tx,
-                                          String id,
-                                          Workflow workflow,
-                                          Instant initialNextTrigger,
-                                          int remainingCapacity,
-                                          boolean reversed) throws IOException {
-    final Backfill backfill = tx.backfill(id).orElseThrow(() ->
+  int triggerNextPartitionsAndProgress(String id,
+                                       Workflow workflow,
+                                       Instant initialNextTrigger,
+                                       int remainingCapacity,
+                                       boolean reversed) throws IOException {
+    final Backfill backfill = storage.backfill(id).orElseThrow(() ->
         new RuntimeException("Error while fetching backfill " + id));
 
     if (backfill.halted()) {
       LOG.debug("Backfill {} halted", backfill);
-      return false;
+      return 0;
     }
 
     final Instant nextTrigger = backfill.nextTrigger();
 
-    if (capacityReached(backfill, initialNextTrigger, nextTrigger,
-        remainingCapacity, reversed)) {
+    // partitions triggered since the remaining capacity was calculated, e.g. by another scheduler
+    final long triggeredPartitions = reversed
+        ? countInstantsInReversedRange(initialNextTrigger, nextTrigger, backfill.schedule())
+        : countInstantsInRange(initialNextTrigger, nextTrigger, backfill.schedule());
+
+    if (triggeredPartitions >= remainingCapacity) {
       LOG.debug("Capacity reached for backfill {}", backfill);
-      return false;
+      return 0;
     }
 
     if (isAllTriggered(backfill, nextTrigger)) {
       LOG.debug("Backfill {} all triggered", backfill);
-      tx.store(backfill.builder()
-          .allTriggered(true)
-          .build());
-      return false;
+      final boolean stored = storage.runInTransaction(tx -> {
+        final Optional<Backfill> currentBackfill = tx.backfill(id);
+        if (currentBackfill.isPresent() && currentBackfill.get().nextTrigger().equals(nextTrigger)
+            && !currentBackfill.get().allTriggered()) {
+          tx.store(currentBackfill.get().builder()
+              .allTriggered(true)
+              .build());
+          return true;
+        }
+        return false;
+      });
+      if (stored) {
+        deleteActiveInstancesCounter(id);
+      }
+      return 0;
     }
 
+    final List<Instant> partitions = (reversed
+        ? streamInstantsInReversedRange(nextTrigger, exclusiveEndTrigger(backfill), backfill.schedule())
+        : streamInstantsInRange(nextTrigger, exclusiveEndTrigger(backfill), backfill.schedule()))
+        .limit(Math.min(remainingCapacity - triggeredPartitions, MAX_PARTITIONS_PER_TRANSACTION))
+        .collect(toList());
+
+    final Instant nextPartition =
+        getNextPartition(backfill, partitions.get(partitions.size() - 1), reversed);
+    final Backfill progressedBackfill = backfill.builder()
+        .nextTrigger(nextPartition)
+        .allTriggered(isAllTriggered(backfill, nextPartition))
+        .build();
+
     try {
-      // race conditions:
-      //   - the other scheduler instance has triggered partition, but hasn't committed the
-      //     transaction, and the workflow instance has finished very quickly
-      //   - this scheduler reads initialNextTrigger before the other scheduler commits the
-      //     transaction, so it will move on to trigger the same partition again, but we still
-      //     don't violate concurrency limit in this case
-      final TriggerParameters parameters = backfill.triggerParameters().orElse(TriggerParameters.zero());
-      triggerListener.event(workflow, Trigger.backfill(backfill.id()), nextTrigger, parameters);
+      // fails without triggering anything if another scheduler instance progressed the backfill
+      // since it was read above; partitions that got triggered concurrently are skipped, but the
+      // cursor still moves past them
+      triggerListener.backfillEvent(workflow, backfill, partitions, progressedBackfill);
     } catch (Exception e) {
-      if (findCause(e, AlreadyInitializedException.class) != null) {
-        // just encountered an ad-hoc trigger or it has been triggered by another scheduler instance
-        // do not propagate the exception but instead letting transaction decide what to do
-        LOG.debug("{} already triggered for backfill {}", nextTrigger, backfill, e);
-      } else {
-        // can be interrupted, we give up this backfill and retry in next tick
-        LOG.debug("Failed to trigger {} for backfill {}", nextTrigger, backfill, e);
-        throw new RuntimeException(e);
-      }
+      LOG.debug("Failed to trigger {} for backfill {}", partitions, backfill, e);
+      throw new IOException(e);
     }
+    partitions.forEach(partition -> stats.recordBackfillTrigger(backfill.id()));
 
-    final Instant nextPartition = getNextPartition(backfill, nextTrigger, reversed);
-    tx.store(backfill.builder()
-                      .nextTrigger(nextPartition)
-                      .build());
-
-    if (isAllTriggered(backfill, nextPartition)) {
-      tx.store(backfill.builder()
-                   .nextTrigger(backfill.reverse()
-                                ? previousInstant(backfill.start(), backfill.schedule())
-                                : backfill.end())
-                           .allTriggered(true)
-                           .build());
-      LOG.debug("Backfill {} all triggered", backfill);
-      return false;
+    if (progressedBackfill.allTriggered()) {
+      deleteActiveInstancesCounter(id);
     }
-    return true;
+
+    return partitions.size();
   }
 
   private boolean isAllTriggered(Backfill backfill, Instant nextTrigger) {
@@ -263,11 +409,26 @@ class BackfillTriggerManager {
     }
   }
 
-  private void storeBackfill(Backfill backfill) {
+  private boolean storeBackfill(Backfill backfill) {
     try {
       storage.storeBackfill(backfill);
+      return true;
     } catch (IOException e) {
       LOG.warn("Failed to store updated backfill {}", backfill.id(), e);
+      return false;
+    }
+  }
+
+  /**
+   * Deletes the active instances counter of a backfill that will not trigger any more partitions,
+   * as its capacity is not checked any more. Transitions of its remaining active instances skip
+   * updating the counter.
+   */
+  private void deleteActiveInstancesCounter(String backfillId) {
+    try {
+      ShardedCounter.deleteCounter(storage, activeInstancesCounterId(backfillId));
+    } catch (IOException e) {
+      LOG.warn("Failed to delete active instances counter of backfill {}", backfillId, e);
     }
   }
 
@@ -281,15 +442,8 @@ class BackfillTriggerManager {
     }
   }
 
-  private static boolean capacityReached(Backfill backfill, Instant initialNextTrigger,
-                                  Instant nextTrigger, int remainingCapacity,
-                                  boolean reversed) {
-    if (reversed) {
-      return instantsInReversedRange(initialNextTrigger, nextTrigger,
-          backfill.schedule()).size() >= remainingCapacity;
-    } else {
-      return instantsInRange(initialNextTrigger, nextTrigger,
-          backfill.schedule()).size() >= remainingCapacity;
-    }
+  @Override
+  public void close() throws IOException {
+    closer.close();
   }
 }
@@ -21,7 +21,9 @@
 package com.spotify.styx;
 
 import static com.spotify.styx.util.ParameterUtil.toParameter;
+import static java.util.stream.Collectors.toList;
 
+import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.Workflow;
 import com.spotify.styx.model.WorkflowInstance;
@@ -29,7 +31,9 @@ import com.spotify.styx.state.RunState;
 import com.spotify.styx.state.StateManager;
 import com.spotify.styx.state.Trigger;
 import com.spotify.styx.util.IsClosedException;
+import com.spotify.styx.util.TriggerInstantSpec;
 import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -66,4 +70,48 @@ final class StateInitializingTrigger implements TriggerListener {
       throw new RuntimeException(isClosedException);
     }
   }
+
+  @Override
+  public boolean naturalEvent(Workflow workflow, Instant instant, TriggerInstantSpec nextNaturalTrigger) {
+    if (!workflow.configuration().dockerImage().isPresent()) {
+      LOG.warn("{} has no docker image, skipping", workflow.id());
+      return false;
+    }
+
+    final String parameter = toParameter(workflow.configuration().schedule(), instant);
+    final WorkflowInstance workflowInstance = WorkflowInstance.create(workflow.id(), parameter);
+
+    try {
+      stateManager.triggerNatural(workflowInstance, nextNaturalTrigger);
+    } catch (IsClosedException isClosedException) {
+      LOG.warn("State receiver is closed when processing workflow {} for natural trigger at {}",
+               workflow, instant, isClosedException);
+      throw new RuntimeException(isClosedException);
+    }
+    return true;
+  }
+
+  @Override
+  public void backfillEvent(Workflow workflow, Backfill backfill, List<Instant> instants,
+                            Backfill progressedBackfill) {
+    final List<WorkflowInstance> workflowInstances;
+    if (workflow.configuration().dockerImage().isPresent()) {
+      workflowInstances = instants.stream()
+          .map(instant -> toParameter(workflow.configuration().schedule(), instant))
+          .map(parameter -> WorkflowInstance.create(workflow.id(), parameter))
+          .collect(toList());
+    } else {
+      // still move the backfill cursor past the partitions, as if each of them was skipped
+      LOG.warn("{} has no docker image, skipping", workflow.id());
+      workflowInstances = List.of();
+    }
+
+    try {
+      stateManager.triggerBackfill(workflowInstances, backfill, progressedBackfill);
+    } catch (IsClosedException isClosedException) {
+      LOG.warn("State receiver is closed when processing workflow {} for backfill {} at {}",
+               workflow, backfill.id(), instants, isClosedException);
+      throw new RuntimeException(isClosedException);
+    }
+  }
 }
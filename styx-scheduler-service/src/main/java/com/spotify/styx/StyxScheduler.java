@@ -28,6 +28,7 @@ import static com.spotify.styx.util.ConfigUtil.get;
 import static com.spotify.styx.util.Connections.createBigTableConnection;
 import static com.spotify.styx.util.Connections.createDatastore;
 import static com.spotify.styx.util.GuardedRunnable.runGuarded;
+import static com.spotify.styx.util.MDCUtil.withMDC;
 import static java.util.Objects.requireNonNull;
 
 import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
@@ -58,6 +59,7 @@ import com.spotify.styx.api.SchedulerResource;
 import com.spotify.styx.api.ServiceAccountUsageAuthorizer;
 import com.spotify.styx.api.WorkflowActionAuthorizer;
 import com.spotify.styx.docker.DockerRunner;
+import com.spotify.styx.docker.KubernetesSubmissionMode;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.SequenceEvent;
 import com.spotify.styx.model.StyxConfig;
@@ -78,7 +80,9 @@ import com.spotify.styx.state.RunState;
 import com.spotify.styx.state.RunState.State;
 import com.spotify.styx.state.StateManager;
 import com.spotify.styx.state.TimeoutConfig;
+import com.spotify.styx.state.handlers.BackfillStatusHandler;
 import com.spotify.styx.state.handlers.DockerRunnerHandler;
+import com.spotify.styx.state.handlers.ExecutionDataHandler;
 import com.spotify.styx.state.handlers.ExecutionDescriptionHandler;
 import com.spotify.styx.state.handlers.PublisherHandler;
 import com.spotify.styx.state.handlers.TerminationHandler;
@@ -99,6 +103,7 @@ import com.spotify.styx.util.Time;
 import com.spotify.styx.util.TriggerUtil;
 import com.spotify.styx.util.WorkflowValidator;
 import com.typesafe.config.Config;
+import com.typesafe.config.ConfigObject;
 import io.fabric8.kubernetes.client.ConfigBuilder;
 import io.fabric8.kubernetes.client.DefaultKubernetesClient;
 import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
@@ -111,14 +116,19 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -138,23 +148,34 @@ public class StyxScheduler implements AppInit {
   public static final String GKE_CLUSTER_ZONE = "cluster-zone";
   public static final String GKE_CLUSTER_ID = "cluster-id";
   public static final String GKE_CLUSTER_NAMESPACE = "namespace";
+  public static final String GKE_CLUSTER_WEIGHT = "weight";
+  public static final String GKE_CLUSTER_SUBMISSION_MODE = "submission-mode";
 
   public static final String STYX_STALE_STATE_TTL_CONFIG = "styx.stale-state-ttls";
   public static final String STYX_STATE_PROCESSING_THREADS = "styx.state-processing-threads";
   public static final String STYX_SCHEDULER_TICK_INTERVAL = "styx.scheduler.tick-interval";
   public static final String STYX_TRIGGER_TICK_INTERVAL = "styx.trigger.tick-interval";
+  public static final String STYX_TRIGGER_MAX_JITTER = "styx.trigger.max-jitter";
   public static final String STYX_STATE_MANAGER_TICK_INTERVAL = "styx.state-manager.tick-interval";
   public static final String STYX_SCHEDULER_THREADS = "styx.scheduler-threads";
+  public static final String STYX_SUBMISSION_THREADS = "styx.submission.threads";
+  public static final String STYX_SUBMISSION_QUEUE_SIZE = "styx.submission.queue-size";
+  public static final String STYX_SUBMISSION_RATE_PER_SEC = "styx.submission.rate-per-sec";
   private static final String STYX_ENVIRONMENT = "styx.environment";
   private static final String STYX_SECRET_WHITELIST = "styx.secret-whitelist";
   private static final String KUBERNETES_REQUEST_TIMEOUT = "styx.k8s.request-timeout";
 
   public static final int DEFAULT_STYX_STATE_PROCESSING_THREADS = 32;
   public static final int DEFAULT_STYX_SCHEDULER_THREADS = 32;
+  public static final int DEFAULT_STYX_SUBMISSION_THREADS = 32;
+  public static final int DEFAULT_STYX_SUBMISSION_QUEUE_SIZE = 1024;
+  public static final double DEFAULT_STYX_SUBMISSION_RATE_PER_SEC = 100D;
   public static final Duration DEFAULT_SCHEDULER_TICK_INTERVAL = Duration.ofSeconds(2);
   public static final Duration DEFAULT_STATE_MANAGER_TICK_INTERVAL = Duration.ofSeconds(15);
   public static final Duration DEFAULT_TRIGGER_TICK_INTERVAL = Duration.ofSeconds(1);
+  public static final Duration DEFAULT_TRIGGER_MAX_JITTER = Duration.ZERO;
   public static final Duration CLEANER_TICK_INTERVAL = Duration.ofMinutes(30);
+  public static final Duration BACKFILL_COUNTER_RECONCILE_INTERVAL = Duration.ofMinutes(10);
   public static final Duration RUNTIME_CONFIG_UPDATE_INTERVAL = Duration.ofSeconds(5);
   public static final Duration DEFAULT_RETRY_BASE_DELAY = Duration.ofMinutes(3);
   public static final int DEFAULT_RETRY_MAX_EXPONENT = 4;
@@ -350,9 +371,28 @@ public class StyxScheduler implements AppInit {
     closer.register(closeable(stateProcessingExecutor, "state-processing", Duration.ofSeconds(1)));
     final ExecutorService eventConsumerExecutor = Executors.newSingleThreadExecutor();
     closer.register(closeable(eventConsumerExecutor, "event-consumer", Duration.ofSeconds(1)));
+    // Consumers that read and write storage get a thread of their own, so that they do not hold up
+    // the other consumers. A single thread keeps the events of an instance in order.
+    final ExecutorService storageEventConsumerExecutor = Executors.newSingleThreadExecutor();
+    closer.register(closeable(storageEventConsumerExecutor, "storage-event-consumer", Duration.ofSeconds(1)));
     final ExecutorService schedulerExecutor = Executors.newWorkStealingPool(
         optionalInt(config, STYX_SCHEDULER_THREADS).orElse(DEFAULT_STYX_SCHEDULER_THREADS));
     closer.register(closeable(schedulerExecutor, "scheduler", Duration.ofSeconds(1)));
+    // Submissions that do not fit in the queue are run on the state processing thread, applying back pressure
+    final int submissionThreads = optionalInt(config, STYX_SUBMISSION_THREADS).orElse(DEFAULT_STYX_SUBMISSION_THREADS);
+    final ExecutorService submissionExecutor = new ThreadPoolExecutor(
+        submissionThreads, submissionThreads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(optionalInt(config, STYX_SUBMISSION_QUEUE_SIZE)
+            .orElse(DEFAULT_STYX_SUBMISSION_QUEUE_SIZE)),
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("styx-submission-%d")
+            .setUncaughtExceptionHandler(uncaughtExceptionHandler)
+            .build(),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    closer.register(closeable(submissionExecutor, "submission", Duration.ofSeconds(1)));
+    final RateLimiter submissionRateLimiter = RateLimiter.create(
+        get(config, config::getDouble, STYX_SUBMISSION_RATE_PER_SEC).orElse(DEFAULT_STYX_SUBMISSION_RATE_PER_SEC));
 
     final Stats stats = statsFactory.apply(environment);
     final Storage storage = MeteredStorageProxy.instrument(
@@ -374,6 +414,9 @@ public class StyxScheduler implements AppInit {
     var eventConsumer = fanoutEventConsumer(
         eventConsumerFactory.apply(environment, stats),
         new PublisherHandler(publisher, stats),
+        asyncEventConsumer(withMDC(storageEventConsumerExecutor), fanoutEventConsumer(
+            new BackfillStatusHandler(storage),
+            new ExecutionDataHandler(storage))),
         new TransitionLogger());
     var outputHandler = OutputHandler.mdcDecorating(fanOutput(outputHandlers));
     var queuedStateManager = closer.register(new PersistentStateManager(time, stateProcessingExecutor,
@@ -387,7 +430,7 @@ public class StyxScheduler implements AppInit {
         get(config, config::getStringList, STYX_SECRET_WHITELIST).map(Set::copyOf).orElse(Set.of());
     final DockerRunner routingDockerRunner = DockerRunner.routing(
         id -> dockerRunnerFactory.create(id, environment, stateManager, stats, debug, secretWhitelist),
-        dockerId);
+        dockerId, dockerRunnerWeights(config));
     final DockerRunner dockerRunner = MeteredDockerRunnerProxy.instrument(
         TracingProxy.instrument(DockerRunner.class, routingDockerRunner), stats, time);
 
@@ -401,10 +444,10 @@ public class StyxScheduler implements AppInit {
 
     // These output handlers will be invoked in order.
     outputHandlers.addAll(List.of(
-        new DockerRunnerHandler(dockerRunner, stateManager),
+        new DockerRunnerHandler(dockerRunner, stateManager, submissionExecutor, submissionRateLimiter, stats, time),
         new TerminationHandler(retryUtil, stateManager),
         new MonitoringHandler(stats),
-        new ExecutionDescriptionHandler(storage, stateManager, workflowValidator),
+        new ExecutionDescriptionHandler(storage, stateManager, workflowValidator, dockerRunner),
 
         // Emit timeouts last in order to not over-eagerly time out an instance that
         // will be transitioned by another handler. In situations where the styx scheduler comes back up after
@@ -415,11 +458,19 @@ public class StyxScheduler implements AppInit {
 
     final TriggerListener trigger =
         new StateInitializingTrigger(stateManager);
-    final TriggerManager triggerManager = new TriggerManager(trigger, time, storage, stats);
+    final Duration triggerTickInterval = get(config, config::getDuration, STYX_TRIGGER_TICK_INTERVAL)
+        .orElse(DEFAULT_TRIGGER_TICK_INTERVAL);
+    final Duration triggerMaxJitter = get(config, config::getDuration, STYX_TRIGGER_MAX_JITTER)
+        .orElse(DEFAULT_TRIGGER_MAX_JITTER);
+
+    // Look ahead two tick intervals to cover the jitter applied to the tick schedule
+    final TriggerManager triggerManager = new TriggerManager(trigger, time, storage, stats,
+        triggerTickInterval.multipliedBy(2), triggerMaxJitter);
     closer.register(triggerManager);
 
     final BackfillTriggerManager backfillTriggerManager =
-        new BackfillTriggerManager(stateManager, storage, trigger, stats, time);
+        new BackfillTriggerManager(stateManager, storage, shardedCounter, trigger, stats, time);
+    closer.register(backfillTriggerManager);
 
     final Scheduler scheduler = new Scheduler(time, stateManager, storage, resourceDecorator, stats,
         dequeueRateLimiter, executionGateFactory.apply(environment, storage), shardedCounter, schedulerExecutor);
@@ -429,9 +480,6 @@ public class StyxScheduler implements AppInit {
     final Duration schedulerTickInterval = get(config, config::getDuration, STYX_SCHEDULER_TICK_INTERVAL)
         .orElse(DEFAULT_SCHEDULER_TICK_INTERVAL);
 
-    final Duration triggerTickInterval = get(config, config::getDuration, STYX_TRIGGER_TICK_INTERVAL)
-        .orElse(DEFAULT_TRIGGER_TICK_INTERVAL);
-
     final Duration stateManagerTickInterval = get(config, config::getDuration, STYX_STATE_MANAGER_TICK_INTERVAL)
         .orElse(DEFAULT_STATE_MANAGER_TICK_INTERVAL);
 
@@ -474,6 +522,11 @@ public class StyxScheduler implements AppInit {
     };
   }
 
+  private static BiConsumer<SequenceEvent, RunState> asyncEventConsumer(
+      Executor executor, BiConsumer<SequenceEvent, RunState> eventConsumer) {
+    return (event, runState) -> executor.execute(() -> eventConsumer.accept(event, runState));
+  }
+
   @VisibleForTesting
   void receive(Event event) throws IsClosedException {
     stateManager.receive(event);
@@ -511,6 +564,8 @@ public class StyxScheduler implements AppInit {
   private static void startBackfillTriggerManager(BackfillTriggerManager backfillTriggerManager,
       ScheduledExecutorService exec, Duration tickInterval) {
     scheduleWithJitter(backfillTriggerManager::tick, exec, tickInterval);
+    scheduleWithJitter(backfillTriggerManager::reconcileActiveInstancesCounters, exec,
+        BACKFILL_COUNTER_RECONCILE_INTERVAL);
   }
 
   private static void startScheduler(Scheduler scheduler, ScheduledExecutorService exec, Duration tickInterval) {
@@ -606,6 +661,26 @@ public class StyxScheduler implements AppInit {
     return new AggregateStorage(bigTable, datastore, DEFAULT_RETRY_BASE_DELAY_BT);
   }
 
+  /**
+   * Reads the routing weights of the gke clusters that have one configured. Executions are only routed
+   * by weight if at least one cluster has a weight, otherwise the global docker runner id is used.
+   */
+  static Map<String, Double> dockerRunnerWeights(Config config) {
+    if (!config.hasPath(GKE_CLUSTER_PATH)) {
+      return Map.of();
+    }
+    final Map<String, Double> weights = new HashMap<>();
+    config.getObject(GKE_CLUSTER_PATH).forEach((id, value) -> {
+      if (value instanceof ConfigObject) {
+        final Config clusterConfig = ((ConfigObject) value).toConfig();
+        if (clusterConfig.hasPath(GKE_CLUSTER_WEIGHT)) {
+          weights.put(id, clusterConfig.getDouble(GKE_CLUSTER_WEIGHT));
+        }
+      }
+    });
+    return weights;
+  }
+
   private static DockerRunner createDockerRunner(
       String id,
       Environment environment,
@@ -621,7 +696,17 @@ public class StyxScheduler implements AppInit {
         config, id, createGkeClient(), DefaultKubernetesClient::new));
     final ServiceAccountKeyManager serviceAccountKeyManager = createServiceAccountKeyManager();
     return closer.register(DockerRunner.kubernetes(kubernetes, stateManager, stats,
-        serviceAccountKeyManager, debug, styxEnvironment, secretWhitelist));
+        serviceAccountKeyManager, debug, styxEnvironment, secretWhitelist, submissionMode(config, id)));
+  }
+
+  /**
+   * Reads how the docker runner with the given id submits executions, defaulting to bare pods.
+   */
+  static KubernetesSubmissionMode submissionMode(Config rootConfig, String id) {
+    final Config config = rootConfig.getConfig(GKE_CLUSTER_PATH).getConfig(id);
+    return config.hasPath(GKE_CLUSTER_SUBMISSION_MODE)
+           ? config.getEnum(KubernetesSubmissionMode.class, GKE_CLUSTER_SUBMISSION_MODE)
+           : KubernetesSubmissionMode.POD;
   }
 
   private static Container createGkeClient() {
@@ -20,10 +20,13 @@
 
 package com.spotify.styx;
 
+import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.Workflow;
 import com.spotify.styx.state.Trigger;
+import com.spotify.styx.util.TriggerInstantSpec;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Interface to manage triggering of executions.
@@ -39,4 +42,28 @@ public interface TriggerListener {
    * @param parameters Additional parameters used to trigger the workflow instance
    */
   void event(Workflow workflow, Trigger trigger, Instant instant, TriggerParameters parameters);
+
+  /**
+   * Handles a natural triggering event for some {@link Workflow} at some {@link Instant} in time, and
+   * advances the next natural trigger of the workflow together with the trigger.
+   *
+   * @param workflow           The workflow that generated the event
+   * @param instant            The instant at which the event is supposed to happen
+   * @param nextNaturalTrigger The next natural trigger of the workflow
+   * @return true if the next natural trigger was advanced, false if the event was skipped and the
+   *         next natural trigger is left to the caller
+   */
+  boolean naturalEvent(Workflow workflow, Instant instant, TriggerInstantSpec nextNaturalTrigger);
+
+  /**
+   * Handles the triggering events of a range of partitions of a backfill, and stores the backfill
+   * with its cursor moved past them together with the triggers.
+   *
+   * @param workflow           The workflow of the backfill
+   * @param backfill           The backfill as it was read when reserving the partitions
+   * @param instants           The instants of the partitions to trigger
+   * @param progressedBackfill The backfill with its cursor moved past the partitions
+   */
+  void backfillEvent(Workflow workflow, Backfill backfill, List<Instant> instants,
+                     Backfill progressedBackfill);
 }
@@ -28,17 +28,16 @@ import static com.spotify.styx.util.GuardedRunnable.guard;
 import static com.spotify.styx.util.ParameterUtil.toParameter;
 import static com.spotify.styx.util.TimeUtil.nextInstant;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.toList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import com.google.common.base.Throwables;
 import com.google.common.io.Closer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.spotify.styx.model.Schedule;
-import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.Workflow;
 import com.spotify.styx.model.WorkflowId;
 import com.spotify.styx.model.WorkflowInstance;
 import com.spotify.styx.monitoring.Stats;
-import com.spotify.styx.state.Trigger;
 import com.spotify.styx.storage.Storage;
 import com.spotify.styx.util.AlreadyInitializedException;
 import com.spotify.styx.util.Time;
@@ -51,18 +50,31 @@ import io.opencensus.trace.Tracing;
 import io.opencensus.trace.samplers.Samplers;
 import java.io.Closeable;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Triggers natural executions for {@link Workflow}s.
+ *
+ * <p>Workflows that are already due are triggered on each tick. Workflows that become due within the
+ * configured lookahead are scheduled on a timer so that they are triggered at their instant rather than
+ * on the next tick. Storage remains the source of truth and is reloaded on every tick.
+ *
+ * <p>An optional max jitter delays the trigger of each workflow by a stable per-component amount, spreading
+ * out the load when many workflows share the same trigger instant, e.g. at midnight.
  */
 class TriggerManager implements Closeable {
 
@@ -81,17 +93,38 @@ class TriggerManager implements Closeable {
   private final Storage storage;
   private final Stats stats;
   private final Executor executor;
+  private final ScheduledExecutorService timer;
+  private final Duration lookahead;
+  private final Duration maxJitter;
+
+  // Workflows that are currently being triggered or are scheduled on the timer
+  private final Set<WorkflowId> pendingTriggers = ConcurrentHashMap.newKeySet();
 
   TriggerManager(TriggerListener triggerListener,
                  Time time,
                  Storage storage,
                  Stats stats) {
+    this(triggerListener, time, storage, stats, Duration.ZERO, Duration.ZERO);
+  }
+
+  TriggerManager(TriggerListener triggerListener,
+                 Time time,
+                 Storage storage,
+                 Stats stats,
+                 Duration lookahead,
+                 Duration maxJitter) {
     this.triggerListener = requireNonNull(triggerListener);
     this.time = requireNonNull(time);
     this.storage = requireNonNull(storage);
     this.stats = requireNonNull(stats);
+    this.lookahead = requireNonNull(lookahead);
+    this.maxJitter = requireNonNull(maxJitter);
     final ForkJoinPool forkJoinPool = register(closer, new ForkJoinPool(TRIGGER_CONCURRENCY), "trigger-manager");
     this.executor = Context.currentContextExecutor(forkJoinPool);
+    final ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(1,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("trigger-manager-timer-%d").build());
+    scheduledExecutor.setRemoveOnCancelPolicy(true);
+    this.timer = register(closer, scheduledExecutor, "trigger-manager-timer");
   }
 
   void tick() {
@@ -127,12 +160,21 @@ class TriggerManager implements Closeable {
     }
 
     final Instant now = time.get();
-    canBeTriggeredWorkflows.entrySet().stream()
-        .filter(entry -> now.isAfter(entry.getValue().offsetInstant()))
-        .map(entry -> CompletableFuture.runAsync(guard(() ->
-            tryTriggering(entry.getKey(), entry.getValue(), enabledWorkflows)), executor))
-        .collect(toList()) // collect here to trigger in parallel
-        .forEach(CompletableFuture::join);
+    final Instant horizon = now.plus(lookahead);
+    final List<CompletableFuture<Void>> dueTriggers = new ArrayList<>();
+    canBeTriggeredWorkflows.forEach((workflow, instantSpec) -> {
+      final Instant due = dueInstant(workflow, instantSpec);
+      if (now.isAfter(due)) {
+        if (pendingTriggers.add(workflow.id())) {
+          dueTriggers.add(triggerAsync(workflow, instantSpec, enabledWorkflows));
+        }
+      } else if (due.isBefore(horizon) && pendingTriggers.add(workflow.id())) {
+        final long delayMillis = now.until(due, ChronoUnit.MILLIS) + 1;
+        timer.schedule(() -> triggerAsync(workflow, instantSpec, enabledWorkflows), delayMillis, MILLISECONDS);
+      }
+    });
+    // join here to trigger in parallel
+    dueTriggers.forEach(CompletableFuture::join);
 
     final long durationMillis = t0.until(time.get(), ChronoUnit.MILLIS);
     stats.recordTickDuration(TICK_TYPE, durationMillis);
@@ -142,6 +184,25 @@ class TriggerManager implements Closeable {
 
   }
 
+  private Instant dueInstant(Workflow workflow, TriggerInstantSpec instantSpec) {
+    // jitter is applied in whole milliseconds, so a max jitter below one millisecond is none
+    final long maxJitterMillis = maxJitter.toMillis();
+    if (maxJitterMillis <= 0) {
+      return instantSpec.offsetInstant();
+    }
+    // Stable per component so that the workflows of a component are triggered together
+    final long jitterMillis = Math.floorMod(workflow.componentId().hashCode(), maxJitterMillis);
+    return instantSpec.offsetInstant().plusMillis(jitterMillis);
+  }
+
+  private CompletableFuture<Void> triggerAsync(Workflow workflow,
+                                               TriggerInstantSpec instantSpec,
+                                               Set<WorkflowId> enabledWorkflows) {
+    return CompletableFuture.runAsync(guard(() ->
+        tryTriggering(workflow, instantSpec, enabledWorkflows)), executor)
+        .whenComplete((ignored, throwable) -> pendingTriggers.remove(workflow.id()));
+  }
+
   private void tryTriggering(Workflow workflow,
                              TriggerInstantSpec instantSpec,
                              Set<WorkflowId> enabledWorkflows) {
@@ -153,9 +214,16 @@ class TriggerManager implements Closeable {
   private void tryTriggering0(Workflow workflow,
                                  TriggerInstantSpec instantSpec,
                                  Set<WorkflowId> enabledWorkflows) {
+    final Schedule schedule = workflow.configuration().schedule();
+    final Instant nextTrigger = nextInstant(instantSpec.instant(), schedule);
+    final Instant nextWithOffset = workflow.configuration().addOffset(nextTrigger);
+    final TriggerInstantSpec nextSpec = TriggerInstantSpec.create(nextTrigger, nextWithOffset);
+
     if (enabledWorkflows.contains(workflow.id())) {
+      boolean advanced = false;
       try {
-        triggerListener.event(workflow, Trigger.natural(), instantSpec.instant(), TriggerParameters.zero());
+        // Initializes the instance and advances the next natural trigger in one transaction
+        advanced = triggerListener.naturalEvent(workflow, instantSpec.instant(), nextSpec);
       } catch (Exception e) {
         final WorkflowInstance workflowInstance = WorkflowInstance.create(workflow.id(),
             toParameter(workflow.configuration().schedule(), instantSpec.instant()));
@@ -170,12 +238,12 @@ class TriggerManager implements Closeable {
       }
 
       stats.recordNaturalTrigger();
-    }
+      stats.recordNaturalTriggerLag(instantSpec.offsetInstant().until(time.get(), ChronoUnit.MILLIS));
 
-    final Schedule schedule = workflow.configuration().schedule();
-    final Instant nextTrigger = nextInstant(instantSpec.instant(), schedule);
-    final Instant nextWithOffset = workflow.configuration().addOffset(nextTrigger);
-    final TriggerInstantSpec nextSpec = TriggerInstantSpec.create(nextTrigger, nextWithOffset);
+      if (advanced) {
+        return;
+      }
+    }
 
     try {
       storage.updateNextNaturalTrigger(workflow.id(), nextSpec);
@@ -75,6 +75,31 @@ public interface DockerRunner extends Closeable {
    */
   void cleanup(WorkflowInstance workflowInstance, String executionId);
 
+  /**
+   * Selects the runner that a new execution should be started on. The selected id should be passed to
+   * {@link #start(WorkflowInstance, RunSpec)} in {@link RunSpec#runnerId()}.
+   *
+   * @return The id of the selected runner, or empty if this runner does not route executions.
+   */
+  default Optional<String> selectRunner(WorkflowInstance workflowInstance) {
+    return Optional.empty();
+  }
+
+  /**
+   * Returns the number of started executions that are not yet running, used for load aware routing.
+   */
+  default int pendingExecutions() {
+    return 0;
+  }
+
+  /**
+   * Returns false if this runner is currently unable to keep track of its executions, used for health
+   * aware routing.
+   */
+  default boolean isHealthy() {
+    return true;
+  }
+
   @AutoMatter
   interface RunSpec {
 
@@ -100,6 +125,8 @@ public interface DockerRunner extends Closeable {
 
     Map<String, String> env();
 
+    Optional<String> runnerId();
+
     static RunSpecBuilder builder() {
       return new RunSpecBuilder();
     }
@@ -119,12 +146,13 @@ public interface DockerRunner extends Closeable {
                                  ServiceAccountKeyManager serviceAccountKeyManager,
                                  Debug debug,
                                  String styxEnvironment,
-                                 Set<String> secretWhitelist) {
+                                 Set<String> secretWhitelist,
+                                 KubernetesSubmissionMode submissionMode) {
     final KubernetesGCPServiceAccountSecretManager serviceAccountSecretManager =
         new KubernetesGCPServiceAccountSecretManager(kubernetesClient, serviceAccountKeyManager);
     final KubernetesDockerRunner dockerRunner =
         new KubernetesDockerRunner(kubernetesClient, stateManager, stats,
-            serviceAccountSecretManager, debug, styxEnvironment, secretWhitelist);
+            serviceAccountSecretManager, debug, styxEnvironment, secretWhitelist, submissionMode);
 
     dockerRunner.init();
 
@@ -138,7 +166,20 @@ public interface DockerRunner extends Closeable {
    * <p>The active docker runner id will be read from dockerId supplier on each routing decision.
    */
   static DockerRunner routing(DockerRunnerFactory dockerRunnerFactory, Supplier<String> dockerId) {
-    return new RoutingDockerRunner(dockerRunnerFactory, dockerId);
+    return new RoutingDockerRunner(dockerRunnerFactory, dockerId, Map.of());
+  }
+
+  /**
+   * Creates a {@link DockerRunner} that will dynamically create and route to other docker runner
+   * instances using the given factory.
+   *
+   * <p>New executions are spread over the runners with the given routing weights, taking the
+   * current load and health of each runner into account. If no weights are given, the active docker
+   * runner id will be read from dockerId supplier on each routing decision.
+   */
+  static DockerRunner routing(DockerRunnerFactory dockerRunnerFactory, Supplier<String> dockerId,
+                              Map<String, Double> runnerWeights) {
+    return new RoutingDockerRunner(dockerRunnerFactory, dockerId, runnerWeights);
   }
 
   /**
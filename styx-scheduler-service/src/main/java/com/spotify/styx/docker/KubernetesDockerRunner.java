@@ -21,9 +21,12 @@
 package com.spotify.styx.docker;
 
 import static com.spotify.styx.ScheduledExecutionUtil.scheduleWithJitter;
+import static com.spotify.styx.docker.KubernetesPodEventTranslator.eventError;
 import static com.spotify.styx.docker.KubernetesPodEventTranslator.imageError;
+import static com.spotify.styx.docker.KubernetesPodEventTranslator.isPullImageError;
 import static com.spotify.styx.docker.KubernetesPodEventTranslator.isTerminated;
 import static com.spotify.styx.docker.KubernetesPodEventTranslator.translate;
+import static com.spotify.styx.docker.KubernetesPodEventTranslator.translateError;
 import static com.spotify.styx.serialization.Json.OBJECT_MAPPER;
 import static com.spotify.styx.util.CloserUtil.register;
 import static com.spotify.styx.util.GrpcContextUtil.currentContextExecutorService;
@@ -33,21 +36,20 @@ import static java.util.stream.Collectors.toList;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Closer;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.spotify.styx.model.Event;
-import com.spotify.styx.model.EventVisitor;
-import com.spotify.styx.model.ExecutionDescription;
-import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.WorkflowConfiguration;
+import com.spotify.styx.model.WorkflowId;
 import com.spotify.styx.model.WorkflowInstance;
 import com.spotify.styx.monitoring.Stats;
-import com.spotify.styx.state.Message;
 import com.spotify.styx.state.RunState;
 import com.spotify.styx.state.StateManager;
 import com.spotify.styx.state.StateTransitionConflictException;
-import com.spotify.styx.state.Trigger;
 import com.spotify.styx.util.Debug;
 import com.spotify.styx.util.EventUtil;
 import com.spotify.styx.util.IsClosedException;
@@ -59,9 +61,14 @@ import io.fabric8.kubernetes.api.model.ContainerStateTerminated;
 import io.fabric8.kubernetes.api.model.ContainerStatus;
 import io.fabric8.kubernetes.api.model.EnvVar;
 import io.fabric8.kubernetes.api.model.EnvVarBuilder;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import io.fabric8.kubernetes.api.model.ObjectReference;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.api.model.PodSpecBuilder;
+import io.fabric8.kubernetes.api.model.PodTemplateSpec;
+import io.fabric8.kubernetes.api.model.PodTemplateSpecBuilder;
 import io.fabric8.kubernetes.api.model.Quantity;
 import io.fabric8.kubernetes.api.model.QuantityBuilder;
 import io.fabric8.kubernetes.api.model.ResourceRequirementsBuilder;
@@ -72,10 +79,11 @@ import io.fabric8.kubernetes.api.model.Volume;
 import io.fabric8.kubernetes.api.model.VolumeBuilder;
 import io.fabric8.kubernetes.api.model.VolumeMount;
 import io.fabric8.kubernetes.api.model.VolumeMountBuilder;
+import io.fabric8.kubernetes.api.model.batch.Job;
+import io.fabric8.kubernetes.api.model.batch.JobBuilder;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
-import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import io.norberg.automatter.AutoMatter;
 import io.opencensus.common.Scope;
@@ -99,8 +107,12 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A {@link DockerRunner} implementation that submits container executions to a Kubernetes cluster.
@@ -111,6 +123,13 @@ class KubernetesDockerRunner implements DockerRunner {
 
   static final String STYX_WORKFLOW_INSTANCE_ANNOTATION = "styx-workflow-instance";
   static final String DOCKER_TERMINATION_LOGGING_ANNOTATION = "styx-docker-termination-logging";
+  static final String STYX_ENVIRONMENT_LABEL = "styx-environment";
+  static final String STYX_WORKFLOW_ID_LABEL = "styx-workflow-id";
+  // Set by the job controller on the pods it creates
+  static final String JOB_NAME_LABEL = "job-name";
+  // Not part of the JobSpec model of the kubernetes client, so it is sent as an additional property
+  static final String JOB_TTL_SECONDS_AFTER_FINISHED = "ttlSecondsAfterFinished";
+  private static final int MAX_LABEL_VALUE_LENGTH = 63;
   static final String COMPONENT_ID = "STYX_COMPONENT_ID";
   static final String WORKFLOW_ID = "STYX_WORKFLOW_ID";
   static final String SERVICE_ACCOUNT = "STYX_SERVICE_ACCOUNT";
@@ -126,7 +145,8 @@ class KubernetesDockerRunner implements DockerRunner {
   static final String LOGGING = "STYX_LOGGING";
   private static final int DEFAULT_POD_CLEANUP_INTERVAL_SECONDS = 60;
   private static final int DEFAULT_POD_DELETION_DELAY_SECONDS = 120;
-  private static final Duration PROCESS_POD_UPDATE_INTERVAL = Duration.ofSeconds(5);
+  private static final Duration POD_CACHE_RESYNC_INTERVAL = Duration.ofMinutes(5);
+  private static final Duration SECRET_ROTATION_INTERVAL = Duration.ofMinutes(5);
   private static final int K8S_POD_PROCESSING_THREADS = 32;
   private static final Time DEFAULT_TIME = Instant::now;
   static final String STYX_WORKFLOW_SA_ENV_VARIABLE = "GOOGLE_APPLICATION_CREDENTIALS";
@@ -139,12 +159,33 @@ class KubernetesDockerRunner implements DockerRunner {
       .setDaemon(true)
       .setNameFormat("k8s-scheduler-thread-%d")
       .build();
+  private static final ThreadFactory SECRET_ROTATION_THREAD_FACTORY = new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("k8s-secret-rotation-thread-%d")
+      .build();
   static final String KEEPALIVE_CONTAINER_NAME = "keepalive";
   static final String MAIN_CONTAINER_NAME = "styx-run";
+  private static final Container KEEPALIVE_CONTAINER = new ContainerBuilder()
+      .withName(KEEPALIVE_CONTAINER_NAME)
+      // Use the k8s pause container image. It sleeps forever until terminated.
+      .withImage("k8s.gcr.io/pause:3.1")
+      .withNewResources()
+      .addToRequests("cpu", new QuantityBuilder()
+          .withAmount("0")
+          .build())
+      .addToRequests("memory", new QuantityBuilder()
+          .withAmount("0")
+          .build())
+      .endResources()
+      .build();
+  private static final Set<String> EXECUTION_ENV =
+      ImmutableSet.of(PARAMETER, DOCKER_ARGS, EXECUTION_ID, TRIGGER_ID, TRIGGER_TYPE);
+  private static final int POD_TEMPLATE_CACHE_SIZE = 10_000;
 
   private final Closer closer = Closer.create();
 
   private final ScheduledExecutorService scheduledExecutor;
+  private final ScheduledExecutorService secretRotationExecutor;
 
   private final KubernetesClient client;
   private final StateManager stateManager;
@@ -157,8 +198,14 @@ class KubernetesDockerRunner implements DockerRunner {
   private final Duration podDeletionDelay;
   private final Time time;
   private final ExecutorService executor;
-
-  private Watch watch;
+  private final PodWatcher podWatcher;
+  private final KubernetesPodCache podCache;
+  private final KubernetesEventWatch eventWatch;
+  private final KubernetesSubmissionMode submissionMode;
+  private final LoadingCache<PodTemplateKey, PodTemplateSpec> podTemplateCache = CacheBuilder.newBuilder()
+      .maximumSize(POD_TEMPLATE_CACHE_SIZE)
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build(CacheLoader.from(KubernetesDockerRunner::createPodTemplate));
 
   KubernetesDockerRunner(NamespacedKubernetesClient client, StateManager stateManager, Stats stats,
                          KubernetesGCPServiceAccountSecretManager serviceAccountSecretManager,
@@ -166,7 +213,8 @@ class KubernetesDockerRunner implements DockerRunner {
                          Set<String> secretWhitelist,
                          int cleanupPodsIntervalSeconds,
                          int podDeletionDelaySeconds,
-                         Time time, ScheduledExecutorService scheduledExecutor) {
+                         Time time, ScheduledExecutorService scheduledExecutor,
+                         KubernetesSubmissionMode submissionMode) {
     this.stateManager = Objects.requireNonNull(stateManager);
     this.client = Objects.requireNonNull(client);
     this.stats = Objects.requireNonNull(stats);
@@ -177,40 +225,63 @@ class KubernetesDockerRunner implements DockerRunner {
     this.cleanupPodsInterval = Duration.ofSeconds(cleanupPodsIntervalSeconds);
     this.podDeletionDelay = Duration.ofSeconds(podDeletionDelaySeconds);
     this.time = Objects.requireNonNull(time);
+    this.submissionMode = Objects.requireNonNull(submissionMode);
     this.scheduledExecutor =
         register(closer, Objects.requireNonNull(scheduledExecutor), "kubernetes-scheduled-executor");
     this.executor = currentContextExecutorService(
         register(closer, new ForkJoinPool(K8S_POD_PROCESSING_THREADS), "kubernetes-executor"));
+    // Secret rotation calls IAM and must not hold up pod event processing on the scheduled executor
+    final ScheduledThreadPoolExecutor secretRotationExecutor =
+        new ScheduledThreadPoolExecutor(1, SECRET_ROTATION_THREAD_FACTORY);
+    secretRotationExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    this.secretRotationExecutor = register(closer, secretRotationExecutor, "kubernetes-secret-rotation");
+    this.podWatcher = new PodWatcher();
+    this.podCache = closer.register(
+        new KubernetesPodCache(client, stats, time, this.scheduledExecutor, POD_CACHE_RESYNC_INTERVAL, podWatcher));
+    this.eventWatch = closer.register(
+        new KubernetesEventWatch(client, this.scheduledExecutor, podCache::resourceVersion,
+            this::kubernetesEventReceived));
   }
 
   KubernetesDockerRunner(NamespacedKubernetesClient client, StateManager stateManager, Stats stats,
                          KubernetesGCPServiceAccountSecretManager serviceAccountSecretManager,
-                         Debug debug, String styxEnvironment, Set<String> secretWhitelist) {
+                         Debug debug, String styxEnvironment, Set<String> secretWhitelist,
+                         KubernetesSubmissionMode submissionMode) {
     this(client, stateManager, stats, serviceAccountSecretManager, debug, styxEnvironment, secretWhitelist,
         DEFAULT_POD_CLEANUP_INTERVAL_SECONDS, DEFAULT_POD_DELETION_DELAY_SECONDS, DEFAULT_TIME,
-        Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY));
+        Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY), submissionMode);
   }
 
   @Override
   public void start(WorkflowInstance workflowInstance, RunSpec runSpec) throws IOException {
     // First make cheap check for if pod already exists
-    var existingPod = client.pods().withName(runSpec.executionId()).get();
-    if (existingPod != null) {
-      LOG.info("Pod already exists, not creating: {}: {}", workflowInstance, existingPod);
+    var existingPod = cachedPod(workflowInstance, runSpec.executionId());
+    if (existingPod.isPresent()) {
+      LOG.info("Pod already exists, not creating: {}: {}", workflowInstance, existingPod.get());
       return;
     }
 
     // Set up secrets
+    final long secretsNanos = time.nanoTime();
     final KubernetesSecretSpec secretSpec = ensureSecrets(workflowInstance, runSpec);
+    recordSubmissionStageLatency("secrets", secretsNanos);
 
     // Create pod. This might fail with 409 Conflict if the pod already exists as despite the existence
     // check above it might have been concurrently created. That is fine.
+    final long createNanos = time.nanoTime();
     try {
-      var pod = createPod(workflowInstance, runSpec, secretSpec, styxEnvironment);
-      LOG.info("Creating pod: {}: {}", workflowInstance, pod);
-      var createdPod = client.pods().create(pod);
+      if (submissionMode == KubernetesSubmissionMode.JOB) {
+        var job = createJob(workflowInstance, runSpec, secretSpec);
+        LOG.info("Creating job: {}: {}", workflowInstance, job);
+        var createdJob = client.batch().jobs().create(job);
+        LOG.info("Created job: {}: {}", workflowInstance, createdJob);
+      } else {
+        var pod = createPod(workflowInstance, runSpec, secretSpec);
+        LOG.info("Creating pod: {}: {}", workflowInstance, pod);
+        var createdPod = client.pods().create(pod);
+        LOG.info("Created pod: {}: {}", workflowInstance, createdPod);
+      }
       stats.recordSubmission(runSpec.executionId());
-      LOG.info("Created pod: {}: {}", workflowInstance, createdPod);
     } catch (KubernetesClientException kce) {
       if (kce.getCode() == 409 && kce.getStatus().getReason().equals("AlreadyExists")) {
         LOG.info("Pod already existed when creating: {}: {}", workflowInstance, runSpec.executionId());
@@ -219,13 +290,32 @@ class KubernetesDockerRunner implements DockerRunner {
       } else {
         throw new IOException("Failed to create Kubernetes pod", kce);
       }
+    } finally {
+      recordSubmissionStageLatency("create", createNanos);
     }
   }
 
+  private void recordSubmissionStageLatency(String stage, long startNanos) {
+    stats.recordSubmissionStageLatency(stage, TimeUnit.NANOSECONDS.toMillis(time.nanoTime() - startNanos));
+  }
+
+  @Override
+  public int pendingExecutions() {
+    return (int) podCache.list().stream()
+        .filter(pod -> pod.getStatus() == null || "Pending".equals(pod.getStatus().getPhase()))
+        .count();
+  }
+
+  @Override
+  public boolean isHealthy() {
+    return podCache.isWatching();
+  }
+
   @Override
   public void poll(RunState runState) {
     var executionId = runState.data().executionId().orElseThrow(IllegalArgumentException::new);
-    var pod = client.pods().withName(executionId).get();
+    // Confirm a cache miss with the api server, as the pod might have been created after the last observed event
+    var pod = cachedPod(runState.workflowInstance(), executionId).orElseGet(() -> fetchPod(executionId));
     if (pod == null) {
       // No pod found. Emit an error guarded by the state counter we are basing the error conclusion on.
       stateManager.receiveIgnoreClosed(
@@ -238,7 +328,44 @@ class KubernetesDockerRunner implements DockerRunner {
 
   @Override
   public void cleanup() throws IOException {
-    serviceAccountSecretManager.cleanup();
+    // The secret references are read from the pod cache, which might be missing pods while it is not watching
+    if (!podCache.isWatching()) {
+      LOG.info("Pod watch not established, skipping service account secret cleanup");
+      return;
+    }
+    serviceAccountSecretManager.cleanup(podCache.referencedSecrets());
+  }
+
+  /**
+   * Looks up the pod of an execution in the pod cache. Bare pods are named by the execution id, while
+   * the pods of a job carry the execution id in their job name label.
+   */
+  private Optional<Pod> cachedPod(WorkflowInstance workflowInstance, String executionId) {
+    return podCache.get(executionId).or(() -> podCache.list(workflowInstance).stream()
+        .filter(pod -> executionId.equals(podExecutionId(pod)))
+        .findFirst());
+  }
+
+  private Pod fetchPod(String executionId) {
+    if (submissionMode == KubernetesSubmissionMode.JOB) {
+      return client.pods().withLabel(JOB_NAME_LABEL, executionId).list().getItems().stream()
+          .findFirst()
+          .orElse(null);
+    }
+    return client.pods().withName(executionId).get();
+  }
+
+  @VisibleForTesting
+  static String podExecutionId(Pod pod) {
+    final Map<String, String> labels = pod.getMetadata().getLabels();
+    return labels != null && labels.containsKey(JOB_NAME_LABEL)
+           ? labels.get(JOB_NAME_LABEL)
+           : pod.getMetadata().getName();
+  }
+
+  private static boolean isJobPod(Pod pod) {
+    final Map<String, String> labels = pod.getMetadata().getLabels();
+    return labels != null && labels.containsKey(JOB_NAME_LABEL);
   }
 
   private KubernetesSecretSpec ensureSecrets(WorkflowInstance workflowInstance, RunSpec runSpec) {
@@ -298,34 +425,140 @@ class KubernetesDockerRunner implements DockerRunner {
                        RunSpec runSpec,
                        KubernetesSecretSpec secretSpec,
                        String styxEnvironment) {
-    final String imageWithTag = runSpec.imageName().contains(":")
-        ? runSpec.imageName()
-        : runSpec.imageName() + ":latest";
-
-    final String executionId = runSpec.executionId();
-    final PodBuilder podBuilder = new PodBuilder()
-        .withNewMetadata()
-        .withName(executionId)
-        .addToAnnotations(STYX_WORKFLOW_INSTANCE_ANNOTATION, workflowInstance.toKey())
+    return createPod(workflowInstance, runSpec,
+        createPodTemplate(podTemplateKey(workflowInstance, runSpec, secretSpec, styxEnvironment)));
+  }
+
+  private Pod createPod(WorkflowInstance workflowInstance, RunSpec runSpec, KubernetesSecretSpec secretSpec) {
+    return createPod(workflowInstance, runSpec,
+        podTemplateCache.getUnchecked(podTemplateKey(workflowInstance, runSpec, secretSpec, styxEnvironment)));
+  }
+
+  private static Pod createPod(WorkflowInstance workflowInstance, RunSpec runSpec, PodTemplateSpec workflowTemplate) {
+    final PodTemplateSpec template = executionPodTemplate(workflowInstance, runSpec, workflowTemplate);
+    return new PodBuilder()
+        .withMetadata(new ObjectMetaBuilder(template.getMetadata())
+            .withName(runSpec.executionId())
+            .build())
+        .withSpec(new PodSpecBuilder(template.getSpec())
+            .addToContainers(KEEPALIVE_CONTAINER)
+            .build())
+        .build();
+  }
+
+  /**
+   * Creates a job running a single pod to completion. The pod has no keepalive container, as the job
+   * controller retains the terminated pod, and with it the termination log, until the job is garbage
+   * collected after the ttl.
+   */
+  @VisibleForTesting
+  static Job createJob(WorkflowInstance workflowInstance,
+                       RunSpec runSpec,
+                       KubernetesSecretSpec secretSpec,
+                       String styxEnvironment,
+                       Duration ttlAfterFinished) {
+    return createJob(workflowInstance, runSpec,
+        createPodTemplate(podTemplateKey(workflowInstance, runSpec, secretSpec, styxEnvironment)), ttlAfterFinished);
+  }
+
+  private Job createJob(WorkflowInstance workflowInstance, RunSpec runSpec, KubernetesSecretSpec secretSpec) {
+    return createJob(workflowInstance, runSpec,
+        podTemplateCache.getUnchecked(podTemplateKey(workflowInstance, runSpec, secretSpec, styxEnvironment)),
+        podDeletionDelay);
+  }
+
+  private static Job createJob(WorkflowInstance workflowInstance, RunSpec runSpec,
+                               PodTemplateSpec workflowTemplate, Duration ttlAfterFinished) {
+    final PodTemplateSpec template = executionPodTemplate(workflowInstance, runSpec, workflowTemplate);
+    final Job job = new JobBuilder()
+        .withMetadata(new ObjectMetaBuilder(template.getMetadata())
+            .withName(runSpec.executionId())
+            .build())
+        .withNewSpec()
+        .withTemplate(template)
+        .withCompletions(1)
+        .withParallelism(1)
+        // Retries are handled by styx
+        .withBackoffLimit(0)
+        .endSpec()
+        .build();
+    job.getSpec().setAdditionalProperty(JOB_TTL_SECONDS_AFTER_FINISHED, ttlAfterFinished.getSeconds());
+    return job;
+  }
+
+  private static PodTemplateKey podTemplateKey(WorkflowInstance workflowInstance,
+                                               RunSpec runSpec,
+                                               KubernetesSecretSpec secretSpec,
+                                               String styxEnvironment) {
+    return PodTemplateKey.builder()
+        .workflowId(workflowInstance.workflowId())
+        .styxEnvironment(styxEnvironment)
+        .imageName(runSpec.imageName())
+        .terminationLogging(runSpec.terminationLogging())
+        .serviceAccount(runSpec.serviceAccount())
+        .commitSha(runSpec.commitSha())
+        .memRequest(runSpec.memRequest())
+        .memLimit(runSpec.memLimit())
+        .env(runSpec.env())
+        .secretSpec(secretSpec)
+        .build();
+  }
+
+  /**
+   * Stamps the fields that differ between executions of a workflow onto a cached workflow template. The
+   * template itself is shared and left untouched, the builders copy it.
+   */
+  private static PodTemplateSpec executionPodTemplate(WorkflowInstance workflowInstance,
+                                                      RunSpec runSpec,
+                                                      PodTemplateSpec workflowTemplate) {
+    final Container mainContainer = new ContainerBuilder(workflowTemplate.getSpec().getContainers().get(0))
+        .withArgs(runSpec.args())
+        .addToEnv(envVar(PARAMETER, workflowInstance.parameter()))
+        .addToEnv(envVar(DOCKER_ARGS, String.join(" ", runSpec.args())))
+        .addToEnv(envVar(EXECUTION_ID, runSpec.executionId()))
+        .addToEnv(envVar(TRIGGER_ID, runSpec.trigger().map(TriggerUtil::triggerId).orElse(null)))
+        .addToEnv(envVar(TRIGGER_TYPE, runSpec.trigger().map(TriggerUtil::triggerType).orElse(null)))
+        .build();
+    return new PodTemplateSpecBuilder()
+        .withMetadata(new ObjectMetaBuilder(workflowTemplate.getMetadata())
+            .addToAnnotations(STYX_WORKFLOW_INSTANCE_ANNOTATION, workflowInstance.toKey())
+            .build())
+        .withSpec(new PodSpecBuilder(workflowTemplate.getSpec())
+            .withContainers(mainContainer)
+            .build())
+        .build();
+  }
+
+  /**
+   * Creates the part of the pod that is the same for all executions of a workflow version, i.e. everything
+   * but the execution id, parameter, args and trigger.
+   */
+  private static PodTemplateSpec createPodTemplate(PodTemplateKey key) {
+    final String imageWithTag = key.imageName().contains(":")
+        ? key.imageName()
+        : key.imageName() + ":latest";
+
+    final ObjectMeta metadata = new ObjectMetaBuilder()
+        .addToLabels(STYX_ENVIRONMENT_LABEL, labelValue(key.styxEnvironment()))
+        .addToLabels(STYX_WORKFLOW_ID_LABEL, labelValue(key.workflowId().toKey()))
         .addToAnnotations(DOCKER_TERMINATION_LOGGING_ANNOTATION,
-                          String.valueOf(runSpec.terminationLogging()))
-        .endMetadata();
+                          String.valueOf(key.terminationLogging()))
+        .build();
 
     final PodSpecBuilder specBuilder = new PodSpecBuilder()
         .withRestartPolicy("Never");
 
     final ResourceRequirementsBuilder resourceRequirements = new ResourceRequirementsBuilder();
-    runSpec.memRequest().ifPresent(s -> resourceRequirements.addToRequests("memory", new Quantity(s)));
-    runSpec.memLimit().ifPresent(s -> resourceRequirements.addToLimits("memory", new Quantity(s)));
+    key.memRequest().ifPresent(s -> resourceRequirements.addToRequests("memory", new Quantity(s)));
+    key.memLimit().ifPresent(s -> resourceRequirements.addToLimits("memory", new Quantity(s)));
 
     final ContainerBuilder mainContainerBuilder = new ContainerBuilder()
         .withName(MAIN_CONTAINER_NAME)
         .withImage(imageWithTag)
-        .withArgs(runSpec.args())
-        .withEnv(buildEnv(workflowInstance, runSpec, styxEnvironment))
+        .withEnv(buildEnv(key))
         .withResources(resourceRequirements.build());
 
-    secretSpec.serviceAccountSecret().ifPresent(serviceAccountSecret -> {
+    key.secretSpec().serviceAccountSecret().ifPresent(serviceAccountSecret -> {
       final SecretVolumeSource saVolumeSource = new SecretVolumeSourceBuilder()
           .withSecretName(serviceAccountSecret)
           .build();
@@ -345,7 +578,7 @@ class KubernetesDockerRunner implements DockerRunner {
                                        saMount.getMountPath() + STYX_WORKFLOW_SA_JSON_KEY));
     });
 
-    secretSpec.customSecret().ifPresent(secret -> {
+    key.secretSpec().customSecret().ifPresent(secret -> {
       final SecretVolumeSource secretVolumeSource = new SecretVolumeSourceBuilder()
           .withSecretName(secret.name())
           .build();
@@ -364,25 +597,10 @@ class KubernetesDockerRunner implements DockerRunner {
     });
 
     specBuilder.addToContainers(mainContainerBuilder.build());
-    specBuilder.addToContainers(keepaliveContainer());
-    podBuilder.withSpec(specBuilder.build());
 
-    return podBuilder.build();
-  }
-
-  private static Container keepaliveContainer() {
-    return new ContainerBuilder()
-        .withName(KEEPALIVE_CONTAINER_NAME)
-        // Use the k8s pause container image. It sleeps forever until terminated.
-        .withImage("k8s.gcr.io/pause:3.1")
-        .withNewResources()
-        .addToRequests("cpu", new QuantityBuilder()
-            .withAmount("0")
-            .build())
-        .addToRequests("memory", new QuantityBuilder()
-            .withAmount("0")
-            .build())
-        .endResources()
+    return new PodTemplateSpecBuilder()
+        .withMetadata(metadata)
+        .withSpec(specBuilder.build())
         .build();
   }
 
@@ -391,24 +609,19 @@ class KubernetesDockerRunner implements DockerRunner {
     return new EnvVarBuilder().withName(name).withValue(value).build();
   }
 
-  private static List<EnvVar> buildEnv(WorkflowInstance workflowInstance,
-                                       RunSpec runSpec,
-                                       String styxEnvironment) {
+  private static List<EnvVar> buildEnv(PodTemplateKey key) {
     // store user provided env first to prevent accidentally/intentionally overwriting system ones
-    final Map<String, String> env = new HashMap<>(runSpec.env());
-    env.put(COMPONENT_ID, workflowInstance.workflowId().componentId());
-    env.put(WORKFLOW_ID, workflowInstance.workflowId().id());
-    env.put(PARAMETER, workflowInstance.parameter());
-    env.put(COMMIT_SHA, runSpec.commitSha().orElse(""));
-    env.put(SERVICE_ACCOUNT, runSpec.serviceAccount().orElse(""));
-    env.put(DOCKER_ARGS, String.join(" ", runSpec.args()));
-    env.put(DOCKER_IMAGE, runSpec.imageName());
-    env.put(EXECUTION_ID, runSpec.executionId());
+    final Map<String, String> env = new HashMap<>(key.env());
+    env.put(COMPONENT_ID, key.workflowId().componentId());
+    env.put(WORKFLOW_ID, key.workflowId().id());
+    env.put(COMMIT_SHA, key.commitSha().orElse(""));
+    env.put(SERVICE_ACCOUNT, key.serviceAccount().orElse(""));
+    env.put(DOCKER_IMAGE, key.imageName());
     env.put(TERMINATION_LOG, "/dev/termination-log");
-    env.put(TRIGGER_ID, runSpec.trigger().map(TriggerUtil::triggerId).orElse(null));
-    env.put(TRIGGER_TYPE, runSpec.trigger().map(TriggerUtil::triggerType).orElse(null));
-    env.put(ENVIRONMENT, styxEnvironment);
+    env.put(ENVIRONMENT, key.styxEnvironment());
     env.put(LOGGING, "structured");
+    // the execution specific variables are added per execution
+    EXECUTION_ENV.forEach(env::remove);
     return env.entrySet().stream()
         .map(entry -> envVar(entry.getKey(), entry.getValue()))
         .collect(toList());
@@ -416,8 +629,24 @@ class KubernetesDockerRunner implements DockerRunner {
 
   @Override
   public void cleanup(WorkflowInstance workflowInstance, String executionId) {
-    // do not cleanup pod along with state machine transition and let polling thread
+    // do not cleanup bare pods along with state machine transition and let polling thread
     // take care of it
+    if (submissionMode != KubernetesSubmissionMode.JOB) {
+      return;
+    }
+    // Finished jobs are garbage collected by the control plane, but a job that is still running, e.g. after
+    // a timeout or a pull image error, has to be stopped.
+    var pod = cachedPod(workflowInstance, executionId);
+    if (pod.isPresent() && isTerminated(pod.get())) {
+      return;
+    }
+    if (!debug.get()) {
+      LOG.info("Deleting {} job: {}, reason: 'Not terminated'", workflowInstance, executionId);
+      client.batch().jobs().withName(executionId).cascading(false).delete();
+      client.pods().withLabel(JOB_NAME_LABEL, executionId).delete();
+    } else {
+      LOG.info("Keeping {} job: {}, reason: 'Not terminated'", workflowInstance, executionId);
+    }
   }
 
   @VisibleForTesting
@@ -494,6 +723,17 @@ class KubernetesDockerRunner implements DockerRunner {
             .findAny());
   }
 
+  /**
+   * Sanitizes a string into a valid label value: at most 63 characters, consisting of alphanumerics,
+   * '-', '_' or '.', and beginning and ending with an alphanumeric character.
+   */
+  @VisibleForTesting
+  static String labelValue(String value) {
+    final String sanitized = value.replaceAll("[^A-Za-z0-9_.-]", "-");
+    final String truncated = sanitized.substring(0, Math.min(sanitized.length(), MAX_LABEL_VALUE_LENGTH));
+    return truncated.replaceAll("^[^A-Za-z0-9]+|[^A-Za-z0-9]+$", "");
+  }
+
   @VisibleForTesting
   static boolean isMainContainer(String name, Pod pod) {
     return name.equals(MAIN_CONTAINER_NAME);
@@ -529,19 +769,15 @@ class KubernetesDockerRunner implements DockerRunner {
 
   @Override
   public void close() throws IOException {
-    if (watch != null) {
-      watch.close();
-    }
     closer.close();
   }
 
   public void init() {
-    scheduleWithJitter(this::cleanupPods, scheduledExecutor, cleanupPodsInterval);
-
-    final PodWatcher watcher = new PodWatcher();
-    scheduleWithJitter(watcher::processPodUpdates, scheduledExecutor, PROCESS_POD_UPDATE_INTERVAL);
+    podCache.start();
+    eventWatch.start();
 
-    watch = client.pods().watch(watcher);
+    scheduleWithJitter(this::cleanupPods, scheduledExecutor, cleanupPodsInterval);
+    scheduleWithJitter(serviceAccountSecretManager::rotateSecrets, secretRotationExecutor, SECRET_ROTATION_INTERVAL);
   }
 
   private void cleanupPods() {
@@ -558,13 +794,26 @@ class KubernetesDockerRunner implements DockerRunner {
   }
 
   /**
-   * Deletes stale workflow instance execution pods.
+   * Deletes stale workflow instance execution pods. The pods of jobs are left to the control plane.
    */
   @VisibleForTesting
   void tryCleanupPods() {
-    var pods = client.pods().list().getItems();
+    var pods = podCache.list().stream()
+        .filter(this::isEnvironmentPod)
+        .filter(pod -> !isJobPod(pod))
+        .collect(toList());
+    if (pods.isEmpty()) {
+      return;
+    }
+    // Fetch the run states of the pods by key. Note that the run states must be fetched after the pods.
+    var workflowInstances = pods.stream()
+        .map(KubernetesDockerRunner::podWorkflowInstance)
+        .flatMap(Optional::stream)
+        .distinct()
+        .collect(toList());
+    var runStates = stateManager.getActiveStates(workflowInstances);
     pods.stream()
-        .map(pod -> runAsync(guard(() -> tryCleanupPod(pod)), executor))
+        .map(pod -> runAsync(guard(() -> tryCleanupPod(pod, runStates)), executor))
         .collect(toList())
         .forEach(CompletableFuture::join);
     tracer.getCurrentSpan().addAnnotation("processed",
@@ -572,18 +821,29 @@ class KubernetesDockerRunner implements DockerRunner {
 
   }
 
-  private void tryCleanupPod(Pod pod) {
+  /**
+   * Returns false for pods created by a different styx environment sharing the namespace. Pods without an
+   * environment label are assumed to belong to this environment.
+   */
+  private boolean isEnvironmentPod(Pod pod) {
+    final Map<String, String> labels = pod.getMetadata().getLabels();
+    return labels == null
+           || !labels.containsKey(STYX_ENVIRONMENT_LABEL)
+           || labels.get(STYX_ENVIRONMENT_LABEL).equals(labelValue(styxEnvironment));
+  }
+
+  private void tryCleanupPod(Pod pod, Map<WorkflowInstance, RunState> runStates) {
     // Do not include all pod span in parent span to avoid it growing too big
     tracer.spanBuilderWithExplicitParent("Styx.KubernetesDockerRunner.tryCleanupPod", null)
-        .startSpanAndRun(() -> tryCleanupPod0(pod));
+        .startSpanAndRun(() -> tryCleanupPod0(pod, runStates));
   }
 
-  private void tryCleanupPod0(Pod pod) {
+  private void tryCleanupPod0(Pod pod, Map<WorkflowInstance, RunState> runStates) {
     var workflowInstance = readPodWorkflowInstance(pod);
     if (workflowInstance.isEmpty()) {
       return;
     }
-    var runState = stateManager.getActiveState(workflowInstance.orElseThrow());
+    var runState = Optional.ofNullable(runStates.get(workflowInstance.orElseThrow()));
     var shouldDelete = runState.isPresent() && isPodRunState(pod, runState.orElseThrow())
                        ? shouldDeletePodWithRunState(workflowInstance.orElseThrow(), pod, runState.orElseThrow())
                        : shouldDeletePodWithoutRunState(workflowInstance.orElseThrow(), pod);
@@ -593,17 +853,20 @@ class KubernetesDockerRunner implements DockerRunner {
   }
 
   private static Optional<WorkflowInstance> readPodWorkflowInstance(Pod pod) {
+    final Optional<WorkflowInstance> workflowInstance = podWorkflowInstance(pod);
+    if (workflowInstance.isEmpty()) {
+      LOG.warn("[AUDIT] Got pod without workflow instance annotation {}", pod.getMetadata().getName());
+    }
+    return workflowInstance;
+  }
+
+  private static Optional<WorkflowInstance> podWorkflowInstance(Pod pod) {
     final Map<String, String> annotations = pod.getMetadata().getAnnotations();
-    final String podName = pod.getMetadata().getName();
     if (annotations == null || !annotations.containsKey(KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION)) {
-      LOG.warn("[AUDIT] Got pod without workflow instance annotation {}", podName);
       return Optional.empty();
     }
-
-    final WorkflowInstance workflowInstance = WorkflowInstance.parseKey(
-        annotations.get(KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION));
-
-    return Optional.of(workflowInstance);
+    return Optional.of(WorkflowInstance.parseKey(
+        annotations.get(KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION)));
   }
 
   private Optional<RunState> lookupPodRunState(Pod pod, WorkflowInstance workflowInstance) {
@@ -616,18 +879,18 @@ class KubernetesDockerRunner implements DockerRunner {
   }
 
   private boolean isPodRunState(Pod pod, RunState runState) {
-    final String podName = pod.getMetadata().getName();
+    final String podExecutionId = podExecutionId(pod);
 
     final Optional<String> executionIdOpt = runState.data().executionId();
     if (!executionIdOpt.isPresent()) {
-      LOG.debug("Pod event for state with no current executionId: {}", podName);
+      LOG.debug("Pod event for state with no current executionId: {}", pod.getMetadata().getName());
       return false;
     }
 
     final String executionId = executionIdOpt.get();
-    if (!podName.equals(executionId)) {
+    if (!podExecutionId.equals(executionId)) {
       LOG.debug("Pod event not matching current exec id, current:{} != pod:{}",
-          executionId, podName);
+          executionId, podExecutionId);
       return false;
     }
 
@@ -636,10 +899,13 @@ class KubernetesDockerRunner implements DockerRunner {
 
   private void emitPodEvents(Pod pod, RunState runState) {
     final List<Event> events = translate(runState.workflowInstance(), runState, pod, stats);
+    emitEvents(events, runState, isPullImageError(pod));
+  }
 
+  private void emitEvents(List<Event> events, RunState runState, boolean pullImageError) {
     for (int i = 0; i < events.size(); ++i) {
       final Event event = events.get(i);
-      if (event.accept(new PullImageErrorMatcher())) {
+      if (pullImageError && EventUtil.name(event).equals("runError")) {
         stats.recordPullImageError();
       }
       if (EventUtil.name(event).equals("started")) {
@@ -680,11 +946,68 @@ class KubernetesDockerRunner implements DockerRunner {
     }
   }
 
-  public class PodWatcher implements Watcher<Pod> {
+  /**
+   * Returns the most recent of two snapshots of the same pod, as ordered by resource version. Resource
+   * versions are opaque to clients, so if either one is not numeric the later received snapshot wins.
+   */
+  @VisibleForTesting
+  static Pod latestPod(Pod current, Pod received) {
+    try {
+      final long currentVersion = Long.parseLong(current.getMetadata().getResourceVersion());
+      final long receivedVersion = Long.parseLong(received.getMetadata().getResourceVersion());
+      return receivedVersion >= currentVersion ? received : current;
+    } catch (NumberFormatException e) {
+      return received;
+    }
+  }
 
-    private static final int RECONNECT_DELAY_SECONDS = 1;
+  /**
+   * Fails executions on kubernetes events that report a failure of their pod before the pod status does.
+   *
+   * @implNote Called on the event watch thread, so the run state lookup is deferred to the scheduled executor.
+   */
+  private void kubernetesEventReceived(io.fabric8.kubernetes.api.model.Event event) {
+    final Optional<String> error = eventError(event);
+    if (error.isEmpty()) {
+      return;
+    }
+    try {
+      scheduledExecutor.execute(guard(() -> processKubernetesEvent(event, error.get())));
+    } catch (RejectedExecutionException ignore) {
+      // Shutting down
+    }
+  }
 
-    private final ConcurrentMap<String, WorkflowInstance> podUpdates = new ConcurrentHashMap<>();
+  private void processKubernetesEvent(io.fabric8.kubernetes.api.model.Event event, String error) {
+    final ObjectReference involvedObject = event.getInvolvedObject();
+    // Ignore events of non-styx pods, and of previous pods with the same name
+    final Optional<Pod> pod = podCache.get(involvedObject.getName())
+        .filter(p -> Objects.equals(p.getMetadata().getUid(), involvedObject.getUid()));
+    final Optional<WorkflowInstance> instance = pod.flatMap(KubernetesDockerRunner::readPodWorkflowInstance);
+    if (instance.isEmpty()) {
+      return;
+    }
+
+    // The pod might have moved on since the event, e.g. if a later pull attempt succeeded
+    if (pod.get().getStatus() == null || !"Pending".equals(pod.get().getStatus().getPhase())) {
+      return;
+    }
+
+    LOG.info("Kubernetes event for pod {}: {}: {}, workflow instance: {}",
+        involvedObject.getName(), event.getReason(), event.getMessage(), instance.get());
+
+    final Optional<RunState> runState = lookupPodRunState(pod.get(), instance.get());
+    if (!runState.isPresent()) {
+      return;
+    }
+
+    emitEvents(translateError(instance.get(), runState.get(), error), runState.get(), true);
+  }
+
+  public class PodWatcher implements Watcher<Pod> {
+
+    private final ConcurrentMap<String, Pod> podUpdates = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
 
     /**
      * @implNote In order to be able to keep up with the stream of events from k8s, this method should
@@ -699,20 +1022,48 @@ class KubernetesDockerRunner implements DockerRunner {
 
       logEvent(action, pod, pod.getMetadata().getResourceVersion(), false);
 
-      // Ignore pod deletions
+      // Ignore pod deletions, dropping any pending update of the deleted pod
       if (action == Action.DELETED) {
+        podUpdates.remove(pod.getMetadata().getName());
         return;
       }
 
       // Ignore non-styx pods
-      final Optional<WorkflowInstance> workflowInstance = readPodWorkflowInstance(pod);
-      if (!workflowInstance.isPresent()) {
+      if (!readPodWorkflowInstance(pod).isPresent()) {
         return;
       }
 
-      // Flag this pod for later processing. Note that instead of storing the received pod status here,
-      // a new status is fetched later, in order to avoid observing pod statuses out-of-order.
-      podUpdates.put(pod.getMetadata().getName(), workflowInstance.get());
+      // Coalesce with any pending update of the same pod, keeping the most recent snapshot so that
+      // pod statuses are never observed out-of-order.
+      podUpdates.merge(pod.getMetadata().getName(), pod, KubernetesDockerRunner::latestPod);
+      scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+      if (!draining.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        scheduledExecutor.execute(this::drainPodUpdates);
+      } catch (RejectedExecutionException e) {
+        // Shutting down
+        draining.set(false);
+      }
+    }
+
+    private void drainPodUpdates() {
+      try {
+        processPodUpdates();
+      } catch (Throwable t) {
+        LOG.warn("Error while processing pod updates", t);
+      } finally {
+        draining.set(false);
+      }
+      // Updates received while processing are drained in a new task in order to not starve other
+      // tasks on the scheduled executor.
+      if (!podUpdates.isEmpty()) {
+        scheduleDrain();
+      }
     }
 
     void processPodUpdates() {
@@ -725,22 +1076,22 @@ class KubernetesDockerRunner implements DockerRunner {
       podNames.stream()
           .map(podName -> {
             // Remove from change set before processing in order to not lose updates
-            final WorkflowInstance instance = podUpdates.remove(podName);
-            return runAsync(guard(() -> processPodUpdate(podName, instance)), executor);
+            final Pod pod = podUpdates.remove(podName);
+            return runAsync(guard(() -> processPodUpdate(pod)), executor);
           })
           .collect(toList())
           .forEach(CompletableFuture::join);
     }
 
-    private void processPodUpdate(String podName, WorkflowInstance instance) {
-      LOG.debug("Processing pod update: {}: {}", podName, instance);
-
-      final Pod pod = client.pods().withName(podName).get();
-      if (pod == null) {
+    private void processPodUpdate(Pod pod) {
+      final Optional<WorkflowInstance> instance = readPodWorkflowInstance(pod);
+      if (!instance.isPresent()) {
         return;
       }
 
-      final Optional<RunState> runState = lookupPodRunState(pod, instance);
+      LOG.debug("Processing pod update: {}: {}", pod.getMetadata().getName(), instance.get());
+
+      final Optional<RunState> runState = lookupPodRunState(pod, instance.get());
       if (!runState.isPresent()) {
         return;
       }
@@ -750,93 +1101,29 @@ class KubernetesDockerRunner implements DockerRunner {
 
     @Override
     public void onClose(KubernetesClientException e) {
-      LOG.warn("Watch closed", e);
+      // The watch is owned and reconnected by the pod cache, which never closes its listener
     }
   }
 
-  // fixme: add a Cause enum to the runError() event instead of this string matching
-  private static class PullImageErrorMatcher implements EventVisitor<Boolean> {
-
-    @Override
-    public Boolean timeTrigger(WorkflowInstance workflowInstance) {
-      return false;
-    }
-
-    @Override
-    public Boolean triggerExecution(WorkflowInstance workflowInstance, Trigger trigger,
-        TriggerParameters parameters) {
-      return false;
-    }
-
-    @Override
-    public Boolean info(WorkflowInstance workflowInstance, Message message) {
-      return false;
-    }
-
-    @Override
-    public Boolean dequeue(WorkflowInstance workflowInstance, Set<String> resourceIds) {
-      return false;
-    }
-
-    @Override
-    public Boolean created(WorkflowInstance workflowInstance, String executionId, String dockerImage) {
-      return false;
-    }
-
-    @Override
-    public Boolean submit(WorkflowInstance workflowInstance, ExecutionDescription executionDescription,
-        String executionId) {
-      return false;
-    }
-
-    @Override
-    public Boolean submitted(WorkflowInstance workflowInstance, String executionId) {
-      return false;
-    }
-
-    @Override
-    public Boolean started(WorkflowInstance workflowInstance) {
-      return false;
-    }
-
-    @Override
-    public Boolean terminate(WorkflowInstance workflowInstance, Optional<Integer> exitCode) {
-      return false;
-    }
-
-    @Override
-    public Boolean runError(WorkflowInstance workflowInstance, String message) {
-      return message.contains("failed to pull");
-    }
-
-    @Override
-    public Boolean success(WorkflowInstance workflowInstance) {
-      return false;
-    }
-
-    @Override
-    public Boolean retryAfter(WorkflowInstance workflowInstance, long delayMillis) {
-      return false;
-    }
-
-    @Override
-    public Boolean retry(WorkflowInstance workflowInstance) {
-      return false;
-    }
-
-    @Override
-    public Boolean stop(WorkflowInstance workflowInstance) {
-      return false;
-    }
-
-    @Override
-    public Boolean timeout(WorkflowInstance workflowInstance) {
-      return false;
-    }
-
-    @Override
-    public Boolean halt(WorkflowInstance workflowInstance) {
-      return false;
+  /**
+   * The inputs of a workflow pod template. A workflow update changes at least one of them, so templates of
+   * previous workflow versions are never reused and just expire from the cache.
+   */
+  @AutoMatter
+  interface PodTemplateKey {
+    WorkflowId workflowId();
+    String styxEnvironment();
+    String imageName();
+    boolean terminationLogging();
+    Optional<String> serviceAccount();
+    Optional<String> commitSha();
+    Optional<String> memRequest();
+    Optional<String> memLimit();
+    Map<String, String> env();
+    KubernetesSecretSpec secretSpec();
+
+    static PodTemplateKeyBuilder builder() {
+      return new PodTemplateKeyBuilder();
     }
   }
 
@@ -0,0 +1,152 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler Service
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.docker;
+
+import static com.spotify.styx.docker.KubernetesPodCache.reconnectDelay;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import io.fabric8.kubernetes.api.model.Event;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A watch of the core/v1 events of the pods in the namespace of a {@link NamespacedKubernetesClient}.
+ *
+ * <p>Events are hints that let failures be acted upon before they are reflected in a pod status, the pod watch
+ * remains the source of truth. The watch therefore starts from the resource version that the pod cache is up to
+ * date with, skipping historical events without listing them, and is simply restarted from the then current
+ * version whenever it is closed.
+ */
+class KubernetesEventWatch implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(KubernetesEventWatch.class);
+
+  private final NamespacedKubernetesClient client;
+  private final ScheduledExecutorService executor;
+  private final Supplier<Optional<String>> resourceVersion;
+  private final Consumer<Event> listener;
+
+  // Guarded by this
+  private long generation;
+  private Watch watch;
+  private int reconnectAttempts;
+  private boolean closed;
+
+  KubernetesEventWatch(NamespacedKubernetesClient client, ScheduledExecutorService executor,
+                       Supplier<Optional<String>> resourceVersion, Consumer<Event> listener) {
+    this.client = Objects.requireNonNull(client);
+    this.executor = Objects.requireNonNull(executor);
+    this.resourceVersion = Objects.requireNonNull(resourceVersion);
+    this.listener = Objects.requireNonNull(listener);
+  }
+
+  /**
+   * Start watching. Failing to do so is not fatal, the watch is retried in the background.
+   */
+  synchronized void start() {
+    if (closed) {
+      return;
+    }
+    try {
+      watch();
+    } catch (Throwable e) {
+      LOG.warn("Failed to watch pod events", e);
+      scheduleReconnect();
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    generation++;
+    closeWatch();
+  }
+
+  private void watch() {
+    // Events still delivered by the previous watch are ignored from here on
+    final long watchGeneration = ++generation;
+    closeWatch();
+    final String resourceVersion = this.resourceVersion.get()
+        .orElseThrow(() -> new IllegalStateException("Pods have not been listed yet"));
+    watch = client.events().withField("involvedObject.kind", "Pod").watch(resourceVersion, new Watcher<>() {
+      @Override
+      public void eventReceived(Action action, Event event) {
+        KubernetesEventWatch.this.eventReceived(watchGeneration, action, event);
+      }
+
+      @Override
+      public void onClose(KubernetesClientException cause) {
+        watchClosed(watchGeneration, cause);
+      }
+    });
+    LOG.debug("Watching pod events from resource version {}", resourceVersion);
+  }
+
+  private void closeWatch() {
+    if (watch != null) {
+      watch.close();
+    }
+  }
+
+  private synchronized void eventReceived(long watchGeneration, Watcher.Action action, Event event) {
+    if (watchGeneration != generation || event == null) {
+      return;
+    }
+    reconnectAttempts = 0;
+    if (action == Watcher.Action.ADDED || action == Watcher.Action.MODIFIED) {
+      listener.accept(event);
+    }
+  }
+
+  private synchronized void watchClosed(long watchGeneration, KubernetesClientException cause) {
+    if (watchGeneration != generation || closed) {
+      return;
+    }
+    LOG.warn("Pod event watch closed", cause);
+    scheduleReconnect();
+  }
+
+  private void scheduleReconnect() {
+    // Invalidate the current watch so that only this reconnect attempt is acted upon
+    final long expectedGeneration = ++generation;
+    final Duration delay = reconnectDelay(reconnectAttempts++);
+    LOG.info("Reconnecting pod event watch in {}", delay);
+    executor.schedule(() -> reconnect(expectedGeneration), delay.toMillis(), MILLISECONDS);
+  }
+
+  private synchronized void reconnect(long expectedGeneration) {
+    if (expectedGeneration != generation || closed) {
+      return;
+    }
+    start();
+  }
+}
@@ -30,8 +30,6 @@ import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.spotify.styx.ServiceAccountKeyManager;
 import com.spotify.styx.util.GcpUtil;
-import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.api.model.PodList;
 import io.fabric8.kubernetes.api.model.Secret;
 import io.fabric8.kubernetes.api.model.SecretBuilder;
 import io.fabric8.kubernetes.api.model.SecretList;
@@ -42,10 +40,13 @@ import java.io.IOException;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -74,6 +75,9 @@ class KubernetesGCPServiceAccountSecretManager {
   // todo: use config value instead of hardcoded 24 hour timeout
   private static final Duration SECRET_GC_GRACE_PERIOD = DEFAULT_SECRET_EPOCH_PERIOD.plusHours(24);
 
+  // How long before an epoch rollover the secret of the next epoch is created
+  private static final Duration SECRET_ROTATION_LEAD_TIME = Duration.ofHours(6);
+
   private final KubernetesClient client;
   private final ServiceAccountKeyManager keyManager;
   private final EpochProvider epochProvider;
@@ -83,6 +87,14 @@ class KubernetesGCPServiceAccountSecretManager {
       .expireAfterWrite(30, TimeUnit.SECONDS)
       .build();
 
+  // Service accounts recently used by workflows, and the last workflow using them, kept up to date by rotateSecrets
+  private final Cache<String, String> serviceAccountWorkflows = CacheBuilder.newBuilder()
+      .expireAfterAccess(DEFAULT_SECRET_EPOCH_PERIOD.toMillis(), TimeUnit.MILLISECONDS)
+      .build();
+
+  // Secrets known to exist with valid keys, as verified by the last rotateSecrets
+  private final Set<String> readySecrets = ConcurrentHashMap.newKeySet();
+
   KubernetesGCPServiceAccountSecretManager(
       NamespacedKubernetesClient client,
       ServiceAccountKeyManager keyManager,
@@ -107,9 +119,18 @@ class KubernetesGCPServiceAccountSecretManager {
     LOG.info("[AUDIT] Workflow {} refers to secret {} storing keys of {}",
         workflowId, secretName, serviceAccount);
 
+    serviceAccountWorkflows.put(serviceAccount, workflowId);
+
+    // Secrets are usually created and verified ahead of time by rotateSecrets
+    if (readySecrets.contains(secretName)) {
+      return secretName;
+    }
+
     try {
-      return serviceAccountSecretCache.get(serviceAccount, () ->
+      final String secret = serviceAccountSecretCache.get(serviceAccount, () ->
           getOrCreateSecret(workflowId, serviceAccount, epoch, secretName));
+      readySecrets.add(secret);
+      return secret;
     } catch (ExecutionException | UncheckedExecutionException e) {
       final Throwable cause = e.getCause();
       if (cause instanceof InvalidExecutionException) {
@@ -222,15 +243,45 @@ class KubernetesGCPServiceAccountSecretManager {
     }
   }
 
-  public void cleanup() throws IOException {
-    // Enumerate all secrets currently used by non-terminated pods
-    final PodList pods = client.pods().list();
-    final Set<String> activeSecrets = pods.getItems().stream()
-        .filter(pod -> !isTerminatedPod(pod))
-        .flatMap(pod -> pod.getSpec().getVolumes().stream())
-        .map(volume -> volume.getSecret().getSecretName())
-        .collect(Collectors.toSet());
+  /**
+   * Verifies the secrets of the current epoch of all recently used service accounts, recreating any secrets or keys
+   * that are missing, and creates the secrets of the next epoch ahead of the epoch rollover. This keeps the remote
+   * calls to IAM and kubernetes off the submission path, except for the first use of a service account.
+   */
+  void rotateSecrets() {
+    final long nowMillis = clock.millis();
+    final long rotationMillis = nowMillis + SECRET_ROTATION_LEAD_TIME.toMillis();
+    final Set<String> verifiedSecrets = new HashSet<>();
+    serviceAccountWorkflows.asMap().forEach((serviceAccount, workflowId) -> {
+      final long epoch = epochProvider.epoch(nowMillis, serviceAccount);
+      final long nextEpoch = epochProvider.epoch(rotationMillis, serviceAccount);
+      verifySecret(workflowId, serviceAccount, epoch).ifPresent(verifiedSecrets::add);
+      if (nextEpoch != epoch) {
+        verifySecret(workflowId, serviceAccount, nextEpoch).ifPresent(verifiedSecrets::add);
+      }
+    });
+    // Forget secrets of past epochs and secrets that failed verification
+    readySecrets.retainAll(verifiedSecrets);
+    readySecrets.addAll(verifiedSecrets);
+  }
+
+  private Optional<String> verifySecret(String workflowId, String serviceAccount, long epoch) {
+    final String secretName = buildSecretName(serviceAccount, epoch);
+    try {
+      return Optional.of(getOrCreateSecret(workflowId, serviceAccount, epoch, secretName));
+    } catch (IOException | RuntimeException e) {
+      LOG.warn("Failed to verify secret {} of service account {}", secretName, serviceAccount, e);
+      return Optional.empty();
+    }
+  }
 
+  /**
+   * Deletes the keys and secrets of service accounts that are not in the current epoch and not referenced by any
+   * running pod.
+   *
+   * @param referencedSecrets The names of the secrets referenced by pods that have not terminated.
+   */
+  public void cleanup(Set<String> referencedSecrets) throws IOException {
     // Enumerate service account secrets to delete
     final long nowMillis = clock.millis();
     final Instant creationDeadline = clock.instant().minus(SECRET_GC_GRACE_PERIOD);
@@ -244,7 +295,7 @@ class KubernetesGCPServiceAccountSecretManager {
         // Exclude recently created secrets to mitigate races with secret creation around epoch switch
         .filter(secret -> Instant.parse(secret.getMetadata().getCreationTimestamp()).isBefore(creationDeadline))
         // Exclude secrets currently in use by pods
-        .filter(secret -> !activeSecrets.contains(secret.getMetadata().getName()))
+        .filter(secret -> !referencedSecrets.contains(secret.getMetadata().getName()))
         .collect(Collectors.toList());
 
     // Delete keys and secrets for all inactive service accounts and let them be recreated by future executions
@@ -261,16 +312,6 @@ class KubernetesGCPServiceAccountSecretManager {
     }
   }
 
-  private boolean isTerminatedPod(Pod pod) {
-    switch (pod.getStatus().getPhase()) {
-      case "Succeeded":
-      case "Failed":
-        return true;
-      default:
-        return false;
-    }
-  }
-
   private String secretEpoch(Secret secret) {
     return secret.getMetadata().getAnnotations().get(STYX_WORKFLOW_SA_EPOCH_ANNOTATION);
   }
@@ -0,0 +1,401 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler Service
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.docker;
+
+import static com.spotify.styx.ScheduledExecutionUtil.scheduleWithJitter;
+import static com.spotify.styx.docker.KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.monitoring.Stats;
+import com.spotify.styx.util.Time;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.api.model.PodStatus;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.Watcher.Action;
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An informer style local cache of the pods in the namespace of a {@link NamespacedKubernetesClient}.
+ *
+ * <p>The pods are listed once and then kept up to date by watching from the resource version of the listing. When
+ * the watch is closed it is resumed from the last observed resource version, or the pods are relisted if that
+ * version has expired, so that no events are lost while reconnecting. Failing reconnects are retried with a bounded
+ * exponential backoff. The pods are also periodically relisted to recover from any events missed by the watch.
+ *
+ * <p>Every change to the cache is forwarded to a listener {@link Watcher}, after it has been applied.
+ */
+class KubernetesPodCache implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(KubernetesPodCache.class);
+
+  private static final int HTTP_GONE = 410;
+  private static final Duration MIN_RECONNECT_DELAY = Duration.ofSeconds(1);
+  private static final Duration MAX_RECONNECT_DELAY = Duration.ofMinutes(1);
+
+  private final NamespacedKubernetesClient client;
+  private final Stats stats;
+  private final Time time;
+  private final ScheduledExecutorService executor;
+  private final Duration resyncInterval;
+  private final Watcher<Pod> listener;
+
+  private final ConcurrentMap<String, Pod> pods = new ConcurrentHashMap<>();
+  private final ConcurrentMap<WorkflowInstance, Set<String>> podNamesByWorkflowInstance =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Set<String>> activePodNamesBySecret = new ConcurrentHashMap<>();
+
+  // Guarded by this
+  private String resourceVersion;
+  private long generation;
+  private Watch watch;
+  private int reconnectAttempts;
+  private boolean closed;
+
+  private volatile Optional<Instant> watchStart = Optional.empty();
+
+  KubernetesPodCache(NamespacedKubernetesClient client, Stats stats, Time time, ScheduledExecutorService executor,
+                     Duration resyncInterval, Watcher<Pod> listener) {
+    this.client = Objects.requireNonNull(client);
+    this.stats = Objects.requireNonNull(stats);
+    this.time = Objects.requireNonNull(time);
+    this.executor = Objects.requireNonNull(executor);
+    this.resyncInterval = Objects.requireNonNull(resyncInterval);
+    this.listener = Objects.requireNonNull(listener);
+  }
+
+  /**
+   * Populate the cache with an initial listing, start watching and schedule the periodic resync.
+   */
+  void start() {
+    stats.registerPodWatchUptimeMetric(this::watchUptimeSeconds);
+    relist();
+    scheduleWithJitter(this::resync, executor, resyncInterval);
+  }
+
+  /**
+   * Get a cached pod by name.
+   */
+  Optional<Pod> get(String name) {
+    return Optional.ofNullable(pods.get(name));
+  }
+
+  /**
+   * Get all cached pods.
+   */
+  List<Pod> list() {
+    return List.copyOf(pods.values());
+  }
+
+  /**
+   * Get the cached pods annotated with a workflow instance.
+   */
+  List<Pod> list(WorkflowInstance workflowInstance) {
+    return podNamesByWorkflowInstance.getOrDefault(workflowInstance, Set.of()).stream()
+        .map(pods::get)
+        .filter(Objects::nonNull)
+        .collect(toList());
+  }
+
+  /**
+   * Get the names of the secrets mounted by cached pods that have not terminated.
+   */
+  Set<String> referencedSecrets() {
+    return Set.copyOf(activePodNamesBySecret.keySet());
+  }
+
+  /**
+   * Replace the contents of the cache with a fresh listing and restart the watch from the resource version of the
+   * listing. Differences between the cached and the listed pods are forwarded to the listener.
+   */
+  synchronized void relist() {
+    if (closed) {
+      return;
+    }
+
+    final PodList podList = client.pods().list();
+    final Map<String, Pod> listed = new HashMap<>();
+    podList.getItems().forEach(pod -> listed.put(pod.getMetadata().getName(), pod));
+
+    for (Pod cached : List.copyOf(pods.values())) {
+      if (!listed.containsKey(cached.getMetadata().getName())) {
+        apply(Action.DELETED, cached);
+      }
+    }
+    for (Pod pod : listed.values()) {
+      final Pod cached = pods.get(pod.getMetadata().getName());
+      if (cached == null) {
+        apply(Action.ADDED, pod);
+      } else if (!Objects.equals(resourceVersion(cached), resourceVersion(pod))) {
+        apply(Action.MODIFIED, pod);
+      }
+    }
+
+    resourceVersion = podList.getMetadata().getResourceVersion();
+    LOG.debug("Listed {} pods at resource version {}", listed.size(), resourceVersion);
+    watch();
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    generation++;
+    watchStart = Optional.empty();
+    closeWatch();
+  }
+
+  /**
+   * Returns true if there is an open watch, i.e. the cache is being kept up to date.
+   */
+  boolean isWatching() {
+    return watchStart.isPresent();
+  }
+
+  /**
+   * The number of seconds that the current watch has been open, or 0 if there is no open watch.
+   */
+  long watchUptimeSeconds() {
+    return watchStart
+        .map(start -> Duration.between(start, time.get()).getSeconds())
+        .orElse(0L);
+  }
+
+  /**
+   * The resource version that the cache is up to date with, or empty if the pods have not been listed yet.
+   */
+  synchronized Optional<String> resourceVersion() {
+    return Optional.ofNullable(resourceVersion);
+  }
+
+  private synchronized void resync() {
+    try {
+      relist();
+    } catch (Throwable e) {
+      LOG.warn("Failed to resync pods", e);
+      scheduleReconnect(true);
+    }
+  }
+
+  private void watch() {
+    closeWatch();
+    // Events still delivered by the previous watch are ignored from here on
+    final CacheWatcher watcher = new CacheWatcher(++generation);
+    watch = client.pods().watch(resourceVersion, watcher);
+    watchStart = Optional.of(time.get());
+  }
+
+  private void closeWatch() {
+    if (watch != null) {
+      watch.close();
+    }
+  }
+
+  private synchronized void eventReceived(long watchGeneration, Action action, Pod pod) {
+    if (watchGeneration != generation || pod == null) {
+      return;
+    }
+    if (action == Action.ERROR) {
+      listener.eventReceived(action, pod);
+      return;
+    }
+    // The watch is delivering events again
+    reconnectAttempts = 0;
+    if (action != Action.DELETED) {
+      lastTransition(pod).ifPresent(transition ->
+          stats.recordPodEventLag(Math.max(0L, Duration.between(transition, time.get()).toMillis())));
+    }
+    resourceVersion = resourceVersion(pod);
+    apply(action, pod);
+  }
+
+  private synchronized void watchClosed(long watchGeneration, KubernetesClientException cause) {
+    if (watchGeneration != generation || closed) {
+      return;
+    }
+    LOG.warn("Pod watch closed at resource version {}", resourceVersion, cause);
+    scheduleReconnect(cause.getCode() == HTTP_GONE);
+  }
+
+  private void scheduleReconnect(boolean relist) {
+    // Invalidate the current watch so that only this reconnect attempt is acted upon
+    final long expectedGeneration = ++generation;
+    watchStart = Optional.empty();
+    final Duration delay = reconnectDelay(reconnectAttempts++);
+    LOG.info("Reconnecting pod watch in {}", delay);
+    executor.schedule(() -> reconnect(expectedGeneration, relist), delay.toMillis(), MILLISECONDS);
+  }
+
+  static Duration reconnectDelay(int attempts) {
+    final Duration delay = MIN_RECONNECT_DELAY.multipliedBy(1L << Math.min(attempts, 16));
+    return delay.compareTo(MAX_RECONNECT_DELAY) < 0 ? delay : MAX_RECONNECT_DELAY;
+  }
+
+  private synchronized void reconnect(long expectedGeneration, boolean relist) {
+    if (expectedGeneration != generation || closed) {
+      return;
+    }
+    stats.recordPodWatchReconnect(relist ? "relist" : "resume");
+    try {
+      if (relist) {
+        relist();
+      } else {
+        LOG.info("Resuming pod watch from resource version {}", resourceVersion);
+        watch();
+      }
+    } catch (Throwable e) {
+      LOG.warn("Failed to reconnect pod watch", e);
+      scheduleReconnect(true);
+    }
+  }
+
+  private void apply(Action action, Pod pod) {
+    final String name = pod.getMetadata().getName();
+    final Optional<WorkflowInstance> workflowInstance = readWorkflowInstance(pod);
+    final Pod previous;
+    if (action == Action.DELETED) {
+      previous = pods.remove(name);
+      workflowInstance.ifPresent(wfi -> podNamesByWorkflowInstance.computeIfPresent(wfi, (key, names) -> {
+        names.remove(name);
+        return names.isEmpty() ? null : names;
+      }));
+    } else {
+      previous = pods.put(name, pod);
+      workflowInstance.ifPresent(wfi -> podNamesByWorkflowInstance
+          .computeIfAbsent(wfi, key -> ConcurrentHashMap.newKeySet())
+          .add(name));
+    }
+    if (previous != null) {
+      secretNames(previous).forEach(secret -> activePodNamesBySecret.computeIfPresent(secret, (key, names) -> {
+        names.remove(name);
+        return names.isEmpty() ? null : names;
+      }));
+    }
+    if (action != Action.DELETED && !isTerminated(pod)) {
+      secretNames(pod).forEach(secret -> activePodNamesBySecret
+          .computeIfAbsent(secret, key -> ConcurrentHashMap.newKeySet())
+          .add(name));
+    }
+    listener.eventReceived(action, pod);
+  }
+
+  private static Stream<String> secretNames(Pod pod) {
+    if (pod.getSpec() == null || pod.getSpec().getVolumes() == null) {
+      return Stream.empty();
+    }
+    return pod.getSpec().getVolumes().stream()
+        .filter(volume -> volume.getSecret() != null)
+        .map(volume -> volume.getSecret().getSecretName());
+  }
+
+  private static boolean isTerminated(Pod pod) {
+    final String phase = pod.getStatus() == null ? null : pod.getStatus().getPhase();
+    return "Succeeded".equals(phase) || "Failed".equals(phase);
+  }
+
+  private static String resourceVersion(Pod pod) {
+    return pod.getMetadata().getResourceVersion();
+  }
+
+  /**
+   * The most recent state transition of a pod, as reported in its metadata and status.
+   */
+  static Optional<Instant> lastTransition(Pod pod) {
+    final Stream.Builder<String> timestamps = Stream.builder();
+    timestamps.add(pod.getMetadata().getCreationTimestamp());
+    final PodStatus status = pod.getStatus();
+    if (status != null) {
+      Optional.ofNullable(status.getConditions()).ifPresent(conditions ->
+          conditions.forEach(condition -> timestamps.add(condition.getLastTransitionTime())));
+      Optional.ofNullable(status.getContainerStatuses()).ifPresent(containerStatuses ->
+          containerStatuses.stream().map(ContainerStatus::getState).filter(Objects::nonNull).forEach(state -> {
+            Optional.ofNullable(state.getRunning()).ifPresent(running -> timestamps.add(running.getStartedAt()));
+            Optional.ofNullable(state.getTerminated()).ifPresent(terminated ->
+                timestamps.add(terminated.getFinishedAt()));
+          }));
+    }
+    return timestamps.build()
+        .filter(Objects::nonNull)
+        .flatMap(timestamp -> {
+          try {
+            return Stream.of(Instant.parse(timestamp));
+          } catch (DateTimeParseException e) {
+            return Stream.empty();
+          }
+        })
+        .max(Comparator.naturalOrder());
+  }
+
+  private static Optional<WorkflowInstance> readWorkflowInstance(Pod pod) {
+    final Map<String, String> annotations = pod.getMetadata().getAnnotations();
+    if (annotations == null || !annotations.containsKey(STYX_WORKFLOW_INSTANCE_ANNOTATION)) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(WorkflowInstance.parseKey(annotations.get(STYX_WORKFLOW_INSTANCE_ANNOTATION)));
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  private class CacheWatcher implements Watcher<Pod> {
+
+    private final long generation;
+
+    CacheWatcher(long generation) {
+      this.generation = generation;
+    }
+
+    @Override
+    public void eventReceived(Action action, Pod pod) {
+      KubernetesPodCache.this.eventReceived(generation, action, pod);
+    }
+
+    @Override
+    public void onClose(KubernetesClientException cause) {
+      // A null cause means that the watch was closed by us
+      if (cause != null) {
+        watchClosed(generation, cause);
+      }
+    }
+  }
+}
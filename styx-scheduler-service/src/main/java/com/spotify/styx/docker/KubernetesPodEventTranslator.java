@@ -22,6 +22,7 @@ package com.spotify.styx.docker;
 
 import static com.spotify.styx.docker.DockerRunner.LOG;
 import static com.spotify.styx.docker.KubernetesDockerRunner.DOCKER_TERMINATION_LOGGING_ANNOTATION;
+import static com.spotify.styx.docker.KubernetesDockerRunner.MAIN_CONTAINER_NAME;
 import static com.spotify.styx.docker.KubernetesDockerRunner.getMainContainerStatus;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -35,6 +36,7 @@ import com.spotify.styx.serialization.Json;
 import com.spotify.styx.state.RunState;
 import io.fabric8.kubernetes.api.model.ContainerState;
 import io.fabric8.kubernetes.api.model.ContainerStateTerminated;
+import io.fabric8.kubernetes.api.model.ContainerStateWaiting;
 import io.fabric8.kubernetes.api.model.ContainerStatus;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodStatus;
@@ -42,10 +44,22 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import okio.ByteString;
 
 final class KubernetesPodEventTranslator {
 
+  // https://github.com/kubernetes/kubernetes/blob/8327e433590f9e867b1e31a4dc32316685695729/pkg/kubelet/images/types.go#L26
+  private static final Set<String> PULL_IMAGE_ERROR_REASONS = Set.of(
+      "ImageInspectError",
+      "PullImageError",
+      "ErrImagePull",
+      "ErrImageNeverPull",
+      "ImagePullBackOff",
+      "RegistryUnavailable");
+
+  private static final String MAIN_CONTAINER_FIELD_PATH = "spec.containers{" + MAIN_CONTAINER_NAME + "}";
+
   private KubernetesPodEventTranslator() {
     throw new UnsupportedOperationException();
   }
@@ -157,6 +171,13 @@ final class KubernetesPodEventTranslator {
     return List.of();
   }
 
+  /**
+   * Translates an error of the pod of a run state, that was detected out of band of the pod status.
+   */
+  static List<Event> translateError(WorkflowInstance workflowInstance, RunState state, String message) {
+    return handleError(state, Event.runError(workflowInstance, message));
+  }
+
   private static List<Event> handleExited(WorkflowInstance workflowInstance, RunState state,
                                                 Pod pod,
                                                 Optional<ContainerStatus> mainContainerStatusOpt,
@@ -276,24 +297,57 @@ final class KubernetesPodEventTranslator {
     return Optional.ofNullable(cs.getState().getWaiting()).flatMap(waiting ->
         Optional.ofNullable(waiting.getReason()).flatMap(reason -> {
           var message = Optional.ofNullable(waiting.getMessage()).orElse("");
-          switch (reason) {
-            // https://github.com/kubernetes/kubernetes/blob/8327e433590f9e867b1e31a4dc32316685695729/pkg/kubelet/images/types.go#L26
-            case "ImageInspectError":
-            case "PullImageError":
-            case "ErrImagePull":
-            case "ErrImageNeverPull":
-            case "ImagePullBackOff":
-            case "RegistryUnavailable":
-              // TODO: Provide more descriptive error messages here
-              return Optional.of("One or more containers failed to pull their image: " + reason + ": " + message);
-            case "InvalidImageName":
-              return Optional.of("One or more container image names were invalid: " + reason + ": " + message);
-            default:
-              return Optional.empty();
+          if (PULL_IMAGE_ERROR_REASONS.contains(reason)) {
+            // TODO: Provide more descriptive error messages here
+            return Optional.of(pullImageError(reason, message));
+          } else if ("InvalidImageName".equals(reason)) {
+            return Optional.of("One or more container image names were invalid: " + reason + ": " + message);
+          } else {
+            return Optional.empty();
           }
         }));
   }
 
+  /**
+   * Returns true if the pod is failed by {@link #translate} because the main container could not pull its image.
+   */
+  static boolean isPullImageError(Pod pod) {
+    return !"NodeLost".equals(pod.getStatus().getReason())
+        && "Pending".equals(pod.getStatus().getPhase())
+        && getMainContainerStatus(pod)
+        .map(ContainerStatus::getState)
+        .map(ContainerState::getWaiting)
+        .map(ContainerStateWaiting::getReason)
+        .filter(PULL_IMAGE_ERROR_REASONS::contains)
+        .isPresent();
+  }
+
+  /**
+   * Maps a kubernetes event reporting that the main container of a pod is failing to pull its image to an error.
+   * The kubelet reports the first failure of a pull with the ambiguous "Failed" reason, which is also used for
+   * container creation and start failures, so only the subsequent back-off is acted upon.
+   */
+  static Optional<String> eventError(io.fabric8.kubernetes.api.model.Event event) {
+    if (!"Warning".equals(event.getType()) || event.getInvolvedObject() == null
+        || !MAIN_CONTAINER_FIELD_PATH.equals(event.getInvolvedObject().getFieldPath())) {
+      return Optional.empty();
+    }
+    var reason = Optional.ofNullable(event.getReason()).orElse("");
+    var message = Optional.ofNullable(event.getMessage()).orElse("");
+    switch (reason) {
+      // https://github.com/kubernetes/kubernetes/blob/v1.13.0/pkg/kubelet/events/event.go
+      case "BackOff":
+      case "ErrImageNeverPull":
+        return Optional.of(pullImageError(reason, message));
+      default:
+        return Optional.empty();
+    }
+  }
+
+  private static String pullImageError(String reason, String message) {
+    return "One or more containers failed to pull their image: " + reason + ": " + message;
+  }
+
   static boolean isTerminated(ContainerStatus cs) {
     return cs.getState().getTerminated() != null;
   }
@@ -0,0 +1,39 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler Service
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+
+package com.spotify.styx.docker;
+
+/**
+ * How a kubernetes docker runner submits executions to its cluster.
+ */
+public enum KubernetesSubmissionMode {
+
+  /**
+   * Bare pods with a keepalive container, deleted by the pod cleanup loop after the pod deletion delay.
+   */
+  POD,
+
+  /**
+   * One batch/v1 job per execution. Finished jobs are garbage collected by the control plane after the
+   * pod deletion delay.
+   */
+  JOB
+}
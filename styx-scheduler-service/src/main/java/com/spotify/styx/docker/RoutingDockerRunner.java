@@ -20,51 +20,88 @@
 
 package com.spotify.styx.docker;
 
+import static java.util.Comparator.comparingDouble;
+import static java.util.stream.Collectors.toList;
+
 import com.google.common.collect.Maps;
 import com.google.common.io.Closer;
 import com.spotify.styx.model.WorkflowInstance;
 import com.spotify.styx.state.RunState;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * A {@link DockerRunner} that routes to several underlying instances that are created using the
  * injected {@link com.spotify.styx.docker.DockerRunner.DockerRunnerFactory}.
  *
- * <p>Current implementation only creates one runner with the default id.
+ * <p>Without routing weights, all executions are started on the runner with the default id. With
+ * routing weights, each new execution is started on the healthy runner with the highest weight
+ * relative to its number of pending executions. Executions are polled on the runner that they were
+ * started on, as recorded in {@link com.spotify.styx.state.StateData#runnerId()}.
  */
 class RoutingDockerRunner implements DockerRunner {
 
   private final DockerRunnerFactory dockerRunnerFactory;
   private final Supplier<String> runnerId;
+  private final Map<String, Double> runnerWeights;
 
   private final ConcurrentMap<String, DockerRunner> dockerRunners = Maps.newConcurrentMap();
 
   RoutingDockerRunner(DockerRunnerFactory dockerRunnerFactory, Supplier<String> runnerId) {
+    this(dockerRunnerFactory, runnerId, Map.of());
+  }
+
+  RoutingDockerRunner(DockerRunnerFactory dockerRunnerFactory, Supplier<String> runnerId,
+                      Map<String, Double> runnerWeights) {
     this.dockerRunnerFactory = Objects.requireNonNull(dockerRunnerFactory);
     this.runnerId = Objects.requireNonNull(runnerId);
+    this.runnerWeights = Map.copyOf(runnerWeights);
   }
 
   @Override
   public void start(WorkflowInstance workflowInstance, RunSpec runSpec) throws IOException {
-    runner().start(workflowInstance, runSpec);
+    runner(runSpec.runnerId().orElseGet(runnerId)).start(workflowInstance, runSpec);
   }
 
   @Override
   public void poll(RunState runState) {
-    runner().poll(runState);
+    runner(runState.data().runnerId().orElseGet(runnerId)).poll(runState);
   }
 
   @Override
   public void cleanup() throws IOException {
-    runner().cleanup();
+    for (DockerRunner runner : runners()) {
+      runner.cleanup();
+    }
   }
 
   @Override
   public void cleanup(WorkflowInstance workflowInstance, String executionId) {
-    runner().cleanup(workflowInstance, executionId);
+    runners().forEach(runner -> runner.cleanup(workflowInstance, executionId));
+  }
+
+  @Override
+  public Optional<String> selectRunner(WorkflowInstance workflowInstance) {
+    if (runnerWeights.isEmpty()) {
+      return Optional.of(runnerId.get());
+    }
+    final List<String> weighted = runnerWeights.keySet().stream()
+        .filter(id -> runnerWeights.get(id) > 0)
+        .sorted()
+        .collect(toList());
+    final List<String> healthy = weighted.stream()
+        .filter(id -> runner(id).isHealthy())
+        .collect(toList());
+    // Rather route to an unhealthy runner than fail the execution if no runner is healthy
+    final List<String> candidates = healthy.isEmpty() ? weighted : healthy;
+    return candidates.stream()
+        .max(comparingDouble(id -> runnerWeights.get(id) / (1 + runner(id).pendingExecutions())));
   }
 
   @Override
@@ -74,7 +111,14 @@ class RoutingDockerRunner implements DockerRunner {
     closer.close();
   }
 
-  private DockerRunner runner() {
-    return dockerRunners.computeIfAbsent(runnerId.get(), dockerRunnerFactory);
+  private List<DockerRunner> runners() {
+    return Stream.concat(Stream.of(runnerId.get()), runnerWeights.keySet().stream())
+        .distinct()
+        .map(this::runner)
+        .collect(toList());
+  }
+
+  private DockerRunner runner(String id) {
+    return dockerRunners.computeIfAbsent(id, dockerRunnerFactory);
   }
 }
@@ -22,6 +22,9 @@ package com.spotify.styx.state;
 
 import static com.spotify.styx.state.StateUtil.isConsumingResources;
 import static com.spotify.styx.util.MDCUtil.withMDC;
+import static com.spotify.styx.util.TriggerUtil.activeInstancesCounterId;
+import static com.spotify.styx.util.TriggerUtil.isBackfill;
+import static com.spotify.styx.util.TriggerUtil.triggerId;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
@@ -29,6 +32,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.spotify.futures.CompletableFutures;
 import com.spotify.styx.MessageUtil;
+import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.SequenceEvent;
 import com.spotify.styx.model.TriggerParameters;
@@ -42,8 +46,10 @@ import com.spotify.styx.util.AlreadyInitializedException;
 import com.spotify.styx.util.CounterCapacityException;
 import com.spotify.styx.util.EventUtil;
 import com.spotify.styx.util.IsClosedException;
+import com.spotify.styx.util.ShardNotFoundException;
 import com.spotify.styx.util.ShardedCounter;
 import com.spotify.styx.util.Time;
+import com.spotify.styx.util.TriggerInstantSpec;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -174,6 +180,37 @@ public class PersistentStateManager implements StateManager {
     }
   }
 
+  @Override
+  public void triggerNatural(WorkflowInstance workflowInstance, TriggerInstantSpec nextNaturalTrigger)
+      throws IsClosedException {
+    ensureRunning();
+    log.debug("Trigger {}", workflowInstance);
+
+    final Event event = Event.triggerExecution(workflowInstance, Trigger.natural(), TriggerParameters.zero());
+    var newState = initializeAndTransition(event, nextNaturalTrigger);
+    postTransition(newState._1, newState._2);
+  }
+
+  @Override
+  public List<WorkflowInstance> triggerBackfill(List<WorkflowInstance> workflowInstances, Backfill backfill,
+                                                Backfill progressedBackfill) throws IsClosedException {
+    ensureRunning();
+    log.debug("Trigger {} for backfill {}", workflowInstances, backfill.id());
+
+    final Trigger trigger = Trigger.backfill(backfill.id());
+    final TriggerParameters parameters = backfill.triggerParameters().orElse(TriggerParameters.zero());
+    final List<Event> events = workflowInstances.stream()
+        .map(workflowInstance -> Event.triggerExecution(workflowInstance, trigger, parameters))
+        .collect(toList());
+
+    final List<Tuple2<SequenceEvent, RunState>> newStates =
+        initializeAndTransition(events, backfill, progressedBackfill);
+    newStates.forEach(newState -> postTransition(newState._1, newState._2));
+    return newStates.stream()
+        .map(newState -> newState._2.workflowInstance())
+        .collect(toList());
+  }
+
   @Override
   public void receive(Event event) throws IsClosedException {
     receive(event, Long.MAX_VALUE);
@@ -193,21 +230,67 @@ public class PersistentStateManager implements StateManager {
   private void initialize(WorkflowInstance workflowInstance) {
     // Write active state to datastore
 
-    final long counter;
     try {
-      counter = storage.getLatestStoredCounter(workflowInstance).orElse(NO_EVENTS_PROCESSED);
-    } catch (IOException e) {
+      storage.runInTransaction(tx -> {
+        final Optional<Workflow> workflow = tx.workflow(workflowInstance.workflowId());
+        if (!workflow.isPresent()) {
+          throw new IllegalArgumentException(
+              "Workflow not found: " + workflowInstance.workflowId().toKey());
+        }
+        final long counter = latestCounter(tx, workflowInstance);
+        final RunState runState = RunState.create(workflowInstance, State.NEW, time.get(), counter);
+        return tx.writeActiveState(workflowInstance, runState);
+      });
+    } catch (TransactionException e) {
+      if (e.isAlreadyExists()) {
+        throw new AlreadyInitializedException("Workflow instance is already triggered: " + workflowInstance);
+      } else if (e.isConflict()) {
+        log.debug("Transaction conflict when triggering workflow instance. Aborted: {}",
+            workflowInstance);
+        throw new RuntimeException(e);
+      } else {
+        log.debug("Transaction failure when triggering workflow instance: {}: {}",
+            workflowInstance, e.getMessage(), e);
+        throw new RuntimeException(e);
+      }
+    } catch (Exception e) {
+      log.debug("Failure when triggering workflow instance: {}: {}", workflowInstance, e.getMessage(), e);
+      Throwables.throwIfUnchecked(e);
       throw new RuntimeException(e);
     }
-    final RunState runState = RunState.create(workflowInstance, State.NEW, time.get(), counter);
+  }
+
+  /**
+   * Writes the active state of a new instance as it is after receiving the trigger event, and advances the
+   * next natural trigger of its workflow, all in a single transaction.
+   */
+  private Tuple2<SequenceEvent, RunState> initializeAndTransition(Event event,
+                                                                  TriggerInstantSpec nextNaturalTrigger) {
+    final WorkflowInstance workflowInstance = event.workflowInstance();
+
     try {
-      storage.runInTransaction(tx -> {
+      return storage.runInTransaction(tx -> {
         final Optional<Workflow> workflow = tx.workflow(workflowInstance.workflowId());
         if (!workflow.isPresent()) {
           throw new IllegalArgumentException(
               "Workflow not found: " + workflowInstance.workflowId().toKey());
         }
-        return tx.writeActiveState(workflowInstance, runState);
+
+        final long counter = latestCounter(tx, workflowInstance);
+        final RunState runState = RunState.create(workflowInstance, State.NEW, time.get(), counter);
+        final RunState nextRunState = runState.transition(event, time);
+        updateResourceCounters(tx, event, runState, nextRunState);
+        updateActiveInstancesCounter(tx, runState, nextRunState);
+
+        // Insert the state directly as it is after the event, as an entity can only be mutated once per
+        // transaction. The insert still fails if the instance is already active.
+        tx.writeActiveState(workflowInstance, nextRunState);
+        tx.updateNextNaturalTrigger(workflowInstance.workflowId(), nextNaturalTrigger);
+
+        final SequenceEvent sequenceEvent =
+            SequenceEvent.create(event, nextRunState.counter(), nextRunState.timestamp());
+
+        return Tuple.of(sequenceEvent, nextRunState);
       });
     } catch (TransactionException e) {
       if (e.isAlreadyExists()) {
@@ -228,6 +311,77 @@ public class PersistentStateManager implements StateManager {
     }
   }
 
+  /**
+   * Writes the active states of new backfill instances as they are after receiving their trigger events, and
+   * stores the progressed backfill, all in a single transaction. Instances that are already active are skipped.
+   */
+  private List<Tuple2<SequenceEvent, RunState>> initializeAndTransition(List<Event> events, Backfill backfill,
+                                                                        Backfill progressedBackfill) {
+    try {
+      return storage.runInTransaction(tx -> {
+        final Optional<Backfill> currentBackfill = tx.backfill(backfill.id());
+        if (!currentBackfill.isPresent()) {
+          throw new IllegalArgumentException("Backfill not found: " + backfill.id());
+        }
+        if (currentBackfill.get().halted()
+            || !currentBackfill.get().nextTrigger().equals(backfill.nextTrigger())) {
+          throw new IllegalStateException("Backfill halted or progressed concurrently: " + backfill.id());
+        }
+
+        final List<Tuple2<SequenceEvent, RunState>> newStates = new ArrayList<>();
+        for (Event event : events) {
+          final WorkflowInstance workflowInstance = event.workflowInstance();
+          if (tx.readActiveState(workflowInstance).isPresent()) {
+            // an ad-hoc trigger or another scheduler instance got here first
+            log.debug("Workflow instance is already triggered: {}", workflowInstance);
+            continue;
+          }
+          final long counter = latestCounter(tx, workflowInstance);
+          final RunState runState = RunState.create(workflowInstance, State.NEW, time.get(), counter);
+          final RunState nextRunState = runState.transition(event, time);
+          tx.writeActiveState(workflowInstance, nextRunState);
+          newStates.add(Tuple.of(SequenceEvent.create(event, nextRunState.counter(), nextRunState.timestamp()),
+              nextRunState));
+        }
+
+        // A counter shard can only be mutated once per transaction, so count all new instances at once
+        if (!newStates.isEmpty()) {
+          updateActiveInstancesCounter(tx, backfill.id(), newStates.size());
+        }
+        tx.store(progressedBackfill);
+
+        return newStates;
+      });
+    } catch (TransactionException e) {
+      if (e.isAlreadyExists()) {
+        throw new AlreadyInitializedException("Workflow instance of backfill is already triggered: "
+                                              + backfill.id());
+      } else if (e.isConflict()) {
+        log.debug("Transaction conflict when triggering backfill. Aborted: {}", backfill.id());
+        throw new RuntimeException(e);
+      } else {
+        log.debug("Transaction failure when triggering backfill: {}: {}", backfill.id(), e.getMessage(), e);
+        throw new RuntimeException(e);
+      }
+    } catch (Exception e) {
+      log.debug("Failure when triggering backfill: {}: {}", backfill.id(), e.getMessage(), e);
+      Throwables.throwIfUnchecked(e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * The counter of the last event of a workflow instance that is not active. Read from the tombstone of its
+   * last active state when there is one, otherwise from the stored events.
+   */
+  private long latestCounter(StorageTransaction tx, WorkflowInstance workflowInstance) throws IOException {
+    final Optional<Long> tombstoneCounter = tx.readActiveStateTombstone(workflowInstance);
+    if (tombstoneCounter.isPresent()) {
+      return tombstoneCounter.get();
+    }
+    return storage.getLatestStoredCounter(workflowInstance).orElse(NO_EVENTS_PROCESSED);
+  }
+
   private Tuple2<SequenceEvent, RunState> transition(Event event, long expectedCounter) {
     try {
       return storage.runInTransaction(tx -> {
@@ -257,10 +411,11 @@ public class PersistentStateManager implements StateManager {
 
         // Resource limiting occurs by throwing here, or by failing the commit with a conflict.
         updateResourceCounters(tx, event, currentRunState.get(), nextRunState);
+        updateActiveInstancesCounter(tx, currentRunState.get(), nextRunState);
 
-        // Write new state to datastore (or remove it if terminal)
+        // Write new state to datastore (or remove it if terminal, leaving a tombstone with its counter)
         if (nextRunState.state().isTerminal()) {
-          tx.deleteActiveState(event.workflowInstance());
+          tx.deleteActiveState(event.workflowInstance(), nextRunState.counter());
         } else {
           tx.updateActiveState(event.workflowInstance(), nextRunState);
         }
@@ -310,6 +465,43 @@ public class PersistentStateManager implements StateManager {
     }
   }
 
+  private void updateActiveInstancesCounter(StorageTransaction tx, RunState currentRunState,
+                                            RunState nextRunState) throws IOException {
+    // only backfills are limited by the number of active instances they triggered
+    final Optional<Trigger> trigger = nextRunState.data().trigger();
+    if (!trigger.isPresent() || !isBackfill(trigger.get())) {
+      return;
+    }
+
+    // increment when the instance gets triggered, decrement when it stops being active
+    final int delta;
+    if (!currentRunState.data().trigger().isPresent()) {
+      delta = 1;
+    } else if (nextRunState.state().isTerminal()) {
+      delta = -1;
+    } else {
+      return;
+    }
+
+    updateActiveInstancesCounter(tx, triggerId(trigger.get()), delta);
+  }
+
+  private void updateActiveInstancesCounter(StorageTransaction tx, String backfillId, int delta)
+      throws IOException {
+    final String counterId = activeInstancesCounterId(backfillId);
+    try {
+      tx.updateCounter(shardedCounter, counterId, delta);
+    } catch (IllegalArgumentException | ShardNotFoundException e) {
+      // backfills created before active instances were counted have no counter, and the counter
+      // is deleted when the backfill is all triggered or halted
+      log.debug("No active instances counter {}", counterId, e);
+    } catch (CounterCapacityException e) {
+      // the counter has drifted below the number of active instances, do not fail the transition
+      // on it and leave it to be resynced by the backfill trigger manager
+      log.warn("Failed to update active instances counter {} by {}", counterId, delta, e);
+    }
+  }
+
   private void tryUpdatingCounter(RunState runState,
                                   StorageTransaction tx,
                                   Set<String> resourceIds) {
@@ -406,6 +598,15 @@ public class PersistentStateManager implements StateManager {
     }
   }
 
+  @Override
+  public Map<WorkflowInstance, RunState> getActiveStates(List<WorkflowInstance> workflowInstances) {
+    try {
+      return storage.readActiveStates(workflowInstances);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public Map<WorkflowInstance, RunState> getActiveStatesByTriggerId(String triggerId) {
     try {
@@ -20,11 +20,14 @@
 
 package com.spotify.styx.state;
 
+import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.WorkflowInstance;
 import com.spotify.styx.util.IsClosedException;
+import com.spotify.styx.util.TriggerInstantSpec;
 import java.io.Closeable;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -52,6 +55,29 @@ public interface StateManager extends Closeable {
   void trigger(WorkflowInstance workflowInstance, Trigger trigger,
       TriggerParameters parameters) throws IsClosedException;
 
+  /**
+   * Naturally triggers a workflow instance to run and advances the next natural trigger of its
+   * workflow in the same transaction.
+   *
+   * @throws IsClosedException if the state receiver is closed and can not handle events
+   */
+  void triggerNatural(WorkflowInstance workflowInstance,
+      TriggerInstantSpec nextNaturalTrigger) throws IsClosedException;
+
+  /**
+   * Triggers workflow instances of a backfill to run and stores the progressed backfill in the same
+   * transaction. Instances that are already active are skipped. Fails if the backfill was halted or
+   * progressed since it was read.
+   *
+   * @param workflowInstances  The workflow instances of the partitions to trigger
+   * @param backfill           The backfill as it was read when reserving the partitions
+   * @param progressedBackfill The backfill with its cursor moved past the partitions
+   * @return the workflow instances that were triggered
+   * @throws IsClosedException if the state receiver is closed and can not handle events
+   */
+  List<WorkflowInstance> triggerBackfill(List<WorkflowInstance> workflowInstances, Backfill backfill,
+      Backfill progressedBackfill) throws IsClosedException;
+
   /**
    * Receive an {@link Event} and route it to the corresponding active {@link RunState} based on
    * the {@link Event#workflowInstance()} key of the event.
@@ -113,6 +139,12 @@ public interface StateManager extends Closeable {
    */
   Map<WorkflowInstance, RunState> getActiveStates();
 
+  /**
+   * Get a map of the active states of the given {@link WorkflowInstance}s. Instances that are not active
+   * are absent from the map.
+   */
+  Map<WorkflowInstance, RunState> getActiveStates(List<WorkflowInstance> workflowInstances);
+
   /**
    * Get the current {@link RunState} of a {@link WorkflowInstance}.
    *
@@ -0,0 +1,83 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler
+ * --
+ * Copyright (C) 2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.state.handlers;
+
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
+import com.spotify.styx.model.SequenceEvent;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.storage.Storage;
+import com.spotify.styx.util.EventUtil;
+import com.spotify.styx.util.TriggerUtil;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An event consumer that maintains the stored status of backfill partitions, so that the status of
+ * a backfill can be read without replaying the events of every partition.
+ *
+ * <p>The status is written when a partition is triggered and when it reaches a terminal state.
+ */
+public class BackfillStatusHandler implements BiConsumer<SequenceEvent, RunState> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BackfillStatusHandler.class);
+
+  private final Storage storage;
+
+  public BackfillStatusHandler(Storage storage) {
+    this.storage = Objects.requireNonNull(storage);
+  }
+
+  @Override
+  public void accept(SequenceEvent sequenceEvent, RunState state) {
+    final var trigger = state.data().trigger();
+    if (trigger.isEmpty() || !TriggerUtil.isBackfill(trigger.get())) {
+      return;
+    }
+    final String backfillId = TriggerUtil.triggerId(trigger.get());
+    final boolean triggered = "triggerExecution".equals(EventUtil.name(sequenceEvent.event()));
+    if (!triggered && !state.state().isTerminal()) {
+      return;
+    }
+
+    try {
+      storage.runInTransaction(tx -> {
+        final long initialTimestamp = triggered
+            ? sequenceEvent.timestamp()
+            : tx.backfillStatus(backfillId, state.workflowInstance())
+                .flatMap(RunStateData::initialTimestamp)
+                .orElse(sequenceEvent.timestamp());
+        tx.storeBackfillStatus(backfillId, RunStateData.newBuilder()
+            .workflowInstance(state.workflowInstance())
+            .state(state.state().name())
+            .stateData(state.data())
+            .initialTimestamp(initialTimestamp)
+            .latestTimestamp(sequenceEvent.timestamp())
+            .build());
+        return null;
+      });
+    } catch (IOException e) {
+      LOG.warn("Failed to store status of backfill {} partition {}", backfillId, state.workflowInstance(), e);
+    }
+  }
+}
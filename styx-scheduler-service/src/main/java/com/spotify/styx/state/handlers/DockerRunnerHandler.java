@@ -22,24 +22,36 @@ package com.spotify.styx.state.handlers;
 
 import static com.spotify.styx.state.handlers.HandlerUtil.argsReplace;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
 import com.spotify.styx.docker.DockerRunner;
 import com.spotify.styx.docker.DockerRunner.RunSpec;
 import com.spotify.styx.docker.InvalidExecutionException;
+import com.spotify.styx.docker.RunSpecBuilder;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.ExecutionDescription;
+import com.spotify.styx.monitoring.Stats;
 import com.spotify.styx.state.OutputHandler;
 import com.spotify.styx.state.RunState;
 import com.spotify.styx.state.StateManager;
 import com.spotify.styx.util.IsClosedException;
 import com.spotify.styx.util.ResourceNotFoundException;
+import com.spotify.styx.util.Time;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * An {@link OutputHandler} that starts docker runs on {@link RunState.State#SUBMITTED} transitions
+ * An {@link OutputHandler} that starts docker runs on {@link RunState.State#SUBMITTED} transitions.
+ *
+ * <p>Docker runs are started on a submission executor, off the state processing thread, at a rate
+ * limited by a submission rate limiter in order to protect the docker runner backend from large
+ * submission bursts.
  */
 public class DockerRunnerHandler implements OutputHandler {
 
@@ -47,12 +59,31 @@ public class DockerRunnerHandler implements OutputHandler {
 
   private final DockerRunner dockerRunner;
   private final StateManager stateManager;
+  private final Executor submissionExecutor;
+  private final RateLimiter submissionRateLimiter;
+  private final Stats stats;
+  private final Time time;
 
   public DockerRunnerHandler(
       DockerRunner dockerRunner,
       StateManager stateManager) {
+    this(dockerRunner, stateManager, MoreExecutors.directExecutor(), RateLimiter.create(Double.MAX_VALUE),
+        Stats.NOOP, Instant::now);
+  }
+
+  public DockerRunnerHandler(
+      DockerRunner dockerRunner,
+      StateManager stateManager,
+      Executor submissionExecutor,
+      RateLimiter submissionRateLimiter,
+      Stats stats,
+      Time time) {
     this.dockerRunner = requireNonNull(dockerRunner);
     this.stateManager = requireNonNull(stateManager);
+    this.submissionExecutor = requireNonNull(submissionExecutor);
+    this.submissionRateLimiter = requireNonNull(submissionRateLimiter);
+    this.stats = requireNonNull(stats);
+    this.time = requireNonNull(time);
   }
 
   @Override
@@ -68,31 +99,8 @@ public class DockerRunnerHandler implements OutputHandler {
           return;
         }
 
-        try {
-          LOG.info("running:{}, spec:{}, state:{}", state.workflowInstance(), runSpec, state);
-          dockerRunner.start(state.workflowInstance(), runSpec);
-        } catch (Throwable e) {
-          try {
-            final String msg = "Failed the docker starting procedure for " + state.workflowInstance();
-            if (isUserError(e)) {
-              LOG.info("{}: {}", msg, e.getMessage());
-            } else {
-              LOG.error(msg, e);
-            }
-            stateManager.receive(Event.runError(state.workflowInstance(), e.getMessage()), state.counter());
-          } catch (IsClosedException isClosedException) {
-            LOG.warn("Failed to send 'runError' event", isClosedException);
-          }
-          return;
-        }
-
-        // Emit `submitted` _after_ starting execution to ensure that we retry in case of failure.
-        final Event submitted = Event.submitted(state.workflowInstance(), runSpec.executionId());
-        try {
-          stateManager.receive(submitted, state.counter());
-        } catch (IsClosedException isClosedException) {
-          LOG.warn("Could not emit 'submitted' event", isClosedException);
-        }
+        final long queuedNanos = time.nanoTime();
+        submissionExecutor.execute(() -> start(state, runSpec, queuedNanos));
         break;
 
       case SUBMITTED:
@@ -117,6 +125,64 @@ public class DockerRunnerHandler implements OutputHandler {
     }
   }
 
+  private void start(RunState state, RunSpec spec, long queuedNanos) {
+    recordStageLatency("queued", queuedNanos);
+
+    final long throttledNanos = time.nanoTime();
+    submissionRateLimiter.acquire();
+    recordStageLatency("throttled", throttledNanos);
+
+    // Start on the runner recorded by the submit event, so that retried starts do not end up on another runner.
+    // Executions submitted without a recorded runner are routed here.
+    final RunSpec runSpec;
+    try {
+      final Optional<String> runnerId = state.data().runnerId().isPresent()
+          ? state.data().runnerId()
+          : dockerRunner.selectRunner(state.workflowInstance());
+      runSpec = RunSpecBuilder.from(spec)
+          .runnerId(runnerId)
+          .build();
+    } catch (Throwable e) {
+      LOG.error("Failed to select docker runner for " + state.workflowInstance(), e);
+      stateManager.receiveIgnoreClosed(Event.runError(state.workflowInstance(), e.getMessage()), state.counter());
+      return;
+    }
+
+    final long startNanos = time.nanoTime();
+    try {
+      LOG.info("running:{}, spec:{}, state:{}", state.workflowInstance(), runSpec, state);
+      dockerRunner.start(state.workflowInstance(), runSpec);
+    } catch (Throwable e) {
+      try {
+        final String msg = "Failed the docker starting procedure for " + state.workflowInstance();
+        if (isUserError(e)) {
+          LOG.info("{}: {}", msg, e.getMessage());
+        } else {
+          LOG.error(msg, e);
+        }
+        stateManager.receive(Event.runError(state.workflowInstance(), e.getMessage()), state.counter());
+      } catch (IsClosedException isClosedException) {
+        LOG.warn("Failed to send 'runError' event", isClosedException);
+      }
+      return;
+    } finally {
+      recordStageLatency("start", startNanos);
+    }
+
+    // Emit `submitted` _after_ starting execution to ensure that we retry in case of failure.
+    final Event submitted = Event.submitted(state.workflowInstance(), runSpec.executionId(),
+        runSpec.runnerId().orElse(null));
+    try {
+      stateManager.receive(submitted, state.counter());
+    } catch (IsClosedException isClosedException) {
+      LOG.warn("Could not emit 'submitted' event", isClosedException);
+    }
+  }
+
+  private void recordStageLatency(String stage, long startNanos) {
+    stats.recordSubmissionStageLatency(stage, NANOSECONDS.toMillis(time.nanoTime() - startNanos));
+  }
+
   private boolean isUserError(Throwable e) {
     return e instanceof InvalidExecutionException;
   }
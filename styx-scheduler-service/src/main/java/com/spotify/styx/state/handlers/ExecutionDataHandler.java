@@ -0,0 +1,64 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.state.handlers;
+
+import com.spotify.styx.model.SequenceEvent;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.storage.Storage;
+import com.spotify.styx.util.EventUtil;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An event consumer that materializes the execution data of a workflow instance when one of its
+ * triggers completes, so that reading it only replays the events of the trigger in progress.
+ *
+ * <p>A failure to materialize only makes the reads replay more events.
+ */
+public class ExecutionDataHandler implements BiConsumer<SequenceEvent, RunState> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExecutionDataHandler.class);
+
+  private static final Set<String> TRIGGER_COMPLETING_EVENTS = Set.of("success", "stop", "halt");
+
+  private final Storage storage;
+
+  public ExecutionDataHandler(Storage storage) {
+    this.storage = Objects.requireNonNull(storage);
+  }
+
+  @Override
+  public void accept(SequenceEvent sequenceEvent, RunState state) {
+    if (!TRIGGER_COMPLETING_EVENTS.contains(EventUtil.name(sequenceEvent.event()))) {
+      return;
+    }
+
+    try {
+      storage.materializeExecutionData(state.workflowInstance());
+    } catch (IOException e) {
+      LOG.warn("Failed to materialize execution data of {}", state.workflowInstance(), e);
+    }
+  }
+}
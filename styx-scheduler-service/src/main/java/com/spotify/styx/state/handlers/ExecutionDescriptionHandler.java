@@ -25,6 +25,7 @@ import static java.lang.String.format;
 import static java.util.Objects.requireNonNull;
 
 import com.spotify.styx.MissingRequiredPropertyException;
+import com.spotify.styx.docker.DockerRunner;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.ExecutionDescription;
 import com.spotify.styx.model.Workflow;
@@ -44,6 +45,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,14 +59,17 @@ public class ExecutionDescriptionHandler implements OutputHandler {
   private final Storage storage;
   private final StateManager stateManager;
   private final WorkflowValidator validator;
+  private final DockerRunner dockerRunner;
 
   public ExecutionDescriptionHandler(
       Storage storage,
       StateManager stateManager,
-      WorkflowValidator validator) {
+      WorkflowValidator validator,
+      DockerRunner dockerRunner) {
     this.storage = requireNonNull(storage);
     this.stateManager = requireNonNull(stateManager);
     this.validator = requireNonNull(validator);
+    this.dockerRunner = requireNonNull(dockerRunner);
   }
 
   @Override
@@ -73,9 +78,21 @@ public class ExecutionDescriptionHandler implements OutputHandler {
 
     switch (state.state()) {
       case PREPARE:
+        // Select the runner before submitting so that it is persisted in the state, and every attempt to
+        // start the execution is made on the same runner
+        final Optional<String> runnerId;
+        try {
+          runnerId = dockerRunner.selectRunner(workflowInstance);
+        } catch (Throwable e) {
+          LOG.error("Failed to select docker runner for " + workflowInstance, e);
+          stateManager.receiveIgnoreClosed(Event.runError(workflowInstance, e.getMessage()), state.counter());
+          return;
+        }
+
         try {
           final Event submitEvent = Event.submit(
-              state.workflowInstance(), getExecDescription(workflowInstance, state.data()), createExecutionId());
+              state.workflowInstance(), getExecDescription(workflowInstance, state.data()), createExecutionId(),
+              runnerId.orElse(null));
           try {
             stateManager.receive(submitEvent, state.counter());
           } catch (IsClosedException isClosedException) {
@@ -22,11 +22,13 @@ package com.spotify.styx;
 import static com.spotify.styx.util.ParameterUtil.toParameter;
 import static com.spotify.styx.util.TimeUtil.instantsInRange;
 import static com.spotify.styx.util.TimeUtil.previousInstant;
+import static com.spotify.styx.util.TriggerUtil.activeInstancesCounterId;
 import static org.hamcrest.CoreMatchers.is;
-import static org.junit.Assert.assertFalse;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -34,7 +36,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.only;
-import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -53,32 +55,32 @@ import com.spotify.styx.model.WorkflowInstance;
 import com.spotify.styx.monitoring.Stats;
 import com.spotify.styx.state.RunState;
 import com.spotify.styx.state.StateManager;
-import com.spotify.styx.state.Trigger;
+import com.spotify.styx.storage.Lease;
 import com.spotify.styx.storage.Storage;
 import com.spotify.styx.storage.StorageTransaction;
 import com.spotify.styx.storage.TransactionFunction;
 import com.spotify.styx.util.AlreadyInitializedException;
+import com.spotify.styx.util.ShardedCounter;
 import com.spotify.styx.util.Time;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -147,56 +149,62 @@ public class BackfillTriggerManagerTest {
   @Mock StorageTransaction transaction;
   @Mock StyxConfig config;
   @Mock StateManager stateManager;
+  @Mock ShardedCounter shardedCounter;
 
   private BackfillTriggerManager backfillTriggerManager;
 
-  private ExecutorService executor = Executors.newCachedThreadPool();
-
   private Map<String, Backfill> backfills;
 
   private Map<WorkflowInstance, RunState> activeStates;
 
-  @Before
-  public void setUp() throws Exception {
-    backfills = new LinkedHashMap<>(); // we need to keep entry order
-    activeStates = new HashMap<>();
-
-    doAnswer(a -> {
-      Workflow workflow = a.getArgument(0);
-      Instant instant = a.getArgument(2);
-
-      final String parameter = toParameter(workflow.configuration().schedule(), instant);
-      final WorkflowInstance workflowInstance = WorkflowInstance.create(workflow.id(),
-          parameter);
-      RunState runState = RunState.fresh(workflowInstance);
-      activeStates.put(workflowInstance, runState);
-      return null;
-    }).when(triggerListener).event(any(), any(), any(), any());
+  private Map<String, Map<WorkflowInstance, RunState>> triggeredStates;
 
-    when(stateManager.getActiveStatesByTriggerId(anyString())).thenReturn(activeStates);
+  private Map<String, Lease> leases;
 
-    ArgumentCaptor<Backfill> backfillArgumentCaptor = ArgumentCaptor.forClass(Backfill.class);
-    when(transaction.store(backfillArgumentCaptor.capture())).then(answer -> {
-      backfills.put(backfillArgumentCaptor.getValue().id(), backfillArgumentCaptor.getValue());
-      return backfillArgumentCaptor.getValue();
+  @Before
+  public void setUp() throws Exception {
+    // we need to keep entry order, and backfills are progressed in parallel
+    backfills = Collections.synchronizedMap(new LinkedHashMap<>());
+    activeStates = new ConcurrentHashMap<>();
+    triggeredStates = new ConcurrentHashMap<>();
+    leases = new ConcurrentHashMap<>();
+
+    doAnswer(this::triggerPartitions).when(triggerListener).backfillEvent(any(), any(), any(), any());
+
+    // backfills are progressed in parallel, so keep the states they trigger apart
+    when(shardedCounter.getCounter(anyString())).then(a -> (long) activeStates.size()
+        + triggeredStates.getOrDefault(a.<String>getArgument(0), Map.of()).size());
+
+    when(transaction.store(any(Backfill.class))).then(answer -> {
+      final Backfill backfill = answer.getArgument(0);
+      backfills.put(backfill.id(), backfill);
+      return backfill;
     });
-    ArgumentCaptor<String> stringCaptor = ArgumentCaptor.forClass(String.class);
-    when(transaction.backfill(stringCaptor.capture()))
-        .then(answer -> Optional.of(backfills.get(stringCaptor.getValue())));
+    when(transaction.backfill(anyString()))
+        .then(answer -> Optional.of(backfills.get(answer.<String>getArgument(0))));
+    when(transaction.lease(anyString()))
+        .then(answer -> Optional.ofNullable(leases.get(answer.<String>getArgument(0))));
+    doAnswer(answer -> {
+      final Lease lease = answer.getArgument(0);
+      leases.put(lease.id(), lease);
+      return null;
+    }).when(transaction).store(any(Lease.class));
 
     when(storage.backfills(anyBoolean())).then(a -> new ArrayList<>(backfills.values()));
+    when(storage.backfill(anyString()))
+        .then(answer -> Optional.ofNullable(backfills.get(answer.<String>getArgument(0))));
 
     when(storage.runInTransaction(any())).then(
         a -> a.<TransactionFunction>getArgument(0).apply(transaction));
 
-    backfillTriggerManager = new BackfillTriggerManager(stateManager, storage,
+    backfillTriggerManager = new BackfillTriggerManager(stateManager, storage, shardedCounter,
                                                         triggerListener, Stats.NOOP, TIME,
                                                         (x) -> {});
   }
 
   @After
-  public void tearDown() {
-    executor.shutdownNow();
+  public void tearDown() throws IOException {
+    backfillTriggerManager.close();
   }
 
   @Test
@@ -213,11 +221,11 @@ public class BackfillTriggerManagerTest {
     final List<Instant> instants = instantsInRange(BACKFILL_1.start(), BACKFILL_1.end(),
         workflow.configuration().schedule());
 
-    instants.stream().limit(concurrency).forEach(instant ->
-            verify(triggerListener).event(workflow, Trigger.backfill(BACKFILL_1.id()), instant, TRIGGER_PARAMETERS));
-
-    verify(transaction)
-        .store(BACKFILL_1.builder().nextTrigger(instants.get(concurrency)).build());
+    final Backfill progressedBackfill =
+        BACKFILL_1.builder().nextTrigger(instants.get(concurrency)).build();
+    verify(triggerListener).backfillEvent(workflow, BACKFILL_1,
+        instants.subList(0, concurrency), progressedBackfill);
+    assertThat(backfills.get(BACKFILL_1.id()), is(progressedBackfill));
   }
 
   @Test
@@ -234,47 +242,49 @@ public class BackfillTriggerManagerTest {
     final List<Instant> instants = Lists.reverse(instantsInRange(BACKFILL_2.start(), BACKFILL_2.end(),
             workflow.configuration().schedule()));
 
-    instants.stream().limit(concurrency).forEach(instant ->
-        verify(triggerListener).event(workflow, Trigger.backfill(BACKFILL_2.id()), instant, TRIGGER_PARAMETERS));
-
-    verify(transaction)
-        .store(BACKFILL_2.builder().nextTrigger(instants.get(concurrency)).build());
+    final Backfill progressedBackfill =
+        BACKFILL_2.builder().nextTrigger(instants.get(concurrency)).build();
+    verify(triggerListener).backfillEvent(workflow, BACKFILL_2,
+        instants.subList(0, concurrency), progressedBackfill);
+    assertThat(backfills.get(BACKFILL_2.id()), is(progressedBackfill));
   }
 
   @Test
   public void shouldTriggerBackfillsInProgress() throws IOException {
     final Workflow workflow = createWorkflow(WORKFLOW_ID1);
     initWorkflow(workflow);
-    backfills.put(BACKFILL_1.id(), BACKFILL_1.builder()
+    final Backfill backfill = BACKFILL_1.builder()
         .nextTrigger(Instant.parse("2016-12-03T00:00:00Z"))
-        .build());
+        .build();
+    backfills.put(BACKFILL_1.id(), backfill);
 
     final WorkflowInstance wfi1 = WorkflowInstance.create(WORKFLOW_ID1, "2016-12-02T23");
     activeStates.put(wfi1, RunState.fresh(wfi1));
 
     backfillTriggerManager.tick();
 
-    verify(triggerListener, only()).event(
-        workflow,
-        Trigger.backfill(BACKFILL_1.id()), Instant.parse("2016-12-03T00:00:00Z"), TRIGGER_PARAMETERS);
+    verify(triggerListener, only()).backfillEvent(
+        workflow, backfill, List.of(Instant.parse("2016-12-03T00:00:00Z")),
+        backfill.builder().nextTrigger(Instant.parse("2016-12-03T01:00:00Z")).build());
   }
 
   @Test
   public void shouldTriggerBackfillsInProgressReversed() throws IOException {
     final Workflow workflow = createWorkflow(WORKFLOW_ID1);
     initWorkflow(workflow);
-    backfills.put(BACKFILL_2.id(), BACKFILL_2.builder()
+    final Backfill backfill = BACKFILL_2.builder()
         .nextTrigger(Instant.parse("2016-12-03T00:00:00Z"))
-        .build());
+        .build();
+    backfills.put(BACKFILL_2.id(), backfill);
 
     final WorkflowInstance wfi1 = WorkflowInstance.create(WORKFLOW_ID1, "2016-12-03T01");
     activeStates.put(wfi1, RunState.fresh(wfi1));
 
     backfillTriggerManager.tick();
 
-    verify(triggerListener, only()).event(
-        workflow,
-        Trigger.backfill(BACKFILL_2.id()), Instant.parse("2016-12-03T00:00:00Z"), TRIGGER_PARAMETERS);
+    verify(triggerListener, only()).backfillEvent(
+        workflow, backfill, List.of(Instant.parse("2016-12-03T00:00:00Z")),
+        backfill.builder().nextTrigger(Instant.parse("2016-12-02T23:00:00Z")).build());
   }
 
   @Test
@@ -288,12 +298,11 @@ public class BackfillTriggerManagerTest {
 
     List<Instant> instants =
         instantsInRange(BACKFILL_3.start(), BACKFILL_3.end(), BACKFILL_3.schedule());
-    instants.forEach(instant -> inOrder(triggerListener).verify(triggerListener)
-        .event(workflow, Trigger.backfill(BACKFILL_3.id()), instant, TRIGGER_PARAMETERS));
-
     final Backfill completedBackfill =
         BACKFILL_3.builder().nextTrigger(BACKFILL_3.end()).allTriggered(true).build();
-    verify(transaction).store(completedBackfill);
+    verify(triggerListener).backfillEvent(workflow, BACKFILL_3, instants, completedBackfill);
+    assertThat(backfills.get(BACKFILL_3.id()), is(completedBackfill));
+    verify(storage).deleteResource(activeInstancesCounterId(BACKFILL_3.id()));
   }
 
   @Test
@@ -307,12 +316,43 @@ public class BackfillTriggerManagerTest {
 
     List<Instant> instants =
         Lists.reverse(instantsInRange(BACKFILL_4.start(), BACKFILL_4.end(), BACKFILL_4.schedule()));
-    instants.forEach(instant -> inOrder(triggerListener).verify(triggerListener)
-        .event(workflow, Trigger.backfill(BACKFILL_4.id()), instant, TRIGGER_PARAMETERS));
-
     final Backfill completedBackfill =
         BACKFILL_4.builder().nextTrigger(previousInstant(BACKFILL_4.start(), BACKFILL_4.schedule())).allTriggered(true).build();
-    verify(transaction).store(completedBackfill);
+    verify(triggerListener).backfillEvent(workflow, BACKFILL_4, instants, completedBackfill);
+    assertThat(backfills.get(BACKFILL_4.id()), is(completedBackfill));
+    verify(storage).deleteResource(activeInstancesCounterId(BACKFILL_4.id()));
+  }
+
+  @Test
+  public void shouldTriggerPartitionsInBatchesWithTheBackfillCursor() throws IOException {
+    final Workflow workflow = createWorkflow(WORKFLOW_ID1);
+    initWorkflow(workflow);
+
+    final int concurrency = 2 * BackfillTriggerManager.MAX_PARTITIONS_PER_TRANSACTION + 5;
+    final Backfill backfill = BACKFILL_1.builder().concurrency(concurrency).build();
+    backfills.put(backfill.id(), backfill);
+
+    backfillTriggerManager.tick();
+
+    final List<Instant> instants = instantsInRange(backfill.start(), backfill.end(),
+        workflow.configuration().schedule());
+    final int batchSize = BackfillTriggerManager.MAX_PARTITIONS_PER_TRANSACTION;
+    final Backfill firstProgressed =
+        backfill.builder().nextTrigger(instants.get(batchSize)).build();
+    final Backfill secondProgressed =
+        backfill.builder().nextTrigger(instants.get(2 * batchSize)).build();
+    final Backfill thirdProgressed =
+        backfill.builder().nextTrigger(instants.get(concurrency)).build();
+
+    final InOrder inOrder = inOrder(triggerListener);
+    inOrder.verify(triggerListener).backfillEvent(workflow, backfill,
+        instants.subList(0, batchSize), firstProgressed);
+    inOrder.verify(triggerListener).backfillEvent(workflow, firstProgressed,
+        instants.subList(batchSize, 2 * batchSize), secondProgressed);
+    inOrder.verify(triggerListener).backfillEvent(workflow, secondProgressed,
+        instants.subList(2 * batchSize, concurrency), thirdProgressed);
+    verifyNoMoreInteractions(triggerListener);
+    assertThat(backfills.get(backfill.id()), is(thirdProgressed));
   }
 
   @Test
@@ -349,6 +389,83 @@ public class BackfillTriggerManagerTest {
     verifyZeroInteractions(triggerListener);
   }
 
+  @Test
+  public void shouldQueryActiveStatesOfBackfillsWithoutCounter() throws IOException {
+    final Workflow workflow = createWorkflow(WORKFLOW_ID1);
+    initWorkflow(workflow);
+
+    backfills.put(BACKFILL_1.id(), BACKFILL_1);
+
+    final WorkflowInstance wfi1 = WorkflowInstance.create(WORKFLOW_ID1, "2016-12-02T20");
+    final WorkflowInstance wfi2 = WorkflowInstance.create(WORKFLOW_ID1, "2016-12-02T21");
+    when(shardedCounter.getCounter(activeInstancesCounterId(BACKFILL_1.id())))
+        .thenThrow(new IllegalArgumentException("No limit found"));
+    when(stateManager.getActiveStatesByTriggerId(BACKFILL_1.id()))
+        .thenReturn(Map.of(wfi1, RunState.fresh(wfi1), wfi2, RunState.fresh(wfi2)));
+
+    backfillTriggerManager.tick();
+
+    verifyZeroInteractions(triggerListener);
+  }
+
+  @Test
+  public void shouldReconcileDriftedActiveInstancesCounter() throws IOException {
+    backfills.put(BACKFILL_1.id(), BACKFILL_1);
+
+    final String counterId = activeInstancesCounterId(BACKFILL_1.id());
+    final WorkflowInstance wfi1 = WorkflowInstance.create(WORKFLOW_ID1, "2016-12-02T20");
+    when(storage.getLimitForCounter(counterId)).thenReturn(Long.MAX_VALUE);
+    when(storage.shardsForCounter(counterId)).thenReturn(Map.of(0, 2L, 5, 1L));
+    when(stateManager.getActiveStatesByTriggerId(BACKFILL_1.id())).thenReturn(Map.of(wfi1, RunState.fresh(wfi1)));
+    when(shardedCounter.adjustCounter(storage, counterId, Map.of(0, 2L, 5, 1L), -2L)).thenReturn(-2L);
+
+    backfillTriggerManager.reconcileActiveInstancesCounters();
+
+    verify(shardedCounter).adjustCounter(storage, counterId, Map.of(0, 2L, 5, 1L), -2L);
+  }
+
+  @Test
+  public void shouldNotReconcileActiveInstancesCounterChangedConcurrently() throws IOException {
+    backfills.put(BACKFILL_1.id(), BACKFILL_1);
+
+    final String counterId = activeInstancesCounterId(BACKFILL_1.id());
+    final WorkflowInstance wfi1 = WorkflowInstance.create(WORKFLOW_ID1, "2016-12-02T20");
+    when(storage.getLimitForCounter(counterId)).thenReturn(Long.MAX_VALUE);
+    when(storage.shardsForCounter(counterId)).thenReturn(Map.of(0, 2L, 5, 1L), Map.of(0, 2L));
+    when(stateManager.getActiveStatesByTriggerId(BACKFILL_1.id())).thenReturn(Map.of(wfi1, RunState.fresh(wfi1)));
+
+    backfillTriggerManager.reconcileActiveInstancesCounters();
+
+    verify(shardedCounter, never()).adjustCounter(any(), any(), any(), anyLong());
+  }
+
+  @Test
+  public void shouldNotReconcileActiveInstancesCounterInSync() throws IOException {
+    backfills.put(BACKFILL_1.id(), BACKFILL_1);
+
+    final String counterId = activeInstancesCounterId(BACKFILL_1.id());
+    final WorkflowInstance wfi1 = WorkflowInstance.create(WORKFLOW_ID1, "2016-12-02T20");
+    when(storage.getLimitForCounter(counterId)).thenReturn(Long.MAX_VALUE);
+    when(storage.shardsForCounter(counterId)).thenReturn(Map.of(5, 1L));
+    when(stateManager.getActiveStatesByTriggerId(BACKFILL_1.id())).thenReturn(Map.of(wfi1, RunState.fresh(wfi1)));
+
+    backfillTriggerManager.reconcileActiveInstancesCounters();
+
+    verify(shardedCounter, never()).adjustCounter(any(), any(), any(), anyLong());
+  }
+
+  @Test
+  public void shouldNotReconcileBackfillsWithoutActiveInstancesCounter() throws IOException {
+    backfills.put(BACKFILL_1.id(), BACKFILL_1);
+
+    when(storage.getLimitForCounter(activeInstancesCounterId(BACKFILL_1.id())))
+        .thenThrow(new IllegalArgumentException("No limit found"));
+
+    backfillTriggerManager.reconcileActiveInstancesCounters();
+
+    verifyZeroInteractions(stateManager, shardedCounter);
+  }
+
   @Test
   public void shouldNotTriggerIfAllTriggered() throws IOException {
     final Workflow workflow = createWorkflow(WORKFLOW_ID1);
@@ -394,6 +511,7 @@ public class BackfillTriggerManagerTest {
     backfillTriggerManager.tick();
 
     verify(transaction).store(completedBackfill.builder().allTriggered(true).build());
+    verify(storage).deleteResource(activeInstancesCounterId(completedBackfill.id()));
     verifyZeroInteractions(triggerListener);
   }
 
@@ -412,6 +530,7 @@ public class BackfillTriggerManagerTest {
     backfillTriggerManager.tick();
 
     verify(transaction).store(completedBackfill.builder().allTriggered(true).build());
+    verify(storage).deleteResource(activeInstancesCounterId(completedBackfill.id()));
     verifyZeroInteractions(triggerListener);
   }
 
@@ -436,6 +555,7 @@ public class BackfillTriggerManagerTest {
 
     verifyZeroInteractions(triggerListener);
     verify(storage).storeBackfill(BACKFILL_1.builder().halted(true).build());
+    verify(storage).deleteResource(activeInstancesCounterId(BACKFILL_1.id()));
   }
 
   @Test
@@ -448,6 +568,7 @@ public class BackfillTriggerManagerTest {
 
     verifyZeroInteractions(triggerListener);
     verify(storage).storeBackfill(BACKFILL_1.builder().halted(true).build());
+    verify(storage, never()).deleteResource(any());
   }
 
   @Test
@@ -462,11 +583,11 @@ public class BackfillTriggerManagerTest {
   }
 
   @Test
-  public void shouldNotTriggerBackfillsIfRunInTransactionFails() throws Exception {
+  public void shouldNotTriggerBackfillsIfReadingBackfillFails() throws Exception {
     final Workflow workflow = createWorkflow(WORKFLOW_ID1);
     initWorkflow(workflow);
 
-    doThrow(new IOException()).when(storage).runInTransaction(any());
+    doThrow(new IOException()).when(storage).backfill(anyString());
 
     backfills.put(BACKFILL_1.id(), BACKFILL_1);
 
@@ -476,54 +597,48 @@ public class BackfillTriggerManagerTest {
   }
 
   @Test
-  public void shouldTriggerAndUpdateBackfillsSynchronously() throws Exception {
+  public void shouldNotProgressBackfillWhenTriggeringFails() throws IOException {
     final Workflow workflow = createWorkflow(WORKFLOW_ID1);
     initWorkflow(workflow);
 
     backfills.put(BACKFILL_1.id(), BACKFILL_1);
 
-    // Collect unfinished triggering futures as the trigger listener is called
-    final BlockingQueue<CompletableFuture<Void>> triggerProcessingFutures =
-        new LinkedBlockingQueue<>();
+    doThrow(new RuntimeException())
+        .when(triggerListener)
+        .backfillEvent(any(), eq(BACKFILL_1), any(), any());
 
-    doAnswer(a -> {
-      CompletableFuture<Void> processed = new CompletableFuture<>();
-      Workflow workflow1 = a.getArgument(0);
-      Instant instant = a.getArgument(2);
-
-      final String parameter = toParameter(workflow1.configuration().schedule(), instant);
-      final WorkflowInstance workflowInstance = WorkflowInstance.create(workflow1.id(),
-                                                                        parameter);
-      RunState runState = RunState.fresh(workflowInstance);
-      activeStates.put(workflowInstance, runState);
-
-      triggerProcessingFutures.add(processed);
-      return processed.join();
-    }).when(triggerListener)
-        .event(any(), any(), any(), any());
+    backfillTriggerManager.tick();
 
-    // Run a single tick of the backfillTriggerManager
-    executor.execute(backfillTriggerManager::tick);
+    verify(triggerListener).backfillEvent(any(), any(), any(), any());
+    assertThat(backfills.get(BACKFILL_1.id()), is(BACKFILL_1));
+  }
 
-    final List<Instant> instants = instantsInRange(BACKFILL_1.start(), BACKFILL_1.end(),
-        workflow.configuration().schedule());
+  @Test
+  public void shouldProgressBackfillsInParallel() throws Exception {
+    final Workflow workflow = createWorkflow(WORKFLOW_ID1);
+    initWorkflow(workflow);
 
-    // Go through each expected trigger sequentially and verify that the next partition is not
-    // triggered before the future for the previous partition trigger is completed
-    for (int i = 0; i < BACKFILL_1.concurrency(); i++) {
-      final Instant instant = instants.get(i);
+    backfills.put(BACKFILL_1.id(), BACKFILL_1);
+    backfills.put(BACKFILL_3.id(), BACKFILL_3);
 
-      final CompletableFuture<Void> triggerProcessed = triggerProcessingFutures.poll(1,
-                                                                                     TimeUnit.MINUTES);
-      assertThat(triggerProcessingFutures.isEmpty(), is(true));
+    // Block triggering of the first backfill until the other backfill has been triggered
+    final CountDownLatch otherBackfillTriggered = new CountDownLatch(1);
+    doAnswer(a -> {
+      otherBackfillTriggered.await(1, TimeUnit.MINUTES);
+      return triggerPartitions(a);
+    }).when(triggerListener)
+        .backfillEvent(any(), eq(BACKFILL_1), any(), any());
+    doAnswer(a -> {
+      otherBackfillTriggered.countDown();
+      return triggerPartitions(a);
+    }).when(triggerListener)
+        .backfillEvent(any(), eq(BACKFILL_3), any(), any());
 
-      verify(triggerListener, timeout(60_000))
-          .event(any(), any(), eq(instant), any());
+    backfillTriggerManager.tick();
 
-      triggerProcessed.complete(null);
-      verify(transaction, timeout(60_000))
-          .store(BACKFILL_1.builder().nextTrigger(instants.get(i + 1)).build());
-    }
+    assertThat(otherBackfillTriggered.getCount(), is(0L));
+    assertThat(backfills.get(BACKFILL_1.id()),
+        is(BACKFILL_1.builder().nextTrigger(Instant.parse("2016-12-03T00:00:00Z")).build()));
   }
 
   @Test
@@ -532,26 +647,22 @@ public class BackfillTriggerManagerTest {
     final Workflow workflow = createWorkflow(WORKFLOW_ID1);
     initWorkflow(workflow);
 
-    final int concurrency = BACKFILL_1.concurrency();
-
     backfills.put(BACKFILL_1.id(), BACKFILL_1);
     backfills.put(BACKFILL_3.id(), BACKFILL_3);
 
-    doThrow(new RuntimeException())
+    doThrow(new RuntimeException(new ExecutionException(new Exception())))
         .when(triggerListener)
-        .event(any(), any(), eq(Instant.parse("2016-12-02T22:00:00Z")), eq(TRIGGER_PARAMETERS));
+        .backfillEvent(any(), eq(BACKFILL_1), any(), any());
 
     backfillTriggerManager.tick();
 
     final List<Instant> instants = instantsInRange(BACKFILL_3.start(), BACKFILL_3.end(),
         workflow.configuration().schedule());
 
-    instants.stream().limit(concurrency).forEach(instant ->
-            verify(triggerListener).event(workflow, Trigger.backfill(BACKFILL_3.id()), instant, TRIGGER_PARAMETERS));
-
     final Backfill completedBackfill =
         BACKFILL_3.builder().nextTrigger(BACKFILL_3.end()).allTriggered(true).build();
-    verify(transaction).store(completedBackfill);
+    verify(triggerListener).backfillEvent(workflow, BACKFILL_3, instants, completedBackfill);
+    assertThat(backfills.get(BACKFILL_3.id()), is(completedBackfill));
   }
 
   @Test
@@ -559,52 +670,74 @@ public class BackfillTriggerManagerTest {
     final Workflow workflow = createWorkflow(WORKFLOW_ID1);
     initWorkflow(workflow);
 
-    final int concurrency = BACKFILL_1.concurrency();
-
     backfills.put(BACKFILL_1.id(), BACKFILL_1);
     backfills.put(BACKFILL_3.id(), BACKFILL_3);
 
-    doThrow(new RuntimeException())
+    doThrow(new AlreadyInitializedException(""))
         .when(triggerListener)
-        .event(any(), any(), eq(Instant.parse("2016-12-02T22:00:00Z")), eq(TRIGGER_PARAMETERS));
+        .backfillEvent(any(), eq(BACKFILL_1), any(), any());
 
     backfillTriggerManager.tick();
 
     final List<Instant> instants = instantsInRange(BACKFILL_3.start(), BACKFILL_3.end(),
         workflow.configuration().schedule());
 
-    instants.stream().limit(concurrency).forEach(instant ->
-                                                     verify(triggerListener).event(workflow, Trigger.backfill(
-                                                         BACKFILL_3.id()), instant, TRIGGER_PARAMETERS));
-
     final Backfill completedBackfill =
         BACKFILL_3.builder().nextTrigger(BACKFILL_3.end()).allTriggered(true).build();
-    verify(transaction).store(completedBackfill);
+    verify(triggerListener).backfillEvent(workflow, BACKFILL_3, instants, completedBackfill);
+    assertThat(backfills.get(BACKFILL_3.id()), is(completedBackfill));
+  }
+
+  @Test
+  public void shouldNotTriggerBackfillsLeasedByOtherReplica() throws Exception {
+    backfills.put(BACKFILL_1.id(), BACKFILL_1);
+    final Lease lease = Lease.create(BACKFILL_1.id(), "other", TIME.get().plusSeconds(1));
+    leases.put(lease.id(), lease);
+
+    backfillTriggerManager.tick();
+
+    verifyZeroInteractions(triggerListener);
+    verify(storage, never()).workflow(any());
+    assertThat(leases.get(BACKFILL_1.id()), is(lease));
   }
 
   @Test
-  public void shouldIgnoreIfAlreadyInitialized() throws IOException {
+  public void shouldTriggerBackfillsWithExpiredLease() throws Exception {
     final Workflow workflow = createWorkflow(WORKFLOW_ID1);
     initWorkflow(workflow);
 
-    final int concurrency = BACKFILL_1.concurrency();
-
     backfills.put(BACKFILL_1.id(), BACKFILL_1);
-
-    doThrow(new AlreadyInitializedException(""))
-        .when(triggerListener)
-        .event(any(), any(), eq(Instant.parse("2016-12-02T22:00:00Z")), eq(TRIGGER_PARAMETERS));
+    leases.put(BACKFILL_1.id(), Lease.create(BACKFILL_1.id(), "other", TIME.get()));
 
     backfillTriggerManager.tick();
 
-    final List<Instant> instants = instantsInRange(BACKFILL_1.start(), BACKFILL_1.end(),
-        workflow.configuration().schedule());
+    verify(triggerListener).backfillEvent(any(), eq(BACKFILL_1), any(), any());
+    final Lease lease = leases.get(BACKFILL_1.id());
+    assertThat(lease.owner().equals("other"), is(false));
+    assertThat(lease.expiry(),
+        greaterThanOrEqualTo(TIME.get().plus(BackfillTriggerManager.MIN_LEASE_DURATION)));
+  }
+
+  @Test
+  public void shouldKeepProgressingBackfillsWhileHoldingLease() throws Exception {
+    final Workflow workflow = createWorkflow(WORKFLOW_ID1);
+    initWorkflow(workflow);
+
+    backfills.put(BACKFILL_1.id(), BACKFILL_1);
 
-    instants.stream().limit(concurrency).forEach(instant ->
-            verify(triggerListener).event(workflow, Trigger.backfill(BACKFILL_1.id()), instant, TRIGGER_PARAMETERS));
+    try (BackfillTriggerManager otherReplica = new BackfillTriggerManager(stateManager, storage,
+        shardedCounter, triggerListener, Stats.NOOP, TIME, (x) -> {})) {
+      backfillTriggerManager.tick();
+      final Lease lease = leases.get(BACKFILL_1.id());
 
-    verify(transaction)
-        .store(BACKFILL_1.builder().nextTrigger(instants.get(concurrency)).build());
+      otherReplica.tick();
+      activeStates.clear();
+      triggeredStates.clear();
+      backfillTriggerManager.tick();
+
+      assertThat(leases.get(BACKFILL_1.id()), is(lease));
+      verify(storage, times(2)).workflow(WORKFLOW_ID1);
+    }
   }
 
   @Test
@@ -614,9 +747,9 @@ public class BackfillTriggerManagerTest {
 
     backfills.put(BACKFILL_1.id(), BACKFILL_1.builder().halted(true).build());
 
-    final boolean moveOn = backfillTriggerManager.triggerNextPartitionAndProgress(transaction,
+    final int triggered = backfillTriggerManager.triggerNextPartitionsAndProgress(
         BACKFILL_1.id(), workflow, BACKFILL_1.nextTrigger(), 10, false);
-    assertFalse(moveOn);
+    assertThat(triggered, is(0));
     verifyNoMoreInteractions(triggerListener);
   }
 
@@ -624,6 +757,26 @@ public class BackfillTriggerManagerTest {
     when(storage.workflow(workflow.id())).thenReturn(Optional.of(workflow));
   }
 
+  /**
+   * Triggers the partitions and stores the progressed backfill, like the state manager does.
+   */
+  private Void triggerPartitions(InvocationOnMock a) {
+    final Workflow workflow = a.getArgument(0);
+    final Backfill backfill = a.getArgument(1);
+    final List<Instant> instants = a.getArgument(2);
+    final Backfill progressedBackfill = a.getArgument(3);
+
+    for (Instant instant : instants) {
+      final String parameter = toParameter(workflow.configuration().schedule(), instant);
+      final WorkflowInstance workflowInstance = WorkflowInstance.create(workflow.id(), parameter);
+      triggeredStates.computeIfAbsent(activeInstancesCounterId(backfill.id()),
+          id -> new ConcurrentHashMap<>())
+          .put(workflowInstance, RunState.fresh(workflowInstance));
+    }
+    backfills.put(progressedBackfill.id(), progressedBackfill);
+    return null;
+  }
+
   private static Workflow createWorkflow(WorkflowId id) {
     return Workflow.create(
         id.componentId(),
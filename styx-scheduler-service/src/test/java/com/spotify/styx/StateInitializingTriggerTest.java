@@ -25,11 +25,14 @@ import static com.spotify.styx.model.Schedule.HOURS;
 import static com.spotify.styx.model.Schedule.MONTHS;
 import static com.spotify.styx.model.Schedule.WEEKS;
 import static com.spotify.styx.util.ParameterUtil.toParameter;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 import com.google.common.collect.ImmutableList;
+import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Schedule;
 import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.Workflow;
@@ -39,7 +42,9 @@ import com.spotify.styx.model.WorkflowInstance;
 import com.spotify.styx.state.StateManager;
 import com.spotify.styx.state.Trigger;
 import com.spotify.styx.testdata.TestData;
+import com.spotify.styx.util.TriggerInstantSpec;
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import junitparams.Parameters;
@@ -59,6 +64,9 @@ public class StateInitializingTriggerTest {
       .env("FOO", "foo", "BAR", "bar")
       .build();
 
+  private static final TriggerInstantSpec NEXT_TRIGGER = TriggerInstantSpec.create(
+      Instant.parse("2016-01-18T10:00:00Z"), Instant.parse("2016-01-18T10:00:00Z"));
+
   private static final Map<Schedule, String> SCHEDULE_ARG_EXPECTS =
       Map.of(
           WEEKS, "2016-01-18",
@@ -67,6 +75,19 @@ public class StateInitializingTriggerTest {
           MONTHS, "2016-01"
       );
 
+  private static final Backfill BACKFILL = Backfill.newBuilder()
+      .id("trig")
+      .start(Instant.parse("2016-01-18T09:00:00Z"))
+      .end(Instant.parse("2016-01-18T12:00:00Z"))
+      .workflowId(TestData.WORKFLOW_ID)
+      .concurrency(2)
+      .schedule(HOURS)
+      .nextTrigger(Instant.parse("2016-01-18T09:00:00Z"))
+      .build();
+  private static final Backfill PROGRESSED_BACKFILL = BACKFILL.builder()
+      .nextTrigger(Instant.parse("2016-01-18T11:00:00Z"))
+      .build();
+
   @Mock StateManager stateManager;
 
   private TriggerListener trigger;
@@ -134,6 +155,58 @@ public class StateInitializingTriggerTest {
     verifyZeroInteractions(stateManager);
   }
 
+  @Test
+  public void shouldTriggerNaturallyAndAdvanceNextTrigger() throws Exception {
+    WorkflowConfiguration workflowConfiguration = workflowConfiguration(HOURS);
+    Workflow workflow = Workflow.create("id", workflowConfiguration);
+    final boolean advanced = trigger.naturalEvent(workflow, TIME, NEXT_TRIGGER);
+
+    WorkflowInstance expectedInstance = WorkflowInstance.create(workflow.id(), "2016-01-18T09");
+
+    assertThat(advanced, is(true));
+    verify(stateManager).triggerNatural(expectedInstance, NEXT_TRIGGER);
+  }
+
+  @Test
+  public void shouldNotAdvanceNextTriggerIfDockerImageMissing() throws Exception {
+    final WorkflowConfiguration configuration =
+        WorkflowConfigurationBuilder.from(TestData.DAILY_WORKFLOW_CONFIGURATION)
+            .dockerImage(Optional.empty())
+            .build();
+    Workflow workflow = Workflow.create("id", configuration);
+    final boolean advanced = trigger.naturalEvent(workflow, TIME, NEXT_TRIGGER);
+
+    assertThat(advanced, is(false));
+    verifyZeroInteractions(stateManager);
+  }
+
+  @Test
+  public void shouldTriggerBackfillPartitionsAndProgressBackfill() throws Exception {
+    WorkflowConfiguration workflowConfiguration = workflowConfiguration(HOURS);
+    Workflow workflow = Workflow.create("id", workflowConfiguration);
+    trigger.backfillEvent(workflow, BACKFILL,
+        List.of(Instant.parse("2016-01-18T09:00:00Z"), Instant.parse("2016-01-18T10:00:00Z")),
+        PROGRESSED_BACKFILL);
+
+    verify(stateManager).triggerBackfill(
+        List.of(WorkflowInstance.create(workflow.id(), "2016-01-18T09"),
+            WorkflowInstance.create(workflow.id(), "2016-01-18T10")),
+        BACKFILL, PROGRESSED_BACKFILL);
+  }
+
+  @Test
+  public void shouldOnlyProgressBackfillIfDockerImageMissing() throws Exception {
+    final WorkflowConfiguration configuration =
+        WorkflowConfigurationBuilder.from(TestData.HOURLY_WORKFLOW_CONFIGURATION)
+            .dockerImage(Optional.empty())
+            .build();
+    Workflow workflow = Workflow.create("id", configuration);
+    trigger.backfillEvent(workflow, BACKFILL, List.of(Instant.parse("2016-01-18T09:00:00Z")),
+        PROGRESSED_BACKFILL);
+
+    verify(stateManager).triggerBackfill(List.of(), BACKFILL, PROGRESSED_BACKFILL);
+  }
+
   @Test
   @Parameters()
   public void shouldCreateWorkflowInstanceParameter() throws Exception {
@@ -464,6 +464,7 @@ public class StyxSchedulerServiceFixture {
       new BigtableMocker(bigtable)
           .setNumFailures(numFailures)
           .setupTable(BigtableStorage.EVENTS_TABLE_NAME)
+          .setupTable(BigtableStorage.WORKFLOW_INSTANCES_TABLE_NAME)
           .finalizeMocking();
     } catch (IOException e) {
       throw Throwables.propagate(e);
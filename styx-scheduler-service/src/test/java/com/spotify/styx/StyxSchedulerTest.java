@@ -43,6 +43,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.io.Resources;
 import com.google.common.util.concurrent.RateLimiter;
 import com.spotify.styx.StyxScheduler.KubernetesClientFactory;
+import com.spotify.styx.docker.KubernetesSubmissionMode;
 import com.spotify.styx.model.Workflow;
 import com.spotify.styx.model.WorkflowConfiguration;
 import com.spotify.styx.model.WorkflowId;
@@ -170,6 +171,28 @@ public class StyxSchedulerTest {
     assertThat(httpClient.protocols(), contains(Protocol.HTTP_1_1));
   }
 
+  @Test
+  public void testDockerRunnerWeights() {
+    final Config config = ConfigFactory.parseMap(ImmutableMap.of(
+        "styx.gke.foo.namespace", "foo",
+        "styx.gke.bar.namespace", "bar",
+        "styx.gke.bar.weight", "2.5",
+        "styx.gke.baz.weight", "0"));
+
+    assertThat(StyxScheduler.dockerRunnerWeights(config), is(Map.of("bar", 2.5, "baz", 0.0)));
+    assertThat(StyxScheduler.dockerRunnerWeights(ConfigFactory.empty()), is(Map.of()));
+  }
+
+  @Test
+  public void testSubmissionMode() {
+    final Config config = ConfigFactory.parseMap(ImmutableMap.of(
+        "styx.gke.foo.namespace", "foo",
+        "styx.gke.bar.submission-mode", "JOB"));
+
+    assertThat(StyxScheduler.submissionMode(config, "foo"), is(KubernetesSubmissionMode.POD));
+    assertThat(StyxScheduler.submissionMode(config, "bar"), is(KubernetesSubmissionMode.JOB));
+  }
+
   @Test
   public void testSetupMetrics() throws IOException {
     final WorkflowId wfid1 = WorkflowId.create("foo1", "bar1");
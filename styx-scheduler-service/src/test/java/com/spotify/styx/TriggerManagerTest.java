@@ -23,6 +23,7 @@ package com.spotify.styx;
 import static com.spotify.styx.testdata.TestData.FULL_WORKFLOW_CONFIGURATION;
 import static java.time.Instant.parse;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
@@ -32,16 +33,15 @@ import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableSet;
 import com.spotify.styx.model.StyxConfig;
-import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.Workflow;
 import com.spotify.styx.model.WorkflowId;
 import com.spotify.styx.monitoring.Stats;
-import com.spotify.styx.state.Trigger;
 import com.spotify.styx.storage.Storage;
 import com.spotify.styx.util.AlreadyInitializedException;
 import com.spotify.styx.util.Time;
 import com.spotify.styx.util.TriggerInstantSpec;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -57,8 +57,6 @@ import org.mockito.junit.MockitoJUnitRunner;
 @RunWith(MockitoJUnitRunner.class)
 public class TriggerManagerTest {
 
-  private static final Trigger NATURAL_TRIGGER = Trigger.natural();
-
   private static Workflow WORKFLOW_DAILY =
       Workflow.create("comp", FULL_WORKFLOW_CONFIGURATION);
 
@@ -87,10 +85,13 @@ public class TriggerManagerTest {
   public void shouldNotUpdateNextNaturalTriggerUntilTriggerExecutionIsComplete() throws Exception {
     setupWithNextNaturalTrigger(true, parse("2016-10-01T00:00:00Z"));
     final CompletableFuture<Void> triggerExecutionFuture = new CompletableFuture<>();
-    doAnswer(a -> triggerExecutionFuture.join()).when(triggerListener).event(any(), any(), any(), any());
+    doAnswer(a -> {
+      triggerExecutionFuture.join();
+      return false;
+    }).when(triggerListener).naturalEvent(any(), any(), any());
     executor.execute(triggerManager::tick);
-    verify(triggerListener, timeout(60_000)).event(
-        WORKFLOW_DAILY, NATURAL_TRIGGER, parse("2016-10-01T00:00:00Z"), TriggerParameters.zero());
+    verify(triggerListener, timeout(60_000)).naturalEvent(
+        eq(WORKFLOW_DAILY), eq(parse("2016-10-01T00:00:00Z")), any());
     // HACK: Sleep to avoid racily missing an undesired invocation of updateNextNaturalTrigger
     Thread.sleep(5000);
     verify(storage, never()).updateNextNaturalTrigger(any(WorkflowId.class), any(TriggerInstantSpec.class));
@@ -104,20 +105,30 @@ public class TriggerManagerTest {
   public void shouldNotUpdateNextNaturalTriggerIfTriggerExecutionFails() throws Exception {
     setupWithNextNaturalTrigger(true, parse("2016-10-01T00:00:00Z"));
     doThrow(new RuntimeException("trigger execution failure!"))
-        .when(triggerListener).event(any(), any(), any(), any());
+        .when(triggerListener).naturalEvent(any(), any(), any());
     triggerManager.tick();
-    verify(triggerListener).event(WORKFLOW_DAILY, NATURAL_TRIGGER, parse("2016-10-01T00:00:00Z"),
-        TriggerParameters.zero());
+    verify(triggerListener).naturalEvent(eq(WORKFLOW_DAILY), eq(parse("2016-10-01T00:00:00Z")), any());
     verify(storage, never()).updateNextNaturalTrigger(any(WorkflowId.class), any(TriggerInstantSpec.class));
   }
 
   @Test
   public void shouldTriggerExecutionOnEnabledWithNextNaturalTrigger() throws IOException {
     setupWithNextNaturalTrigger(true, parse("2016-10-01T00:00:00Z"));
+    when(triggerListener.naturalEvent(any(), any(), any())).thenReturn(true);
     triggerManager.tick();
 
-    verify(triggerListener).event(WORKFLOW_DAILY, NATURAL_TRIGGER, parse("2016-10-01T00:00:00Z"),
-        TriggerParameters.zero());
+    verify(triggerListener).naturalEvent(WORKFLOW_DAILY, parse("2016-10-01T00:00:00Z"),
+        TriggerInstantSpec.create(parse("2016-10-02T00:00:00Z"), parse("2016-10-03T00:00:00Z")));
+    verify(storage, never()).updateNextNaturalTrigger(any(), any());
+  }
+
+  @Test
+  public void shouldUpdateNextNaturalTriggerIfTriggerIsSkipped() throws IOException {
+    setupWithNextNaturalTrigger(true, parse("2016-10-01T00:00:00Z"));
+    when(triggerListener.naturalEvent(any(), any(), any())).thenReturn(false);
+    triggerManager.tick();
+
+    verify(triggerListener).naturalEvent(eq(WORKFLOW_DAILY), eq(parse("2016-10-01T00:00:00Z")), any());
     verify(storage).updateNextNaturalTrigger(
         WORKFLOW_DAILY.id(),
         TriggerInstantSpec.create(parse("2016-10-02T00:00:00Z"), parse("2016-10-03T00:00:00Z")));
@@ -128,7 +139,7 @@ public class TriggerManagerTest {
     setupWithNextNaturalTrigger(false, parse("2016-10-09T00:00:00Z"));
     triggerManager.tick();
 
-    verify(triggerListener, never()).event(any(), any(), any(), any());
+    verify(triggerListener, never()).naturalEvent(any(), any(), any());
     verify(storage).updateNextNaturalTrigger(
         WORKFLOW_DAILY.id(),
         TriggerInstantSpec.create(parse("2016-10-10T00:00:00Z"), parse("2016-10-11T00:00:00Z")));
@@ -139,7 +150,7 @@ public class TriggerManagerTest {
     setupWithNextNaturalTrigger(true, parse("2016-10-11T00:00:00Z"));
     triggerManager.tick();
 
-    verify(triggerListener, never()).event(any(), any(), any(), any());
+    verify(triggerListener, never()).naturalEvent(any(), any(), any());
     verify(storage, never()).updateNextNaturalTrigger(any(), any());
   }
 
@@ -147,14 +158,14 @@ public class TriggerManagerTest {
   public void shouldNotTriggerExecutionOnDisabledGlobally() throws IOException {
     when(config.globalEnabled()).thenReturn(false);
     triggerManager.tick();
-    verify(triggerListener, never()).event(any(), any(), any(), any());
+    verify(triggerListener, never()).naturalEvent(any(), any(), any());
     verify(storage, never()).updateNextNaturalTrigger(any(), any());
   }
 
   @Test
   public void shouldNotUpdateNextNaturalTriggerIfTriggerListenerThrows() throws Exception {
     setupWithNextNaturalTrigger(true, parse("2016-10-01T00:00:00Z"));
-    doThrow(new RuntimeException()).when(triggerListener).event(any(), any(), any(), any());
+    doThrow(new RuntimeException()).when(triggerListener).naturalEvent(any(), any(), any());
     triggerManager.tick();
 
     verify(storage, never()).updateNextNaturalTrigger(any(), any());
@@ -164,7 +175,7 @@ public class TriggerManagerTest {
   public void shouldUpdateNextNaturalTriggerIfAlreadyInitialized() throws Exception {
     setupWithNextNaturalTrigger(true, parse("2016-10-01T00:00:00Z"));
     doThrow(new AlreadyInitializedException("")).
-        when(triggerListener).event(any(), any(), any(), any());
+        when(triggerListener).naturalEvent(any(), any(), any());
     triggerManager.tick();
 
     verify(storage).updateNextNaturalTrigger(
@@ -176,7 +187,7 @@ public class TriggerManagerTest {
   public void shouldNotUpdateNextNaturalTriggerIfOtherException() throws Exception {
     setupWithNextNaturalTrigger(true, parse("2016-10-01T00:00:00Z"));
     doThrow(new RuntimeException())
-        .when(triggerListener).event(any(), any(), any(), any());
+        .when(triggerListener).naturalEvent(any(), any(), any());
     triggerManager.tick();
 
     verify(storage, never()).updateNextNaturalTrigger(
@@ -184,7 +195,71 @@ public class TriggerManagerTest {
         TriggerInstantSpec.create(parse("2016-10-02T00:00:00Z"), parse("2016-10-03T00:00:00Z")));
   }
 
+  @Test
+  public void shouldTriggerExecutionAtInstantWithinLookahead() throws Exception {
+    triggerManager.close();
+    triggerManager = new TriggerManager(triggerListener, MANAGER_TIME, storage, Stats.NOOP,
+        Duration.ofSeconds(2), Duration.ZERO);
+    setupWithNextNaturalTrigger(true, parse("2016-10-09T00:00:00Z"),
+        MANAGER_TIME.get().plusMillis(500));
+    when(triggerListener.naturalEvent(any(), any(), any())).thenReturn(true);
+
+    triggerManager.tick();
+    // A second tick before the trigger instant must not schedule it again
+    triggerManager.tick();
+
+    verify(triggerListener, timeout(60_000)).naturalEvent(WORKFLOW_DAILY, parse("2016-10-09T00:00:00Z"),
+        TriggerInstantSpec.create(parse("2016-10-10T00:00:00Z"), parse("2016-10-11T00:00:00Z")));
+  }
+
+  @Test
+  public void shouldNotTriggerExecutionWithinComponentJitter() throws IOException {
+    triggerManager.close();
+    triggerManager = new TriggerManager(triggerListener, MANAGER_TIME, storage, Stats.NOOP,
+        Duration.ZERO, Duration.ofHours(1));
+    // the jitter of component "comp" is ~51 minutes out of the max 1 hour
+    setupWithNextNaturalTrigger(true, parse("2016-10-09T00:00:00Z"),
+        MANAGER_TIME.get().minus(Duration.ofMinutes(1)));
+
+    triggerManager.tick();
+
+    verify(triggerListener, never()).naturalEvent(any(), any(), any());
+    verify(storage, never()).updateNextNaturalTrigger(any(), any());
+  }
+
+  @Test
+  public void shouldTriggerExecutionAfterComponentJitter() throws IOException {
+    triggerManager.close();
+    triggerManager = new TriggerManager(triggerListener, MANAGER_TIME, storage, Stats.NOOP,
+        Duration.ZERO, Duration.ofHours(1));
+    setupWithNextNaturalTrigger(true, parse("2016-10-09T00:00:00Z"),
+        MANAGER_TIME.get().minus(Duration.ofHours(1)));
+
+    triggerManager.tick();
+
+    verify(triggerListener).naturalEvent(eq(WORKFLOW_DAILY), eq(parse("2016-10-09T00:00:00Z")), any());
+  }
+
+  @Test
+  public void shouldTriggerExecutionWithSubMillisecondMaxJitter() throws IOException {
+    triggerManager.close();
+    triggerManager = new TriggerManager(triggerListener, MANAGER_TIME, storage, Stats.NOOP,
+        Duration.ZERO, Duration.ofNanos(500));
+    setupWithNextNaturalTrigger(true, parse("2016-10-09T00:00:00Z"),
+        MANAGER_TIME.get().minus(Duration.ofMinutes(1)));
+
+    triggerManager.tick();
+
+    verify(triggerListener).naturalEvent(eq(WORKFLOW_DAILY), eq(parse("2016-10-09T00:00:00Z")), any());
+  }
+
   private void setupWithNextNaturalTrigger(boolean enabled, Instant nextNaturalTrigger) throws IOException {
+    setupWithNextNaturalTrigger(enabled, nextNaturalTrigger,
+        WORKFLOW_DAILY.configuration().addOffset(nextNaturalTrigger));
+  }
+
+  private void setupWithNextNaturalTrigger(boolean enabled, Instant nextNaturalTrigger, Instant offset)
+      throws IOException {
     when(config.globalEnabled()).thenReturn(true);
     if (enabled) {
       when(storage.enabled()).thenReturn(ImmutableSet.of(WORKFLOW_DAILY.id()));
@@ -192,7 +267,6 @@ public class TriggerManagerTest {
       when(storage.enabled()).thenReturn(ImmutableSet.of());
     }
 
-    Instant offset = WORKFLOW_DAILY.configuration().addOffset(nextNaturalTrigger);
     TriggerInstantSpec spec = TriggerInstantSpec.create(nextNaturalTrigger, offset);
 
     when(storage.workflowsWithNextNaturalTrigger())
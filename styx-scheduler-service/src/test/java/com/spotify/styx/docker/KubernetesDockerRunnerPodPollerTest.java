@@ -20,6 +20,7 @@
 
 package com.spotify.styx.docker;
 
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Mockito.never;
@@ -29,6 +30,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import com.spotify.styx.QuietDeterministicScheduler;
 import com.spotify.styx.docker.KubernetesDockerRunner.KubernetesSecretSpec;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.WorkflowInstance;
@@ -48,12 +50,13 @@ import io.fabric8.kubernetes.api.model.PodStatusBuilder;
 import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.PodResource;
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -102,12 +105,18 @@ public class KubernetesDockerRunnerPodPollerTest {
     when(k8sClient.pods()).thenReturn(pods);
 
     kdr = new KubernetesDockerRunner(k8sClient, stateManager, stats, serviceAccountSecretManager,
-        debug, STYX_ENVIRONMENT, Set.of());
+        debug, STYX_ENVIRONMENT, Set.of(), 60, 120, Instant::now, new QuietDeterministicScheduler(),
+        KubernetesSubmissionMode.POD);
     podList = new PodList();
     podList.setMetadata(new ListMeta());
     podList.getMetadata().setResourceVersion("4711");
   }
 
+  @After
+  public void tearDown() throws Exception {
+    kdr.close();
+  }
+
   @Test
   public void shouldSendRunErrorWhenPodForRunningWFIDoesntExist() {
     when(namedPod1.get()).thenReturn(null);
@@ -149,6 +158,7 @@ public class KubernetesDockerRunnerPodPollerTest {
     when(k8sClient.pods().list()).thenReturn(podList);
     setupActiveInstances(RunState.State.SUBMITTED, POD_NAME, POD_NAME_2);
 
+    kdr.init();
     kdr.tryCleanupPods();
 
     verifyZeroInteractions(stateManager);
@@ -174,12 +184,37 @@ public class KubernetesDockerRunnerPodPollerTest {
     when(podStatus2.getContainerStatuses()).thenReturn(List.of(containerStatus2));
     when(containerStatus2.getName()).thenReturn(RUN_SPEC_2.executionId());
 
+    kdr.init();
     kdr.tryCleanupPods();
 
     verify(pods).delete(createdPod1);
     verify(pods).delete(createdPod2);
   }
 
+  @Test
+  public void shouldNotDeletePodsOfOtherEnvironments() {
+    final Pod createdPod1 = createPod(WORKFLOW_INSTANCE, RUN_SPEC, SECRET_SPEC);
+    final Pod createdPod2 = KubernetesDockerRunner.createPod(WORKFLOW_INSTANCE_2, RUN_SPEC_2, SECRET_SPEC,
+        "production");
+
+    podList.setItems(Arrays.asList(createdPod1, createdPod2));
+    when(k8sClient.pods().list()).thenReturn(podList);
+    when(k8sClient.pods().withName(RUN_SPEC.executionId())).thenReturn(namedPod1);
+    when(namedPod1.get()).thenReturn(createdPod1);
+
+    createdPod1.setStatus(podStatus1);
+    when(podStatus1.getContainerStatuses()).thenReturn(List.of(containerStatus1));
+    when(containerStatus1.getName()).thenReturn(RUN_SPEC.executionId());
+
+    kdr.init();
+    kdr.tryCleanupPods();
+
+    verify(pods).delete(createdPod1);
+    verify(pods, never()).delete(createdPod2);
+    verify(stateManager).getActiveStates(List.of(WORKFLOW_INSTANCE));
+    verifyNoMoreInteractions(stateManager);
+  }
+
   @Test
   public void shouldNotDeleteUnwantedStyxPodsIfDebugEnabled() {
     when(debug.get()).thenReturn(true);
@@ -196,6 +231,7 @@ public class KubernetesDockerRunnerPodPollerTest {
     createdPod1.setStatus(new PodStatusBuilder().withContainerStatuses().build());
     createdPod2.setStatus(new PodStatusBuilder().withContainerStatuses().build());
 
+    kdr.init();
     kdr.tryCleanupPods();
 
     verifyPodNeverDeleted(namedPod1);
@@ -213,6 +249,7 @@ public class KubernetesDockerRunnerPodPollerTest {
     podList.setItems(Arrays.asList(createdPod1, createdPod2));
     when(k8sClient.pods().list()).thenReturn(podList);
 
+    kdr.init();
     kdr.tryCleanupPods();
 
     verifyPodNeverDeleted(namedPod1);
@@ -231,6 +268,7 @@ public class KubernetesDockerRunnerPodPollerTest {
 
     setupActiveInstances(RunState.State.RUNNING, RUN_SPEC.executionId(), RUN_SPEC_2.executionId());
 
+    kdr.init();
     kdr.tryCleanupPods();
 
     verify(k8sClient.pods(), never()).delete(any(Pod.class));
@@ -247,8 +285,7 @@ public class KubernetesDockerRunnerPodPollerTest {
     RunState runState2 = RunState.create(WORKFLOW_INSTANCE_2, state, stateData2);
     map.put(WORKFLOW_INSTANCE, runState);
     map.put(WORKFLOW_INSTANCE_2, runState2);
-    when(stateManager.getActiveState(any())).thenAnswer(a ->
-        Optional.ofNullable(map.get(a.<WorkflowInstance>getArgument(0))));
+    when(stateManager.getActiveStates(anyList())).thenReturn(map);
     return map;
   }
 
@@ -31,6 +31,8 @@ import static com.spotify.styx.docker.KubernetesDockerRunner.LOGGING;
 import static com.spotify.styx.docker.KubernetesDockerRunner.MAIN_CONTAINER_NAME;
 import static com.spotify.styx.docker.KubernetesDockerRunner.PARAMETER;
 import static com.spotify.styx.docker.KubernetesDockerRunner.SERVICE_ACCOUNT;
+import static com.spotify.styx.docker.KubernetesDockerRunner.STYX_ENVIRONMENT_LABEL;
+import static com.spotify.styx.docker.KubernetesDockerRunner.STYX_WORKFLOW_ID_LABEL;
 import static com.spotify.styx.docker.KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION;
 import static com.spotify.styx.docker.KubernetesDockerRunner.TERMINATION_LOG;
 import static com.spotify.styx.docker.KubernetesDockerRunner.TRIGGER_ID;
@@ -43,6 +45,7 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
+import com.google.common.base.Strings;
 import com.spotify.styx.docker.KubernetesDockerRunner.KubernetesSecretSpec;
 import com.spotify.styx.model.WorkflowConfiguration;
 import com.spotify.styx.model.WorkflowInstance;
@@ -125,6 +128,24 @@ public class KubernetesDockerRunnerPodResourceTest {
     assertThat(workflowInstance, is(WORKFLOW_INSTANCE));
   }
 
+  @Test
+  public void shouldAddEnvironmentAndWorkflowIdLabels() {
+    Pod pod = createPod(
+        WORKFLOW_INSTANCE,
+        DockerRunner.RunSpec.simple("eid", "busybox"), EMPTY_SECRET_SPEC);
+
+    Map<String, String> labels = pod.getMetadata().getLabels();
+    assertThat(labels, hasEntry(STYX_ENVIRONMENT_LABEL, STYX_ENVIRONMENT));
+    assertThat(labels, hasEntry(STYX_WORKFLOW_ID_LABEL, "styx-styx.TestEndpoint"));
+  }
+
+  @Test
+  public void shouldSanitizeLabelValues() {
+    assertThat(KubernetesDockerRunner.labelValue("foo#bar"), is("foo-bar"));
+    assertThat(KubernetesDockerRunner.labelValue("_foo/bar."), is("foo-bar"));
+    assertThat(KubernetesDockerRunner.labelValue(Strings.repeat("a", 62) + "#b"), is(Strings.repeat("a", 62)));
+  }
+
   @Test
   public void shouldDisableTerminationLoggingWhenFalse() {
     Pod pod = createPod(
@@ -20,14 +20,19 @@
 
 package com.spotify.styx.docker;
 
+import static com.spotify.styx.docker.KubernetesDockerRunner.JOB_NAME_LABEL;
+import static com.spotify.styx.docker.KubernetesDockerRunner.JOB_TTL_SECONDS_AFTER_FINISHED;
 import static com.spotify.styx.docker.KubernetesDockerRunner.KEEPALIVE_CONTAINER_NAME;
 import static com.spotify.styx.docker.KubernetesDockerRunner.MAIN_CONTAINER_NAME;
+import static com.spotify.styx.docker.KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION;
 import static com.spotify.styx.docker.KubernetesPodEventTranslatorTest.podStatusNoContainer;
 import static com.spotify.styx.docker.KubernetesPodEventTranslatorTest.setRunning;
 import static com.spotify.styx.docker.KubernetesPodEventTranslatorTest.setTerminated;
 import static com.spotify.styx.docker.KubernetesPodEventTranslatorTest.setWaiting;
 import static com.spotify.styx.docker.KubernetesPodEventTranslatorTest.terminated;
 import static com.spotify.styx.docker.KubernetesPodEventTranslatorTest.terminatedContainerState;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
@@ -36,6 +41,7 @@ import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -62,6 +68,7 @@ import com.spotify.styx.state.StateManager;
 import com.spotify.styx.state.StateTransitionConflictException;
 import com.spotify.styx.testdata.TestData;
 import com.spotify.styx.util.Debug;
+import com.spotify.styx.util.IsClosedException;
 import com.spotify.styx.util.Time;
 import io.fabric8.kubernetes.api.model.Container;
 import io.fabric8.kubernetes.api.model.ContainerState;
@@ -69,7 +76,11 @@ import io.fabric8.kubernetes.api.model.ContainerStateTerminated;
 import io.fabric8.kubernetes.api.model.ContainerStatus;
 import io.fabric8.kubernetes.api.model.ContainerStatusBuilder;
 import io.fabric8.kubernetes.api.model.DoneablePod;
+import io.fabric8.kubernetes.api.model.DoneableEvent;
 import io.fabric8.kubernetes.api.model.DoneableSecret;
+import io.fabric8.kubernetes.api.model.EnvVar;
+import io.fabric8.kubernetes.api.model.EventBuilder;
+import io.fabric8.kubernetes.api.model.EventList;
 import io.fabric8.kubernetes.api.model.ListMeta;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodBuilder;
@@ -84,14 +95,21 @@ import io.fabric8.kubernetes.api.model.SecretList;
 import io.fabric8.kubernetes.api.model.SecretVolumeSource;
 import io.fabric8.kubernetes.api.model.StatusBuilder;
 import io.fabric8.kubernetes.api.model.Volume;
+import io.fabric8.kubernetes.api.model.batch.DoneableJob;
+import io.fabric8.kubernetes.api.model.batch.Job;
+import io.fabric8.kubernetes.api.model.batch.JobList;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.Watcher.Action;
+import io.fabric8.kubernetes.client.dsl.BatchAPIGroupDSL;
+import io.fabric8.kubernetes.client.dsl.EditReplacePatchDeletable;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.PodResource;
 import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.dsl.ScalableResource;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
@@ -184,9 +202,20 @@ public class KubernetesDockerRunnerTest {
   @Mock private Debug debug;
   @Mock private Time time;
   @Mock private StateManager stateManager;
+  @Mock private BatchAPIGroupDSL batch;
+  @Mock private MixedOperation<Job, JobList, DoneableJob, ScalableResource<Job, DoneableJob>> jobs;
+  @Mock private ScalableResource<Job, DoneableJob> namedJob;
+  @Mock private EditReplacePatchDeletable<Job, Job, DoneableJob, Boolean> nonCascadingJob;
+  @Mock private FilterWatchListDeletable<Pod, PodList, Boolean, Watch, Watcher<Pod>> jobPods;
+  @Mock private MixedOperation<io.fabric8.kubernetes.api.model.Event, EventList, DoneableEvent,
+      Resource<io.fabric8.kubernetes.api.model.Event, DoneableEvent>> k8sEvents;
+  @Mock private FilterWatchListDeletable<io.fabric8.kubernetes.api.model.Event, EventList, Boolean, Watch,
+      Watcher<io.fabric8.kubernetes.api.model.Event>> podK8sEvents;
 
   @Captor private ArgumentCaptor<Watcher<Pod>> watchCaptor;
+  @Captor private ArgumentCaptor<Watcher<io.fabric8.kubernetes.api.model.Event>> k8sEventWatchCaptor;
   @Captor private ArgumentCaptor<Pod> podCaptor;
+  @Captor private ArgumentCaptor<Job> jobCaptor;
 
   @Rule public ExpectedException exception = ExpectedException.none();
 
@@ -194,7 +223,9 @@ public class KubernetesDockerRunnerTest {
   private Stats stats = mock(Stats.class);
 
   private KubernetesDockerRunner kdr;
+  private KubernetesDockerRunner jobKdr;
   private Watcher<Pod> podWatcher;
+  private Watcher<io.fabric8.kubernetes.api.model.Event> k8sEventWatcher;
   private QuietDeterministicScheduler executor = new QuietDeterministicScheduler();
   private ContainerStatus keepaliveContainerStatus = new ContainerStatusBuilder()
       .withName(KEEPALIVE_CONTAINER_NAME)
@@ -217,7 +248,11 @@ public class KubernetesDockerRunnerTest {
     when(podList.getMetadata()).thenReturn(listMeta);
     when(listMeta.getResourceVersion()).thenReturn("1000");
 
-    when(pods.watch(watchCaptor.capture())).thenReturn(watch);
+    when(pods.watch(anyString(), watchCaptor.capture())).thenReturn(watch);
+
+    when(k8sClient.events()).thenReturn(k8sEvents);
+    when(k8sEvents.withField("involvedObject.kind", "Pod")).thenReturn(podK8sEvents);
+    when(podK8sEvents.watch(anyString(), k8sEventWatchCaptor.capture())).thenReturn(watch);
 
     when(serviceAccountSecretManager.ensureServiceAccountKeySecret(
         WORKFLOW_INSTANCE.workflowId().toString(), SERVICE_ACCOUNT))
@@ -225,32 +260,36 @@ public class KubernetesDockerRunnerTest {
 
     when(time.get()).thenReturn(FIXED_INSTANT);
 
+    Map<String, String> annotations = new HashMap<>();
+    annotations.put(KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION, WORKFLOW_INSTANCE.toKey());
+    createdPod.getMetadata().setAnnotations(annotations);
+    createdPod.getMetadata().setName(POD_NAME);
+    createdPod.getMetadata().setResourceVersion("1001");
+
     kdr = new KubernetesDockerRunner(k8sClient, stateManager, stats, serviceAccountSecretManager,
         debug, STYX_ENVIRONMENT, SECRET_WHITELIST, POD_CLEANUP_INTERVAL_SECONDS, POD_DELETION_DELAY_SECONDS, time,
-        executor);
+        executor, KubernetesSubmissionMode.POD);
     kdr.init();
 
-    verify(k8sClient).pods();
-    verify(pods).watch(any());
+    verify(pods).list();
+    verify(pods).watch(eq("1000"), any());
 
     podWatcher = watchCaptor.getValue();
-
-    Map<String, String> annotations = new HashMap<>();
-    annotations.put(KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION, WORKFLOW_INSTANCE.toKey());
-    createdPod.getMetadata().setAnnotations(annotations);
-    createdPod.getMetadata().setName(POD_NAME);
-    createdPod.getMetadata().setResourceVersion("1001");
+    k8sEventWatcher = k8sEventWatchCaptor.getValue();
 
     StateData stateData = StateData.newBuilder().executionId(POD_NAME).build();
     RunState runState = RunState.create(WORKFLOW_INSTANCE, State.SUBMITTED, stateData);
 
-    when(stateManager.getActiveStates()).thenReturn(Map.of(WORKFLOW_INSTANCE, runState));
+    when(stateManager.getActiveStates(anyList())).thenReturn(Map.of(WORKFLOW_INSTANCE, runState));
     when(stateManager.getActiveState(WORKFLOW_INSTANCE)).thenReturn(Optional.of(runState));
   }
 
   @After
   public void tearDown() throws Exception {
     kdr.close();
+    if (jobKdr != null) {
+      jobKdr.close();
+    }
   }
 
   @Test
@@ -265,13 +304,11 @@ public class KubernetesDockerRunnerTest {
 
   @Test
   public void shouldCheckIfPodExistsBeforeCreating() throws IOException {
-    when(pods.withName(any())).thenReturn(namedPod);
-    when(namedPod.get()).thenReturn(createdPod);
-    kdr.start(WORKFLOW_INSTANCE, RUN_SPEC);
-    verify(pods).withName(RUN_SPEC.executionId());
-    verify(namedPod).get();
+    kdr.start(WORKFLOW_INSTANCE, RunSpec.simple(POD_NAME, "busybox"));
+    verify(pods).list();
+    verify(pods).watch(eq("1000"), any());
     verifyNoMoreInteractions(pods);
-    verifyNoMoreInteractions(namedPod);
+    verifyZeroInteractions(namedPod);
     verifyZeroInteractions(stateManager);
   }
 
@@ -283,6 +320,30 @@ public class KubernetesDockerRunnerTest {
     assertThat(submittedPod.getMetadata().getName(), is(RUN_SPEC.executionId()));
   }
 
+  @Test
+  public void shouldStampExecutionFieldsOntoCachedPodTemplate() throws IOException {
+    final WorkflowInstance otherInstance = WorkflowInstance.create(TestData.WORKFLOW_ID, "bar");
+    final RunSpec otherRunSpec = RunSpec.simple("eid1", "busybox", "--other");
+
+    kdr.start(WORKFLOW_INSTANCE, RUN_SPEC);
+    kdr.start(otherInstance, otherRunSpec);
+
+    verify(pods, times(2)).create(podCaptor.capture());
+    final Pod first = podCaptor.getAllValues().get(0);
+    final Pod second = podCaptor.getAllValues().get(1);
+    assertThat(first, is(createPod(WORKFLOW_INSTANCE, RUN_SPEC, EMPTY_SECRET_SPEC)));
+    assertThat(second, is(createPod(otherInstance, otherRunSpec, EMPTY_SECRET_SPEC)));
+
+    final Container mainContainer = second.getSpec().getContainers().get(0);
+    assertThat(mainContainer.getArgs(), contains("--other"));
+    assertThat(mainContainer.getEnv().stream()
+        .filter(e -> e.getName().equals(KubernetesDockerRunner.EXECUTION_ID))
+        .map(EnvVar::getValue)
+        .collect(toList()), contains("eid1"));
+    assertThat(second.getMetadata().getAnnotations().get(STYX_WORKFLOW_INSTANCE_ANNOTATION),
+        is(otherInstance.toKey()));
+  }
+
   @Test
   public void shouldCreateMainContainerAndKeepaliveContainer() throws IOException {
     kdr.start(WORKFLOW_INSTANCE, RUN_SPEC);
@@ -445,7 +506,7 @@ public class KubernetesDockerRunnerTest {
     createdPod.setStatus(podStatus);
     when(podStatus.getContainerStatuses()).thenReturn(List.of(containerStatus, keepaliveContainerStatus));
 
-    when(stateManager.getActiveStates()).thenReturn(Collections.emptyMap());
+    when(stateManager.getActiveStates(anyList())).thenReturn(Collections.emptyMap());
 
     kdr.tryCleanupPods();
 
@@ -464,7 +525,7 @@ public class KubernetesDockerRunnerTest {
     createdPod.setStatus(podStatus);
     when(podStatus.getContainerStatuses()).thenReturn(List.of(containerStatus, keepaliveContainerStatus));
 
-    when(stateManager.getActiveStates()).thenReturn(Collections.emptyMap());
+    when(stateManager.getActiveStates(anyList())).thenReturn(Collections.emptyMap());
 
     kdr.tryCleanupPods();
 
@@ -644,7 +705,26 @@ public class KubernetesDockerRunnerTest {
   @Test
   public void shouldCleanupServiceAccountSecrets() throws Exception {
     kdr.cleanup();
-    verify(serviceAccountSecretManager).cleanup();
+    verify(serviceAccountSecretManager).cleanup(Set.of());
+  }
+
+  @Test
+  public void shouldNotCleanupServiceAccountSecretsReferencedByPods() throws Exception {
+    final Pod pod = createPod(WORKFLOW_INSTANCE, RUN_SPEC_WITH_SA, SECRET_SPEC_WITH_SA);
+    podWatcher.eventReceived(Action.ADDED, pod);
+
+    kdr.cleanup();
+
+    verify(serviceAccountSecretManager).cleanup(Set.of(SERVICE_ACCOUNT_SECRET));
+  }
+
+  @Test
+  public void shouldNotCleanupServiceAccountSecretsWhileNotWatchingPods() throws Exception {
+    podWatcher.onClose(new KubernetesClientException("Connection reset", 500, null));
+
+    kdr.cleanup();
+
+    verify(serviceAccountSecretManager, never()).cleanup(any());
   }
 
   @Test
@@ -769,11 +849,53 @@ public class KubernetesDockerRunnerTest {
         -1);
   }
 
+  @Test
+  public void shouldFailOnPullImageBackOffEvent() throws Exception {
+    setWaiting(createdPod, "Pending", "ContainerCreating");
+    createdPod.getMetadata().setUid("uid-1");
+    receiveAndProcessEvent(Watcher.Action.MODIFIED, createdPod);
+
+    k8sEventWatcher.eventReceived(Watcher.Action.ADDED, pullImageBackOffEvent(POD_NAME, "uid-1"));
+    executor.tick(10, TimeUnit.SECONDS);
+
+    verify(stats).recordPullImageError();
+    verify(stateManager).receive(
+        Event.runError(WORKFLOW_INSTANCE, "One or more containers failed to pull their image: BackOff: foobar"),
+        -1);
+  }
+
+  @Test
+  public void shouldIgnorePullImageBackOffEventOfPreviousPod() throws Exception {
+    setWaiting(createdPod, "Pending", "ContainerCreating");
+    createdPod.getMetadata().setUid("uid-2");
+    receiveAndProcessEvent(Watcher.Action.MODIFIED, createdPod);
+
+    k8sEventWatcher.eventReceived(Watcher.Action.ADDED, pullImageBackOffEvent(POD_NAME, "uid-1"));
+    executor.tick(10, TimeUnit.SECONDS);
+
+    verify(stats, never()).recordPullImageError();
+    verify(stateManager, never()).receive(any(), anyLong());
+  }
+
+  @Test
+  public void shouldIgnorePullImageBackOffEventOfStartedPod() throws Exception {
+    setRunning(createdPod, false);
+    createdPod.getMetadata().setUid("uid-1");
+    receiveAndProcessEvent(Watcher.Action.MODIFIED, createdPod);
+
+    k8sEventWatcher.eventReceived(Watcher.Action.ADDED, pullImageBackOffEvent(POD_NAME, "uid-1"));
+    executor.tick(10, TimeUnit.SECONDS);
+
+    verify(stats, never()).recordPullImageError();
+    verify(stateManager, never()).receive(any(), anyLong());
+  }
+
   @Test
   public void shouldNotSendStatsOnOtherError() {
     createdPod.setStatus(podStatusNoContainer("Succeeded"));
     receiveAndProcessEvent(Watcher.Action.MODIFIED, createdPod);
 
+    verify(stats).registerPodWatchUptimeMetric(any());
     verifyNoMoreInteractions(stats);
   }
 
@@ -815,6 +937,9 @@ public class KubernetesDockerRunnerTest {
 
   @Test
   public void shouldGenerateStartedAndRecordSubmitToRunningTimeWhenContainerIsReady() throws Exception {
+    // The pod does not exist yet
+    podWatcher.eventReceived(Action.DELETED, createdPod);
+
     when(time.nanoTime()).thenReturn(TimeUnit.SECONDS.toNanos(17));
     kdr.start(WORKFLOW_INSTANCE, RunSpec.simple(POD_NAME, "busybox"));
     verify(stats).recordSubmission(POD_NAME);
@@ -834,6 +959,46 @@ public class KubernetesDockerRunnerTest {
     verify(stats).recordRunning(POD_NAME);
   }
 
+  @Test
+  public void shouldProcessPodUpdatesWithoutDelay() throws Exception {
+    setTerminated(createdPod, "Succeeded", 20, null);
+    podWatcher.eventReceived(Action.MODIFIED, createdPod);
+    executor.runUntilIdle();
+
+    verify(stateManager).receive(Event.terminate(WORKFLOW_INSTANCE, Optional.of(20)), 0);
+    verify(namedPod, never()).get();
+  }
+
+  @Test
+  public void shouldProcessOnlyLatestPendingPodUpdate() throws Exception {
+    final Pod runningPod = new PodBuilder(createdPod)
+        .editMetadata().withResourceVersion("1002").endMetadata()
+        .build();
+    setRunning(runningPod, /* ready= */ true);
+    final Pod stalePod = new PodBuilder(createdPod)
+        .editMetadata().withResourceVersion("1001").endMetadata()
+        .withStatus(podStatusNoContainer("Unknown"))
+        .build();
+
+    podWatcher.eventReceived(Action.MODIFIED, runningPod);
+    podWatcher.eventReceived(Action.MODIFIED, stalePod);
+    executor.runUntilIdle();
+
+    verify(stateManager).receive(Event.started(WORKFLOW_INSTANCE), -1);
+    verify(stateManager, never()).receive(Event.runError(WORKFLOW_INSTANCE, "Pod entered Unknown phase"), -1);
+  }
+
+  @Test
+  public void shouldOrderPodSnapshotsByResourceVersion() {
+    final Pod older = new PodBuilder().withNewMetadata().withResourceVersion("9").endMetadata().build();
+    final Pod newer = new PodBuilder().withNewMetadata().withResourceVersion("10").endMetadata().build();
+    final Pod opaque = new PodBuilder().withNewMetadata().withResourceVersion("foo").endMetadata().build();
+
+    assertThat(KubernetesDockerRunner.latestPod(older, newer), is(newer));
+    assertThat(KubernetesDockerRunner.latestPod(newer, older), is(newer));
+    assertThat(KubernetesDockerRunner.latestPod(newer, opaque), is(opaque));
+  }
+
   @Test
   public void shouldDiscardChangesForOldExecutions() throws Exception {
     kdr.start(WORKFLOW_INSTANCE, RUN_SPEC);
@@ -849,13 +1014,11 @@ public class KubernetesDockerRunnerTest {
 
   @Test
   public void shouldPollPodStatusAndEmitEvents() throws Exception {
-    when(k8sClient.pods().withName(createdPod.getMetadata().getName())).thenReturn(namedPod);
-
-    // Change the pod status to terminated without notifying the runner through the pod watcher
+    // Change the cached pod status to terminated without processing the pod update
     final Pod terminatedPod = new PodBuilder(createdPod)
         .withStatus(terminated("Succeeded", 20, null))
         .build();
-    when(namedPod.get()).thenReturn(terminatedPod);
+    podWatcher.eventReceived(Action.MODIFIED, terminatedPod);
 
     // Poll for execution status
     var stateData = StateData.newBuilder().executionId(POD_NAME).build();
@@ -873,13 +1036,11 @@ public class KubernetesDockerRunnerTest {
 
   @Test
   public void shouldTolerateTransitionConflictWhenEmittingEvents() throws Exception {
-    when(k8sClient.pods().withName(createdPod.getMetadata().getName())).thenReturn(namedPod);
-
-    // Change the pod status to terminated without notifying the runner through the pod watcher
+    // Change the cached pod status to terminated without processing the pod update
     final Pod terminatedPod = new PodBuilder(createdPod)
         .withStatus(terminated("Succeeded", 20, null))
         .build();
-    when(namedPod.get()).thenReturn(terminatedPod);
+    podWatcher.eventReceived(Action.MODIFIED, terminatedPod);
 
     doThrow(new StateTransitionConflictException("foo!"))
         .when(stateManager).receive(any(), anyLong());
@@ -905,7 +1066,7 @@ public class KubernetesDockerRunnerTest {
 
     when(k8sClient.pods().withName("foobar")).thenReturn(namedPod);
     when(namedPod.get()).thenReturn(pod);
-    when(podList.getItems()).thenReturn(List.of(pod));
+    podWatcher.eventReceived(Action.ADDED, pod);
 
     assertThat(Try.run(() -> kdr.tryCleanupPods()).isSuccess(), is(true));
   }
@@ -928,6 +1089,123 @@ public class KubernetesDockerRunnerTest {
     assertThat(KubernetesDockerRunner.isMainContainer("foobar", createdPod), is(false));
   }
 
+  @Test
+  public void shouldCreateJobInJobMode() throws IOException {
+    setUpJobMode();
+
+    jobKdr.start(WORKFLOW_INSTANCE, RUN_SPEC);
+
+    verify(jobs).create(jobCaptor.capture());
+    verify(pods, never()).create(any(Pod.class));
+    final Job job = jobCaptor.getValue();
+    assertThat(job.getMetadata().getName(), is(RUN_SPEC.executionId()));
+    assertThat(job.getMetadata().getAnnotations().get(KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION),
+        is(WORKFLOW_INSTANCE.toKey()));
+    assertThat(job.getSpec().getBackoffLimit(), is(0));
+    assertThat(job.getSpec().getAdditionalProperties().get(JOB_TTL_SECONDS_AFTER_FINISHED),
+        is((long) POD_DELETION_DELAY_SECONDS));
+    assertThat(job.getSpec().getTemplate().getMetadata().getName(), is(nullValue()));
+    assertThat(job.getSpec().getTemplate().getMetadata().getAnnotations()
+        .get(KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION), is(WORKFLOW_INSTANCE.toKey()));
+    assertThat(job.getSpec().getTemplate().getSpec().getRestartPolicy(), is("Never"));
+    assertThat(job.getSpec().getTemplate().getSpec().getContainers().size(), is(1));
+    assertThat(job.getSpec().getTemplate().getSpec().getContainers().get(0).getName(), is(MAIN_CONTAINER_NAME));
+  }
+
+  @Test
+  public void shouldNotCreateJobIfJobPodExists() throws IOException {
+    createdPod.getMetadata().setName(RUN_SPEC.executionId() + "-x7k2p");
+    createdPod.getMetadata().setLabels(Map.of(JOB_NAME_LABEL, RUN_SPEC.executionId()));
+    setUpJobMode();
+
+    jobKdr.start(WORKFLOW_INSTANCE, RUN_SPEC);
+
+    verify(jobs, never()).create(any(Job.class));
+  }
+
+  @Test
+  public void shouldPollJobPodByJobName() throws IsClosedException {
+    createdPod.getMetadata().setName(POD_NAME + "-x7k2p");
+    createdPod.getMetadata().setLabels(Map.of(JOB_NAME_LABEL, POD_NAME));
+    setTerminated(createdPod, "Succeeded", 0, null);
+    setUpJobMode();
+
+    var runState = RunState.create(WORKFLOW_INSTANCE, State.RUNNING,
+        StateData.newBuilder().executionId(POD_NAME).build());
+    jobKdr.poll(runState);
+
+    verify(stateManager).receive(Event.terminate(WORKFLOW_INSTANCE, Optional.of(0)), runState.counter());
+  }
+
+  @Test
+  public void shouldDeleteJobOnCleanupIfNotTerminated() {
+    setUpJobMode();
+
+    jobKdr.cleanup(WORKFLOW_INSTANCE, "eid-running");
+
+    verify(jobs).withName("eid-running");
+    verify(nonCascadingJob).delete();
+    verify(pods).withLabel(JOB_NAME_LABEL, "eid-running");
+    verify(jobPods).delete();
+  }
+
+  @Test
+  public void shouldNotDeleteJobOnCleanupIfTerminated() {
+    createdPod.getMetadata().setLabels(Map.of(JOB_NAME_LABEL, POD_NAME));
+    setTerminated(createdPod, "Failed", 1, null);
+    setUpJobMode();
+
+    jobKdr.cleanup(WORKFLOW_INSTANCE, POD_NAME);
+
+    verifyZeroInteractions(jobs);
+  }
+
+  @Test
+  public void shouldNotDeleteJobOnCleanupInPodMode() {
+    kdr.cleanup(WORKFLOW_INSTANCE, POD_NAME);
+
+    verifyZeroInteractions(batch);
+    verifyPodNeverDeleted(namedPod);
+  }
+
+  @Test
+  public void shouldNotCleanupJobPods() {
+    createdPod.getMetadata().setLabels(Map.of(JOB_NAME_LABEL, POD_NAME));
+    setWaiting(createdPod, "Pending", "ErrImagePull");
+
+    kdr.tryCleanupPods();
+
+    verify(stateManager, never()).getActiveStates(anyList());
+    verifyPodNeverDeleted(namedPod);
+  }
+
+  @Test
+  public void shouldReadRunStatesOfPodsOnCleanup() {
+    kdr.tryCleanupPods();
+
+    verify(stateManager).getActiveStates(List.of(WORKFLOW_INSTANCE));
+    verify(stateManager, never()).getActiveStates();
+  }
+
+  @Test
+  public void shouldReadPodExecutionId() {
+    assertThat(KubernetesDockerRunner.podExecutionId(createdPod), is(POD_NAME));
+    createdPod.getMetadata().setLabels(Map.of(JOB_NAME_LABEL, "eid-job"));
+    assertThat(KubernetesDockerRunner.podExecutionId(createdPod), is("eid-job"));
+  }
+
+  private void setUpJobMode() {
+    when(k8sClient.batch()).thenReturn(batch);
+    when(batch.jobs()).thenReturn(jobs);
+    when(jobs.withName(anyString())).thenReturn(namedJob);
+    when(namedJob.cascading(false)).thenReturn(nonCascadingJob);
+    when(pods.withLabel(eq(JOB_NAME_LABEL), anyString())).thenReturn(jobPods);
+    jobKdr = new KubernetesDockerRunner(k8sClient, stateManager, stats, serviceAccountSecretManager,
+        debug, STYX_ENVIRONMENT, SECRET_WHITELIST, POD_CLEANUP_INTERVAL_SECONDS, POD_DELETION_DELAY_SECONDS, time,
+        new QuietDeterministicScheduler(), KubernetesSubmissionMode.JOB);
+    jobKdr.init();
+  }
+
   private void verifyPodNeverDeleted(PodResource<Pod, DoneablePod> pod) {
     verify(k8sClient.pods(), never()).delete(any(Pod.class));
     verify(k8sClient.pods(), never()).delete(any(Pod[].class));
@@ -940,13 +1218,24 @@ public class KubernetesDockerRunnerTest {
    * Helper to deal with asynchronous pod even handling
    */
   private void receiveAndProcessEvent(Action action, Pod pod) {
-    @SuppressWarnings("unchecked") PodResource<Pod, DoneablePod> namedPod = mock(PodResource.class);
-    when(namedPod.get()).thenReturn(pod);
-    when(pods.withName(pod.getMetadata().getName())).thenReturn(namedPod);
     podWatcher.eventReceived(action, pod);
     executor.tick(10, TimeUnit.SECONDS);
   }
 
+  private static io.fabric8.kubernetes.api.model.Event pullImageBackOffEvent(String podName, String podUid) {
+    return new EventBuilder()
+        .withType("Warning")
+        .withReason("BackOff")
+        .withMessage("foobar")
+        .withNewInvolvedObject()
+        .withKind("Pod")
+        .withName(podName)
+        .withUid(podUid)
+        .withFieldPath("spec.containers{" + MAIN_CONTAINER_NAME + "}")
+        .endInvolvedObject()
+        .build();
+  }
+
   private static Pod createPod(WorkflowInstance workflowInstance,
                                DockerRunner.RunSpec runSpec,
                                KubernetesSecretSpec secretSpec) {
@@ -0,0 +1,164 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler Service
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.docker;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.spotify.styx.QuietDeterministicScheduler;
+import io.fabric8.kubernetes.api.model.DoneableEvent;
+import io.fabric8.kubernetes.api.model.Event;
+import io.fabric8.kubernetes.api.model.EventBuilder;
+import io.fabric8.kubernetes.api.model.EventList;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.Watcher.Action;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KubernetesEventWatchTest {
+
+  private static final Event EVENT = new EventBuilder()
+      .withNewMetadata().withName("event-1").endMetadata()
+      .withReason("BackOff")
+      .build();
+
+  private final QuietDeterministicScheduler executor = new QuietDeterministicScheduler();
+
+  @Mock private NamespacedKubernetesClient k8sClient;
+  @Mock private MixedOperation<Event, EventList, DoneableEvent, Resource<Event, DoneableEvent>> events;
+  @Mock private FilterWatchListDeletable<Event, EventList, Boolean, Watch, Watcher<Event>> podEvents;
+  @Mock private Watch watch;
+  @Mock private Consumer<Event> listener;
+
+  @Captor private ArgumentCaptor<Watcher<Event>> watcherCaptor;
+
+  private Optional<String> podResourceVersion = Optional.of("100");
+
+  private KubernetesEventWatch eventWatch;
+
+  @Before
+  public void setUp() {
+    when(k8sClient.events()).thenReturn(events);
+    when(events.withField("involvedObject.kind", "Pod")).thenReturn(podEvents);
+    when(podEvents.watch(anyString(), watcherCaptor.capture())).thenReturn(watch);
+
+    eventWatch = new KubernetesEventWatch(k8sClient, executor, () -> podResourceVersion, listener);
+    eventWatch.start();
+  }
+
+  @After
+  public void tearDown() {
+    eventWatch.close();
+  }
+
+  @Test
+  public void shouldWatchFromPodResourceVersionWithoutListing() {
+    verify(podEvents).watch(eq("100"), any());
+    verify(podEvents, never()).list();
+  }
+
+  @Test
+  public void shouldForwardAddedAndModifiedEvents() {
+    final Watcher<Event> watcher = watcherCaptor.getValue();
+
+    watcher.eventReceived(Action.ADDED, EVENT);
+    watcher.eventReceived(Action.MODIFIED, EVENT);
+    watcher.eventReceived(Action.DELETED, EVENT);
+
+    verify(listener, times(2)).accept(EVENT);
+  }
+
+  @Test
+  public void shouldRestartWatchFromCurrentPodResourceVersionWhenClosed() {
+    podResourceVersion = Optional.of("200");
+    final Watcher<Event> watcher = watcherCaptor.getValue();
+
+    watcher.onClose(new KubernetesClientException("Connection reset", 500, null));
+    executor.tick(1, TimeUnit.SECONDS);
+
+    verify(podEvents).watch(eq("200"), any());
+
+    // Events of the closed watch are ignored
+    watcher.eventReceived(Action.ADDED, EVENT);
+    verify(listener, never()).accept(any());
+  }
+
+  @Test
+  public void shouldRetryFailedStart() {
+    eventWatch.close();
+    when(podEvents.watch(eq("300"), any()))
+        .thenThrow(new KubernetesClientException("Forbidden", 403, null))
+        .thenReturn(watch);
+    podResourceVersion = Optional.of("300");
+
+    eventWatch = new KubernetesEventWatch(k8sClient, executor, () -> podResourceVersion, listener);
+    eventWatch.start();
+    executor.tick(1, TimeUnit.SECONDS);
+
+    verify(podEvents, times(2)).watch(eq("300"), any());
+  }
+
+  @Test
+  public void shouldRetryStartBeforePodsAreListed() {
+    eventWatch.close();
+    podResourceVersion = Optional.empty();
+
+    eventWatch = new KubernetesEventWatch(k8sClient, executor, () -> podResourceVersion, listener);
+    eventWatch.start();
+    podResourceVersion = Optional.of("400");
+    executor.tick(1, TimeUnit.SECONDS);
+
+    verify(podEvents).watch(eq("400"), any());
+  }
+
+  @Test
+  public void shouldNotRestartWatchWhenClosed() {
+    final Watcher<Event> watcher = watcherCaptor.getValue();
+
+    eventWatch.close();
+    watcher.onClose(new KubernetesClientException("Connection reset", 500, null));
+    executor.tick(1, TimeUnit.MINUTES);
+
+    verify(watch).close();
+    verify(podEvents).watch(anyString(), any());
+  }
+}
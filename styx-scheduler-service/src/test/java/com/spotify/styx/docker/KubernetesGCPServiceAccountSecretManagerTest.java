@@ -31,9 +31,11 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.api.client.googleapis.json.GoogleJsonError;
@@ -43,15 +45,9 @@ import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.iam.v1.model.ServiceAccountKey;
 import com.google.common.hash.Hashing;
 import com.spotify.styx.ServiceAccountKeyManager;
-import com.spotify.styx.docker.DockerRunner.RunSpec;
-import com.spotify.styx.docker.KubernetesDockerRunner.KubernetesSecretSpec;
 import com.spotify.styx.model.WorkflowInstance;
-import io.fabric8.kubernetes.api.model.DoneablePod;
 import io.fabric8.kubernetes.api.model.DoneableSecret;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
-import io.fabric8.kubernetes.api.model.Pod;
-import io.fabric8.kubernetes.api.model.PodList;
-import io.fabric8.kubernetes.api.model.PodStatus;
 import io.fabric8.kubernetes.api.model.Secret;
 import io.fabric8.kubernetes.api.model.SecretBuilder;
 import io.fabric8.kubernetes.api.model.SecretList;
@@ -59,7 +55,6 @@ import io.fabric8.kubernetes.api.model.Status;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
-import io.fabric8.kubernetes.client.dsl.PodResource;
 import io.fabric8.kubernetes.client.dsl.Resource;
 import java.io.IOException;
 import java.time.Clock;
@@ -69,15 +64,16 @@ import java.time.ZoneOffset;
 import java.util.IntSummaryStatistics;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 import junitparams.JUnitParamsRunner;
-import junitparams.Parameters;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -106,26 +102,16 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
 
   private static final WorkflowInstance WORKFLOW_INSTANCE = WorkflowInstance.create(WORKFLOW_ID, "foo");
 
-  private static final RunSpec RUN_SPEC_WITH_SA = RunSpec.builder()
-      .executionId("eid")
-      .imageName("busybox")
-      .serviceAccount(SERVICE_ACCOUNT)
-      .build();
-
-  private static final String STYX_ENVIRONMENT = "testing";
-
   private ExecutorService executor;
 
   @Mock NamespacedKubernetesClient k8sClient;
 
   @Mock ServiceAccountKeyManager serviceAccountKeyManager;
 
-  @Mock MixedOperation<Pod, PodList, DoneablePod, PodResource<Pod, DoneablePod>> pods;
   @Mock MixedOperation<Secret, SecretList, DoneableSecret, Resource<Secret, DoneableSecret>> secrets;
   @Mock Resource<Secret, DoneableSecret> namedResource;
   @Mock SecretList secretList;
 
-  @Mock PodList podList;
   @Captor ArgumentCaptor<Secret> secretCaptor;
 
   KubernetesGCPServiceAccountSecretManager sut;
@@ -137,9 +123,6 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     executor = Executors.newCachedThreadPool();
 
     when(k8sClient.inNamespace(any(String.class))).thenReturn(k8sClient);
-    when(k8sClient.pods()).thenReturn(pods);
-    when(pods.list()).thenReturn(podList);
-    when(podList.getItems()).thenReturn(List.of());
 
     when(secrets.withName(any(String.class))).thenReturn(namedResource);
     when(namedResource.get()).thenReturn(null);
@@ -288,33 +271,7 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     when(secretList.getItems()).thenReturn(List.of(secret));
 
     // Verify that an unused service account key secret is deleted
-    when(podList.getItems()).thenReturn(List.of());
-    sut.cleanup();
-    verify(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT, "json-key"));
-    verify(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT, "p12-key"));
-    verify(secrets).delete(secret);
-  }
-
-  @Test
-  @Parameters({"Failed", "Succeeded"})
-  public void shouldRemoveServiceAccountSecretsAndKeysUsedByTerminatedPods(String phase) throws Exception {
-    final Secret secret = fakeServiceAccountKeySecret(
-        SERVICE_ACCOUNT, SECRET_EPOCH, "json-key", "p12-key", EXPIRED_CREATION_TIMESTAMP.toString());
-
-    when(k8sClient.secrets()).thenReturn(secrets);
-    when(secrets.list()).thenReturn(secretList);
-    when(secretList.getItems()).thenReturn(List.of(secret));
-
-    final KubernetesSecretSpec secretSpec = KubernetesSecretSpec.builder()
-        .serviceAccountSecret(secret.getMetadata().getName())
-        .build();
-    final Pod pod = createPod(WORKFLOW_INSTANCE, RUN_SPEC_WITH_SA, secretSpec);
-
-    final PodStatus podStatus = podStatus(phase);
-    pod.setStatus(podStatus);
-
-    when(podList.getItems()).thenReturn(List.of());
-    sut.cleanup();
+    sut.cleanup(Set.of());
     verify(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT, "json-key"));
     verify(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT, "p12-key"));
     verify(secrets).delete(secret);
@@ -329,7 +286,6 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     final Secret secret3 = fakeServiceAccountKeySecret(
         SERVICE_ACCOUNT, SECRET_EPOCH, "json-key-3", "p12-key-3", EXPIRED_CREATION_TIMESTAMP.toString());
 
-    when(podList.getItems()).thenReturn(List.of());
     when(k8sClient.secrets()).thenReturn(secrets);
     when(secrets.list()).thenReturn(secretList);
     when(secretList.getItems()).thenReturn(List.of(secret1, secret2, secret3));
@@ -338,7 +294,7 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     doThrow(new IOException("fail delete json-key-2")).when(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT,"json-key-2"));
     doThrow(new IOException("fail delete p12-key-3")).when(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT,"p12-key-3"));
 
-    sut.cleanup();
+    sut.cleanup(Set.of());
 
     verify(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT, "json-key-1"));
     verify(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT, "p12-key-1"));
@@ -362,13 +318,7 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     when(secrets.list()).thenReturn(secretList);
     when(secretList.getItems()).thenReturn(List.of(secret));
 
-    final KubernetesSecretSpec secretSpec = KubernetesSecretSpec.builder()
-        .serviceAccountSecret(secret.getMetadata().getName())
-        .build();
-    final Pod pod = createPod(WORKFLOW_INSTANCE, RUN_SPEC_WITH_SA, secretSpec);
-    pod.setStatus(podStatus("Running"));
-    when(podList.getItems()).thenReturn(List.of(pod));
-    sut.cleanup();
+    sut.cleanup(Set.of(secret.getMetadata().getName()));
     verify(serviceAccountKeyManager, never()).deleteKey(anyString());
     verify(secrets, never()).delete(any(Secret.class));
   }
@@ -381,9 +331,8 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     when(k8sClient.secrets()).thenReturn(secrets);
     when(secrets.list()).thenReturn(secretList);
     when(secretList.getItems()).thenReturn(List.of(secret));
-    when(podList.getItems()).thenReturn(List.of());
 
-    sut.cleanup();
+    sut.cleanup(Set.of());
 
     verify(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT, "old-json-key"));
     verify(serviceAccountKeyManager).deleteKey(keyName(SERVICE_ACCOUNT, "old-p12-key"));
@@ -402,7 +351,7 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     when(secrets.list()).thenReturn(secretList);
     when(secretList.getItems()).thenReturn(List.of(secret1, secret2));
 
-    sut.cleanup();
+    sut.cleanup(Set.of());
 
     verify(serviceAccountKeyManager, never()).deleteKey(anyString());
     verify(secrets, never()).delete(any(Secret.class));
@@ -530,6 +479,57 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     assertThat(createdSecret.getData(), hasEntry("styx-wf-sa.p12", newP12Key.getPrivateKeyData()));
   }
 
+  @Test
+  public void shouldCreateNextEpochSecretAheadOfRollover() throws IOException {
+    final long rolloverMillis = CLOCK.millis() + Duration.ofHours(1).toMillis();
+    sut = new KubernetesGCPServiceAccountSecretManager(k8sClient, serviceAccountKeyManager,
+        (now, sa) -> now < rolloverMillis ? SECRET_EPOCH : SECRET_EPOCH + 1, CLOCK);
+    stubKeyCreation();
+
+    sut.ensureServiceAccountKeySecret(WORKFLOW_ID.toString(), SERVICE_ACCOUNT);
+    sut.rotateSecrets();
+
+    verify(secrets, times(3)).create(secretCaptor.capture());
+    assertThat(secretCaptor.getValue().getMetadata().getName(), is(secretName(SERVICE_ACCOUNT, SECRET_EPOCH + 1)));
+  }
+
+  @Test
+  public void shouldUseRotatedSecretWithoutRemoteCalls() throws IOException {
+    final AtomicLong rolloverMillis = new AtomicLong(CLOCK.millis() + Duration.ofHours(1).toMillis());
+    sut = new KubernetesGCPServiceAccountSecretManager(k8sClient, serviceAccountKeyManager,
+        (now, sa) -> now < rolloverMillis.get() ? SECRET_EPOCH : SECRET_EPOCH + 1, CLOCK);
+    stubKeyCreation();
+
+    sut.ensureServiceAccountKeySecret(WORKFLOW_ID.toString(), SERVICE_ACCOUNT);
+    sut.rotateSecrets();
+
+    rolloverMillis.set(CLOCK.millis());
+    reset(serviceAccountKeyManager, secrets);
+
+    final String secret = sut.ensureServiceAccountKeySecret(WORKFLOW_ID.toString(), SERVICE_ACCOUNT);
+
+    assertThat(secret, is(secretName(SERVICE_ACCOUNT, SECRET_EPOCH + 1)));
+    verifyZeroInteractions(serviceAccountKeyManager, secrets);
+  }
+
+  @Test
+  public void shouldRecreateDeletedKeysWhenRotating() throws IOException {
+    final Secret secret = fakeServiceAccountKeySecret(SERVICE_ACCOUNT, SECRET_EPOCH, "json-key", "p12-key",
+        EXPIRED_CREATION_TIMESTAMP.toString());
+    when(namedResource.get()).thenReturn(secret);
+    when(serviceAccountKeyManager.keyExists(anyString())).thenReturn(true);
+    stubKeyCreation();
+
+    sut.ensureServiceAccountKeySecret(WORKFLOW_ID.toString(), SERVICE_ACCOUNT);
+    verify(secrets, never()).create(any(Secret.class));
+
+    when(serviceAccountKeyManager.keyExists(anyString())).thenReturn(false);
+    sut.rotateSecrets();
+
+    verify(secrets).delete(secret);
+    verify(secrets).create(any(Secret.class));
+  }
+
   @Test
   public void shouldSmearRotationWeekly() {
     final long hours = Duration.ofDays(7).toHours();
@@ -553,6 +553,20 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
     assertThat((double) stats.getMax(), is(lessThan(expectedMeanRotationsPerHour * 2)));
   }
 
+  private void stubKeyCreation() throws IOException {
+    when(serviceAccountKeyManager.serviceAccountExists(SERVICE_ACCOUNT)).thenReturn(true);
+    when(serviceAccountKeyManager.createJsonKey(SERVICE_ACCOUNT)).thenReturn(new ServiceAccountKey()
+        .setName("key.json")
+        .setPrivateKeyData("json-private-key-data"));
+    when(serviceAccountKeyManager.createP12Key(SERVICE_ACCOUNT)).thenReturn(new ServiceAccountKey()
+        .setName("key.p12")
+        .setPrivateKeyData("p12-private-key-data"));
+  }
+
+  private static String secretName(String serviceAccount, long epoch) {
+    return "styx-wf-sa-keys-" + epoch + "-" + Hashing.sha256().hashString(serviceAccount, UTF_8);
+  }
+
   private static Secret fakeServiceAccountKeySecret(String serviceAccount, long epoch, String jsonKeyId,
       String p12KeyId, String creationTimestamp) {
     final String jsonKeyName = keyName(serviceAccount, jsonKeyId);
@@ -560,7 +574,7 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
 
     final ObjectMeta metadata = new ObjectMeta();
     metadata.setCreationTimestamp(creationTimestamp);
-    metadata.setName("styx-wf-sa-keys-" + epoch + "-" + Hashing.sha256().hashString(serviceAccount, UTF_8));
+    metadata.setName(secretName(serviceAccount, epoch));
     metadata.setAnnotations(Map.of(
         "styx-wf-sa", serviceAccount,
         "styx-wf-sa-json-key-name", jsonKeyName,
@@ -577,17 +591,4 @@ public class KubernetesGCPServiceAccountSecretManagerTest {
   private static String keyName(String serviceAccount, String keyId) {
     return "projects/-/serviceAccounts/" + serviceAccount + "/keys/" + keyId;
   }
-
-  private static PodStatus podStatus(String phase) {
-    final PodStatus podStatus = new PodStatus();
-    podStatus.setPhase(phase);
-    return podStatus;
-  }
-
-  private static Pod createPod(WorkflowInstance workflowInstance,
-                               DockerRunner.RunSpec runSpec,
-                               KubernetesSecretSpec secretSpec) {
-    return KubernetesDockerRunner
-        .createPod(workflowInstance, runSpec, secretSpec, STYX_ENVIRONMENT);
-  }
 }
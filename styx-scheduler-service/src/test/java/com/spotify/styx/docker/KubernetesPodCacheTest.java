@@ -0,0 +1,314 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler Service
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.docker;
+
+import static com.spotify.styx.docker.KubernetesDockerRunner.STYX_WORKFLOW_INSTANCE_ANNOTATION;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.Gauge;
+import com.spotify.styx.QuietDeterministicScheduler;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.monitoring.Stats;
+import com.spotify.styx.testdata.TestData;
+import com.spotify.styx.util.Time;
+import io.fabric8.kubernetes.api.model.DoneablePod;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.api.model.PodListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.Watcher.Action;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.PodResource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KubernetesPodCacheTest {
+
+  private static final WorkflowInstance WORKFLOW_INSTANCE = WorkflowInstance.create(TestData.WORKFLOW_ID, "foo");
+  private static final WorkflowInstance WORKFLOW_INSTANCE_2 = WorkflowInstance.create(TestData.WORKFLOW_ID, "bar");
+
+  private static final Instant NOW = Instant.parse("2019-01-01T00:00:00Z");
+
+  private static final Pod POD_1 = pod("pod-1", "10", WORKFLOW_INSTANCE);
+  private static final Pod POD_2 = pod("pod-2", "11", WORKFLOW_INSTANCE);
+  private static final Pod POD_3 = pod("pod-3", "12", WORKFLOW_INSTANCE_2);
+
+  private final QuietDeterministicScheduler executor = new QuietDeterministicScheduler();
+
+  @Mock private NamespacedKubernetesClient k8sClient;
+  @Mock private MixedOperation<Pod, PodList, DoneablePod, PodResource<Pod, DoneablePod>> pods;
+  @Mock private Watch watch;
+  @Mock private Watcher<Pod> listener;
+  @Mock private Stats stats;
+  @Mock private Time time;
+
+  @Captor private ArgumentCaptor<Watcher<Pod>> watcherCaptor;
+  @Captor private ArgumentCaptor<Gauge<Long>> uptimeCaptor;
+
+  private KubernetesPodCache podCache;
+
+  @Before
+  public void setUp() {
+    when(time.get()).thenReturn(NOW);
+    when(k8sClient.pods()).thenReturn(pods);
+    when(pods.list()).thenReturn(podList("100", POD_1, POD_2));
+    when(pods.watch(anyString(), watcherCaptor.capture())).thenReturn(watch);
+
+    podCache = new KubernetesPodCache(k8sClient, stats, time, executor, Duration.ofMinutes(5), listener);
+    podCache.start();
+
+    verify(stats).registerPodWatchUptimeMetric(uptimeCaptor.capture());
+  }
+
+  @After
+  public void tearDown() {
+    podCache.close();
+  }
+
+  @Test
+  public void shouldListOnceAndWatchFromListedResourceVersion() {
+    verify(pods).list();
+    verify(pods).watch(eq("100"), any());
+    verify(listener).eventReceived(Action.ADDED, POD_1);
+    verify(listener).eventReceived(Action.ADDED, POD_2);
+
+    assertThat(podCache.get("pod-1"), is(Optional.of(POD_1)));
+    assertThat(podCache.get("pod-3"), is(Optional.empty()));
+    assertThat(podCache.list(), containsInAnyOrder(POD_1, POD_2));
+    assertThat(podCache.list(WORKFLOW_INSTANCE), containsInAnyOrder(POD_1, POD_2));
+    assertThat(podCache.list(WORKFLOW_INSTANCE_2), is(empty()));
+  }
+
+  @Test
+  public void shouldApplyAndForwardWatchEvents() {
+    final Pod modifiedPod = pod("pod-1", "13", WORKFLOW_INSTANCE);
+    final Watcher<Pod> watcher = watcherCaptor.getValue();
+
+    watcher.eventReceived(Action.ADDED, POD_3);
+    watcher.eventReceived(Action.MODIFIED, modifiedPod);
+    watcher.eventReceived(Action.DELETED, POD_2);
+
+    verify(listener).eventReceived(Action.ADDED, POD_3);
+    verify(listener).eventReceived(Action.MODIFIED, modifiedPod);
+    verify(listener).eventReceived(Action.DELETED, POD_2);
+    assertThat(podCache.list(), containsInAnyOrder(modifiedPod, POD_3));
+    assertThat(podCache.list(WORKFLOW_INSTANCE), contains(modifiedPod));
+    assertThat(podCache.list(WORKFLOW_INSTANCE_2), contains(POD_3));
+  }
+
+  @Test
+  public void shouldForwardDifferencesOnResync() {
+    final Pod modifiedPod = pod("pod-1", "13", WORKFLOW_INSTANCE);
+    when(pods.list()).thenReturn(podList("200", modifiedPod, POD_3));
+
+    executor.tick(10, TimeUnit.MINUTES);
+
+    verify(listener).eventReceived(Action.DELETED, POD_2);
+    verify(listener).eventReceived(Action.MODIFIED, modifiedPod);
+    verify(listener).eventReceived(Action.ADDED, POD_3);
+    verify(watch, atLeastOnce()).close();
+    verify(pods, atLeastOnce()).watch(eq("200"), any());
+    assertThat(podCache.list(), containsInAnyOrder(modifiedPod, POD_3));
+  }
+
+  @Test
+  public void shouldIgnoreEventsOfReplacedWatch() {
+    final Watcher<Pod> staleWatcher = watcherCaptor.getValue();
+    podCache.relist();
+
+    staleWatcher.eventReceived(Action.ADDED, POD_3);
+
+    verify(listener, never()).eventReceived(Action.ADDED, POD_3);
+    assertThat(podCache.get("pod-3"), is(Optional.empty()));
+  }
+
+  @Test
+  public void shouldIndexSecretsReferencedByActivePods() {
+    final Watcher<Pod> watcher = watcherCaptor.getValue();
+    final Pod running = withSecret(pod("pod-3", "12", WORKFLOW_INSTANCE_2), "secret-1", "Running");
+    final Pod terminated = withSecret(pod("pod-4", "13", WORKFLOW_INSTANCE_2), "secret-2", "Succeeded");
+
+    watcher.eventReceived(Action.ADDED, running);
+    watcher.eventReceived(Action.ADDED, terminated);
+    assertThat(podCache.referencedSecrets(), contains("secret-1"));
+
+    watcher.eventReceived(Action.MODIFIED, withSecret(pod("pod-3", "14", WORKFLOW_INSTANCE_2), "secret-1", "Failed"));
+    assertThat(podCache.referencedSecrets(), is(empty()));
+
+    watcher.eventReceived(Action.MODIFIED, withSecret(pod("pod-4", "15", WORKFLOW_INSTANCE_2), "secret-2", "Running"));
+    watcher.eventReceived(Action.DELETED, running);
+    assertThat(podCache.referencedSecrets(), contains("secret-2"));
+  }
+
+  @Test
+  public void shouldResumeWatchFromLastObservedResourceVersion() {
+    final Watcher<Pod> watcher = watcherCaptor.getValue();
+    watcher.eventReceived(Action.ADDED, POD_3);
+
+    watcher.onClose(new KubernetesClientException("Connection reset", 500, null));
+    executor.tick(1, TimeUnit.SECONDS);
+
+    verify(pods).watch(eq("12"), any());
+    verify(pods, times(1)).list();
+    verify(stats).recordPodWatchReconnect("resume");
+  }
+
+  @Test
+  public void shouldRelistWhenResourceVersionExpired() {
+    final Watcher<Pod> watcher = watcherCaptor.getValue();
+    when(pods.list()).thenReturn(podList("300", POD_1));
+
+    watcher.onClose(new KubernetesClientException("Gone", 410, null));
+    executor.tick(1, TimeUnit.SECONDS);
+
+    verify(pods, times(2)).list();
+    verify(pods).watch(eq("300"), any());
+    verify(stats).recordPodWatchReconnect("relist");
+    assertThat(podCache.list(), contains(POD_1));
+  }
+
+  @Test
+  public void shouldBackOffFailingReconnects() {
+    final Watcher<Pod> watcher = watcherCaptor.getValue();
+    when(pods.watch(anyString(), any()))
+        .thenThrow(new KubernetesClientException("Connection refused"))
+        .thenReturn(watch);
+
+    watcher.onClose(new KubernetesClientException("Connection reset", 500, null));
+    executor.tick(1, TimeUnit.SECONDS);
+
+    // The failed resume is retried with a relist after a longer delay
+    verify(pods, times(1)).list();
+    executor.tick(1, TimeUnit.SECONDS);
+    verify(pods, times(1)).list();
+    executor.tick(1, TimeUnit.SECONDS);
+    verify(pods, times(2)).list();
+  }
+
+  @Test
+  public void shouldBoundReconnectDelay() {
+    assertThat(KubernetesPodCache.reconnectDelay(0), is(Duration.ofSeconds(1)));
+    assertThat(KubernetesPodCache.reconnectDelay(1), is(Duration.ofSeconds(2)));
+    assertThat(KubernetesPodCache.reconnectDelay(5), is(Duration.ofSeconds(32)));
+    assertThat(KubernetesPodCache.reconnectDelay(6), is(Duration.ofMinutes(1)));
+    assertThat(KubernetesPodCache.reconnectDelay(Integer.MAX_VALUE), is(Duration.ofMinutes(1)));
+  }
+
+  @Test
+  public void shouldReportWatchUptime() {
+    final Gauge<Long> uptime = uptimeCaptor.getValue();
+    when(time.get()).thenReturn(NOW.plusSeconds(30));
+    assertThat(uptime.getValue(), is(30L));
+
+    watcherCaptor.getValue().onClose(new KubernetesClientException("Connection reset", 500, null));
+    assertThat(uptime.getValue(), is(0L));
+
+    executor.tick(1, TimeUnit.SECONDS);
+    when(time.get()).thenReturn(NOW.plusSeconds(40));
+    assertThat(uptime.getValue(), is(10L));
+  }
+
+  @Test
+  public void shouldRecordEventLagFromLastTransition() {
+    final Pod pod = new PodBuilder(POD_3)
+        .withNewStatus()
+        .addNewCondition().withLastTransitionTime(NOW.minusSeconds(10).toString()).endCondition()
+        .addNewContainerStatus()
+        .withNewState().withNewRunning().withStartedAt(NOW.minusSeconds(3).toString()).endRunning().endState()
+        .endContainerStatus()
+        .endStatus()
+        .build();
+
+    watcherCaptor.getValue().eventReceived(Action.MODIFIED, pod);
+
+    verify(stats).recordPodEventLag(3000L);
+  }
+
+  @Test
+  public void shouldNotReconnectWhenClosed() {
+    final Watcher<Pod> watcher = watcherCaptor.getValue();
+
+    podCache.close();
+    watcher.onClose(new KubernetesClientException("Connection reset", 500, null));
+    executor.tick(10, TimeUnit.MINUTES);
+
+    verify(watch).close();
+    verify(pods).list();
+    verify(pods).watch(anyString(), any());
+    verifyNoMoreInteractions(pods);
+  }
+
+  private static Pod pod(String name, String resourceVersion, WorkflowInstance workflowInstance) {
+    return new PodBuilder()
+        .withNewMetadata()
+        .withName(name)
+        .withResourceVersion(resourceVersion)
+        .addToAnnotations(STYX_WORKFLOW_INSTANCE_ANNOTATION, workflowInstance.toKey())
+        .endMetadata()
+        .build();
+  }
+
+  private static Pod withSecret(Pod pod, String secretName, String phase) {
+    return new PodBuilder(pod)
+        .withNewSpec()
+        .addNewVolume().withName(secretName).withNewSecret().withSecretName(secretName).endSecret().endVolume()
+        .addNewVolume().withName("scratch").withNewEmptyDir().endEmptyDir().endVolume()
+        .endSpec()
+        .withNewStatus().withPhase(phase).endStatus()
+        .build();
+  }
+
+  private static PodList podList(String resourceVersion, Pod... pods) {
+    return new PodListBuilder()
+        .withNewMetadata().withResourceVersion(resourceVersion).endMetadata()
+        .withItems(List.of(pods))
+        .build();
+  }
+}
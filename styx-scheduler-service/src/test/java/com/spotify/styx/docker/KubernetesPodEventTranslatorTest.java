@@ -22,9 +22,12 @@ package com.spotify.styx.docker;
 
 import static com.spotify.styx.docker.KubernetesDockerRunner.KEEPALIVE_CONTAINER_NAME;
 import static com.spotify.styx.docker.KubernetesDockerRunner.MAIN_CONTAINER_NAME;
+import static com.spotify.styx.docker.KubernetesPodEventTranslator.eventError;
+import static com.spotify.styx.docker.KubernetesPodEventTranslator.isPullImageError;
 import static com.spotify.styx.docker.KubernetesPodEventTranslator.translate;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 import com.spotify.styx.docker.KubernetesDockerRunner.KubernetesSecretSpec;
@@ -40,6 +43,7 @@ import io.fabric8.kubernetes.api.model.ContainerStateTerminated;
 import io.fabric8.kubernetes.api.model.ContainerStateWaiting;
 import io.fabric8.kubernetes.api.model.ContainerStatus;
 import io.fabric8.kubernetes.api.model.ContainerStatusBuilder;
+import io.fabric8.kubernetes.api.model.EventBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodStatus;
 import io.fabric8.kubernetes.api.model.PodStatusBuilder;
@@ -119,6 +123,43 @@ public class KubernetesPodEventTranslatorTest {
         Event.runError(WFI, errorMessage + ": " + reason + ": " + message));
   }
 
+  @Parameters({ "ImageInspectError  , true",
+                "ErrImagePull       , true",
+                "ImagePullBackOff   , true",
+                "InvalidImageName   , false",
+                "ContainerCreating  , false",
+  })
+  @Test
+  public void shouldClassifyPullImageErrors(String reason, boolean pullImageError) {
+    setWaiting(pod, "Pending", reason, "foobar");
+
+    assertThat(isPullImageError(pod), is(pullImageError));
+  }
+
+  @Parameters({ "Warning, BackOff           , spec.containers{styx-run}, true",
+                "Warning, ErrImageNeverPull , spec.containers{styx-run}, true",
+                "Warning, BackOff           , spec.containers{keepalive}, false",
+                "Warning, Failed            , spec.containers{styx-run}, false",
+                "Warning, FailedScheduling  ,                          , false",
+                "Normal , Pulling           , spec.containers{styx-run}, false",
+  })
+  @Test
+  public void shouldMapPullImageEventsToErrors(String type, String reason, String fieldPath, boolean error) {
+    final io.fabric8.kubernetes.api.model.Event event = new EventBuilder()
+        .withType(type)
+        .withReason(reason)
+        .withMessage("foobar")
+        .withNewInvolvedObject()
+        .withKind("Pod")
+        .withFieldPath(fieldPath.isEmpty() ? null : fieldPath)
+        .endInvolvedObject()
+        .build();
+
+    assertThat(eventError(event), is(error
+        ? Optional.of("One or more containers failed to pull their image: " + reason + ": foobar")
+        : Optional.empty()));
+  }
+
   @Test
   public void noRunErrorWhenPendingAndNoError() {
     setWaiting(pod, "Pending", "ContainerCreating");
@@ -20,6 +20,8 @@
 
 package com.spotify.styx.docker;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -29,10 +31,13 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Maps;
+import com.spotify.styx.docker.DockerRunner.RunSpec;
 import com.spotify.styx.model.WorkflowInstance;
 import com.spotify.styx.state.RunState;
+import com.spotify.styx.state.StateData;
 import com.spotify.styx.testdata.TestData;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Supplier;
 import org.junit.Before;
 import org.junit.Test;
@@ -74,6 +79,7 @@ public class RoutingDockerRunnerTest {
   @Test
   public void testUsesCreatesRunnerOnPoll() throws Exception {
     when(dockerId.get()).thenReturn("default");
+    when(runState.data()).thenReturn(StateData.zero());
     dockerRunner.poll(runState);
 
     assertThat(createdRunners, hasKey("default"));
@@ -139,8 +145,68 @@ public class RoutingDockerRunnerTest {
     }
   }
 
+  @Test
+  public void testStartsOnSelectedRunner() throws Exception {
+    final RunSpec runSpec = RunSpecBuilder.from(RUN_SPEC).runnerId("id-1").build();
+    dockerRunner.start(WORKFLOW_INSTANCE, runSpec);
+
+    assertThat(createdRunners.keySet(), contains("id-1"));
+    verify(createdRunners.get("id-1")).start(WORKFLOW_INSTANCE, runSpec);
+  }
+
+  @Test
+  public void testPollsOnRunnerThatStartedExecution() throws Exception {
+    when(runState.data()).thenReturn(StateData.newBuilder().runnerId("id-2").build());
+    dockerRunner.poll(runState);
+
+    assertThat(createdRunners.keySet(), contains("id-2"));
+    verify(createdRunners.get("id-2")).poll(runState);
+  }
+
+  @Test
+  public void testSelectsDefaultRunnerWithoutWeights() {
+    when(dockerId.get()).thenReturn("default");
+
+    assertThat(dockerRunner.selectRunner(WORKFLOW_INSTANCE), is(Optional.of("default")));
+  }
+
+  @Test
+  public void testSelectsRunnerByWeightAndLoad() {
+    dockerRunner = new RoutingDockerRunner(this::create, dockerId, Map.of("id-1", 1.0, "id-2", 2.0, "id-3", 0.0));
+
+    assertThat(dockerRunner.selectRunner(WORKFLOW_INSTANCE), is(Optional.of("id-2")));
+
+    when(createdRunners.get("id-2").pendingExecutions()).thenReturn(2);
+    assertThat(dockerRunner.selectRunner(WORKFLOW_INSTANCE), is(Optional.of("id-1")));
+  }
+
+  @Test
+  public void testSelectsHealthyRunner() {
+    dockerRunner = new RoutingDockerRunner(this::create, dockerId, Map.of("id-1", 1.0, "id-2", 2.0));
+    dockerRunner.selectRunner(WORKFLOW_INSTANCE);
+    when(createdRunners.get("id-1").isHealthy()).thenReturn(true);
+    when(createdRunners.get("id-2").isHealthy()).thenReturn(false);
+
+    assertThat(dockerRunner.selectRunner(WORKFLOW_INSTANCE), is(Optional.of("id-1")));
+
+    when(createdRunners.get("id-1").isHealthy()).thenReturn(false);
+    assertThat(dockerRunner.selectRunner(WORKFLOW_INSTANCE), is(Optional.of("id-2")));
+  }
+
+  @Test
+  public void testCleansUpAllWeightedRunners() throws Exception {
+    when(dockerId.get()).thenReturn("default");
+    dockerRunner = new RoutingDockerRunner(this::create, dockerId, Map.of("id-1", 1.0));
+    dockerRunner.cleanup();
+
+    assertThat(createdRunners.keySet(), containsInAnyOrder("default", "id-1"));
+    verify(createdRunners.get("default")).cleanup();
+    verify(createdRunners.get("id-1")).cleanup();
+  }
+
   private DockerRunner create(String id) {
     DockerRunner mock = mock(DockerRunner.class);
+    Mockito.lenient().when(mock.isHealthy()).thenReturn(true);
     createCounter++;
     createdRunners.put(id, mock);
     return mock;
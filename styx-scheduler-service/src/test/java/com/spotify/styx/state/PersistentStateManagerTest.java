@@ -20,6 +20,7 @@
 
 package com.spotify.styx.state;
 
+import static com.spotify.styx.util.TriggerUtil.activeInstancesCounterId;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.hamcrest.Matchers.arrayContaining;
@@ -38,6 +39,7 @@ import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -48,9 +50,11 @@ import com.google.cloud.datastore.DatastoreException;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.ExecutionDescription;
 import com.spotify.styx.model.Resource;
+import com.spotify.styx.model.Schedule;
 import com.spotify.styx.model.SequenceEvent;
 import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.Workflow;
@@ -64,8 +68,10 @@ import com.spotify.styx.testdata.TestData;
 import com.spotify.styx.util.AlreadyInitializedException;
 import com.spotify.styx.util.CounterCapacityException;
 import com.spotify.styx.util.IsClosedException;
+import com.spotify.styx.util.ShardNotFoundException;
 import com.spotify.styx.util.ShardedCounter;
 import com.spotify.styx.util.Time;
+import com.spotify.styx.util.TriggerInstantSpec;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
@@ -102,6 +108,19 @@ public class PersistentStateManagerTest {
       .build();
   private static final StateData STATE_DATA_1 =
       StateData.newBuilder().resourceIds(ImmutableSet.of("resource1")).build();
+  private static final StateData BACKFILL_STATE_DATA = STATE_DATA_1.builder()
+      .trigger(Trigger.backfill("backfill-1"))
+      .build();
+  private static final Backfill BACKFILL = Backfill.newBuilder()
+      .id("backfill-1")
+      .start(Instant.parse("2016-05-01T00:00:00Z"))
+      .end(Instant.parse("2016-05-04T00:00:00Z"))
+      .workflowId(TestData.WORKFLOW_ID)
+      .concurrency(2)
+      .schedule(Schedule.DAYS)
+      .nextTrigger(Instant.parse("2016-05-01T00:00:00Z"))
+      .triggerParameters(PARAMETERS)
+      .build();
   private static final BiConsumer<SequenceEvent, RunState> eventConsumer = (e, s) -> {};
 
   private final ExecutorService executor = Executors.newWorkStealingPool();
@@ -226,6 +245,104 @@ public class PersistentStateManagerTest {
         Event.triggerExecution(INSTANCE, TRIGGER1, PARAMETERS), INSTANCE_NEW_STATE.counter() + 1, NOW.toEpochMilli()));
   }
 
+  @Test
+  public void shouldReInitializeWFInstanceFromTombstoneCounter() throws Exception {
+    when(transaction.workflow(INSTANCE.workflowId())).thenReturn(Optional.of(WORKFLOW));
+    when(transaction.readActiveStateTombstone(INSTANCE)).thenReturn(Optional.of(INSTANCE_NEW_STATE.counter()));
+    when(transaction.readActiveState(INSTANCE)).thenReturn(Optional.of(INSTANCE_NEW_STATE));
+
+    stateManager.trigger(INSTANCE, TRIGGER1, PARAMETERS);
+
+    verify(storage, never()).getLatestStoredCounter(any());
+    verify(transaction).writeActiveState(INSTANCE, INSTANCE_NEW_STATE);
+    verify(storage).writeEvent(SequenceEvent.create(
+        Event.triggerExecution(INSTANCE, TRIGGER1, PARAMETERS), INSTANCE_NEW_STATE.counter() + 1, NOW.toEpochMilli()));
+  }
+
+  @Test
+  public void shouldTriggerNaturallyAndAdvanceNextNaturalTriggerInOneTransaction() throws Exception {
+    final TriggerInstantSpec nextTrigger = TriggerInstantSpec.create(
+        Instant.parse("2016-05-02T00:00:00Z"), Instant.parse("2016-05-03T00:00:00Z"));
+    final Event event = Event.triggerExecution(INSTANCE, Trigger.natural(), TriggerParameters.zero());
+    final RunState expectedState = RunState.create(INSTANCE, State.NEW, StateData.zero(), NOW, -1)
+        .transition(event, time);
+    when(storage.getLatestStoredCounter(INSTANCE)).thenReturn(Optional.empty());
+    when(transaction.workflow(INSTANCE.workflowId())).thenReturn(Optional.of(WORKFLOW));
+
+    stateManager.triggerNatural(INSTANCE, nextTrigger);
+
+    verify(storage, times(1)).runInTransaction(any());
+    verify(transaction).writeActiveState(INSTANCE, expectedState);
+    verify(transaction, never()).updateActiveState(any(), any());
+    verify(transaction).updateNextNaturalTrigger(INSTANCE.workflowId(), nextTrigger);
+    verify(storage).writeEvent(SequenceEvent.create(event, 0, NOW.toEpochMilli()));
+  }
+
+  @Test
+  public void shouldFailNaturalTriggerIfAlreadyActive() throws Exception {
+    final TriggerInstantSpec nextTrigger = TriggerInstantSpec.create(
+        Instant.parse("2016-05-02T00:00:00Z"), Instant.parse("2016-05-03T00:00:00Z"));
+    when(storage.getLatestStoredCounter(INSTANCE)).thenReturn(Optional.empty());
+    when(transaction.workflow(INSTANCE.workflowId())).thenReturn(Optional.of(WORKFLOW));
+    final TransactionException transactionException =
+        spy(new TransactionException(new DatastoreException(1, "", "")));
+    when(transactionException.isAlreadyExists()).thenReturn(true);
+    doThrow(transactionException).when(transaction).writeActiveState(any(), any());
+
+    try {
+      stateManager.triggerNatural(INSTANCE, nextTrigger);
+      fail();
+    } catch (AlreadyInitializedException ignore) {
+    }
+
+    verify(transaction, never()).updateNextNaturalTrigger(any(), any());
+    verify(storage, never()).writeEvent(any());
+  }
+
+  @Test
+  public void shouldTriggerBackfillAndProgressBackfillInOneTransaction() throws Exception {
+    final WorkflowInstance activeInstance = WorkflowInstance.create(TestData.WORKFLOW_ID, "2016-05-02");
+    final Backfill progressedBackfill = BACKFILL.builder()
+        .nextTrigger(Instant.parse("2016-05-03T00:00:00Z"))
+        .build();
+    final Event event = Event.triggerExecution(INSTANCE, Trigger.backfill(BACKFILL.id()), PARAMETERS);
+    final RunState expectedState = RunState.create(INSTANCE, State.NEW, StateData.zero(), NOW, -1)
+        .transition(event, time);
+    when(transaction.backfill(BACKFILL.id())).thenReturn(Optional.of(BACKFILL));
+    when(transaction.readActiveState(INSTANCE)).thenReturn(Optional.empty());
+    when(transaction.readActiveState(activeInstance)).thenReturn(Optional.of(INSTANCE_NEW_STATE));
+    when(storage.getLatestStoredCounter(INSTANCE)).thenReturn(Optional.empty());
+
+    final List<WorkflowInstance> triggered =
+        stateManager.triggerBackfill(List.of(INSTANCE, activeInstance), BACKFILL, progressedBackfill);
+
+    assertThat(triggered, is(List.of(INSTANCE)));
+    verify(storage, times(1)).runInTransaction(any());
+    verify(transaction).writeActiveState(INSTANCE, expectedState);
+    verify(transaction, never()).writeActiveState(eq(activeInstance), any());
+    verify(transaction).updateCounter(shardedCounter, activeInstancesCounterId(BACKFILL.id()), 1);
+    verify(transaction).store(progressedBackfill);
+    verify(storage).writeEvent(SequenceEvent.create(event, 0, NOW.toEpochMilli()));
+  }
+
+  @Test
+  public void shouldFailBackfillTriggerIfBackfillProgressedConcurrently() throws Exception {
+    final Backfill progressedBackfill = BACKFILL.builder()
+        .nextTrigger(Instant.parse("2016-05-02T00:00:00Z"))
+        .build();
+    when(transaction.backfill(BACKFILL.id())).thenReturn(Optional.of(progressedBackfill));
+
+    try {
+      stateManager.triggerBackfill(List.of(INSTANCE), BACKFILL, progressedBackfill);
+      fail();
+    } catch (IllegalStateException ignore) {
+    }
+
+    verify(transaction, never()).writeActiveState(any(), any());
+    verify(transaction, never()).store(any(Backfill.class));
+    verify(storage, never()).writeEvent(any());
+  }
+
   @Test
   public void shouldNotBeActiveAfterHalt() throws Exception {
     Optional<RunState> runState = Optional.of(
@@ -236,7 +353,7 @@ public class PersistentStateManagerTest {
     Event event = Event.halt(INSTANCE);
     stateManager.receive(event);
 
-    verify(transaction).deleteActiveState(INSTANCE);
+    verify(transaction).deleteActiveState(INSTANCE, 18);
     verify(storage).writeEvent(SequenceEvent.create(event, 18, NOW.toEpochMilli()));
   }
 
@@ -250,7 +367,7 @@ public class PersistentStateManagerTest {
     Event event = Event.halt(INSTANCE);
     stateManager.receive(event);
 
-    verify(transaction).deleteActiveState(INSTANCE);
+    verify(transaction).deleteActiveState(INSTANCE, 18);
     verify(storage).writeEvent(SequenceEvent.create(event, 18, NOW.toEpochMilli()));
   }
 
@@ -300,6 +417,7 @@ public class PersistentStateManagerTest {
 
   @Test
   public void shouldFailTriggerIfGetLatestCounterFails() throws Exception {
+    when(transaction.workflow(INSTANCE.workflowId())).thenReturn(Optional.of(WORKFLOW));
     when(storage.getLatestStoredCounter(any())).thenThrow(new IOException());
 
     try {
@@ -312,7 +430,6 @@ public class PersistentStateManagerTest {
 
   @Test
   public void shouldFailTriggerIfWorkflowNotFound() throws Exception {
-    when(storage.getLatestStoredCounter(any())).thenReturn(Optional.empty());
     when(transaction.workflow(INSTANCE.workflowId())).thenReturn(Optional.empty());
 
     try {
@@ -326,7 +443,6 @@ public class PersistentStateManagerTest {
   @Test
   public void shouldFailTriggerIfIOExceptionFromTransaction() throws Exception {
     reset(storage);
-    when(storage.getLatestStoredCounter(any())).thenReturn(Optional.empty());
     when(storage.runInTransaction(any())).thenThrow(new IOException());
 
     try {
@@ -343,7 +459,6 @@ public class PersistentStateManagerTest {
     stateManager = spy(new PersistentStateManager(
         time, executor, storage, eventConsumer,
         eventConsumerExecutor, outputHandler, shardedCounter));
-    when(storage.getLatestStoredCounter(any())).thenReturn(Optional.empty());
     doThrow(new IsClosedException()).when(stateManager).receive(any());
 
     try {
@@ -360,7 +475,6 @@ public class PersistentStateManagerTest {
     stateManager = spy(new PersistentStateManager(
         time, executor, storage, eventConsumer,
         eventConsumerExecutor, outputHandler, shardedCounter));
-    when(storage.getLatestStoredCounter(any())).thenReturn(Optional.empty());
     doThrow(new IOException()).when(storage).deleteActiveState(any());
     doThrow(new IsClosedException()).when(stateManager).receive(any());
 
@@ -439,7 +553,7 @@ public class PersistentStateManagerTest {
     Event event = Event.success(INSTANCE);
     stateManager.receive(event);
 
-    verify(transaction).deleteActiveState(INSTANCE);
+    verify(transaction).deleteActiveState(INSTANCE, 18);
     verify(storage).writeEvent(SequenceEvent.create(event, 18, NOW.toEpochMilli()));
   }
 
@@ -508,6 +622,17 @@ public class PersistentStateManagerTest {
     assertThat(returnedRunStates.size(), is(1));
   }
 
+  @Test
+  public void shouldGetRunStatesOfInstances() throws Exception {
+    RunState runState = RunState.create(
+        INSTANCE, State.QUEUED, StateData.zero(), NOW.minusMillis(1), 17);
+    when(storage.readActiveStates(List.of(INSTANCE))).thenReturn(Map.of(INSTANCE, runState));
+
+    Map<WorkflowInstance, RunState> returnedRunStates = stateManager.getActiveStates(List.of(INSTANCE));
+
+    assertThat(returnedRunStates, is(Map.of(INSTANCE, runState)));
+  }
+
   @Test
   public void shouldGetRunStatesByTriggerId() throws Exception {
     Map<WorkflowInstance, RunState> states = Maps.newConcurrentMap();
@@ -623,7 +748,6 @@ public class PersistentStateManagerTest {
     final TransactionException cause = new TransactionException(
         new DatastoreException(10, "foo", "bar"));
     reset(storage);
-    when(storage.getLatestStoredCounter(INSTANCE)).thenReturn(Optional.empty());
     when(storage.runInTransaction(any())).thenThrow(cause);
     try {
       stateManager.trigger(INSTANCE, Trigger.natural(), PARAMETERS);
@@ -639,7 +763,6 @@ public class PersistentStateManagerTest {
     final TransactionException cause = new TransactionException(
         new DatastoreException(new IOException("netsplit!")));
     reset(storage);
-    when(storage.getLatestStoredCounter(INSTANCE)).thenReturn(Optional.empty());
     when(storage.runInTransaction(any())).thenThrow(cause);
     try {
       stateManager.trigger(INSTANCE, Trigger.natural(), PARAMETERS);
@@ -654,7 +777,6 @@ public class PersistentStateManagerTest {
   public void triggerShouldLogFailure() throws Exception {
     final Exception cause = new Exception("fubared");
     reset(storage);
-    when(storage.getLatestStoredCounter(INSTANCE)).thenReturn(Optional.empty());
     when(storage.runInTransaction(any())).thenThrow(cause);
     try {
       stateManager.trigger(INSTANCE, Trigger.natural(), PARAMETERS);
@@ -765,14 +887,14 @@ public class PersistentStateManagerTest {
   @Test
   public void shouldNotUpdateResourceCountersOnSubmit() throws Exception {
     givenState(INSTANCE, State.PREPARE);
-    receiveEvent(Event.submit(INSTANCE, ExecutionDescription.forImage("docker-image"),"styx-run-1"));
+    receiveEvent(Event.submit(INSTANCE, ExecutionDescription.forImage("docker-image"),"styx-run-1", null));
     verify(transaction, never()).updateCounter(eq(shardedCounter), anyString(), anyInt());
   }
 
   @Test
   public void shouldNotUpdateResourceCountersOnSubmitted() throws Exception {
     givenState(INSTANCE, State.SUBMITTING);
-    receiveEvent(Event.submitted(INSTANCE,"styx-run-1"));
+    receiveEvent(Event.submitted(INSTANCE, "styx-run-1", null));
     verify(transaction, never()).updateCounter(eq(shardedCounter), anyString(), anyInt());
   }
 
@@ -860,6 +982,61 @@ public class PersistentStateManagerTest {
     verify(transaction, never()).updateCounter(eq(shardedCounter), anyString(), anyInt());
   }
 
+  @Test
+  public void shouldIncrementActiveInstancesCounterOnBackfillTrigger() throws Exception {
+    givenState(INSTANCE, State.NEW);
+    receiveEvent(Event.triggerExecution(INSTANCE, Trigger.backfill("backfill-1"), PARAMETERS));
+    verify(transaction).updateCounter(shardedCounter, activeInstancesCounterId("backfill-1"), 1);
+  }
+
+  @Test
+  public void shouldNotUpdateActiveInstancesCounterOnOtherTrigger() throws Exception {
+    givenState(INSTANCE, State.NEW);
+    receiveEvent(Event.triggerExecution(INSTANCE, TRIGGER1, PARAMETERS));
+    verify(transaction, never()).updateCounter(eq(shardedCounter), anyString(), anyInt());
+  }
+
+  @Test
+  public void shouldNotUpdateActiveInstancesCounterWhileBackfillInstanceIsActive() throws Exception {
+    givenState(INSTANCE, State.SUBMITTED, BACKFILL_STATE_DATA);
+    receiveEvent(Event.started(INSTANCE));
+    verify(transaction, never()).updateCounter(eq(shardedCounter), anyString(), anyInt());
+  }
+
+  @Test
+  public void shouldDecrementActiveInstancesCounterWhenBackfillInstanceIsDone() throws Exception {
+    givenState(INSTANCE, State.TERMINATED, BACKFILL_STATE_DATA);
+    receiveEvent(Event.success(INSTANCE));
+    verify(transaction).updateCounter(shardedCounter, activeInstancesCounterId("backfill-1"), -1);
+  }
+
+  @Test
+  public void shouldTransitionWhenBackfillHasNoActiveInstancesCounter() throws Exception {
+    givenState(INSTANCE, State.TERMINATED, BACKFILL_STATE_DATA);
+    doThrow(new IllegalArgumentException("No limit found"))
+        .when(transaction).updateCounter(shardedCounter, activeInstancesCounterId("backfill-1"), -1);
+    receiveEvent(Event.success(INSTANCE));
+    verify(transaction).deleteActiveState(eq(INSTANCE), anyLong());
+  }
+
+  @Test
+  public void shouldTransitionWhenActiveInstancesCounterIsDeleted() throws Exception {
+    givenState(INSTANCE, State.TERMINATED, BACKFILL_STATE_DATA);
+    doThrow(ShardNotFoundException.class)
+        .when(transaction).updateCounter(shardedCounter, activeInstancesCounterId("backfill-1"), -1);
+    receiveEvent(Event.success(INSTANCE));
+    verify(transaction).deleteActiveState(eq(INSTANCE), anyLong());
+  }
+
+  @Test
+  public void shouldTransitionWhenActiveInstancesCounterIsDepleted() throws Exception {
+    givenState(INSTANCE, State.TERMINATED, BACKFILL_STATE_DATA);
+    doThrow(new CounterCapacityException("No shard for counter has capacity"))
+        .when(transaction).updateCounter(shardedCounter, activeInstancesCounterId("backfill-1"), -1);
+    receiveEvent(Event.success(INSTANCE));
+    verify(transaction).deleteActiveState(eq(INSTANCE), anyLong());
+  }
+
   @Test
   public void shouldReceiveEventIgnoreClosed() throws IOException, IsClosedException {
     final PersistentStateManager spied = spy(stateManager);
@@ -881,7 +1058,11 @@ public class PersistentStateManagerTest {
   }
 
   public void givenState(WorkflowInstance instance, State state) throws IOException {
-    final RunState runState = RunState.create(instance, state, STATE_DATA_1, NOW.minusMillis(1), 17);
+    givenState(instance, state, STATE_DATA_1);
+  }
+
+  public void givenState(WorkflowInstance instance, State state, StateData data) throws IOException {
+    final RunState runState = RunState.create(instance, state, data, NOW.minusMillis(1), 17);
     when(transaction.readActiveState(instance)).thenReturn(Optional.of(runState));
   }
 
@@ -0,0 +1,148 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler
+ * --
+ * Copyright (C) 2018 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.state.handlers;
+
+import static com.spotify.styx.state.RunState.State.DONE;
+import static com.spotify.styx.state.RunState.State.NEW;
+import static com.spotify.styx.state.RunState.State.RUNNING;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
+import com.spotify.styx.model.Event;
+import com.spotify.styx.model.SequenceEvent;
+import com.spotify.styx.model.TriggerParameters;
+import com.spotify.styx.model.WorkflowId;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.state.StateData;
+import com.spotify.styx.state.Trigger;
+import com.spotify.styx.storage.Storage;
+import com.spotify.styx.storage.StorageTransaction;
+import com.spotify.styx.storage.TransactionFunction;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BackfillStatusHandlerTest {
+
+  private static final WorkflowInstance WORKFLOW_INSTANCE =
+      WorkflowInstance.create(WorkflowId.create("foo", "bar"), "2018-04-17");
+  private static final String BACKFILL_ID = "backfill-1";
+  private static final Instant TRIGGERED = Instant.parse("2018-04-18T00:00:00Z");
+  private static final Instant NOW = Instant.parse("2018-04-18T01:00:00Z");
+
+  @Mock private Storage storage;
+  @Mock private StorageTransaction transaction;
+
+  private BackfillStatusHandler handler;
+
+  @Before
+  public void setUp() throws Exception {
+    handler = new BackfillStatusHandler(storage);
+  }
+
+  @Test
+  public void shouldStoreStatusOnTriggerExecution() throws Exception {
+    setUpTransaction();
+    final StateData data = stateData(Trigger.backfill(BACKFILL_ID));
+    final Event event = Event.triggerExecution(WORKFLOW_INSTANCE, Trigger.backfill(BACKFILL_ID),
+        TriggerParameters.zero());
+
+    handler.accept(SequenceEvent.create(event, 0L, TRIGGERED.toEpochMilli()),
+        RunState.create(WORKFLOW_INSTANCE, NEW, data, TRIGGERED, 0L));
+
+    verify(transaction).storeBackfillStatus(BACKFILL_ID, RunStateData.newBuilder()
+        .workflowInstance(WORKFLOW_INSTANCE)
+        .state(NEW.name())
+        .stateData(data)
+        .initialTimestamp(TRIGGERED.toEpochMilli())
+        .latestTimestamp(TRIGGERED.toEpochMilli())
+        .build());
+  }
+
+  @Test
+  public void shouldStoreStatusOnTerminalStateKeepingInitialTimestamp() throws Exception {
+    setUpTransaction();
+    final StateData data = stateData(Trigger.backfill(BACKFILL_ID));
+    when(transaction.backfillStatus(BACKFILL_ID, WORKFLOW_INSTANCE)).thenReturn(Optional.of(
+        RunStateData.newBuilder()
+            .workflowInstance(WORKFLOW_INSTANCE)
+            .state(NEW.name())
+            .stateData(data)
+            .initialTimestamp(TRIGGERED.toEpochMilli())
+            .latestTimestamp(TRIGGERED.toEpochMilli())
+            .build()));
+
+    handler.accept(SequenceEvent.create(Event.success(WORKFLOW_INSTANCE), 5L, NOW.toEpochMilli()),
+        RunState.create(WORKFLOW_INSTANCE, DONE, data, NOW, 5L));
+
+    verify(transaction).storeBackfillStatus(BACKFILL_ID, RunStateData.newBuilder()
+        .workflowInstance(WORKFLOW_INSTANCE)
+        .state(DONE.name())
+        .stateData(data)
+        .initialTimestamp(TRIGGERED.toEpochMilli())
+        .latestTimestamp(NOW.toEpochMilli())
+        .build());
+  }
+
+  @Test
+  public void shouldNotStoreStatusOnNonTerminalState() {
+    handler.accept(SequenceEvent.create(Event.started(WORKFLOW_INSTANCE), 3L, NOW.toEpochMilli()),
+        RunState.create(WORKFLOW_INSTANCE, RUNNING, stateData(Trigger.backfill(BACKFILL_ID)), NOW, 3L));
+
+    verifyZeroInteractions(storage);
+  }
+
+  @Test
+  public void shouldNotStoreStatusOfNonBackfillInstance() {
+    handler.accept(SequenceEvent.create(Event.success(WORKFLOW_INSTANCE), 5L, NOW.toEpochMilli()),
+        RunState.create(WORKFLOW_INSTANCE, DONE, stateData(Trigger.natural()), NOW, 5L));
+
+    verifyZeroInteractions(storage);
+  }
+
+  @Test
+  public void shouldNotThrowIfStorageFails() throws Exception {
+    doThrow(new IOException()).when(storage).runInTransaction(any());
+
+    handler.accept(SequenceEvent.create(Event.success(WORKFLOW_INSTANCE), 5L, NOW.toEpochMilli()),
+        RunState.create(WORKFLOW_INSTANCE, DONE, stateData(Trigger.backfill(BACKFILL_ID)), NOW, 5L));
+  }
+
+  private void setUpTransaction() throws Exception {
+    when(storage.runInTransaction(any())).thenAnswer(
+        a -> a.<TransactionFunction>getArgument(0).apply(transaction));
+  }
+
+  private static StateData stateData(Trigger trigger) {
+    return StateData.newBuilder().trigger(trigger).build();
+  }
+}
@@ -21,16 +21,25 @@
 package com.spotify.styx.state.handlers;
 
 import static com.spotify.styx.model.Schedule.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.RateLimiter;
 import com.spotify.styx.docker.DockerRunner;
 import com.spotify.styx.docker.DockerRunner.RunSpec;
 import com.spotify.styx.docker.InvalidExecutionException;
@@ -39,13 +48,19 @@ import com.spotify.styx.model.ExecutionDescription;
 import com.spotify.styx.model.Workflow;
 import com.spotify.styx.model.WorkflowConfiguration;
 import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.monitoring.Stats;
 import com.spotify.styx.state.RunState;
 import com.spotify.styx.state.RunState.State;
 import com.spotify.styx.state.StateData;
 import com.spotify.styx.state.StateManager;
+import com.spotify.styx.testdata.TestData;
 import com.spotify.styx.util.IsClosedException;
+import com.spotify.styx.util.Time;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import junitparams.JUnitParamsRunner;
 import junitparams.Parameters;
 import org.junit.Before;
@@ -73,6 +88,8 @@ public class DockerRunnerHandlerTest {
 
   @Mock DockerRunner dockerRunner;
   @Mock StateManager stateManager;
+  @Mock Stats stats;
+  @Mock Time time;
 
   @Captor ArgumentCaptor<WorkflowInstance> instanceCaptor;
   @Captor ArgumentCaptor<RunSpec> runSpecCaptor;
@@ -132,10 +149,90 @@ public class DockerRunnerHandlerTest {
 
     dockerRunnerHandler.transitionInto(runState);
 
-    verify(stateManager, timeout(60_000)).receive(Event.submitted(workflowInstance, TEST_EXECUTION_ID),
+    verify(stateManager, timeout(60_000)).receive(Event.submitted(workflowInstance, TEST_EXECUTION_ID, null),
         runState.counter());
   }
 
+  @Test
+  public void shouldStartOnSubmissionExecutor() throws Exception {
+    final List<Runnable> submissions = new ArrayList<>();
+    final DockerRunnerHandler handler = new DockerRunnerHandler(dockerRunner, stateManager, submissions::add,
+        RateLimiter.create(Double.MAX_VALUE), stats, time);
+    WorkflowInstance workflowInstance = WorkflowInstance.create(TestData.WORKFLOW_ID, "2016-03-14T15");
+    RunState runState = RunState.create(workflowInstance, State.SUBMITTING, StateData.newBuilder()
+        .executionId(TEST_EXECUTION_ID)
+        .executionDescription(EXECUTION_DESCRIPTION)
+        .build());
+
+    handler.transitionInto(runState);
+
+    verifyZeroInteractions(dockerRunner, stateManager);
+    assertThat(submissions, hasSize(1));
+
+    submissions.get(0).run();
+
+    verify(dockerRunner).start(eq(workflowInstance), any());
+    verify(stateManager).receive(Event.submitted(workflowInstance, TEST_EXECUTION_ID, null), runState.counter());
+  }
+
+  @Test
+  public void shouldStartOnSelectedRunner() throws Exception {
+    WorkflowInstance workflowInstance = WorkflowInstance.create(TestData.WORKFLOW_ID, "2016-03-14T15");
+    RunState runState = RunState.create(workflowInstance, State.SUBMITTING, StateData.newBuilder()
+        .executionId(TEST_EXECUTION_ID)
+        .executionDescription(EXECUTION_DESCRIPTION)
+        .build());
+    when(dockerRunner.selectRunner(workflowInstance)).thenReturn(Optional.of("cluster-1"));
+
+    dockerRunnerHandler.transitionInto(runState);
+
+    verify(dockerRunner, timeout(60_000)).start(eq(workflowInstance), runSpecCaptor.capture());
+    assertThat(runSpecCaptor.getValue().runnerId(), is(Optional.of("cluster-1")));
+    verify(stateManager, timeout(60_000)).receive(Event.submitted(workflowInstance, TEST_EXECUTION_ID, "cluster-1"),
+        runState.counter());
+  }
+
+  @Test
+  public void shouldStartOnRunnerRecordedInState() throws Exception {
+    WorkflowInstance workflowInstance = WorkflowInstance.create(TestData.WORKFLOW_ID, "2016-03-14T15");
+    RunState runState = RunState.create(workflowInstance, State.SUBMITTING, StateData.newBuilder()
+        .executionId(TEST_EXECUTION_ID)
+        .executionDescription(EXECUTION_DESCRIPTION)
+        .runnerId("cluster-2")
+        .build());
+
+    dockerRunnerHandler.transitionInto(runState);
+    dockerRunnerHandler.transitionInto(runState);
+
+    verify(dockerRunner, timeout(60_000).times(2)).start(eq(workflowInstance), runSpecCaptor.capture());
+    assertThat(runSpecCaptor.getAllValues().stream().map(RunSpec::runnerId).collect(toList()),
+        contains(Optional.of("cluster-2"), Optional.of("cluster-2")));
+    verify(dockerRunner, never()).selectRunner(any());
+  }
+
+  @Test
+  public void shouldRecordSubmissionStageLatencies() throws Exception {
+    final List<Runnable> submissions = new ArrayList<>();
+    final DockerRunnerHandler handler = new DockerRunnerHandler(dockerRunner, stateManager, submissions::add,
+        RateLimiter.create(Double.MAX_VALUE), stats, time);
+    WorkflowInstance workflowInstance = WorkflowInstance.create(TestData.WORKFLOW_ID, "2016-03-14T15");
+    RunState runState = RunState.create(workflowInstance, State.SUBMITTING, StateData.newBuilder()
+        .executionId(TEST_EXECUTION_ID)
+        .executionDescription(EXECUTION_DESCRIPTION)
+        .build());
+
+    when(time.nanoTime()).thenReturn(MILLISECONDS.toNanos(1000));
+    handler.transitionInto(runState);
+    when(time.nanoTime()).thenReturn(MILLISECONDS.toNanos(1017));
+    doAnswer(a -> when(time.nanoTime()).thenReturn(MILLISECONDS.toNanos(1060)))
+        .when(dockerRunner).start(any(), any());
+    submissions.get(0).run();
+
+    verify(stats).recordSubmissionStageLatency("queued", 17);
+    verify(stats).recordSubmissionStageLatency("throttled", 0);
+    verify(stats).recordSubmissionStageLatency("start", 43);
+  }
+
   @Test
   public void shouldFailIfDockerRunnerRaisesException() throws Exception {
     shouldFailIfDockerRunnerRaisesException(new IOException("Testing exception."));
@@ -0,0 +1,86 @@
+/*-
+ * -\-\-
+ * Spotify Styx Scheduler
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.state.handlers;
+
+import static com.spotify.styx.state.RunState.State.DONE;
+import static com.spotify.styx.state.RunState.State.RUNNING;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import com.spotify.styx.model.Event;
+import com.spotify.styx.model.SequenceEvent;
+import com.spotify.styx.model.WorkflowId;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.state.StateData;
+import com.spotify.styx.storage.Storage;
+import java.io.IOException;
+import java.time.Instant;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ExecutionDataHandlerTest {
+
+  private static final WorkflowInstance WORKFLOW_INSTANCE =
+      WorkflowInstance.create(WorkflowId.create("foo", "bar"), "2018-04-17");
+  private static final Instant NOW = Instant.parse("2018-04-18T01:00:00Z");
+
+  @Mock private Storage storage;
+
+  private ExecutionDataHandler handler;
+
+  @Before
+  public void setUp() {
+    handler = new ExecutionDataHandler(storage);
+  }
+
+  @Test
+  public void shouldMaterializeExecutionDataWhenTriggerCompletes() throws Exception {
+    handler.accept(SequenceEvent.create(Event.success(WORKFLOW_INSTANCE), 5L, NOW.toEpochMilli()),
+        RunState.create(WORKFLOW_INSTANCE, DONE, StateData.zero(), NOW, 5L));
+
+    verify(storage).materializeExecutionData(WORKFLOW_INSTANCE);
+  }
+
+  @Test
+  public void shouldNotMaterializeExecutionDataOfTriggerInProgress() {
+    handler.accept(SequenceEvent.create(Event.started(WORKFLOW_INSTANCE), 4L, NOW.toEpochMilli()),
+        RunState.create(WORKFLOW_INSTANCE, RUNNING, StateData.zero(), NOW, 4L));
+
+    verifyZeroInteractions(storage);
+  }
+
+  @Test
+  public void shouldNotFailIfMaterializingFails() throws Exception {
+    doThrow(new IOException()).when(storage).materializeExecutionData(any());
+
+    handler.accept(SequenceEvent.create(Event.success(WORKFLOW_INSTANCE), 5L, NOW.toEpochMilli()),
+        RunState.create(WORKFLOW_INSTANCE, DONE, StateData.zero(), NOW, 5L));
+
+    verify(storage).materializeExecutionData(WORKFLOW_INSTANCE);
+  }
+}
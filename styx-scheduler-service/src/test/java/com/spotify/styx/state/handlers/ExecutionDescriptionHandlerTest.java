@@ -31,9 +31,11 @@ import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.core.Is.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.spotify.styx.docker.DockerRunner;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.EventVisitor;
 import com.spotify.styx.model.ExecutionDescription;
@@ -72,6 +74,7 @@ public class ExecutionDescriptionHandlerTest {
 
   @Mock Storage storage;
   @Mock StateManager stateManager;
+  @Mock DockerRunner dockerRunner;
   @Mock EventVisitor<Void> eventVisitor;
 
   @Captor ArgumentCaptor<WorkflowInstance> workflowInstanceCaptor;
@@ -85,7 +88,7 @@ public class ExecutionDescriptionHandlerTest {
   public void setUp() throws Exception {
     when(workflowValidator.validateWorkflow(any())).thenReturn(Collections.emptyList());
 
-    toTest = new ExecutionDescriptionHandler(storage, stateManager, workflowValidator);
+    toTest = new ExecutionDescriptionHandler(storage, stateManager, workflowValidator, dockerRunner);
   }
 
   @Test
@@ -103,7 +106,8 @@ public class ExecutionDescriptionHandlerTest {
     final Event event = eventCaptor.getValue();
     event.accept(eventVisitor);
     verify(eventVisitor)
-        .submit(workflowInstanceCaptor.capture(), executionDescriptionCaptor.capture(), executionIdCaptor.capture());
+        .submit(workflowInstanceCaptor.capture(), executionDescriptionCaptor.capture(), executionIdCaptor.capture(),
+            isNull());
 
     assertThat(executionIdCaptor.getValue(), startsWith("styx-run-"));
     assertThat(executionDescriptionCaptor.getValue().dockerImage(), is(DOCKER_IMAGE));
@@ -127,7 +131,8 @@ public class ExecutionDescriptionHandlerTest {
     event.accept(eventVisitor);
 
     verify(eventVisitor)
-        .submit(workflowInstanceCaptor.capture(), executionDescriptionCaptor.capture(), executionIdCaptor.capture());
+        .submit(workflowInstanceCaptor.capture(), executionDescriptionCaptor.capture(), executionIdCaptor.capture(),
+            isNull());
 
     assertThat(executionIdCaptor.getValue(), startsWith("styx-run-"));
     assertThat(executionDescriptionCaptor.getValue().dockerImage(), is(DOCKER_IMAGE));
@@ -135,6 +140,34 @@ public class ExecutionDescriptionHandlerTest {
     assertThat(executionDescriptionCaptor.getValue().dockerArgs(), contains("--date", "2016-03-14", "--bar"));
   }
 
+  @Test
+  public void shouldSubmitWithSelectedRunner() throws Exception {
+    Workflow workflow = Workflow.create("id", workflowConfiguration("--date", "{}", "--bar"));
+    WorkflowInstance workflowInstance = WorkflowInstance.create(workflow.id(), "2016-03-14");
+    RunState runState = RunState.create(workflowInstance, PREPARE, NOW, COUNTER);
+
+    when(storage.workflow(workflow.id())).thenReturn(Optional.of(workflow));
+    when(dockerRunner.selectRunner(workflowInstance)).thenReturn(Optional.of("cluster-1"));
+
+    toTest.transitionInto(runState);
+
+    verify(stateManager).receive(eventCaptor.capture(), eq(COUNTER));
+    eventCaptor.getValue().accept(eventVisitor);
+    verify(eventVisitor).submit(eq(workflowInstance), any(), any(), eq("cluster-1"));
+  }
+
+  @Test
+  public void shouldFailIfRunnerSelectionFails() throws Exception {
+    WorkflowInstance workflowInstance = WorkflowInstance.create(WorkflowId.create("c", "e"), "2016-03-14T15");
+    RunState runState = RunState.create(workflowInstance, PREPARE, NOW, COUNTER);
+
+    when(dockerRunner.selectRunner(workflowInstance)).thenThrow(new IllegalStateException("no runner"));
+
+    toTest.transitionInto(runState);
+
+    verify(stateManager).receiveIgnoreClosed(Event.runError(workflowInstance, "no runner"), COUNTER);
+  }
+
   @Test
   public void shouldTransitionIntoFailedIfStorageError() throws Exception {
     Workflow workflow = Workflow.create("id", workflowConfiguration("--date", "{}", "--bar"));
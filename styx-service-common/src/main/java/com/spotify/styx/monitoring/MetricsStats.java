@@ -119,6 +119,10 @@ public final class MetricsStats implements Stats {
       .tagged("what", "natural-trigger-rate")
       .tagged("unit", "trigger");
 
+  static final MetricId NATURAL_TRIGGER_LAG = BASE
+      .tagged("what", "natural-trigger-lag")
+      .tagged("unit", UNIT_MILLISECOND);
+
   static final MetricId TERMINATION_LOG_MISSING = BASE
       .tagged("what", "termination-log-missing");
 
@@ -163,6 +167,26 @@ public final class MetricsStats implements Stats {
   static final MetricId COUNTER_CACHE_RATE = BASE
       .tagged("what", "counter-cache-rate");
 
+  static final MetricId POD_WATCH_UPTIME = BASE
+      .tagged("what", "pod-watch-uptime")
+      .tagged("unit", UNIT_SECOND);
+
+  static final MetricId POD_WATCH_RECONNECT_RATE = BASE
+      .tagged("what", "pod-watch-reconnect-rate")
+      .tagged("unit", "reconnect");
+
+  static final MetricId POD_EVENT_LAG = BASE
+      .tagged("what", "pod-event-lag")
+      .tagged("unit", UNIT_MILLISECOND);
+
+  static final MetricId BACKFILL_TRIGGER_RATE = BASE
+      .tagged("what", "backfill-trigger-rate")
+      .tagged("unit", "trigger");
+
+  static final MetricId SUBMISSION_STAGE_DURATION = BASE
+      .tagged("what", "submission-stage-duration")
+      .tagged("unit", UNIT_MILLISECOND);
+
   private static final String STATUS = "status";
   private static final String COUNTER_CACHE_RESULT = "result";
   private static final String COUNTER_CACHE_HIT = "hit";
@@ -174,12 +198,14 @@ public final class MetricsStats implements Stats {
   private final Histogram submitToRunning;
   private final Meter pullImageErrorMeter;
   private final Meter naturalTrigger;
+  private final Histogram naturalTriggerLag;
   private final Meter terminationLogMissing;
   private final Meter terminationLogInvalid;
   private final Meter exitCodeMismatch;
   private final Meter workflowConsumerErrorMeter;
   private final Meter counterCacheHitMeter;
   private final Meter counterCacheMissMeter;
+  private final Histogram podEventLag;
   private final ConcurrentMap<String, Histogram> storageOperationHistograms;
   private final ConcurrentMap<String, Meter> storageOperationMeters;
   private final ConcurrentMap<String, Histogram> dockerOperationHistograms;
@@ -196,6 +222,14 @@ public final class MetricsStats implements Stats {
   private final ConcurrentMap<String, Meter> workflowConsumerMeters;
   private final ConcurrentMap<String, Histogram> tickHistograms;
   private final ConcurrentMap<Tuple2<String, String>, Meter> datastoreOperationMeters;
+  private final ConcurrentMap<String, Meter> podWatchReconnectMeters;
+  private final ConcurrentMap<String, Histogram> submissionStageHistograms;
+
+  /**
+   * Backfill trigger meters keyed on backfill id. Meters of backfills that stop triggering are
+   * evicted and removed from the registry.
+   */
+  private final Cache<String, Meter> backfillTriggerMeters;
 
   /**
    * Submission timestamps (nanotime) keyed on execution id.
@@ -211,12 +245,14 @@ public final class MetricsStats implements Stats {
     this.submitToRunning = registry.getOrAdd(TRANSITIONING_DURATION, HISTOGRAM);
     this.pullImageErrorMeter = registry.meter(PULL_IMAGE_ERROR_RATE);
     this.naturalTrigger = registry.meter(NATURAL_TRIGGER_RATE);
+    this.naturalTriggerLag = registry.getOrAdd(NATURAL_TRIGGER_LAG, HISTOGRAM);
     this.terminationLogMissing = registry.meter(TERMINATION_LOG_MISSING);
     this.terminationLogInvalid = registry.meter(TERMINATION_LOG_INVALID);
     this.exitCodeMismatch = registry.meter(EXIT_CODE_MISMATCH);
     this.workflowConsumerErrorMeter = registry.meter(WORKFLOW_CONSUMER_ERROR_RATE);
     this.counterCacheHitMeter = registry.meter(COUNTER_CACHE_RATE.tagged(COUNTER_CACHE_RESULT, COUNTER_CACHE_HIT));
     this.counterCacheMissMeter = registry.meter(COUNTER_CACHE_RATE.tagged(COUNTER_CACHE_RESULT, COUNTER_CACHE_MISS));
+    this.podEventLag = registry.getOrAdd(POD_EVENT_LAG, HISTOGRAM);
     this.storageOperationHistograms = new ConcurrentHashMap<>();
     this.storageOperationMeters = new ConcurrentHashMap<>();
     this.dockerOperationHistograms = new ConcurrentHashMap<>();
@@ -233,6 +269,13 @@ public final class MetricsStats implements Stats {
     this.workflowConsumerMeters = new ConcurrentHashMap<>();
     this.tickHistograms = new ConcurrentHashMap<>();
     this.datastoreOperationMeters = new ConcurrentHashMap<>();
+    this.podWatchReconnectMeters = new ConcurrentHashMap<>();
+    this.submissionStageHistograms = new ConcurrentHashMap<>();
+    this.backfillTriggerMeters = CacheBuilder.newBuilder()
+        .expireAfterAccess(1, TimeUnit.HOURS)
+        .<String, Meter>removalListener(notification ->
+            registry.remove(backfillTriggerRateId(notification.getKey())))
+        .build();
   }
 
   @Override
@@ -299,6 +342,11 @@ public final class MetricsStats implements Stats {
     naturalTrigger.mark();
   }
 
+  @Override
+  public void recordNaturalTriggerLag(long lagMillis) {
+    naturalTriggerLag.update(lagMillis);
+  }
+
   @Override
   public void recordTerminationLogMissing() {
     terminationLogMissing.mark();
@@ -394,6 +442,34 @@ public final class MetricsStats implements Stats {
     counterCacheMissMeter.mark();
   }
 
+  @Override
+  public void registerPodWatchUptimeMetric(Gauge<Long> uptimeSeconds) {
+    // A docker runner replacing a closed one takes over the metric
+    registry.remove(POD_WATCH_UPTIME);
+    registry.register(POD_WATCH_UPTIME, uptimeSeconds);
+  }
+
+  @Override
+  public void recordPodWatchReconnect(String type) {
+    podWatchReconnectMeter(type).mark();
+  }
+
+  @Override
+  public void recordBackfillTrigger(String backfillId) {
+    backfillTriggerMeters.asMap().computeIfAbsent(
+        backfillId, id -> registry.meter(backfillTriggerRateId(id))).mark();
+  }
+
+  @Override
+  public void recordPodEventLag(long lagMillis) {
+    podEventLag.update(lagMillis);
+  }
+
+  @Override
+  public void recordSubmissionStageLatency(String stage, long durationMillis) {
+    submissionStageHistogram(stage).update(durationMillis);
+  }
+
   private void recordDatastoreOperations(String operation, String kind, int n) {
     datastoreOperationMeter(operation, kind).mark(n);
   }
@@ -484,4 +560,18 @@ public final class MetricsStats implements Stats {
     return datastoreOperationMeters.computeIfAbsent(Tuple.of(operation, kind),
         t -> registry.meter(DATASTORE_OPERATION_RATE.tagged("operation", operation, "kind", kind)));
   }
+
+  private Meter podWatchReconnectMeter(String type) {
+    return podWatchReconnectMeters.computeIfAbsent(
+        type, (op) -> registry.meter(POD_WATCH_RECONNECT_RATE.tagged("type", type)));
+  }
+
+  private static MetricId backfillTriggerRateId(String backfillId) {
+    return BACKFILL_TRIGGER_RATE.tagged("backfill", backfillId);
+  }
+
+  private Histogram submissionStageHistogram(String stage) {
+    return submissionStageHistograms.computeIfAbsent(
+        stage, (op) -> registry.getOrAdd(SUBMISSION_STAGE_DURATION.tagged("stage", stage), HISTOGRAM));
+  }
 }
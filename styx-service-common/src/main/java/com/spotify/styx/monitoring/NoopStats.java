@@ -82,6 +82,11 @@ final class NoopStats implements Stats {
     // nop
   }
 
+  @Override
+  public void recordNaturalTriggerLag(long lagMillis) {
+    // nop
+  }
+
   @Override
   public void recordTerminationLogMissing() {
     // nop
@@ -176,4 +181,29 @@ final class NoopStats implements Stats {
   public void recordCounterCacheMiss() {
     // nop
   }
+
+  @Override
+  public void registerPodWatchUptimeMetric(Gauge<Long> uptimeSeconds) {
+    // nop
+  }
+
+  @Override
+  public void recordPodWatchReconnect(String type) {
+    // nop
+  }
+
+  @Override
+  public void recordBackfillTrigger(String backfillId) {
+    // nop
+  }
+
+  @Override
+  public void recordPodEventLag(long lagMillis) {
+    // nop
+  }
+
+  @Override
+  public void recordSubmissionStageLatency(String stage, long durationMillis) {
+    // nop
+  }
 }
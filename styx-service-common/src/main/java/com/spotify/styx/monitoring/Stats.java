@@ -53,6 +53,8 @@ public interface Stats {
 
   void recordNaturalTrigger();
 
+  void recordNaturalTriggerLag(long lagMillis);
+
   void recordTerminationLogMissing();
 
   void recordTerminationLogInvalid();
@@ -90,4 +92,14 @@ public interface Stats {
   void recordCounterCacheHit();
 
   void recordCounterCacheMiss();
+
+  void registerPodWatchUptimeMetric(Gauge<Long> uptimeSeconds);
+
+  void recordPodWatchReconnect(String type);
+
+  void recordBackfillTrigger(String backfillId);
+
+  void recordPodEventLag(long lagMillis);
+
+  void recordSubmissionStageLatency(String stage, long durationMillis);
 }
@@ -211,7 +211,7 @@ public abstract class RunState {
 
     @Override
     public RunState submit(WorkflowInstance workflowInstance, ExecutionDescription executionDescription,
-        String executionId) {
+        String executionId, String runnerId) {
       switch (state()) {
         case QUEUED: // for backwards compatibility
         case PREPARE:
@@ -220,6 +220,7 @@ public abstract class RunState {
               data().builder()
                   .executionDescription(executionDescription)
                   .executionId(executionId)
+                  .runnerId(Optional.ofNullable(runnerId))
                   .build());
 
         default:
@@ -228,7 +229,7 @@ public abstract class RunState {
     }
 
     @Override
-    public RunState submitted(WorkflowInstance workflowInstance, String executionId) {
+    public RunState submitted(WorkflowInstance workflowInstance, String executionId, String runnerId) {
       switch (state()) {
         case SUBMITTING:
           return state(
@@ -237,6 +238,7 @@ public abstract class RunState {
                   .tries(data().tries() + 1)
                   // backwards compatibility
                   .executionId(data().executionId().orElse(executionId))
+                  .runnerId(Optional.ofNullable(runnerId))
                   .build());
 
         default:
@@ -21,6 +21,7 @@
 package com.spotify.styx.storage;
 
 import com.google.cloud.datastore.Datastore;
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
 import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Resource;
 import com.spotify.styx.model.SequenceEvent;
@@ -40,6 +41,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
+import javaslang.control.Try;
 import org.apache.hadoop.hbase.client.Connection;
 
 /**
@@ -62,6 +64,7 @@ public class AggregateStorage implements Storage {
 
   @Override
   public void close() throws IOException {
+    bigtableStorage.close();
     datastoreStorage.close();
   }
 
@@ -108,6 +111,12 @@ public class AggregateStorage implements Storage {
     return datastoreStorage.readActiveState(workflowInstance);
   }
 
+  @Override
+  public Map<WorkflowInstance, RunState> readActiveStates(List<WorkflowInstance> workflowInstances)
+      throws IOException {
+    return datastoreStorage.readActiveStates(workflowInstances);
+  }
+
   @Override
   public Map<WorkflowInstance, RunState> readActiveStatesByTriggerId(
       String triggerId) throws IOException {
@@ -151,6 +160,11 @@ public class AggregateStorage implements Storage {
     return bigtableStorage.executionData(workflowId, start, stop);
   }
 
+  @Override
+  public void materializeExecutionData(WorkflowInstance workflowInstance) throws IOException {
+    bigtableStorage.materializeExecutionData(workflowInstance);
+  }
+
 
   @Override
   public void storeWorkflow(Workflow workflow) throws IOException {
@@ -228,6 +242,11 @@ public class AggregateStorage implements Storage {
     datastoreStorage.storeBackfill(backfill);
   }
 
+  @Override
+  public List<RunStateData> backfillStatuses(String backfillId, String offset, int limit) throws IOException {
+    return datastoreStorage.getBackfillStatuses(backfillId, offset, limit);
+  }
+
   @Override
   public Map<Integer, Long> shardsForCounter(String counterId) throws IOException {
     return datastoreStorage.shardsForCounter(counterId);
@@ -267,4 +286,9 @@ public class AggregateStorage implements Storage {
   public <T, E extends Exception> T runInTransaction(TransactionFunction<T, E> f) throws IOException, E {
     return datastoreStorage.runInTransaction(f);
   }
+
+  @Override
+  public <I, T> List<Try<T>> runInBatchedTransactions(List<I> items, BatchTransactionFunction<I, T> f) {
+    return datastoreStorage.runInBatchedTransactions(items, f);
+  }
 }
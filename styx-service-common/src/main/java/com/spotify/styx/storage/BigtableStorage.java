@@ -20,13 +20,17 @@
 
 package com.spotify.styx.storage;
 
+import static com.spotify.styx.serialization.Json.deserialize;
 import static com.spotify.styx.serialization.Json.deserializeEvent;
 import static com.spotify.styx.serialization.Json.serialize;
 
 import com.google.cloud.datastore.DatastoreException;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.SequenceEvent;
 import com.spotify.styx.model.WorkflowId;
@@ -35,23 +39,37 @@ import com.spotify.styx.model.data.WorkflowInstanceExecutionData;
 import com.spotify.styx.util.ResourceNotFoundException;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.stream.Collectors;
 import javaslang.control.Try;
 import okio.ByteString;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter.RowRange;
+import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,23 +77,49 @@ import org.slf4j.LoggerFactory;
 /**
  * A backend for {@link AggregateStorage} backed by Google Bigtable
  */
-public class BigtableStorage {
+public class BigtableStorage implements AutoCloseable {
 
   private static final Logger LOG = LoggerFactory.getLogger(BigtableStorage.class);
 
   public static final TableName EVENTS_TABLE_NAME = TableName.valueOf("styx_events");
+  public static final TableName WORKFLOW_INSTANCES_TABLE_NAME =
+      TableName.valueOf("styx_workflow_instances");
 
   public static final byte[] EVENT_CF = Bytes.toBytes("event");
   public static final byte[] EVENT_QUALIFIER = Bytes.toBytes("event");
 
+  public static final byte[] INSTANCE_CF = Bytes.toBytes("instance");
+  public static final byte[] COUNTER_QUALIFIER = Bytes.toBytes("counter");
+  public static final byte[] EXECUTION_DATA_QUALIFIER = Bytes.toBytes("execution_data");
+  public static final byte[] EXECUTION_COUNTER_QUALIFIER = Bytes.toBytes("execution_counter");
+  public static final byte[] INDEXED_QUALIFIER = Bytes.toBytes("indexed");
+
+  // events that complete a trigger, and so advance the materialised execution data
   public static final int MAX_BIGTABLE_RETRIES = 100;
 
+  // number of workflow instances whose events are read in one multi range scan
+  private static final int EVENT_READ_BATCH_SIZE = 50;
+  private static final int EVENT_READ_THREADS = 8;
+
+  private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("bigtable-event-reader-%d")
+      .build();
+
   private final Connection connection;
   private final Duration retryBaseDelay;
+  private final ExecutorService eventReadExecutor;
+  private final Set<WorkflowId> indexedWorkflows = ConcurrentHashMap.newKeySet();
 
   BigtableStorage(Connection connection, Duration retryBaseDelay) {
     this.connection = Objects.requireNonNull(connection);
     this.retryBaseDelay = Objects.requireNonNull(retryBaseDelay);
+    this.eventReadExecutor = Executors.newFixedThreadPool(EVENT_READ_THREADS, THREAD_FACTORY);
+  }
+
+  @Override
+  public void close() {
+    eventReadExecutor.shutdown();
   }
 
   SortedSet<SequenceEvent> readEvents(WorkflowInstance workflowInstance) throws IOException {
@@ -92,119 +136,360 @@ public class BigtableStorage {
     }
   }
 
+  /**
+   * Write an event, and then record its counter in the workflow instance index row, which both
+   * lists the instance and holds its latest stored counter. The index row is written after the
+   * event so that it never points past a stored event.
+   */
   void writeEvent(SequenceEvent sequenceEvent) throws IOException {
     storeWithRetries(() -> {
+      final WorkflowInstance workflowInstance = sequenceEvent.event().workflowInstance();
       try (final Table eventsTable = connection.getTable(EVENTS_TABLE_NAME)) {
-        final String workflowInstanceKey = sequenceEvent.event().workflowInstance().toKey();
-        final String keyString = String.format("%s#%08d", workflowInstanceKey, sequenceEvent.counter());
-        final byte[] key = Bytes.toBytes(keyString);
+        final byte[] key = eventKey(workflowInstance, sequenceEvent.counter());
         final Put put = new Put(key, sequenceEvent.timestamp());
 
         final byte[] eventBytes = serialize(sequenceEvent.event()).toByteArray();
         put.addColumn(EVENT_CF, EVENT_QUALIFIER, eventBytes);
         eventsTable.put(put);
       }
+      try (final Table instancesTable = connection.getTable(WORKFLOW_INSTANCES_TABLE_NAME)) {
+        final Put put = new Put(Bytes.toBytes(workflowInstance.toKey()), sequenceEvent.timestamp());
+        put.addColumn(INSTANCE_CF, COUNTER_QUALIFIER, Bytes.toBytes(sequenceEvent.counter()));
+        instancesTable.put(put);
+      }
     });
   }
 
+  /**
+   * Fold the events of triggers completed since the last materialisation into the execution data
+   * stored in the workflow instance index row, along with the counter of the event that completed
+   * the last trigger. Reads then only replay the events after that counter.
+   */
+  void materializeExecutionData(WorkflowInstance workflowInstance) throws IOException {
+    final WFIExecutionBuilder builder = executionBuilder(workflowInstance);
+    final long completedCounter = builder.completedCounter();
+    builder.reduce(readEvents(workflowInstance, completedCounter + 1));
+
+    final Optional<WorkflowInstanceExecutionData> completedTriggers = builder.completedTriggers();
+    if (builder.completedCounter() == completedCounter || !completedTriggers.isPresent()) {
+      return;
+    }
+
+    try (final Table instancesTable = connection.getTable(WORKFLOW_INSTANCES_TABLE_NAME)) {
+      final Put put = new Put(Bytes.toBytes(workflowInstance.toKey()));
+      put.addColumn(INSTANCE_CF, EXECUTION_DATA_QUALIFIER,
+          serialize(completedTriggers.get()).toByteArray());
+      put.addColumn(INSTANCE_CF, EXECUTION_COUNTER_QUALIFIER,
+          Bytes.toBytes(builder.completedCounter()));
+      instancesTable.put(put);
+    }
+  }
+
   List<WorkflowInstanceExecutionData> executionData(WorkflowId workflowId, String offset, int limit)
       throws IOException {
-    try (final Table eventsTable = connection.getTable(EVENTS_TABLE_NAME)) {
+    ensureIndexed(workflowId);
+    try (final Table instancesTable = connection.getTable(WORKFLOW_INSTANCES_TABLE_NAME)) {
       final Scan scan = new Scan()
           .setRowPrefixFilter(Bytes.toBytes(workflowId.toKey() + '#'))
-          .setFilter(new FirstKeyOnlyFilter());
+          .setFilter(new PageFilter(limit));
+      addIndexColumns(scan);
 
       if (!Strings.isNullOrEmpty(offset)) {
         final WorkflowInstance offsetInstance = WorkflowInstance.create(workflowId, offset);
-        scan.setStartRow(Bytes.toBytes(offsetInstance.toKey() + '#'));
+        scan.setStartRow(Bytes.toBytes(offsetInstance.toKey()));
       }
 
-      final Set<WorkflowInstance> workflowInstancesSet = Sets.newHashSet();
-      try (ResultScanner scanner = eventsTable.getScanner(scan)) {
-        Result result = scanner.next();
-        while (result != null) {
-          final String key = new String(result.getRow());
-          final int lastHash = key.lastIndexOf('#');
-
-          final WorkflowInstance wfi = WorkflowInstance.parseKey(key.substring(0, lastHash));
-          workflowInstancesSet.add(wfi);
-          if (workflowInstancesSet.size() == limit) {
+      final Map<WorkflowInstance, WFIExecutionBuilder> builders = Maps.newHashMap();
+      try (ResultScanner scanner = instancesTable.getScanner(scan)) {
+        for (Result result : scanner) {
+          builders.put(WorkflowInstance.parseKey(new String(result.getRow())), executionBuilder(result));
+          if (builders.size() == limit) {
             break;
           }
-
-          result = scanner.next();
         }
       }
 
-      return executionData(workflowInstancesSet);
+      return executionData(builders);
     }
   }
 
   List<WorkflowInstanceExecutionData> executionData(WorkflowId workflowId, String start, String stop)
       throws IOException {
-    try (final Table eventsTable = connection.getTable(EVENTS_TABLE_NAME)) {
+    ensureIndexed(workflowId);
+    try (final Table instancesTable = connection.getTable(WORKFLOW_INSTANCES_TABLE_NAME)) {
       final Scan scan = new Scan()
-          .setRowPrefixFilter(Bytes.toBytes(workflowId.toKey() + '#'))
-          .setFilter(new FirstKeyOnlyFilter());
+          .setRowPrefixFilter(Bytes.toBytes(workflowId.toKey() + '#'));
+      addIndexColumns(scan);
 
       final WorkflowInstance startRow = WorkflowInstance.create(workflowId, start);
-      scan.setStartRow(Bytes.toBytes(startRow.toKey() + '#'));
+      scan.setStartRow(Bytes.toBytes(startRow.toKey()));
 
       if (!Strings.isNullOrEmpty(stop)) {
         final WorkflowInstance stopRow = WorkflowInstance.create(workflowId, stop);
-        scan.setStopRow(Bytes.toBytes(stopRow.toKey() + '#'));
+        scan.setStopRow(Bytes.toBytes(stopRow.toKey()));
       }
 
-      final Set<WorkflowInstance> workflowInstancesSet = Sets.newHashSet();
-      try (ResultScanner scanner = eventsTable.getScanner(scan)) {
-        Result result = scanner.next();
-        while (result != null) {
-          final String key = new String(result.getRow());
-          final int lastHash = key.lastIndexOf('#');
+      final Map<WorkflowInstance, WFIExecutionBuilder> builders = Maps.newHashMap();
+      try (ResultScanner scanner = instancesTable.getScanner(scan)) {
+        for (Result result : scanner) {
+          builders.put(WorkflowInstance.parseKey(new String(result.getRow())), executionBuilder(result));
+        }
+      }
+
+      return executionData(builders);
+    }
+  }
 
-          final WorkflowInstance wfi = WorkflowInstance.parseKey(key.substring(0, lastHash));
-          workflowInstancesSet.add(wfi);
+  /**
+   * Make sure the workflow instance index lists every instance of a workflow. Instances whose
+   * events were all written before the index was introduced have no index row, so the first
+   * listing of a workflow scans its event rows once, writes the missing index rows and then marks
+   * the workflow as indexed in a row keyed by the workflow id.
+   */
+  private void ensureIndexed(WorkflowId workflowId) throws IOException {
+    if (indexedWorkflows.contains(workflowId)) {
+      return;
+    }
 
-          result = scanner.next();
+    final byte[] markerRow = Bytes.toBytes(workflowId.toKey());
+    try (final Table instancesTable = connection.getTable(WORKFLOW_INSTANCES_TABLE_NAME)) {
+      final Result marker = instancesTable.get(
+          new Get(markerRow).addColumn(INSTANCE_CF, INDEXED_QUALIFIER));
+      if (marker.isEmpty()) {
+        final Set<String> indexedInstances = Sets.newHashSet();
+        final Scan indexScan = new Scan()
+            .setRowPrefixFilter(Bytes.toBytes(workflowId.toKey() + '#'))
+            .setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+        try (ResultScanner scanner = instancesTable.getScanner(indexScan)) {
+          for (Result result : scanner) {
+            indexedInstances.add(new String(result.getRow()));
+          }
         }
+
+        final List<Put> puts = missingIndexRows(workflowId, indexedInstances);
+        if (!puts.isEmpty()) {
+          LOG.info("Indexing {} workflow instances of {}", puts.size(), workflowId);
+          instancesTable.put(puts);
+        }
+        instancesTable.put(new Put(markerRow)
+            .addColumn(INSTANCE_CF, INDEXED_QUALIFIER, Bytes.toBytes(true)));
       }
+    }
 
-      return executionData(workflowInstancesSet);
+    indexedWorkflows.add(workflowId);
+  }
+
+  /**
+   * Build index rows for the instances of a workflow that have events but no index row, holding
+   * the counter of the latest event. The rows are written at the timestamp of that event, so they
+   * never shadow a concurrent write of a newer event.
+   */
+  private List<Put> missingIndexRows(WorkflowId workflowId, Set<String> indexedInstances)
+      throws IOException {
+    final Map<String, Put> puts = Maps.newLinkedHashMap();
+    try (final Table eventsTable = connection.getTable(EVENTS_TABLE_NAME)) {
+      final Scan scan = new Scan()
+          .setRowPrefixFilter(Bytes.toBytes(workflowId.toKey() + '#'))
+          .setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+      try (ResultScanner scanner = eventsTable.getScanner(scan)) {
+        for (Result result : scanner) {
+          final String key = new String(result.getRow());
+          final int lastHash = key.lastIndexOf('#');
+          final String instanceKey = key.substring(0, lastHash);
+          if (indexedInstances.contains(instanceKey)) {
+            continue;
+          }
+          // event rows are ordered by counter, so the last row of an instance is its latest event
+          final long counter = Long.parseLong(key.substring(lastHash + 1));
+          final long timestamp = result.rawCells()[0].getTimestamp();
+          puts.put(instanceKey, new Put(Bytes.toBytes(instanceKey), timestamp)
+              .addColumn(INSTANCE_CF, COUNTER_QUALIFIER, Bytes.toBytes(counter)));
+        }
+      }
     }
+    return new ArrayList<>(puts.values());
   }
 
+  /**
+   * Read the latest stored counter of a workflow instance.
+   *
+   * <p>This is a single row get of the workflow instance index row, followed by a key-only scan of
+   * any event rows stored after the counter that row points at. The scan is normally empty, but
+   * covers events whose index update was lost or overtaken by an older write. Instances written
+   * before the index was introduced fall back to a key-only scan of all their event rows.
+   */
   Optional<Long> getLatestStoredCounter(WorkflowInstance workflowInstance)
       throws IOException {
-    final Set<SequenceEvent> storedEvents = readEvents(workflowInstance);
-    final Optional<SequenceEvent> lastStoredEvent = storedEvents.stream().reduce((a, b) -> b);
-    if (lastStoredEvent.isPresent()) {
-      return Optional.of(lastStoredEvent.get().counter());
-    } else {
-      return Optional.empty();
+    final Optional<Long> storedCounter;
+    try (final Table instancesTable = connection.getTable(WORKFLOW_INSTANCES_TABLE_NAME)) {
+      final Result result = instancesTable.get(
+          new Get(Bytes.toBytes(workflowInstance.toKey())).addColumn(INSTANCE_CF, COUNTER_QUALIFIER));
+      final byte[] counterBytes = result.getValue(INSTANCE_CF, COUNTER_QUALIFIER);
+      storedCounter = counterBytes == null
+          ? Optional.empty()
+          : Optional.of(Bytes.toLong(counterBytes));
+    }
+
+    try (final Table eventsTable = connection.getTable(EVENTS_TABLE_NAME)) {
+      final Scan scan = new Scan()
+          .setRowPrefixFilter(Bytes.toBytes(workflowInstance.toKey() + '#'))
+          .setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+      storedCounter.ifPresent(counter -> scan.setStartRow(eventKey(workflowInstance, counter + 1)));
+
+      Optional<Long> latestCounter = storedCounter;
+      try (ResultScanner scanner = eventsTable.getScanner(scan)) {
+        for (Result result : scanner) {
+          final String key = new String(result.getRow());
+          final long counter = Long.parseLong(key.substring(key.lastIndexOf('#') + 1));
+          if (!latestCounter.isPresent() || counter > latestCounter.get()) {
+            latestCounter = Optional.of(counter);
+          }
+        }
+      }
+      return latestCounter;
     }
   }
 
   WorkflowInstanceExecutionData executionData(WorkflowInstance workflowInstance) throws IOException {
-    SortedSet<SequenceEvent> events = readEvents(workflowInstance);
-    if (events.isEmpty()) {
+    final WFIExecutionBuilder builder = executionBuilder(workflowInstance);
+    final SortedSet<SequenceEvent> events =
+        readEvents(workflowInstance, builder.completedCounter() + 1);
+    if (events.isEmpty() && builder.completedCounter() < 0) {
       throw new ResourceNotFoundException("Workflow instance not found");
     }
 
-    return new WFIExecutionBuilder().executionInfo(events);
+    return builder.executionInfo(events);
   }
 
+  /**
+   * Read the events following the materialised execution data of a set of workflow instances, in
+   * multi range scans of {@link #EVENT_READ_BATCH_SIZE} instances each, running on a bounded
+   * executor.
+   */
   private List<WorkflowInstanceExecutionData> executionData(
-      Set<WorkflowInstance> workflowInstancesSet) {
-    return workflowInstancesSet.parallelStream()
-        .map(workflowInstance -> {
-          try {
-            return executionData(workflowInstance);
-          } catch (IOException e) {
-            throw Throwables.propagate(e);
-          }
-        })
-        .sorted(WorkflowInstanceExecutionData.COMPARATOR)
+      Map<WorkflowInstance, WFIExecutionBuilder> builders) throws IOException {
+    final List<WorkflowInstance> workflowInstances = builders.keySet().stream()
+        .sorted(WorkflowInstance.KEY_COMPARATOR)
         .collect(Collectors.toList());
+
+    final List<CompletableFuture<Map<WorkflowInstance, SortedSet<SequenceEvent>>>> futures =
+        Lists.partition(workflowInstances, EVENT_READ_BATCH_SIZE).stream()
+            .map(batch -> batch.stream().collect(Collectors.toMap(
+                wfi -> wfi, wfi -> builders.get(wfi).completedCounter() + 1)))
+            .map(fromCounters -> CompletableFuture.supplyAsync(() -> {
+              try {
+                return readEvents(fromCounters);
+              } catch (IOException e) {
+                throw new CompletionException(e);
+              }
+            }, eventReadExecutor))
+            .collect(Collectors.toList());
+
+    final List<WorkflowInstanceExecutionData> executionData = new ArrayList<>();
+    for (CompletableFuture<Map<WorkflowInstance, SortedSet<SequenceEvent>>> future : futures) {
+      final Map<WorkflowInstance, SortedSet<SequenceEvent>> events;
+      try {
+        events = future.join();
+      } catch (CompletionException e) {
+        Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+        throw e;
+      }
+      events.forEach((workflowInstance, instanceEvents) -> {
+        final WFIExecutionBuilder builder = builders.get(workflowInstance);
+        if (!instanceEvents.isEmpty() || builder.completedCounter() >= 0) {
+          executionData.add(builder.executionInfo(instanceEvents));
+        }
+      });
+    }
+
+    executionData.sort(WorkflowInstanceExecutionData.COMPARATOR);
+    return executionData;
+  }
+
+  private SortedSet<SequenceEvent> readEvents(WorkflowInstance workflowInstance, long fromCounter)
+      throws IOException {
+    try (final Table eventsTable = connection.getTable(EVENTS_TABLE_NAME)) {
+      final Scan scan = new Scan()
+          .setRowPrefixFilter(Bytes.toBytes(workflowInstance.toKey() + '#'))
+          .setStartRow(eventKey(workflowInstance, fromCounter));
+
+      final SortedSet<SequenceEvent> set = newSortedEventSet();
+      try (ResultScanner scanner = eventsTable.getScanner(scan)) {
+        for (Result result : scanner) {
+          set.add(parseEventResult(result));
+        }
+      }
+      return set;
+    }
+  }
+
+  /**
+   * Read the events of a batch of workflow instances, starting at the given counter of each, in a
+   * single multi range scan.
+   */
+  private Map<WorkflowInstance, SortedSet<SequenceEvent>> readEvents(
+      Map<WorkflowInstance, Long> fromCounters) throws IOException {
+    final Map<String, SortedSet<SequenceEvent>> events = Maps.newHashMap();
+    final List<RowRange> ranges = new ArrayList<>();
+    fromCounters.forEach((workflowInstance, fromCounter) -> {
+      final String instanceKey = workflowInstance.toKey();
+      events.put(instanceKey, newSortedEventSet());
+      final Scan prefixScan = new Scan().setRowPrefixFilter(Bytes.toBytes(instanceKey + '#'));
+      ranges.add(new RowRange(
+          eventKey(workflowInstance, fromCounter), true, prefixScan.getStopRow(), false));
+    });
+
+    try (final Table eventsTable = connection.getTable(EVENTS_TABLE_NAME)) {
+      final Scan scan = new Scan()
+          .setStartRow(ranges.stream().map(RowRange::getStartRow).min(Bytes.BYTES_COMPARATOR).get())
+          .setStopRow(ranges.stream().map(RowRange::getStopRow).max(Bytes.BYTES_COMPARATOR).get())
+          .setFilter(new MultiRowRangeFilter(ranges));
+
+      try (ResultScanner scanner = eventsTable.getScanner(scan)) {
+        for (Result result : scanner) {
+          final String key = new String(result.getRow());
+          final SortedSet<SequenceEvent> instanceEvents =
+              events.get(key.substring(0, key.lastIndexOf('#')));
+          if (instanceEvents != null) {
+            instanceEvents.add(parseEventResult(result));
+          }
+        }
+      }
+    }
+
+    return fromCounters.keySet().stream()
+        .collect(Collectors.toMap(wfi -> wfi, wfi -> events.get(wfi.toKey())));
+  }
+
+  private WFIExecutionBuilder executionBuilder(WorkflowInstance workflowInstance)
+      throws IOException {
+    try (final Table instancesTable = connection.getTable(WORKFLOW_INSTANCES_TABLE_NAME)) {
+      final Get get = new Get(Bytes.toBytes(workflowInstance.toKey()))
+          .addColumn(INSTANCE_CF, EXECUTION_DATA_QUALIFIER)
+          .addColumn(INSTANCE_CF, EXECUTION_COUNTER_QUALIFIER);
+      return executionBuilder(instancesTable.get(get));
+    }
+  }
+
+  /**
+   * Create a {@link WFIExecutionBuilder} resuming from the execution data materialised in a
+   * workflow instance index row, if any.
+   */
+  private static WFIExecutionBuilder executionBuilder(Result indexRow) throws IOException {
+    final byte[] executionData = indexRow.getValue(INSTANCE_CF, EXECUTION_DATA_QUALIFIER);
+    final byte[] executionCounter = indexRow.getValue(INSTANCE_CF, EXECUTION_COUNTER_QUALIFIER);
+    if (executionData == null || executionCounter == null) {
+      return new WFIExecutionBuilder();
+    }
+    return new WFIExecutionBuilder(
+        deserialize(ByteString.of(executionData), WorkflowInstanceExecutionData.class),
+        Bytes.toLong(executionCounter));
+  }
+
+  private static void addIndexColumns(Scan scan) {
+    scan.addColumn(INSTANCE_CF, COUNTER_QUALIFIER)
+        .addColumn(INSTANCE_CF, EXECUTION_DATA_QUALIFIER)
+        .addColumn(INSTANCE_CF, EXECUTION_COUNTER_QUALIFIER);
   }
 
   private SequenceEvent parseEventResult(Result r) throws IOException {
@@ -243,6 +528,10 @@ public class BigtableStorage {
     }
   }
 
+  private static byte[] eventKey(WorkflowInstance workflowInstance, long counter) {
+    return Bytes.toBytes(String.format("%s#%08d", workflowInstance.toKey(), counter));
+  }
+
   private static TreeSet<SequenceEvent> newSortedEventSet() {
     return Sets.newTreeSet(SequenceEvent.COUNTER_COMPARATOR);
   }
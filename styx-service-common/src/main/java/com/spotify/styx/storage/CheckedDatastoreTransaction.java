@@ -21,19 +21,35 @@
 package com.spotify.styx.storage;
 
 import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.FullEntity;
+import com.google.cloud.datastore.IncompleteKey;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.PathElement;
 import com.google.cloud.datastore.Transaction;
 import com.google.cloud.datastore.Transaction.Response;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * A wrapper for {@link Transaction} that translates unchecked {@link DatastoreException}s to checked
  * {@link DatastoreIOException}s.
+ *
+ * <p>Also keeps track of the number of mutations and the entity groups touched by the transaction, so
+ * that callers batching work into a single transaction can stay within the Datastore limits.
  */
 class CheckedDatastoreTransaction extends CheckedDatastoreReaderWriter {
 
   private final CheckedDatastore datastore;
   final Transaction tx;
 
+  private final Set<PathElement> entityGroups = new HashSet<>();
+  private int newEntityGroups;
+  private int mutations;
+
   /**
    * Create a new {@link CheckedDatastoreTransaction} wrapping a {@link Transaction}.
    */
@@ -43,6 +59,86 @@ class CheckedDatastoreTransaction extends CheckedDatastoreReaderWriter {
     this.tx = Objects.requireNonNull(tx);
   }
 
+  @Override
+  Entity put(FullEntity<?> entity) throws IOException {
+    recordMutation(entity.getKey());
+    return super.put(entity);
+  }
+
+  @Override
+  Entity add(FullEntity<?> entity) throws IOException {
+    recordMutation(entity.getKey());
+    return super.add(entity);
+  }
+
+  @Override
+  void update(Entity... entities) throws IOException {
+    for (Entity entity : entities) {
+      recordMutation(entity.getKey());
+    }
+    super.update(entities);
+  }
+
+  @Override
+  void delete(Key... keys) throws IOException {
+    for (Key key : keys) {
+      recordMutation(key);
+    }
+    super.delete(keys);
+  }
+
+  @Override
+  Entity get(Key key) throws IOException {
+    recordEntityGroup(key);
+    return super.get(key);
+  }
+
+  @Override
+  List<Entity> get(Iterable<Key> keys) throws IOException {
+    keys.forEach(this::recordEntityGroup);
+    return super.get(keys);
+  }
+
+  @Override
+  void get(Iterable<Key> keys, IOConsumer<Entity> f) throws IOException {
+    keys.forEach(this::recordEntityGroup);
+    super.get(keys, f);
+  }
+
+  /**
+   * The number of entity mutations performed in this transaction so far.
+   */
+  int mutations() {
+    return mutations;
+  }
+
+  /**
+   * The number of distinct entity groups read or mutated in this transaction so far.
+   */
+  int entityGroups() {
+    return entityGroups.size() + newEntityGroups;
+  }
+
+  private void recordMutation(IncompleteKey key) {
+    mutations++;
+    recordEntityGroup(key);
+  }
+
+  private void recordEntityGroup(IncompleteKey key) {
+    final List<PathElement> ancestors = key.getAncestors();
+    if (!ancestors.isEmpty()) {
+      entityGroups.add(ancestors.get(0));
+    } else if (key instanceof Key) {
+      final Key rootKey = (Key) key;
+      entityGroups.add(rootKey.hasName()
+                       ? PathElement.of(rootKey.getKind(), rootKey.getName())
+                       : PathElement.of(rootKey.getKind(), rootKey.getId()));
+    } else {
+      // a root entity with an id yet to be allocated always forms a new entity group
+      newEntityGroups++;
+    }
+  }
+
   /**
    * @see Transaction#commit()
    * @throws DatastoreIOException if the underlying client throws {@link DatastoreException}
@@ -31,6 +31,7 @@ import static com.spotify.styx.util.ShardedCounter.PROPERTY_COUNTER_ID;
 import static com.spotify.styx.util.ShardedCounter.PROPERTY_LIMIT;
 import static com.spotify.styx.util.ShardedCounter.PROPERTY_SHARD_INDEX;
 import static com.spotify.styx.util.ShardedCounter.PROPERTY_SHARD_VALUE;
+import static com.spotify.styx.util.TriggerUtil.isActiveInstancesCounterId;
 import static java.util.concurrent.CompletableFuture.delayedExecutor;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
@@ -51,6 +52,7 @@ import com.google.cloud.datastore.Query;
 import com.google.cloud.datastore.StringValue;
 import com.google.cloud.datastore.StructuredQuery.CompositeFilter;
 import com.google.cloud.datastore.StructuredQuery.Filter;
+import com.google.cloud.datastore.StructuredQuery.OrderBy;
 import com.google.cloud.datastore.StructuredQuery.PropertyFilter;
 import com.google.cloud.datastore.Value;
 import com.google.common.annotations.VisibleForTesting;
@@ -60,6 +62,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.hash.Hashing;
 import com.google.common.io.Closer;
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
 import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.BackfillBuilder;
 import com.spotify.styx.model.ExecutionDescription;
@@ -82,6 +85,7 @@ import com.spotify.styx.util.TimeUtil;
 import com.spotify.styx.util.TriggerInstantSpec;
 import com.spotify.styx.util.TriggerUtil;
 import io.grpc.Context;
+import javaslang.control.Try;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
@@ -123,7 +127,10 @@ public class DatastoreStorage implements Closeable {
   public static final String KIND_ACTIVE_WORKFLOW_INSTANCE = "ActiveWorkflowInstance";
   public static final String KIND_ACTIVE_WORKFLOW_INSTANCE_INDEX_SHARD = "ActiveWorkflowInstanceIndexShard";
   public static final String KIND_ACTIVE_WORKFLOW_INSTANCE_INDEX_SHARD_ENTRY = "ActiveWorkflowInstanceIndexShardEntry";
+  public static final String KIND_ACTIVE_WORKFLOW_INSTANCE_TOMBSTONE = "ActiveWorkflowInstanceTombstone";
   public static final String KIND_BACKFILL = "Backfill";
+  public static final String KIND_BACKFILL_STATUS = "BackfillStatus";
+  public static final String KIND_LEASE = "Lease";
 
   public static final String PROPERTY_CONFIG_ENABLED = "enabled";
   public static final String PROPERTY_CONFIG_DOCKER_RUNNER_ID = "dockerRunnerId";
@@ -151,6 +158,12 @@ public class DatastoreStorage implements Closeable {
   public static final String PROPERTY_DESCRIPTION = "description";
   public static final String PROPERTY_TRIGGER_PARAMETERS = "triggerParameters";
   public static final String PROPERTY_SUBMISSION_RATE_LIMIT = "submissionRateLimit";
+  public static final String PROPERTY_BACKFILL_STATUS_JSON = "json";
+  public static final String PROPERTY_LEASE_OWNER = "owner";
+  public static final String PROPERTY_LEASE_EXPIRY = "expiry";
+
+  private static final String KEY_PROPERTY = "__key__";
+  private static final String KEY_RANGE_END = "\uffff";
 
   public static final String PROPERTY_STATE = "state";
   public static final String PROPERTY_STATE_TIMESTAMP = "stateTimestamp";
@@ -180,6 +193,7 @@ public class DatastoreStorage implements Closeable {
   public static final int MAX_RETRIES = 100;
   public static final int MAX_NUMBER_OF_ENTITIES_IN_ONE_BATCH_READ = 1000;
   public static final int MAX_NUMBER_OF_ENTITIES_IN_ONE_BATCH_WRITE = 500;
+  public static final int MAX_NUMBER_OF_ENTITY_GROUPS_IN_ONE_TRANSACTION = 25;
 
   private static final int REQUEST_CONCURRENCY = 32;
 
@@ -283,6 +297,27 @@ public class DatastoreStorage implements Closeable {
       tx.deleteWorkflow(workflowId);
       return null;
     }));
+    deleteActiveStateTombstones(workflowId);
+  }
+
+  private void deleteActiveStateTombstones(WorkflowId workflowId) throws IOException {
+    // every tombstone is an entity group of its own, so they are deleted outside of a transaction
+    final KeyFactory keyFactory = datastore.newKeyFactory();
+    final String prefix = workflowId.toKey() + "#";
+    final List<Key> tombstones = new ArrayList<>();
+    datastore.query(EntityQuery.newEntityQueryBuilder()
+        .setKind(KIND_ACTIVE_WORKFLOW_INSTANCE_TOMBSTONE)
+        .setFilter(CompositeFilter.and(
+            PropertyFilter.ge(KEY_PROPERTY, activeWorkflowInstanceTombstoneKey(keyFactory, prefix)),
+            PropertyFilter.lt(KEY_PROPERTY, activeWorkflowInstanceTombstoneKey(keyFactory, prefix + KEY_RANGE_END))))
+        .build(), entity -> tombstones.add(entity.getKey()));
+
+    for (List<Key> batch : Lists.partition(tombstones, MAX_NUMBER_OF_ENTITIES_IN_ONE_BATCH_WRITE)) {
+      storeWithRetries(() -> {
+        datastore.delete(batch.toArray(new Key[0]));
+        return null;
+      });
+    }
   }
 
   public void updateNextNaturalTrigger(WorkflowId workflowId, TriggerInstantSpec triggerSpec) throws IOException {
@@ -431,6 +466,24 @@ public class DatastoreStorage implements Closeable {
     return states;
   }
 
+  /**
+   * Strongly consistently read the active states of the given instances, in parallel batches.
+   */
+  Map<WorkflowInstance, RunState> readActiveStates(List<WorkflowInstance> instances) throws IOException {
+    var timeout = CompletableFuture.runAsync(() -> {}, delayedExecutor(30, SECONDS));
+
+    var states = gatherIO(Lists.partition(instances, MAX_NUMBER_OF_ENTITIES_IN_ONE_BATCH_READ).stream()
+        .map(batch -> asyncIO(() -> readRunStateBatch(batch)))
+        .collect(toList()), timeout)
+        .stream()
+        .flatMap(Collection::stream)
+        .collect(toMap(RunState::workflowInstance, Function.identity()));
+
+    timeout.cancel(true);
+
+    return states;
+  }
+
   /**
    * Strongly consistently read a batch of {@link RunState}s.
    */
@@ -669,6 +722,16 @@ public class DatastoreStorage implements Closeable {
         .newKey(name);
   }
 
+  static Key activeWorkflowInstanceTombstoneKey(KeyFactory keyFactory, WorkflowInstance workflowInstance) {
+    return activeWorkflowInstanceTombstoneKey(keyFactory, workflowInstance.toKey());
+  }
+
+  private static Key activeWorkflowInstanceTombstoneKey(KeyFactory keyFactory, String name) {
+    return keyFactory
+        .setKind(KIND_ACTIVE_WORKFLOW_INSTANCE_TOMBSTONE)
+        .newKey(name);
+  }
+
   private WorkflowInstance parseWorkflowInstance(Entity activeWorkflowInstance) {
     final String componentId = activeWorkflowInstance.getString(PROPERTY_COMPONENT);
     final String workflowId = activeWorkflowInstance.getString(PROPERTY_WORKFLOW);
@@ -734,6 +797,10 @@ public class DatastoreStorage implements Closeable {
     return keyFactory.setKind(KIND_BACKFILL).newKey(backfillId);
   }
 
+  static Key backfillStatusKey(KeyFactory keyFactory, String backfillId, String parameter) {
+    return keyFactory.setKind(KIND_BACKFILL_STATUS).newKey(backfillId + '#' + parameter);
+  }
+
   static Key globalConfigKey(KeyFactory keyFactory) {
     return keyFactory.setKind(KIND_STYX_CONFIG).newKey(KEY_GLOBAL_CONFIG);
   }
@@ -746,7 +813,7 @@ public class DatastoreStorage implements Closeable {
     return Timestamp.of(Date.from(instant));
   }
 
-  private static Instant timestampToInstant(Timestamp ts) {
+  static Instant timestampToInstant(Timestamp ts) {
     return Instant.ofEpochSecond(ts.getSeconds(), ts.getNanos());
   }
 
@@ -768,8 +835,12 @@ public class DatastoreStorage implements Closeable {
   List<Resource> getResources() throws IOException {
     final EntityQuery query = Query.newEntityQueryBuilder().setKind(KIND_COUNTER_LIMIT).build();
     final List<Resource> resources = Lists.newArrayList();
-    datastore.query(query, entity ->
-        resources.add(entityToResource(entity)));
+    datastore.query(query, entity -> {
+      // active instances counters have limits too, but are not resources
+      if (!isActiveInstancesCounterId(entity.getKey().getName())) {
+        resources.add(entityToResource(entity));
+      }
+    });
     return resources;
   }
 
@@ -903,6 +974,38 @@ public class DatastoreStorage implements Closeable {
     storeWithRetries(() -> runInTransaction(tx -> tx.store(backfill)));
   }
 
+  /**
+   * Read the stored partition statuses of a backfill with a key range query. The status keys are
+   * prefixed with the backfill id, so the partitions are returned in parameter order.
+   */
+  List<RunStateData> getBackfillStatuses(String backfillId, String offset, int limit) throws IOException {
+    final KeyFactory keyFactory = datastore.newKeyFactory();
+    final EntityQuery query = Query.newEntityQueryBuilder()
+        .setKind(KIND_BACKFILL_STATUS)
+        .setFilter(CompositeFilter.and(
+            PropertyFilter.ge(KEY_PROPERTY, backfillStatusKey(keyFactory, backfillId, offset)),
+            PropertyFilter.lt(KEY_PROPERTY, backfillStatusKey(keyFactory, backfillId, KEY_RANGE_END))))
+        .setOrderBy(OrderBy.asc(KEY_PROPERTY))
+        .setLimit(limit)
+        .build();
+    final List<RunStateData> statuses = new ArrayList<>();
+    datastore.query(query, entity -> statuses.add(entityToBackfillStatus(entity)));
+    return statuses;
+  }
+
+  static Entity backfillStatusToEntity(KeyFactory keyFactory, String backfillId, RunStateData status)
+      throws JsonProcessingException {
+    final Key key = backfillStatusKey(keyFactory, backfillId, status.workflowInstance().parameter());
+    final String json = OBJECT_MAPPER.writeValueAsString(status);
+    return Entity.newBuilder(key)
+        .set(PROPERTY_BACKFILL_STATUS_JSON, StringValue.newBuilder(json).setExcludeFromIndexes(true).build())
+        .build();
+  }
+
+  static RunStateData entityToBackfillStatus(Entity entity) throws IOException {
+    return OBJECT_MAPPER.readValue(entity.getString(PROPERTY_BACKFILL_STATUS_JSON), RunStateData.class);
+  }
+
   private <T> Stream<T> readStream(Entity entity, String property) {
     return read(entity, property, Collections.<Value<T>>emptyList()).stream()
         .map(Value::get);
@@ -956,7 +1059,75 @@ public class DatastoreStorage implements Closeable {
     }
   }
 
-  private StorageTransaction newTransaction() throws TransactionException {
+  /**
+   * Run a function for each of the given items, grouping as many items as possible into each
+   * transaction.
+   *
+   * <p>A batch is committed before the next item would be expected to exceed
+   * {@link #MAX_NUMBER_OF_ENTITIES_IN_ONE_BATCH_WRITE} mutations or
+   * {@link #MAX_NUMBER_OF_ENTITY_GROUPS_IN_ONE_TRANSACTION} entity groups, judging by the largest
+   * footprint of the items applied so far. If a batch fails, each of its items is retried in a
+   * transaction of its own so that failures can be attributed to individual items.
+   *
+   * @return the result of applying the function to each item, in the same order as the items.
+   */
+  <I, T> List<Try<T>> runInBatchedTransactions(List<I> items, BatchTransactionFunction<I, T> f) {
+    final List<Try<T>> results = new ArrayList<>(items.size());
+    int next = 0;
+    while (next < items.size()) {
+      final int batchStart = next;
+      final List<T> batchResults = new ArrayList<>();
+      int maxItemMutations = 0;
+      int maxItemEntityGroups = 0;
+      boolean applying = false;
+      DatastoreStorageTransaction tx = null;
+      try {
+        tx = newTransaction();
+        while (next < items.size()
+               && tx.mutations() + maxItemMutations <= MAX_NUMBER_OF_ENTITIES_IN_ONE_BATCH_WRITE
+               && tx.entityGroups() + maxItemEntityGroups <= MAX_NUMBER_OF_ENTITY_GROUPS_IN_ONE_TRANSACTION) {
+          final int mutations = tx.mutations();
+          final int entityGroups = tx.entityGroups();
+          applying = true;
+          batchResults.add(f.apply(tx, items.get(next)));
+          applying = false;
+          maxItemMutations = Math.max(maxItemMutations, tx.mutations() - mutations);
+          maxItemEntityGroups = Math.max(maxItemEntityGroups, tx.entityGroups() - entityGroups);
+          next++;
+        }
+        tx.commit();
+        batchResults.forEach(result -> results.add(Try.success(result)));
+      } catch (Exception e) {
+        LOG.debug("Batched transaction of {} items failed, retrying items one by one",
+            next - batchStart, e);
+        rollbackQuietly(tx);
+        // include the item that was being applied when the batch failed, or the first item if
+        // the transaction could not even be started
+        final int batchEnd = applying || next == batchStart ? next + 1 : next;
+        for (int i = batchStart; i < batchEnd; i++) {
+          final I item = items.get(i);
+          results.add(Try.of(() -> runInTransaction(itemTx -> f.apply(itemTx, item))));
+        }
+        next = batchEnd;
+      } finally {
+        rollbackQuietly(tx);
+      }
+    }
+    return results;
+  }
+
+  private static void rollbackQuietly(StorageTransaction tx) {
+    if (tx == null || !tx.isActive()) {
+      return;
+    }
+    try {
+      tx.rollback();
+    } catch (TransactionException e) {
+      LOG.debug("Failed to roll back transaction", e);
+    }
+  }
+
+  private DatastoreStorageTransaction newTransaction() throws TransactionException {
     final CheckedDatastoreTransaction transaction;
     try {
       transaction = datastore.newTransaction();
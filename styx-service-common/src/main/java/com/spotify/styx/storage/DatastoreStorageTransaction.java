@@ -21,12 +21,16 @@
 package com.spotify.styx.storage;
 
 import static com.spotify.styx.serialization.Json.OBJECT_MAPPER;
+import static com.spotify.styx.storage.DatastoreStorage.KIND_LEASE;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_ALL_TRIGGERED;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_COMPONENT;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_CONCURRENCY;
+import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_COUNTER;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_DESCRIPTION;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_END;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_HALTED;
+import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_LEASE_EXPIRY;
+import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_LEASE_OWNER;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_NEXT_TRIGGER;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_REVERSE;
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_SCHEDULE;
@@ -35,12 +39,14 @@ import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_TRIGGER_PARAMET
 import static com.spotify.styx.storage.DatastoreStorage.PROPERTY_WORKFLOW;
 import static com.spotify.styx.storage.DatastoreStorage.activeWorkflowInstanceIndexShardEntryKey;
 import static com.spotify.styx.storage.DatastoreStorage.activeWorkflowInstanceKey;
+import static com.spotify.styx.storage.DatastoreStorage.activeWorkflowInstanceTombstoneKey;
 import static com.spotify.styx.storage.DatastoreStorage.entityToBackfill;
 import static com.spotify.styx.storage.DatastoreStorage.entityToRunState;
 import static com.spotify.styx.storage.DatastoreStorage.getWorkflowOpt;
 import static com.spotify.styx.storage.DatastoreStorage.instantToTimestamp;
 import static com.spotify.styx.storage.DatastoreStorage.parseWorkflowJson;
 import static com.spotify.styx.storage.DatastoreStorage.runStateToEntity;
+import static com.spotify.styx.storage.DatastoreStorage.timestampToInstant;
 import static com.spotify.styx.storage.DatastoreStorage.workflowKey;
 import static com.spotify.styx.util.ShardedCounter.KIND_COUNTER_LIMIT;
 import static com.spotify.styx.util.ShardedCounter.KIND_COUNTER_SHARD;
@@ -52,7 +58,9 @@ import static com.spotify.styx.util.ShardedCounter.PROPERTY_SHARD_VALUE;
 import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.Key;
 import com.google.cloud.datastore.KeyFactory;
+import com.google.cloud.datastore.LongValue;
 import com.google.cloud.datastore.StringValue;
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
 import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Resource;
 import com.spotify.styx.model.Workflow;
@@ -100,6 +108,20 @@ public class DatastoreStorageTransaction implements StorageTransaction {
     return tx.isActive();
   }
 
+  /**
+   * @see CheckedDatastoreTransaction#mutations()
+   */
+  int mutations() {
+    return tx.mutations();
+  }
+
+  /**
+   * @see CheckedDatastoreTransaction#entityGroups()
+   */
+  int entityGroups() {
+    return tx.entityGroups();
+  }
+
   @Override
   public void updateCounter(ShardedCounter shardedCounter, String resource, int delta) throws IOException {
     shardedCounter.updateCounter(this, resource, delta);
@@ -139,6 +161,24 @@ public class DatastoreStorageTransaction implements StorageTransaction {
     tx.put(resourceToEntity(tx.getDatastore(), resource));
   }
 
+  @Override
+  public Optional<Lease> lease(String id) throws IOException {
+    final Entity entity = tx.get(tx.getDatastore().newKeyFactory().setKind(KIND_LEASE).newKey(id));
+    if (entity == null) {
+      return Optional.empty();
+    }
+    return Optional.of(Lease.create(id, entity.getString(PROPERTY_LEASE_OWNER),
+        timestampToInstant(entity.getTimestamp(PROPERTY_LEASE_EXPIRY))));
+  }
+
+  @Override
+  public void store(Lease lease) throws IOException {
+    tx.put(Entity.newBuilder(tx.getDatastore().newKeyFactory().setKind(KIND_LEASE).newKey(lease.id()))
+        .set(PROPERTY_LEASE_OWNER, lease.owner())
+        .set(PROPERTY_LEASE_EXPIRY, instantToTimestamp(lease.expiry()))
+        .build());
+  }
+
   @Override
   public void deleteWorkflow(WorkflowId workflowId) throws IOException {
     tx.delete(workflowKey(tx.getDatastore()::newKeyFactory, workflowId));
@@ -224,6 +264,7 @@ public class DatastoreStorageTransaction implements StorageTransaction {
     final Entity indexEntry = Entity.newBuilder(indexEntryKey).build();
     tx.add(indexEntry);
     tx.add(runStateToEntity(tx.getDatastore().newKeyFactory(), instance, state));
+    tx.delete(activeWorkflowInstanceTombstoneKey(tx.getDatastore().newKeyFactory(), instance));
     return instance;
   }
 
@@ -241,6 +282,26 @@ public class DatastoreStorageTransaction implements StorageTransaction {
     return instance;
   }
 
+  @Override
+  public WorkflowInstance deleteActiveState(WorkflowInstance instance, long lastCounter) throws IOException {
+    deleteActiveState(instance);
+    final Key tombstoneKey = activeWorkflowInstanceTombstoneKey(tx.getDatastore().newKeyFactory(), instance);
+    tx.put(Entity.newBuilder(tombstoneKey)
+        .set(PROPERTY_COUNTER, LongValue.newBuilder(lastCounter).setExcludeFromIndexes(true).build())
+        .build());
+    return instance;
+  }
+
+  @Override
+  public Optional<Long> readActiveStateTombstone(WorkflowInstance instance) throws IOException {
+    final Entity entity = tx.get(activeWorkflowInstanceTombstoneKey(tx.getDatastore().newKeyFactory(), instance));
+    if (entity == null) {
+      return Optional.empty();
+    } else {
+      return Optional.of(entity.getLong(PROPERTY_COUNTER));
+    }
+  }
+
   @Override
   public Backfill store(Backfill backfill) throws IOException {
     final Key key = DatastoreStorage.backfillKey(tx.getDatastore().newKeyFactory(), backfill.id());
@@ -279,4 +340,21 @@ public class DatastoreStorageTransaction implements StorageTransaction {
     }
     return Optional.of(entityToBackfill(entity));
   }
+
+  @Override
+  public Optional<RunStateData> backfillStatus(String backfillId, WorkflowInstance instance)
+      throws IOException {
+    final Key key = DatastoreStorage.backfillStatusKey(
+        tx.getDatastore().newKeyFactory(), backfillId, instance.parameter());
+    final Entity entity = tx.get(key);
+    if (entity == null) {
+      return Optional.empty();
+    }
+    return Optional.of(DatastoreStorage.entityToBackfillStatus(entity));
+  }
+
+  @Override
+  public void storeBackfillStatus(String backfillId, RunStateData status) throws IOException {
+    tx.put(DatastoreStorage.backfillStatusToEntity(tx.getDatastore().newKeyFactory(), backfillId, status));
+  }
 }
@@ -0,0 +1,526 @@
+/*-
+ * -\-\-
+ * Spotify Styx Common
+ * --
+ * Copyright (C) 2016 - 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.storage;
+
+import static com.spotify.styx.storage.DatastoreStorage.DEFAULT_CONFIG_DEBUG_ENABLED;
+import static com.spotify.styx.storage.DatastoreStorage.DEFAULT_CONFIG_DOCKER_RUNNER_ID;
+import static com.spotify.styx.storage.DatastoreStorage.DEFAULT_CONFIG_ENABLED;
+import static com.spotify.styx.storage.DatastoreStorage.DEFAULT_CONFIG_EXECUTION_GATING_ENABLED;
+import static com.spotify.styx.storage.DatastoreStorage.DEFAULT_WORKFLOW_ENABLED;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.collect.Sets;
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
+import com.spotify.styx.model.Backfill;
+import com.spotify.styx.model.Resource;
+import com.spotify.styx.model.SequenceEvent;
+import com.spotify.styx.model.StyxConfig;
+import com.spotify.styx.model.Workflow;
+import com.spotify.styx.model.WorkflowId;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.model.WorkflowState;
+import com.spotify.styx.model.data.WorkflowInstanceExecutionData;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.storage.TransactionException.Failure;
+import com.spotify.styx.util.ResourceNotFoundException;
+import com.spotify.styx.util.TriggerInstantSpec;
+import com.spotify.styx.util.TriggerUtil;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javaslang.control.Try;
+import org.h2.mvstore.DataUtils;
+import org.h2.mvstore.MVStore;
+import org.h2.mvstore.MVStoreException;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link Storage} implementation backed by an embedded {@link MVStore}, for standalone
+ * deployments that should not depend on Datastore and Bigtable.
+ *
+ * <p>All data is kept in a single store file, as B-tree maps of JSON values. Transactions are
+ * serialized: a transaction holds the write lock of the storage from begin to commit or rollback,
+ * so that read-modify-write operations such as counter updates cannot interleave. A transaction
+ * nested in another one on the same thread is independent of the outer transaction, and fails
+ * with a conflict if it writes an entry that the outer transaction has written. Reads outside of
+ * transactions do not take the lock and only observe committed data.
+ */
+public class EmbeddedStorage implements Storage {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EmbeddedStorage.class);
+
+  private final MVStore store;
+  private final TransactionStore transactionStore;
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  EmbeddedStorage(MVStore store) {
+    this.store = Objects.requireNonNull(store);
+    this.transactionStore = new TransactionStore(store);
+    transactionStore.init();
+    // Transactions that were open when the store was last closed never committed
+    for (Transaction tx : transactionStore.getOpenTransactions()) {
+      LOG.warn("Rolling back transaction left open in embedded storage: {}", tx);
+      tx.rollback();
+    }
+    store.commit();
+  }
+
+  /**
+   * Open an {@link EmbeddedStorage} stored in the given file, creating it if it does not exist.
+   */
+  public static EmbeddedStorage open(Path path) {
+    return new EmbeddedStorage(new MVStore.Builder()
+        .fileName(path.toString())
+        .open());
+  }
+
+  /**
+   * Create an {@link EmbeddedStorage} that is not persisted.
+   */
+  @VisibleForTesting
+  static EmbeddedStorage inMemory() {
+    return new EmbeddedStorage(new MVStore.Builder().open());
+  }
+
+  @Override
+  public void close() {
+    if (!store.isClosed()) {
+      transactionStore.close();
+      store.close();
+    }
+  }
+
+  @Override
+  public SortedSet<SequenceEvent> readEvents(WorkflowInstance workflowInstance) throws IOException {
+    final SortedSet<SequenceEvent> events = Sets.newTreeSet(SequenceEvent.COUNTER_COMPARATOR);
+    events.addAll(read(tx -> tx.readEvents(workflowInstance)));
+    return events;
+  }
+
+  @Override
+  public void writeEvent(SequenceEvent sequenceEvent) throws IOException {
+    write(tx -> {
+      tx.writeEvent(sequenceEvent);
+      return null;
+    });
+  }
+
+  @Override
+  public Optional<Long> getLatestStoredCounter(WorkflowInstance workflowInstance) throws IOException {
+    return read(tx -> tx.latestStoredCounter(workflowInstance));
+  }
+
+  @Override
+  public StyxConfig config() throws IOException {
+    return read(EmbeddedStorageTransaction::config).orElseGet(() -> StyxConfig.newBuilder()
+        .globalEnabled(DEFAULT_CONFIG_ENABLED)
+        .debugEnabled(DEFAULT_CONFIG_DEBUG_ENABLED)
+        .globalDockerRunnerId(DEFAULT_CONFIG_DOCKER_RUNNER_ID)
+        .executionGatingEnabled(DEFAULT_CONFIG_EXECUTION_GATING_ENABLED)
+        .build());
+  }
+
+  /**
+   * Store the global {@link StyxConfig}, replacing the defaults that are returned by
+   * {@link #config()} until a config is stored.
+   *
+   * <p>Unlike the Datastore config entity, which operators edit in place, nothing in the
+   * standalone service calls this: an embedded storage serves the default config unless a config
+   * has been stored through this method, e.g. by a tool that opens the storage file while the
+   * service is stopped.
+   */
+  public void storeConfig(StyxConfig config) throws IOException {
+    write(tx -> {
+      tx.store(config);
+      return null;
+    });
+  }
+
+  @Override
+  public void storeWorkflow(Workflow workflow) throws IOException {
+    write(tx -> tx.store(workflow));
+  }
+
+  @Override
+  public Optional<Workflow> workflow(WorkflowId workflowId) throws IOException {
+    return read(tx -> tx.workflow(workflowId));
+  }
+
+  @Override
+  public List<Workflow> workflows(String componentId) throws IOException {
+    return workflows().values().stream()
+        .filter(workflow -> workflow.componentId().equals(componentId))
+        .collect(toList());
+  }
+
+  @Override
+  public void delete(WorkflowId workflowId) throws IOException {
+    write(tx -> {
+      tx.deleteWorkflow(workflowId);
+      tx.deleteActiveStateTombstones(workflowId);
+      return null;
+    });
+  }
+
+  @Override
+  public void updateNextNaturalTrigger(WorkflowId workflowId, TriggerInstantSpec triggerSpec)
+      throws IOException {
+    write(tx -> tx.updateNextNaturalTrigger(workflowId, triggerSpec));
+  }
+
+  @Override
+  public Map<Workflow, TriggerInstantSpec> workflowsWithNextNaturalTrigger() throws IOException {
+    return read(tx -> {
+      final Map<WorkflowId, WorkflowState> states = tx.workflowStates();
+      return tx.workflows().values().stream()
+          .filter(workflow -> states.containsKey(workflow.id()))
+          .filter(workflow -> states.get(workflow.id()).nextNaturalTrigger().isPresent())
+          .collect(toMap(Function.identity(), workflow -> {
+            final WorkflowState state = states.get(workflow.id());
+            final Instant instant = state.nextNaturalTrigger().orElseThrow();
+            return TriggerInstantSpec.create(instant, state.nextNaturalOffsetTrigger()
+                .orElseGet(() -> workflow.configuration().addOffset(instant)));
+          }));
+    });
+  }
+
+  @Override
+  public Map<WorkflowId, Workflow> workflows() throws IOException {
+    return read(EmbeddedStorageTransaction::workflows);
+  }
+
+  @Override
+  public Map<WorkflowId, Workflow> workflows(Set<WorkflowId> workflowIds) {
+    final List<Workflow> workflows;
+    try {
+      workflows = read(tx -> {
+        final List<Workflow> result = new ArrayList<>();
+        for (WorkflowId workflowId : workflowIds) {
+          tx.workflow(workflowId).ifPresent(result::add);
+        }
+        return result;
+      });
+    } catch (IOException e) {
+      throw new RuntimeIOException(e);
+    }
+    return workflows.stream().collect(toMap(Workflow::id, Function.identity()));
+  }
+
+  @Override
+  public void writeActiveState(WorkflowInstance workflowInstance, RunState state) throws IOException {
+    write(tx -> tx.writeActiveState(workflowInstance, state));
+  }
+
+  @Override
+  public void deleteActiveState(WorkflowInstance workflowInstance) throws IOException {
+    write(tx -> tx.deleteActiveState(workflowInstance));
+  }
+
+  @Override
+  public Map<WorkflowInstance, RunState> readActiveStates() throws IOException {
+    return read(EmbeddedStorageTransaction::activeStates);
+  }
+
+  @Override
+  public Set<WorkflowInstance> listActiveInstances() throws IOException {
+    return readActiveStates().keySet();
+  }
+
+  @Override
+  public Map<WorkflowInstance, RunState> readActiveStates(String componentId) throws IOException {
+    return activeStates(state -> state.workflowInstance().workflowId().componentId().equals(componentId));
+  }
+
+  @Override
+  public Optional<RunState> readActiveState(WorkflowInstance workflowInstance) throws IOException {
+    return read(tx -> tx.readActiveState(workflowInstance));
+  }
+
+  @Override
+  public Map<WorkflowInstance, RunState> readActiveStates(List<WorkflowInstance> workflowInstances)
+      throws IOException {
+    return read(tx -> {
+      final Map<WorkflowInstance, RunState> states = new HashMap<>();
+      for (WorkflowInstance workflowInstance : workflowInstances) {
+        tx.readActiveState(workflowInstance).ifPresent(state -> states.put(workflowInstance, state));
+      }
+      return states;
+    });
+  }
+
+  @Override
+  public Map<WorkflowInstance, RunState> readActiveStatesByTriggerId(String triggerId) throws IOException {
+    return activeStates(state -> state.data().trigger()
+        .map(TriggerUtil::triggerId)
+        .filter(triggerId::equals)
+        .isPresent());
+  }
+
+  private Map<WorkflowInstance, RunState> activeStates(Predicate<RunState> predicate) throws IOException {
+    return readActiveStates().entrySet().stream()
+        .filter(entry -> predicate.test(entry.getValue()))
+        .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
+  }
+
+  @Override
+  public WorkflowInstanceExecutionData executionData(WorkflowInstance workflowInstance) throws IOException {
+    final SortedSet<SequenceEvent> events = readEvents(workflowInstance);
+    if (events.isEmpty()) {
+      throw new ResourceNotFoundException("Workflow instance not found");
+    }
+    return new WFIExecutionBuilder().executionInfo(events);
+  }
+
+  @Override
+  public List<WorkflowInstanceExecutionData> executionData(WorkflowId workflowId, String offset, int limit)
+      throws IOException {
+    final Optional<String> from = Optional.ofNullable(Strings.emptyToNull(offset))
+        .map(parameter -> WorkflowInstance.create(workflowId, parameter).toKey());
+    final List<WorkflowInstance> instances =
+        read(tx -> tx.workflowInstances(workflowId, from, Optional.empty(), limit));
+    return executionData(instances);
+  }
+
+  @Override
+  public List<WorkflowInstanceExecutionData> executionData(WorkflowId workflowId, String start, String stop)
+      throws IOException {
+    final Optional<String> from = Optional.of(WorkflowInstance.create(workflowId, start).toKey());
+    final Optional<String> to = Optional.ofNullable(Strings.emptyToNull(stop))
+        .map(parameter -> WorkflowInstance.create(workflowId, parameter).toKey());
+    final List<WorkflowInstance> instances =
+        read(tx -> tx.workflowInstances(workflowId, from, to, Integer.MAX_VALUE));
+    return executionData(instances);
+  }
+
+  @Override
+  public void materializeExecutionData(WorkflowInstance workflowInstance) {
+    // execution data is always replayed from the events
+  }
+
+  private List<WorkflowInstanceExecutionData> executionData(List<WorkflowInstance> instances)
+      throws IOException {
+    final List<WorkflowInstanceExecutionData> executionData = new ArrayList<>();
+    for (WorkflowInstance instance : instances) {
+      executionData.add(new WFIExecutionBuilder().executionInfo(readEvents(instance)));
+    }
+    return executionData;
+  }
+
+  @Override
+  @Deprecated
+  public boolean enabled(WorkflowId workflowId) throws IOException {
+    return workflowState(workflowId).enabled().orElse(DEFAULT_WORKFLOW_ENABLED);
+  }
+
+  @Override
+  public Set<WorkflowId> enabled() throws IOException {
+    return read(EmbeddedStorageTransaction::workflowStates).entrySet().stream()
+        .filter(entry -> entry.getValue().enabled().orElse(DEFAULT_WORKFLOW_ENABLED))
+        .map(Map.Entry::getKey)
+        .collect(toSet());
+  }
+
+  @Override
+  public void patchState(WorkflowId workflowId, WorkflowState state) throws IOException {
+    write(tx -> tx.patchState(workflowId, state));
+  }
+
+  @Override
+  public WorkflowState workflowState(WorkflowId workflowId) throws IOException {
+    final WorkflowState state = read(tx -> tx.workflowState(workflowId)).orElse(WorkflowState.empty());
+    return state.toBuilder()
+        .enabled(state.enabled().orElse(DEFAULT_WORKFLOW_ENABLED))
+        .build();
+  }
+
+  @Override
+  public Optional<Resource> resource(String id) throws IOException {
+    return read(tx -> tx.limitForCounter(id)).map(limit -> Resource.create(id, limit));
+  }
+
+  @Override
+  public void storeResource(Resource resource) throws IOException {
+    write(tx -> {
+      tx.store(resource);
+      return null;
+    });
+  }
+
+  @Override
+  public List<Resource> resources() throws IOException {
+    return read(EmbeddedStorageTransaction::resources);
+  }
+
+  @Override
+  public void deleteResource(String id) throws IOException {
+    write(tx -> {
+      tx.deleteResource(id);
+      return null;
+    });
+  }
+
+  @Override
+  public List<Backfill> backfills(boolean showAll) throws IOException {
+    return backfills(showAll, backfill -> true);
+  }
+
+  @Override
+  public List<Backfill> backfillsForComponent(boolean showAll, String component) throws IOException {
+    return backfills(showAll, backfill -> backfill.workflowId().componentId().equals(component));
+  }
+
+  @Override
+  public List<Backfill> backfillsForWorkflow(boolean showAll, String workflow) throws IOException {
+    return backfills(showAll, backfill -> backfill.workflowId().id().equals(workflow));
+  }
+
+  @Override
+  public List<Backfill> backfillsForWorkflowId(boolean showAll, WorkflowId workflowId) throws IOException {
+    return backfills(showAll, backfill -> backfill.workflowId().equals(workflowId));
+  }
+
+  private List<Backfill> backfills(boolean showAll, Predicate<Backfill> predicate) throws IOException {
+    return read(EmbeddedStorageTransaction::backfills).stream()
+        .filter(backfill -> showAll || (!backfill.allTriggered() && !backfill.halted()))
+        .filter(predicate)
+        .collect(toList());
+  }
+
+  @Override
+  public Optional<Backfill> backfill(String id) throws IOException {
+    return read(tx -> tx.backfill(id));
+  }
+
+  @Override
+  public void storeBackfill(Backfill backfill) throws IOException {
+    write(tx -> tx.store(backfill));
+  }
+
+  @Override
+  public List<RunStateData> backfillStatuses(String backfillId, String offset, int limit) throws IOException {
+    return read(tx -> tx.backfillStatuses(backfillId, offset, limit));
+  }
+
+  @Override
+  public Map<Integer, Long> shardsForCounter(String counterId) throws IOException {
+    return read(tx -> tx.shardsForCounter(counterId));
+  }
+
+  @Override
+  public long getLimitForCounter(String counterId) throws IOException {
+    if (GLOBAL_RESOURCE_ID.equals(counterId)) {
+      // missing global resource means free to go
+      return config().globalConcurrency().orElse(Long.MAX_VALUE);
+    }
+    return read(tx -> tx.limitForCounter(counterId))
+        .orElseThrow(() -> new IllegalArgumentException("No limit found in storage for " + counterId));
+  }
+
+  @Override
+  public <T, E extends Exception> T runInTransaction(TransactionFunction<T, E> f) throws IOException, E {
+    return write(f::apply);
+  }
+
+  /**
+   * Run a function for each of the given items, in a transaction per item. Transactions are local
+   * and serialized, so there is nothing to gain from grouping items.
+   */
+  @Override
+  public <I, T> List<Try<T>> runInBatchedTransactions(List<I> items, BatchTransactionFunction<I, T> f) {
+    return items.stream()
+        .map(item -> Try.of(() -> runInTransaction(tx -> f.apply(tx, item))))
+        .collect(toList());
+  }
+
+  private interface TransactionOperation<T, E extends Exception> {
+
+    T apply(EmbeddedStorageTransaction tx) throws IOException, E;
+  }
+
+  /**
+   * Run an operation in a transaction holding the write lock, and persist the changes on commit.
+   */
+  private <T, E extends Exception> T write(TransactionOperation<T, E> f) throws IOException, E {
+    writeLock.lock();
+    try {
+      final T value = inTransaction(f);
+      store.commit();
+      return value;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Run a read-only operation in a transaction of its own, without taking the write lock.
+   */
+  private <T> T read(TransactionOperation<T, IOException> f) throws IOException {
+    return inTransaction(f);
+  }
+
+  private <T, E extends Exception> T inTransaction(TransactionOperation<T, E> f) throws IOException, E {
+    final EmbeddedStorageTransaction tx = new EmbeddedStorageTransaction(begin());
+    try {
+      final T value = f.apply(tx);
+      tx.commit();
+      return value;
+    } catch (MVStoreException e) {
+      throw transactionException(e);
+    } finally {
+      if (tx.isActive()) {
+        tx.rollback();
+      }
+    }
+  }
+
+  private Transaction begin() throws TransactionException {
+    try {
+      return transactionStore.begin();
+    } catch (MVStoreException e) {
+      throw transactionException(e);
+    }
+  }
+
+  private static TransactionException transactionException(MVStoreException e) {
+    final Failure failure = e.getErrorCode() == DataUtils.ERROR_TRANSACTION_LOCKED
+                            ? Failure.CONFLICT
+                            : Failure.OTHER;
+    return new TransactionException(failure, e.getMessage(), e);
+  }
+}
@@ -0,0 +1,541 @@
+/*-
+ * -\-\-
+ * Spotify Styx Common
+ * --
+ * Copyright (C) 2016 - 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.storage;
+
+import static com.spotify.styx.serialization.Json.OBJECT_MAPPER;
+import static com.spotify.styx.util.ShardedCounter.NUM_SHARDS;
+import static com.spotify.styx.util.TriggerUtil.isActiveInstancesCounterId;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
+import com.spotify.styx.model.Backfill;
+import com.spotify.styx.model.Event;
+import com.spotify.styx.model.Resource;
+import com.spotify.styx.model.SequenceEvent;
+import com.spotify.styx.model.StyxConfig;
+import com.spotify.styx.model.Workflow;
+import com.spotify.styx.model.WorkflowId;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.model.WorkflowState;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.state.RunState.State;
+import com.spotify.styx.state.StateData;
+import com.spotify.styx.storage.TransactionException.Failure;
+import com.spotify.styx.util.ResourceNotFoundException;
+import com.spotify.styx.util.Shard;
+import com.spotify.styx.util.ShardedCounter;
+import com.spotify.styx.util.TriggerInstantSpec;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.h2.mvstore.tx.Transaction;
+import org.h2.mvstore.tx.TransactionMap;
+
+/**
+ * A {@link StorageTransaction} on the maps of an {@link EmbeddedStorage}.
+ *
+ * <p>Besides the {@link StorageTransaction} operations, this also implements the reads and writes
+ * that {@link EmbeddedStorage} performs outside of user transactions, so that all access to the
+ * store goes through a {@link Transaction}.
+ */
+public class EmbeddedStorageTransaction implements StorageTransaction {
+
+  static final String MAP_WORKFLOWS = "workflows";
+  static final String MAP_WORKFLOW_STATES = "workflow_states";
+  static final String MAP_ACTIVE_STATES = "active_states";
+  static final String MAP_ACTIVE_STATE_TOMBSTONES = "active_state_tombstones";
+  static final String MAP_EVENTS = "events";
+  static final String MAP_WORKFLOW_INSTANCES = "workflow_instances";
+  static final String MAP_BACKFILLS = "backfills";
+  static final String MAP_BACKFILL_STATUSES = "backfill_statuses";
+  static final String MAP_COUNTER_LIMITS = "counter_limits";
+  static final String MAP_COUNTER_SHARDS = "counter_shards";
+  static final String MAP_LEASES = "leases";
+  static final String MAP_CONFIG = "config";
+
+  private static final String KEY_STYX_CONFIG = "styx";
+
+  // Upper bound for the keys of a key prefix, all keys are printable strings
+  private static final char KEY_PREFIX_END = Character.MAX_VALUE;
+
+  private final Transaction tx;
+
+  EmbeddedStorageTransaction(Transaction tx) {
+    this.tx = Objects.requireNonNull(tx);
+  }
+
+  @Override
+  public void commit() throws TransactionException {
+    try {
+      tx.commit();
+    } catch (RuntimeException e) {
+      throw new TransactionException(Failure.OTHER, "Failed to commit transaction", e);
+    }
+  }
+
+  @Override
+  public void rollback() throws TransactionException {
+    try {
+      tx.rollback();
+    } catch (RuntimeException e) {
+      throw new TransactionException(Failure.OTHER, "Failed to roll back transaction", e);
+    }
+  }
+
+  @Override
+  public boolean isActive() {
+    return tx.getStatus() == Transaction.STATUS_OPEN;
+  }
+
+  @Override
+  public WorkflowId store(Workflow workflow) throws IOException {
+    map(MAP_WORKFLOWS).put(workflow.id().toKey(), OBJECT_MAPPER.writeValueAsString(workflow));
+    return workflow.id();
+  }
+
+  @Override
+  public WorkflowId storeWorkflowWithNextNaturalTrigger(Workflow workflow, TriggerInstantSpec triggerSpec)
+      throws IOException {
+    store(workflow);
+    storeWorkflowState(workflow.id(), WorkflowState.ofTriggerSpec(triggerSpec));
+    return workflow.id();
+  }
+
+  @Override
+  public void deleteWorkflow(WorkflowId workflowId) throws IOException {
+    map(MAP_WORKFLOWS).remove(workflowId.toKey());
+    map(MAP_WORKFLOW_STATES).remove(workflowId.toKey());
+  }
+
+  @Override
+  public Optional<Workflow> workflow(WorkflowId workflowId) throws IOException {
+    return read(map(MAP_WORKFLOWS).get(workflowId.toKey()), Workflow.class);
+  }
+
+  @Override
+  public Optional<Backfill> backfill(String id) throws IOException {
+    return read(map(MAP_BACKFILLS).get(id), Backfill.class);
+  }
+
+  @Override
+  public WorkflowId updateNextNaturalTrigger(WorkflowId workflowId, TriggerInstantSpec triggerSpec)
+      throws IOException {
+    return patchState(workflowId, WorkflowState.ofTriggerSpec(triggerSpec));
+  }
+
+  @Override
+  public WorkflowId patchState(WorkflowId workflowId, WorkflowState state) throws IOException {
+    if (!map(MAP_WORKFLOWS).containsKey(workflowId.toKey())) {
+      throw new ResourceNotFoundException("Workflow " + workflowId + " not found");
+    }
+    storeWorkflowState(workflowId, state);
+    return workflowId;
+  }
+
+  /**
+   * Patch the stored state of a workflow, overwriting the fields that are present in the patch.
+   */
+  private void storeWorkflowState(WorkflowId workflowId, WorkflowState patch) throws IOException {
+    final WorkflowState.Builder builder = workflowState(workflowId)
+        .orElse(WorkflowState.empty())
+        .toBuilder();
+    patch.enabled().ifPresent(builder::enabled);
+    patch.nextNaturalTrigger().ifPresent(builder::nextNaturalTrigger);
+    patch.nextNaturalOffsetTrigger().ifPresent(builder::nextNaturalOffsetTrigger);
+    map(MAP_WORKFLOW_STATES).put(workflowId.toKey(), OBJECT_MAPPER.writeValueAsString(builder.build()));
+  }
+
+  @Override
+  public Optional<RunState> readActiveState(WorkflowInstance instance) throws IOException {
+    final Optional<PersistentRunState> state =
+        read(map(MAP_ACTIVE_STATES).get(instance.toKey()), PersistentRunState.class);
+    return state.map(s -> s.toRunState(instance));
+  }
+
+  @Override
+  public WorkflowInstance writeActiveState(WorkflowInstance instance, RunState state)
+      throws IOException {
+    final String json = OBJECT_MAPPER.writeValueAsString(PersistentRunState.of(state));
+    if (map(MAP_ACTIVE_STATES).putIfAbsent(instance.toKey(), json) != null) {
+      throw new TransactionException(Failure.ALREADY_EXISTS,
+          "Active state of " + instance + " already exists", null);
+    }
+    longMap(MAP_ACTIVE_STATE_TOMBSTONES).remove(instance.toKey());
+    return instance;
+  }
+
+  @Override
+  public WorkflowInstance updateActiveState(WorkflowInstance instance, RunState state)
+      throws IOException {
+    final TransactionMap<String, String> activeStates = map(MAP_ACTIVE_STATES);
+    if (!activeStates.containsKey(instance.toKey())) {
+      throw new TransactionException(Failure.NOT_FOUND,
+          "Active state of " + instance + " not found", null);
+    }
+    activeStates.put(instance.toKey(), OBJECT_MAPPER.writeValueAsString(PersistentRunState.of(state)));
+    return instance;
+  }
+
+  @Override
+  public WorkflowInstance deleteActiveState(WorkflowInstance instance) throws IOException {
+    map(MAP_ACTIVE_STATES).remove(instance.toKey());
+    return instance;
+  }
+
+  @Override
+  public WorkflowInstance deleteActiveState(WorkflowInstance instance, long lastCounter) throws IOException {
+    deleteActiveState(instance);
+    longMap(MAP_ACTIVE_STATE_TOMBSTONES).put(instance.toKey(), lastCounter);
+    return instance;
+  }
+
+  @Override
+  public Optional<Long> readActiveStateTombstone(WorkflowInstance instance) throws IOException {
+    return Optional.ofNullable(longMap(MAP_ACTIVE_STATE_TOMBSTONES).get(instance.toKey()));
+  }
+
+  /**
+   * Delete the active state tombstones of all instances of a workflow.
+   */
+  void deleteActiveStateTombstones(WorkflowId workflowId) {
+    final String prefix = workflowId.toKey() + '#';
+    final TransactionMap<String, Long> tombstones = longMap(MAP_ACTIVE_STATE_TOMBSTONES);
+    final List<String> keys = new ArrayList<>();
+    tombstones.keyIterator(prefix, prefix + KEY_PREFIX_END).forEachRemaining(keys::add);
+    keys.forEach(tombstones::remove);
+  }
+
+  @Override
+  public Backfill store(Backfill backfill) throws IOException {
+    map(MAP_BACKFILLS).put(backfill.id(), OBJECT_MAPPER.writeValueAsString(backfill));
+    return backfill;
+  }
+
+  @Override
+  public Optional<RunStateData> backfillStatus(String backfillId, WorkflowInstance instance) throws IOException {
+    return read(map(MAP_BACKFILL_STATUSES).get(backfillStatusKey(backfillId, instance.parameter())),
+        RunStateData.class);
+  }
+
+  @Override
+  public void storeBackfillStatus(String backfillId, RunStateData status) throws IOException {
+    map(MAP_BACKFILL_STATUSES).put(backfillStatusKey(backfillId, status.workflowInstance().parameter()),
+        OBJECT_MAPPER.writeValueAsString(status));
+  }
+
+  @Override
+  public void updateCounter(ShardedCounter shardedCounter, String resource, int delta) throws IOException {
+    shardedCounter.updateCounter(this, resource, delta);
+  }
+
+  @Override
+  public Optional<Shard> shard(String counterId, int shardIndex) throws IOException {
+    return Optional.ofNullable(longMap(MAP_COUNTER_SHARDS).get(shardKey(counterId, shardIndex)))
+        .map(value -> Shard.create(counterId, shardIndex, value.intValue()));
+  }
+
+  @Override
+  public void store(Shard shard) throws IOException {
+    longMap(MAP_COUNTER_SHARDS).put(shardKey(shard.counterId(), shard.index()), (long) shard.value());
+  }
+
+  @Override
+  public void updateLimitForCounter(String counterId, long limit) throws IOException {
+    longMap(MAP_COUNTER_LIMITS).put(counterId, limit);
+  }
+
+  @Override
+  public void store(Resource resource) throws IOException {
+    updateLimitForCounter(resource.id(), resource.concurrency());
+  }
+
+  @Override
+  public Optional<Lease> lease(String id) throws IOException {
+    return read(map(MAP_LEASES).get(id), Lease.class);
+  }
+
+  @Override
+  public void store(Lease lease) throws IOException {
+    map(MAP_LEASES).put(lease.id(), OBJECT_MAPPER.writeValueAsString(lease));
+  }
+
+  Optional<StyxConfig> config() throws IOException {
+    return read(map(MAP_CONFIG).get(KEY_STYX_CONFIG), StyxConfig.class);
+  }
+
+  void store(StyxConfig config) throws IOException {
+    map(MAP_CONFIG).put(KEY_STYX_CONFIG, OBJECT_MAPPER.writeValueAsString(config));
+  }
+
+  Optional<WorkflowState> workflowState(WorkflowId workflowId) throws IOException {
+    return read(map(MAP_WORKFLOW_STATES).get(workflowId.toKey()), WorkflowState.class);
+  }
+
+  Map<WorkflowId, Workflow> workflows() throws IOException {
+    final Map<WorkflowId, Workflow> workflows = new HashMap<>();
+    for (String json : map(MAP_WORKFLOWS).values()) {
+      final Workflow workflow = OBJECT_MAPPER.readValue(json, Workflow.class);
+      workflows.put(workflow.id(), workflow);
+    }
+    return workflows;
+  }
+
+  Map<WorkflowId, WorkflowState> workflowStates() throws IOException {
+    final Map<WorkflowId, WorkflowState> states = new HashMap<>();
+    for (Map.Entry<String, String> entry : map(MAP_WORKFLOW_STATES).entrySet()) {
+      states.put(WorkflowId.parseKey(entry.getKey()),
+          OBJECT_MAPPER.readValue(entry.getValue(), WorkflowState.class));
+    }
+    return states;
+  }
+
+  Map<WorkflowInstance, RunState> activeStates() throws IOException {
+    final Map<WorkflowInstance, RunState> states = new HashMap<>();
+    for (Map.Entry<String, String> entry : map(MAP_ACTIVE_STATES).entrySet()) {
+      final WorkflowInstance instance = WorkflowInstance.parseKey(entry.getKey());
+      states.put(instance,
+          OBJECT_MAPPER.readValue(entry.getValue(), PersistentRunState.class).toRunState(instance));
+    }
+    return states;
+  }
+
+  List<Backfill> backfills() throws IOException {
+    final List<Backfill> backfills = new ArrayList<>();
+    for (String json : map(MAP_BACKFILLS).values()) {
+      backfills.add(OBJECT_MAPPER.readValue(json, Backfill.class));
+    }
+    return backfills;
+  }
+
+  Optional<Long> limitForCounter(String counterId) {
+    return Optional.ofNullable(longMap(MAP_COUNTER_LIMITS).get(counterId));
+  }
+
+  List<Resource> resources() {
+    final List<Resource> resources = new ArrayList<>();
+    longMap(MAP_COUNTER_LIMITS).forEach((id, limit) -> {
+      // active instances counters have limits too, but are not resources
+      if (!isActiveInstancesCounterId(id)) {
+        resources.add(Resource.create(id, limit));
+      }
+    });
+    return resources;
+  }
+
+  /**
+   * Delete the limit and the shards of a counter.
+   */
+  void deleteResource(String counterId) {
+    longMap(MAP_COUNTER_LIMITS).remove(counterId);
+    final TransactionMap<String, Long> shards = longMap(MAP_COUNTER_SHARDS);
+    for (int index = 0; index < NUM_SHARDS; index++) {
+      shards.remove(shardKey(counterId, index));
+    }
+  }
+
+  Map<Integer, Long> shardsForCounter(String counterId) {
+    final Map<Integer, Long> shards = new HashMap<>();
+    final TransactionMap<String, Long> shardMap = longMap(MAP_COUNTER_SHARDS);
+    for (int index = 0; index < NUM_SHARDS; index++) {
+      final Long value = shardMap.get(shardKey(counterId, index));
+      if (value != null) {
+        shards.put(index, value);
+      }
+    }
+    return shards;
+  }
+
+  /**
+   * Store an event and advance the latest counter of its workflow instance.
+   */
+  void writeEvent(SequenceEvent sequenceEvent) throws IOException {
+    final WorkflowInstance instance = sequenceEvent.event().workflowInstance();
+    map(MAP_EVENTS).put(eventKey(instance, sequenceEvent.counter()),
+        OBJECT_MAPPER.writeValueAsString(PersistentSequenceEvent.of(sequenceEvent)));
+    final TransactionMap<String, Long> instances = longMap(MAP_WORKFLOW_INSTANCES);
+    final Long latest = instances.get(instance.toKey());
+    if (latest == null || latest < sequenceEvent.counter()) {
+      instances.put(instance.toKey(), sequenceEvent.counter());
+    }
+  }
+
+  /**
+   * Read the events of a workflow instance, in counter order.
+   */
+  List<SequenceEvent> readEvents(WorkflowInstance instance) throws IOException {
+    final String prefix = instance.toKey() + '#';
+    final List<SequenceEvent> events = new ArrayList<>();
+    final Iterator<Map.Entry<String, String>> entries =
+        map(MAP_EVENTS).entryIterator(prefix, prefix + KEY_PREFIX_END);
+    while (entries.hasNext()) {
+      final Map.Entry<String, String> entry = entries.next();
+      events.add(OBJECT_MAPPER.readValue(entry.getValue(), PersistentSequenceEvent.class)
+          .toSequenceEvent(eventCounter(entry.getKey())));
+    }
+    return events;
+  }
+
+  Optional<Long> latestStoredCounter(WorkflowInstance instance) {
+    return Optional.ofNullable(longMap(MAP_WORKFLOW_INSTANCES).get(instance.toKey()));
+  }
+
+  /**
+   * List the workflow instances of a workflow that have events, in key order.
+   *
+   * @param from  the first instance key to include, or the start of the workflow if empty
+   * @param to    the first instance key to exclude, or the end of the workflow if empty
+   * @param limit the maximum number of instances to return
+   */
+  List<WorkflowInstance> workflowInstances(WorkflowId workflowId, Optional<String> from,
+                                           Optional<String> to, int limit) {
+    final String prefix = workflowId.toKey() + '#';
+    final List<WorkflowInstance> instances = new ArrayList<>();
+    final Iterator<String> keys = longMap(MAP_WORKFLOW_INSTANCES)
+        .keyIterator(from.orElse(prefix), prefix + KEY_PREFIX_END);
+    while (keys.hasNext() && instances.size() < limit) {
+      final String key = keys.next();
+      if (to.isPresent() && key.compareTo(to.get()) >= 0) {
+        break;
+      }
+      instances.add(WorkflowInstance.parseKey(key));
+    }
+    return instances;
+  }
+
+  /**
+   * Read the stored partition statuses of a backfill, in parameter order.
+   *
+   * @param offset the first parameter to include, or the start of the backfill if empty
+   * @param limit  the maximum number of statuses to return
+   */
+  List<RunStateData> backfillStatuses(String backfillId, String offset, int limit) throws IOException {
+    final String prefix = backfillId + '#';
+    final List<RunStateData> statuses = new ArrayList<>();
+    final Iterator<Map.Entry<String, String>> entries =
+        map(MAP_BACKFILL_STATUSES).entryIterator(prefix + offset, prefix + KEY_PREFIX_END);
+    while (entries.hasNext() && statuses.size() < limit) {
+      statuses.add(OBJECT_MAPPER.readValue(entries.next().getValue(), RunStateData.class));
+    }
+    return statuses;
+  }
+
+  private TransactionMap<String, String> map(String name) {
+    return tx.openMap(name);
+  }
+
+  private TransactionMap<String, Long> longMap(String name) {
+    return tx.openMap(name);
+  }
+
+  private static <T> Optional<T> read(String json, Class<T> cls) throws IOException {
+    return json == null
+        ? Optional.empty()
+        : Optional.of(OBJECT_MAPPER.readValue(json, cls));
+  }
+
+  private static String backfillStatusKey(String backfillId, String parameter) {
+    return backfillId + '#' + parameter;
+  }
+
+  private static String shardKey(String counterId, int index) {
+    return counterId + "-" + index;
+  }
+
+  private static String eventKey(WorkflowInstance instance, long counter) {
+    return String.format("%s#%08d", instance.toKey(), counter);
+  }
+
+  private static long eventCounter(String eventKey) {
+    return Long.parseLong(eventKey.substring(eventKey.lastIndexOf('#') + 1));
+  }
+
+  /**
+   * The stored form of an active {@link RunState}, keyed by its workflow instance.
+   */
+  @AutoValue
+  abstract static class PersistentRunState {
+
+    @JsonProperty
+    abstract State state();
+
+    @JsonProperty
+    abstract long timestamp();
+
+    @JsonProperty
+    abstract long counter();
+
+    @JsonProperty
+    abstract StateData data();
+
+    RunState toRunState(WorkflowInstance instance) {
+      return RunState.create(instance, state(), data(), Instant.ofEpochMilli(timestamp()), counter());
+    }
+
+    static PersistentRunState of(RunState runState) {
+      return create(runState.state(), runState.timestamp(), runState.counter(), runState.data());
+    }
+
+    @JsonCreator
+    static PersistentRunState create(
+        @JsonProperty("state") State state,
+        @JsonProperty("timestamp") long timestamp,
+        @JsonProperty("counter") long counter,
+        @JsonProperty("data") StateData data) {
+      return new AutoValue_EmbeddedStorageTransaction_PersistentRunState(state, timestamp, counter, data);
+    }
+  }
+
+  /**
+   * The stored form of a {@link SequenceEvent}, keyed by its workflow instance and counter.
+   */
+  @AutoValue
+  abstract static class PersistentSequenceEvent {
+
+    @JsonProperty
+    abstract Event event();
+
+    @JsonProperty
+    abstract long timestamp();
+
+    SequenceEvent toSequenceEvent(long counter) {
+      return SequenceEvent.create(event(), counter, timestamp());
+    }
+
+    static PersistentSequenceEvent of(SequenceEvent sequenceEvent) {
+      return create(sequenceEvent.event(), sequenceEvent.timestamp());
+    }
+
+    @JsonCreator
+    static PersistentSequenceEvent create(
+        @JsonProperty("event") Event event,
+        @JsonProperty("timestamp") long timestamp) {
+      return new AutoValue_EmbeddedStorageTransaction_PersistentSequenceEvent(event, timestamp);
+    }
+  }
+}
@@ -24,6 +24,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
 import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Resource;
 import com.spotify.styx.model.SequenceEvent;
@@ -46,8 +47,10 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javaslang.control.Try;
 
 /**
  * A Storage implementation with state stored in memory. For testing.
@@ -147,6 +150,11 @@ public class InMemStorage implements Storage {
     throw new UnsupportedOperationException("Unsupported Operation!");
   }
 
+  @Override
+  public void materializeExecutionData(WorkflowInstance workflowInstance) {
+    // nothing to materialize
+  }
+
   @Override
   public List<WorkflowInstanceExecutionData> executionData(WorkflowId workflowId,
                                                            String startParameter,
@@ -276,6 +284,11 @@ public class InMemStorage implements Storage {
     backfillStore.put(backfill.id(), backfill);
   }
 
+  @Override
+  public List<RunStateData> backfillStatuses(String backfillId, String offset, int limit) {
+    throw new UnsupportedOperationException("Unsupported Operation!");
+  }
+
   @Override
   public Map<Integer, Long> shardsForCounter(String counterId) {
     throw new UnsupportedOperationException();
@@ -292,6 +305,11 @@ public class InMemStorage implements Storage {
     throw new UnsupportedOperationException("Unsupported Operation!");
   }
 
+  @Override
+  public <I, T> List<Try<T>> runInBatchedTransactions(List<I> items, BatchTransactionFunction<I, T> f) {
+    throw new UnsupportedOperationException("Unsupported Operation!");
+  }
+
   @Override
   public SortedSet<SequenceEvent> readEvents(WorkflowInstance workflowInstance) {
     final SortedSet<SequenceEvent> events = Sets.newTreeSet(SequenceEvent.COUNTER_COMPARATOR);
@@ -347,6 +365,13 @@ public class InMemStorage implements Storage {
         .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
   }
 
+  @Override
+  public Map<WorkflowInstance, RunState> readActiveStates(List<WorkflowInstance> workflowInstances) {
+    return workflowInstances.stream()
+        .filter(activeStatesMap::containsKey)
+        .collect(Collectors.toMap(Function.identity(), activeStatesMap::get));
+  }
+
   @Override
   public Map<WorkflowInstance, RunState> readActiveStatesByTriggerId(String triggerId)
       throws IOException {
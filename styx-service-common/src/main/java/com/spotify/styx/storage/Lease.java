@@ -0,0 +1,50 @@
+/*-
+ * -\-\-
+ * Spotify Styx Common
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.storage;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import java.time.Instant;
+
+/**
+ * A lease on some work, held by a single owner until it expires, e.g. a scheduler replica
+ * progressing a backfill.
+ */
+@AutoValue
+public abstract class Lease {
+
+  @JsonProperty
+  public abstract String id();
+
+  @JsonProperty
+  public abstract String owner();
+
+  @JsonProperty
+  public abstract Instant expiry();
+
+  @JsonCreator
+  public static Lease create(@JsonProperty("id") String id,
+                             @JsonProperty("owner") String owner,
+                             @JsonProperty("expiry") Instant expiry) {
+    return new AutoValue_Lease(id, owner, expiry);
+  }
+}
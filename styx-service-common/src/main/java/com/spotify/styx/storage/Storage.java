@@ -20,6 +20,7 @@
 
 package com.spotify.styx.storage;
 
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
 import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Resource;
 import com.spotify.styx.model.SequenceEvent;
@@ -38,6 +39,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
+import javaslang.control.Try;
 
 /**
  * The interface to the persistence layer.
@@ -185,6 +187,13 @@ public interface Storage extends Closeable {
   Optional<RunState> readActiveState(WorkflowInstance workflowInstance)
       throws IOException;
 
+  /**
+   * Read the active states of the given {@link WorkflowInstance}s by key. Instances that are not
+   * active are absent from the returned map.
+   */
+  Map<WorkflowInstance, RunState> readActiveStates(List<WorkflowInstance> workflowInstances)
+      throws IOException;
+
   /**
    * Return a map of all active {@link WorkflowInstance}s to their {@link RunState},
    * for a given triggerId.
@@ -233,6 +242,15 @@ public interface Storage extends Closeable {
   List<WorkflowInstanceExecutionData> executionData(WorkflowId workflowId, String start,
                                                     String stop) throws IOException;
 
+  /**
+   * Store the execution information of the triggers of a {@link WorkflowInstance} that completed
+   * since it was last stored, so that getting its execution information does not replay all its
+   * events. Storages that always replay the events do nothing.
+   *
+   * @param workflowInstance The workflow instance to store execution information for
+   */
+  void materializeExecutionData(WorkflowInstance workflowInstance) throws IOException;
+
   /**
    * Use workflowState instead.
    * Get enabled flag for a {@link Workflow}.
@@ -288,6 +306,17 @@ public interface Storage extends Closeable {
 
   void storeBackfill(Backfill backfill) throws IOException;
 
+  /**
+   * Get the stored partition statuses of a backfill, in {@link WorkflowInstance#parameter()} order.
+   *
+   * <p>Results can be paginated based on a offset {@link WorkflowInstance#parameter()} and a limit.
+   *
+   * @param backfillId The backfill to get partition statuses for
+   * @param offset     The offset parameter
+   * @param limit      Maximum number of results to return
+   */
+  List<RunStateData> backfillStatuses(String backfillId, String offset, int limit) throws IOException;
+
   Map<Integer, Long> shardsForCounter(String counterId) throws IOException;
 
   long getLimitForCounter(String counterId) throws IOException;
@@ -298,4 +327,16 @@ public interface Storage extends Closeable {
    */
   <T, E extends Exception> T runInTransaction(TransactionFunction<T, E> f)
       throws IOException, E;
+
+  /**
+   * Run a function for each of the given items, grouping as many items as the underlying storage
+   * allows into each transaction. This is meant for bulk operations that would otherwise need one
+   * transaction per item.
+   *
+   * <p>Items are not guaranteed to be committed atomically with each other. The function must be
+   * idempotent as it might be applied more than once to the same item.
+   *
+   * @return the result of applying the function to each item, in the same order as the items.
+   */
+  <I, T> List<Try<T>> runInBatchedTransactions(List<I> items, BatchTransactionFunction<I, T> f);
 }
@@ -20,6 +20,7 @@
 
 package com.spotify.styx.storage;
 
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
 import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.Resource;
 import com.spotify.styx.model.Workflow;
@@ -104,7 +105,8 @@ public interface StorageTransaction {
   Optional<RunState> readActiveState(WorkflowInstance instance) throws IOException;
 
   /**
-   * Insert a new active workflow instance state. Fails if the state already exists.
+   * Insert a new active workflow instance state, removing any tombstone of the instance. Fails if
+   * the state already exists.
    */
   WorkflowInstance writeActiveState(WorkflowInstance instance, RunState state)
       throws IOException;
@@ -120,6 +122,17 @@ public interface StorageTransaction {
    */
   WorkflowInstance deleteActiveState(WorkflowInstance instance) throws IOException;
 
+  /**
+   * Remove an active workflow instance state, leaving a tombstone that holds its last counter.
+   */
+  WorkflowInstance deleteActiveState(WorkflowInstance instance, long lastCounter) throws IOException;
+
+  /**
+   * Read the last counter of an inactive workflow instance from its tombstone. Empty if the
+   * instance is active or was removed without leaving a tombstone.
+   */
+  Optional<Long> readActiveStateTombstone(WorkflowInstance instance) throws IOException;
+
   /**
    * Stores a backfill
    *
@@ -127,6 +140,16 @@ public interface StorageTransaction {
    */
   Backfill store(Backfill backfill) throws IOException;
 
+  /**
+   * Read the stored status of a backfill partition.
+   */
+  Optional<RunStateData> backfillStatus(String backfillId, WorkflowInstance instance) throws IOException;
+
+  /**
+   * Store the status of a backfill partition, replacing any previous status of the partition.
+   */
+  void storeBackfillStatus(String backfillId, RunStateData status) throws IOException;
+
   /**
    * Commit all the storage operations previously called.
    *
@@ -170,4 +193,14 @@ public interface StorageTransaction {
    * Stores a resource
    */
   void store(Resource resource) throws IOException;
+
+  /**
+   * Reads a lease
+   */
+  Optional<Lease> lease(String id) throws IOException;
+
+  /**
+   * Stores a lease
+   */
+  void store(Lease lease) throws IOException;
 }
@@ -21,21 +21,42 @@
 package com.spotify.styx.storage;
 
 import com.google.cloud.datastore.DatastoreException;
+import java.util.Objects;
+import javax.annotation.Nullable;
 
 public class TransactionException extends StorageException {
 
+  /**
+   * The cause of a transaction failure, for storage backends that do not report failures as
+   * {@link DatastoreException}s.
+   */
+  enum Failure {
+    CONFLICT,
+    ALREADY_EXISTS,
+    NOT_FOUND,
+    OTHER
+  }
+
+  @Nullable private final Failure failure;
+
   public TransactionException(DatastoreException cause) {
     super(cause.getMessage() +
           ", code=" + cause.getCode() +
           ", reason=" + cause.getReason() +
           ", isRetryable=" + cause.isRetryable()
         , cause);
+    this.failure = null;
   }
 
-  // TODO: represent the failure cause using an enum instead
+  TransactionException(Failure failure, String message, Throwable cause) {
+    super(message + ", failure=" + failure, cause);
+    this.failure = Objects.requireNonNull(failure);
+  }
 
   public boolean isConflict() {
-    if (getCause() != null && getCause() instanceof DatastoreException) {
+    if (failure != null) {
+      return failure == Failure.CONFLICT;
+    } else if (getCause() != null && getCause() instanceof DatastoreException) {
       DatastoreException datastoreException = (DatastoreException) getCause();
       return datastoreException.getCode() == 10;
     } else {
@@ -44,7 +65,9 @@ public class TransactionException extends StorageException {
   }
 
   public boolean isAlreadyExists() {
-    if (getCause() != null && getCause() instanceof DatastoreException) {
+    if (failure != null) {
+      return failure == Failure.ALREADY_EXISTS;
+    } else if (getCause() != null && getCause() instanceof DatastoreException) {
       DatastoreException datastoreException = (DatastoreException) getCause();
       // TODO remove check on message when Google fixes the Datastore emulator
       return "ALREADY_EXISTS".equals(datastoreException.getReason())
@@ -55,7 +78,9 @@ public class TransactionException extends StorageException {
   }
 
   public boolean isNotFound() {
-    if (getCause() != null && getCause() instanceof DatastoreException) {
+    if (failure != null) {
+      return failure == Failure.NOT_FOUND;
+    } else if (getCause() != null && getCause() instanceof DatastoreException) {
       DatastoreException datastoreException = (DatastoreException) getCause();
       // TODO remove check on message when Google fixes the Datastore emulator
       return "NOT_FOUND".equals(datastoreException.getReason())
@@ -20,6 +20,7 @@
 
 package com.spotify.styx.storage;
 
+import com.google.common.collect.ImmutableList;
 import com.spotify.styx.model.EventVisitor;
 import com.spotify.styx.model.ExecutionDescription;
 import com.spotify.styx.model.SequenceEvent;
@@ -57,8 +58,24 @@ class WFIExecutionBuilder {
   @Nullable private Instant triggerTs;
   @Nullable private Instant eventTs;
 
+  private long completedCounter = -1;
+
   private final EventVisitor visitor = new Reducer();
 
+  WFIExecutionBuilder() {
+  }
+
+  /**
+   * Resume from execution data materialised up to and including the event with the given counter,
+   * which must only hold completed triggers.
+   */
+  WFIExecutionBuilder(WorkflowInstanceExecutionData completedTriggers, long completedCounter) {
+    this.currWorkflowInstance = completedTriggers.workflowInstance();
+    this.triggerList = new ArrayList<>(completedTriggers.triggers());
+    this.completed = true;
+    this.completedCounter = completedCounter;
+  }
+
   private enum Status {
     FAILED,
     HALTED,
@@ -144,7 +161,7 @@ class WFIExecutionBuilder {
 
     @Override
     public Void submit(WorkflowInstance workflowInstance, ExecutionDescription executionDescription,
-        String executionId) {
+        String executionId, String runnerId) {
       currWorkflowInstance = workflowInstance;
       currDockerImg = executionDescription.dockerImage();
       if (executionDescription.commitSha().isPresent()) {
@@ -156,7 +173,7 @@ class WFIExecutionBuilder {
     }
 
     @Override
-    public Void submitted(WorkflowInstance workflowInstance, String executionId) {
+    public Void submitted(WorkflowInstance workflowInstance, String executionId, String runnerId) {
       currWorkflowInstance = workflowInstance;
       currExecutionId = executionId;
 
@@ -276,16 +293,46 @@ class WFIExecutionBuilder {
   }
 
   WorkflowInstanceExecutionData executionInfo(Iterable<SequenceEvent> events) {
+    reduce(events);
+
+    if (!completed) {
+      closeTrigger();
+    }
+
+    return WorkflowInstanceExecutionData.create(currWorkflowInstance, triggerList);
+  }
+
+  /**
+   * Reduce events without closing the trigger in progress, for materialising the execution data
+   * of completed triggers. See {@link #completedTriggers()} and {@link #completedCounter()}.
+   */
+  WFIExecutionBuilder reduce(Iterable<SequenceEvent> events) {
     for (SequenceEvent sequenceEvent : events) {
       eventTs = Instant.ofEpochMilli(sequenceEvent.timestamp());
+      final int triggers = triggerList.size();
       sequenceEvent.event().accept(visitor);
+      if (triggerList.size() > triggers) {
+        completedCounter = sequenceEvent.counter();
+      }
     }
+    return this;
+  }
 
-    if (!completed) {
-      closeTrigger();
+  /**
+   * The execution data of all triggers completed by the events reduced so far.
+   */
+  Optional<WorkflowInstanceExecutionData> completedTriggers() {
+    if (triggerList.isEmpty()) {
+      return Optional.empty();
     }
+    return Optional.of(WorkflowInstanceExecutionData.create(
+        currWorkflowInstance, ImmutableList.copyOf(triggerList)));
+  }
 
-    return WorkflowInstanceExecutionData.create(currWorkflowInstance, triggerList);
+  /**
+   * The counter of the event that completed the last trigger, or -1 if none is completed.
+   */
+  long completedCounter() {
+    return completedCounter;
   }
 }
-
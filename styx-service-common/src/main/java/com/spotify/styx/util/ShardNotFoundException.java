@@ -20,7 +20,7 @@
 
 package com.spotify.styx.util;
 
-class ShardNotFoundException extends RuntimeException {
+public class ShardNotFoundException extends RuntimeException {
 
   ShardNotFoundException(String message) {
     super(message);
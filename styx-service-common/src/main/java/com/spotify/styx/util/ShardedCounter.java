@@ -31,12 +31,14 @@ import com.spotify.styx.storage.Storage;
 import com.spotify.styx.storage.StorageTransaction;
 import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
+import javaslang.control.Try;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -237,6 +239,31 @@ public class ShardedCounter {
     return storage.getLimitForCounter(counterId);
   }
 
+  /**
+   * Reads the current value of the counter referred to by counterId directly from storage, without
+   * using cached snapshots or initializing its shards. Returns empty if no limit has been stored
+   * for the counter.
+   */
+  public static Optional<Long> readCounter(Storage storage, String counterId) throws IOException {
+    try {
+      getLimit(storage, counterId);
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+    return Optional.of(storage.shardsForCounter(counterId).values().stream()
+        .mapToLong(i -> i)
+        .sum());
+  }
+
+  /**
+   * Deletes the limit and the shards of the counter referred to by counterId. Updates of the
+   * counter fail afterwards, with {@link IllegalArgumentException} or, when they use a cached
+   * snapshot, {@link ShardNotFoundException}.
+   */
+  public static void deleteCounter(Storage storage, String counterId) throws IOException {
+    storage.deleteResource(counterId);
+  }
+
   /**
    * Must be called within a TransactionCallable. Augments the transaction with certain operations
    * that strongly consistently increment resp. decrement the counter referred to by counterId, and
@@ -264,6 +291,62 @@ public class ShardedCounter {
     updateCounterShard(transaction, counterId, delta, shardIndex, snapshot.shardCapacity(shardIndex));
   }
 
+  /**
+   * Adjusts the counter referred to by counterId by delta, regardless of its limit, to resync a
+   * counter that has drifted from what it counts. The delta is spread over the shards of a recently
+   * read snapshot of the shard values, and each shard is only set if it still has its snapshot
+   * value, so that concurrent updates are not undone. As every shard is an entity group of its own,
+   * the shards are updated in batched transactions.
+   *
+   * @return the delta that was applied, less than the requested one if shards were updated
+   *         concurrently
+   */
+  public long adjustCounter(Storage storage, String counterId, Map<Integer, Long> shards, long delta) {
+    final List<Shard> adjustedShards = new ArrayList<>();
+    if (delta > 0) {
+      // any shard can take the increment as the limit is not checked
+      shards.entrySet().stream().findAny().ifPresent(shard -> adjustedShards.add(
+          Shard.create(counterId, shard.getKey(), Math.toIntExact(shard.getValue() + delta))));
+    } else {
+      // take the decrement from the shards with the highest values, to touch as few as possible
+      long remaining = -delta;
+      for (Map.Entry<Integer, Long> shard : shards.entrySet().stream()
+          .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+          .collect(toList())) {
+        if (remaining == 0 || shard.getValue() == 0) {
+          break;
+        }
+        final long decrement = Math.min(shard.getValue(), remaining);
+        adjustedShards.add(
+            Shard.create(counterId, shard.getKey(), Math.toIntExact(shard.getValue() - decrement)));
+        remaining -= decrement;
+      }
+    }
+
+    final List<Try<Long>> results = storage.runInBatchedTransactions(adjustedShards, (tx, adjusted) -> {
+      final long expected = shards.get(adjusted.index());
+      final Optional<Shard> shard = tx.shard(counterId, adjusted.index());
+      if (!shard.isPresent() || shard.get().value() != expected) {
+        return 0L;
+      }
+      tx.store(adjusted);
+      return adjusted.value() - expected;
+    });
+    inMemSnapshot.invalidate(counterId);
+
+    results.stream()
+        .filter(Try::isFailure)
+        .findFirst()
+        .ifPresent(failure -> LOG.warn("Failed to adjust shards of counter {}", counterId,
+            failure.getCause()));
+    final long adjustedDelta = results.stream()
+        .filter(Try::isSuccess)
+        .mapToLong(Try::get)
+        .sum();
+    LOG.info("Adjusted counter {} by {} of {}", counterId, adjustedDelta, delta);
+    return adjustedDelta;
+  }
+
   @VisibleForTesting
   void updateCounterShard(StorageTransaction transaction, String counterId, long delta,
                           int shardIndex, long shardCapacity) throws IOException {
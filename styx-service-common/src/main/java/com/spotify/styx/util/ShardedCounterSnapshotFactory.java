@@ -21,12 +21,16 @@
 package com.spotify.styx.util;
 
 import static com.spotify.styx.util.ShardedCounter.NUM_SHARDS;
+import static java.util.stream.Collectors.toList;
 
 import com.spotify.styx.storage.Storage;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import javaslang.control.Try;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,10 +41,6 @@ public class ShardedCounterSnapshotFactory implements CounterSnapshotFactory {
 
   private static final Logger LOG = LoggerFactory.getLogger(ShardedCounterSnapshotFactory.class);
 
-  /**
-   * Maximum number of entity groups that can be accessed in a transaction in Datastore.
-   */
-  static final int TRANSACTION_GROUP_SIZE = 25;
   private final Storage storage;
 
   public ShardedCounterSnapshotFactory(Storage storage) {
@@ -67,30 +67,23 @@ public class ShardedCounterSnapshotFactory implements CounterSnapshotFactory {
 
   /**
    * Idempotent initialization, so that we don't reset an existing shard to zero - counterId may
-   * have already been initialized and incremented by another process.
+   * have already been initialized and incremented by another process. The shards are created in
+   * as few transactions as the storage allows.
    */
-  private static void initialize(Storage storage, String counterId) {
+  public static void initialize(Storage storage, String counterId) {
     LOG.debug("Initializing counter shards for resource {}", counterId);
-    for (int startIndex = 0; startIndex < NUM_SHARDS; startIndex += TRANSACTION_GROUP_SIZE) {
-      initShardRange(storage, counterId, startIndex,
-                     Math.min(NUM_SHARDS, startIndex + TRANSACTION_GROUP_SIZE));
-    }
-  }
-
-  private static void initShardRange(Storage storage, String counterId, int startIndex,
-                                     int endIndex) {
-    try {
-      storage.runInTransaction(tx -> {
-        for (int index = startIndex; index < endIndex; index++) {
-          final Optional<Shard> shard = tx.shard(counterId, index);
-          if (!shard.isPresent()) {
-            tx.store(Shard.create(counterId, index, 0));
-          }
-        }
-        return null;
-      });
-    } catch (IOException e) {
-      LOG.warn("Error when trying to create a group of shards in Datastore: ", e);
-    }
+    final List<Integer> indices = IntStream.range(0, NUM_SHARDS).boxed().collect(toList());
+    final List<Try<Void>> results = storage.runInBatchedTransactions(indices, (tx, index) -> {
+      final Optional<Shard> shard = tx.shard(counterId, index);
+      if (!shard.isPresent()) {
+        tx.store(Shard.create(counterId, index, 0));
+      }
+      return null;
+    });
+    results.stream()
+        .filter(Try::isFailure)
+        .findFirst()
+        .ifPresent(failure -> LOG.warn("Error when trying to create shards of counter {} in Datastore",
+            counterId, failure.getCause()));
   }
 }
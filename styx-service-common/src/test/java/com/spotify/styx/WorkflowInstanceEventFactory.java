@@ -62,11 +62,19 @@ public class WorkflowInstanceEventFactory {
   }
 
   public Event submit(ExecutionDescription executionDescription, String executionId) {
-    return Event.submit(workflowInstance, executionDescription, executionId);
+    return Event.submit(workflowInstance, executionDescription, executionId, null);
+  }
+
+  public Event submit(ExecutionDescription executionDescription, String executionId, String runnerId) {
+    return Event.submit(workflowInstance, executionDescription, executionId, runnerId);
   }
 
   public Event submitted(String executionId) {
-    return Event.submitted(workflowInstance, executionId);
+    return Event.submitted(workflowInstance, executionId, null);
+  }
+
+  public Event submitted(String executionId, String runnerId) {
+    return Event.submitted(workflowInstance, executionId, runnerId);
   }
 
   public Event started() {
@@ -21,6 +21,7 @@
 package com.spotify.styx.monitoring;
 
 import static com.spotify.styx.monitoring.MetricsStats.ACTIVE_STATES_PER_RUNSTATE_PER_TRIGGER;
+import static com.spotify.styx.monitoring.MetricsStats.BACKFILL_TRIGGER_RATE;
 import static com.spotify.styx.monitoring.MetricsStats.COUNTER_CACHE_RATE;
 import static com.spotify.styx.monitoring.MetricsStats.DATASTORE_OPERATION_RATE;
 import static com.spotify.styx.monitoring.MetricsStats.DOCKER_DURATION;
@@ -31,7 +32,11 @@ import static com.spotify.styx.monitoring.MetricsStats.EVENT_CONSUMER_RATE;
 import static com.spotify.styx.monitoring.MetricsStats.EXIT_CODE_MISMATCH;
 import static com.spotify.styx.monitoring.MetricsStats.EXIT_CODE_RATE;
 import static com.spotify.styx.monitoring.MetricsStats.HISTOGRAM;
+import static com.spotify.styx.monitoring.MetricsStats.NATURAL_TRIGGER_LAG;
 import static com.spotify.styx.monitoring.MetricsStats.NATURAL_TRIGGER_RATE;
+import static com.spotify.styx.monitoring.MetricsStats.POD_EVENT_LAG;
+import static com.spotify.styx.monitoring.MetricsStats.POD_WATCH_RECONNECT_RATE;
+import static com.spotify.styx.monitoring.MetricsStats.POD_WATCH_UPTIME;
 import static com.spotify.styx.monitoring.MetricsStats.PUBLISHING_ERROR_RATE;
 import static com.spotify.styx.monitoring.MetricsStats.PUBLISHING_RATE;
 import static com.spotify.styx.monitoring.MetricsStats.PULL_IMAGE_ERROR_RATE;
@@ -41,6 +46,7 @@ import static com.spotify.styx.monitoring.MetricsStats.RESOURCE_USED;
 import static com.spotify.styx.monitoring.MetricsStats.STORAGE_DURATION;
 import static com.spotify.styx.monitoring.MetricsStats.STORAGE_RATE;
 import static com.spotify.styx.monitoring.MetricsStats.SUBMISSION_RATE_LIMIT;
+import static com.spotify.styx.monitoring.MetricsStats.SUBMISSION_STAGE_DURATION;
 import static com.spotify.styx.monitoring.MetricsStats.TERMINATION_LOG_INVALID;
 import static com.spotify.styx.monitoring.MetricsStats.TERMINATION_LOG_MISSING;
 import static com.spotify.styx.monitoring.MetricsStats.TICK_DURATION;
@@ -54,6 +60,7 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -106,6 +113,8 @@ public class MetricsStatsTest {
     when(registry.meter(WORKFLOW_CONSUMER_ERROR_RATE)).thenReturn(meter);
     when(registry.meter(COUNTER_CACHE_RATE.tagged("result", "miss"))).thenReturn(meter);
     when(registry.meter(COUNTER_CACHE_RATE.tagged("result", "hit"))).thenReturn(meter);
+    when(registry.getOrAdd(POD_EVENT_LAG, HISTOGRAM)).thenReturn(histogram);
+    when(registry.getOrAdd(NATURAL_TRIGGER_LAG, HISTOGRAM)).thenReturn(histogram);
     stats = new MetricsStats(registry, time);
   }
 
@@ -328,6 +337,48 @@ public class MetricsStatsTest {
     verify(meter).mark();
   }
 
+  @Test
+  public void shouldRegisterPodWatchUptimeMetric() {
+    stats.registerPodWatchUptimeMetric(gauge);
+    verify(registry).remove(POD_WATCH_UPTIME);
+    verify(registry).register(POD_WATCH_UPTIME, gauge);
+  }
+
+  @Test
+  public void shouldRecordPodWatchReconnect() {
+    when(registry.meter(POD_WATCH_RECONNECT_RATE.tagged("type", "resume"))).thenReturn(meter);
+    stats.recordPodWatchReconnect("resume");
+    verify(meter).mark();
+  }
+
+  @Test
+  public void shouldRecordBackfillTrigger() {
+    when(registry.meter(BACKFILL_TRIGGER_RATE.tagged("backfill", "backfill-1"))).thenReturn(meter);
+    stats.recordBackfillTrigger("backfill-1");
+    stats.recordBackfillTrigger("backfill-1");
+    verify(registry).meter(BACKFILL_TRIGGER_RATE.tagged("backfill", "backfill-1"));
+    verify(meter, times(2)).mark();
+  }
+
+  @Test
+  public void shouldRecordNaturalTriggerLag() {
+    stats.recordNaturalTriggerLag(1234L);
+    verify(histogram).update(1234L);
+  }
+
+  @Test
+  public void shouldRecordPodEventLag() {
+    stats.recordPodEventLag(4711L);
+    verify(histogram).update(4711L);
+  }
+
+  @Test
+  public void shouldRecordSubmissionStageLatency() {
+    when(registry.getOrAdd(SUBMISSION_STAGE_DURATION.tagged("stage", "create"), HISTOGRAM)).thenReturn(histogram);
+    stats.recordSubmissionStageLatency("create", 17L);
+    verify(histogram).update(17L);
+  }
+
   @Test
   public void shouldCreateHistogram() {
     final Histogram histogram = HISTOGRAM.newMetric();
@@ -178,6 +178,29 @@ public class RunStateTest {
     assertThat(transitioner.get(WORKFLOW_INSTANCE).state(), equalTo(RUNNING));
   }
 
+  @Test
+  public void testSubmittedRecordsRunnerId() throws Exception {
+    transitioner.initialize(RunState.fresh(WORKFLOW_INSTANCE));
+    transitioner.receive(eventFactory.triggerExecution(UNKNOWN_TRIGGER));
+    transitioner.receive(eventFactory.dequeue(ImmutableSet.of()));
+    transitioner.receive(eventFactory.submit(EXECUTION_DESCRIPTION, "exec1"));
+    transitioner.receive(eventFactory.submitted("exec1", "cluster-1"));
+
+    assertThat(transitioner.get(WORKFLOW_INSTANCE).state(), equalTo(SUBMITTED));
+    assertThat(transitioner.get(WORKFLOW_INSTANCE).data().runnerId(), hasValue("cluster-1"));
+  }
+
+  @Test
+  public void testSubmitRecordsRunnerIdBeforeStarting() throws Exception {
+    transitioner.initialize(RunState.fresh(WORKFLOW_INSTANCE));
+    transitioner.receive(eventFactory.triggerExecution(UNKNOWN_TRIGGER));
+    transitioner.receive(eventFactory.dequeue(ImmutableSet.of()));
+    transitioner.receive(eventFactory.submit(EXECUTION_DESCRIPTION, "exec1", "cluster-1"));
+
+    assertThat(transitioner.get(WORKFLOW_INSTANCE).state(), equalTo(SUBMITTING));
+    assertThat(transitioner.get(WORKFLOW_INSTANCE).data().runnerId(), hasValue("cluster-1"));
+  }
+
   @Test
   public void testRunErrorOnCreating() throws Exception {
     transitioner.initialize(RunState.fresh(WORKFLOW_INSTANCE));
@@ -20,11 +20,14 @@
 
 package com.spotify.styx.storage;
 
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 
+import com.google.cloud.bigtable.hbase.adapters.read.RowCell;
+import com.google.common.collect.Lists;
 import com.spotify.styx.model.Event;
 import com.spotify.styx.model.SequenceEvent;
 import com.spotify.styx.model.TriggerParameters;
@@ -32,6 +35,7 @@ import com.spotify.styx.model.WorkflowId;
 import com.spotify.styx.model.WorkflowInstance;
 import com.spotify.styx.model.data.ExecStatus;
 import com.spotify.styx.model.data.WorkflowInstanceExecutionData;
+import com.spotify.styx.serialization.Json;
 import com.spotify.styx.state.Trigger;
 import com.spotify.styx.util.ResourceNotFoundException;
 import java.io.IOException;
@@ -39,7 +43,11 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -80,10 +88,18 @@ public class BigTableStorageTest {
     new BigtableMocker(bigtable)
         .setNumFailures(numFailures)
         .setupTable(BigtableStorage.EVENTS_TABLE_NAME)
+        .setupTable(BigtableStorage.WORKFLOW_INSTANCES_TABLE_NAME)
         .finalizeMocking();
     return bigtable;
   }
 
+  private static Cell eventCell(SequenceEvent sequenceEvent) throws IOException {
+    final String key = String.format("%s#%08d",
+        sequenceEvent.event().workflowInstance().toKey(), sequenceEvent.counter());
+    return new RowCell(Bytes.toBytes(key), BigtableStorage.EVENT_CF, BigtableStorage.EVENT_QUALIFIER,
+        sequenceEvent.timestamp(), Json.serialize(sequenceEvent.event()).toByteArray());
+  }
+
   @Test
   public void shouldReturnExecutionDataForWorkflowInstance() throws Exception {
     setUp(0);
@@ -218,6 +234,119 @@ public class BigTableStorageTest {
                    .get(1), is(ExecStatus.create(Instant.ofEpochMilli(2L), "STARTED", Optional.empty())));
   }
 
+  @Test
+  public void shouldReturnLatestStoredCounter() throws Exception {
+    setUp(0);
+    storage.writeEvent(SequenceEvent.create(Event.triggerExecution(WFI1, TRIGGER, TRIGGER_PARAMETERS), 0L, 0L));
+    storage.writeEvent(SequenceEvent.create(Event.created(WFI1, "execId", "img"), 1L, 1L));
+    storage.writeEvent(SequenceEvent.create(Event.started(WFI1), 2L, 2L));
+    storage.writeEvent(SequenceEvent.create(Event.triggerExecution(WFI2, TRIGGER, TRIGGER_PARAMETERS), 0L, 3L));
+
+    assertThat(storage.getLatestStoredCounter(WFI1), is(Optional.of(2L)));
+    assertThat(storage.getLatestStoredCounter(WFI2), is(Optional.of(0L)));
+    assertThat(storage.getLatestStoredCounter(WFI3), is(Optional.empty()));
+  }
+
+  @Test
+  public void shouldReturnLatestStoredCounterWithoutCounterRow() throws Exception {
+    final Connection bigtable = mock(Connection.class);
+    final BigtableMocker bigtableMocker = new BigtableMocker(bigtable)
+        .setupTable(BigtableStorage.EVENTS_TABLE_NAME)
+        .setupTable(BigtableStorage.WORKFLOW_INSTANCES_TABLE_NAME);
+    bigtableMocker.finalizeMocking();
+    bigtableMocker.addRowsToTable(BigtableStorage.EVENTS_TABLE_NAME, Lists.newArrayList(
+        eventCell(SequenceEvent.create(Event.triggerExecution(WFI1, TRIGGER, TRIGGER_PARAMETERS), 0L, 0L)),
+        eventCell(SequenceEvent.create(Event.created(WFI1, "execId", "img"), 1L, 1L))));
+    storage = new BigtableStorage(bigtable, Duration.ZERO);
+
+    assertThat(storage.getLatestStoredCounter(WFI1), is(Optional.of(1L)));
+  }
+
+  @Test
+  public void shouldIndexWorkflowInstancesWrittenBeforeIndex() throws Exception {
+    final Connection bigtable = mock(Connection.class);
+    final BigtableMocker bigtableMocker = new BigtableMocker(bigtable)
+        .setupTable(BigtableStorage.EVENTS_TABLE_NAME)
+        .setupTable(BigtableStorage.WORKFLOW_INSTANCES_TABLE_NAME);
+    bigtableMocker.finalizeMocking();
+    bigtableMocker.addRowsToTable(BigtableStorage.EVENTS_TABLE_NAME, Lists.newArrayList(
+        eventCell(SequenceEvent.create(Event.triggerExecution(WFI1, TRIGGER1, TRIGGER_PARAMETERS), 0L, 0L)),
+        eventCell(SequenceEvent.create(Event.created(WFI1, "execId1", "img1"), 1L, 1L))));
+    storage = new BigtableStorage(bigtable, Duration.ZERO);
+    storage.writeEvent(SequenceEvent.create(Event.triggerExecution(WFI2, TRIGGER2, TRIGGER_PARAMETERS), 0L, 3L));
+
+    final List<WorkflowInstanceExecutionData> paged = storage.executionData(WORKFLOW_ID1, "", 100);
+    final List<WorkflowInstanceExecutionData> ranged =
+        storage.executionData(WORKFLOW_ID1, WFI1.parameter(), "");
+
+    assertThat(paged.stream().map(WorkflowInstanceExecutionData::workflowInstance).collect(toList()),
+        is(List.of(WFI1, WFI2)));
+    assertThat(ranged, is(paged));
+    assertThat(storage.getLatestStoredCounter(WFI1), is(Optional.of(1L)));
+
+    final Result marker = bigtable.getTable(BigtableStorage.WORKFLOW_INSTANCES_TABLE_NAME)
+        .get(new Get(Bytes.toBytes(WORKFLOW_ID1.toKey())));
+    assertThat(marker.getValue(BigtableStorage.INSTANCE_CF, BigtableStorage.INDEXED_QUALIFIER),
+        is(Bytes.toBytes(true)));
+  }
+
+  @Test
+  public void shouldReturnLatestStoredCounterPastStaleCounterRow() throws Exception {
+    setUp(0);
+    storage.writeEvent(SequenceEvent.create(Event.triggerExecution(WFI1, TRIGGER, TRIGGER_PARAMETERS), 0L, 0L));
+    storage.writeEvent(SequenceEvent.create(Event.created(WFI1, "execId", "img"), 1L, 1L));
+    storage.writeEvent(SequenceEvent.create(Event.started(WFI1), 2L, 2L));
+    // an older write overtaking the latest one leaves the counter row behind
+    storage.writeEvent(SequenceEvent.create(Event.created(WFI1, "execId", "img"), 1L, 1L));
+
+    assertThat(storage.getLatestStoredCounter(WFI1), is(Optional.of(2L)));
+  }
+
+  @Test
+  public void shouldReturnExecutionDataForManyWorkflowInstances() throws Exception {
+    setUp(0);
+    for (int i = 0; i < 120; i++) {
+      final WorkflowInstance instance = WorkflowInstance.create(WORKFLOW_ID1, String.format("%03d", i));
+      storage.writeEvent(SequenceEvent.create(Event.triggerExecution(instance, TRIGGER, TRIGGER_PARAMETERS), 0L, i));
+      storage.writeEvent(SequenceEvent.create(Event.created(instance, "execId" + i, "img"), 1L, i));
+    }
+    storage.writeEvent(SequenceEvent.create(Event.triggerExecution(WFI3, TRIGGER3, TRIGGER_PARAMETERS), 0L, 0L));
+
+    List<WorkflowInstanceExecutionData> workflowInstanceExecutionData =
+        storage.executionData(WORKFLOW_ID1, "", 1000);
+
+    assertThat(workflowInstanceExecutionData.size(), is(120));
+    for (int i = 0; i < 120; i++) {
+      assertThat(workflowInstanceExecutionData.get(i).workflowInstance().parameter(),
+          is(String.format("%03d", i)));
+      assertThat(workflowInstanceExecutionData.get(i).triggers().get(0).executions().get(0).executionId(),
+          is(Optional.of("execId" + i)));
+    }
+  }
+
+  @Test
+  public void shouldServeMaterializedExecutionDataOfCompletedTriggers() throws Exception {
+    setUp(0);
+    storage.writeEvent(SequenceEvent.create(Event.triggerExecution(WFI1, TRIGGER1, TRIGGER_PARAMETERS), 0L, 0L));
+    storage.writeEvent(SequenceEvent.create(Event.created(WFI1, "execId1", "img1"), 1L, 1L));
+    storage.writeEvent(SequenceEvent.create(Event.started(WFI1), 2L, 2L));
+    storage.writeEvent(SequenceEvent.create(Event.terminate(WFI1, Optional.of(1)), 3L, 3L));
+    storage.writeEvent(SequenceEvent.create(Event.stop(WFI1), 4L, 4L));
+    storage.materializeExecutionData(WFI1);
+    storage.writeEvent(SequenceEvent.create(Event.triggerExecution(WFI1, TRIGGER2, TRIGGER_PARAMETERS), 5L, 5L));
+    storage.writeEvent(SequenceEvent.create(Event.created(WFI1, "execId2", "img2"), 6L, 6L));
+
+    final WorkflowInstanceExecutionData replayed =
+        new WFIExecutionBuilder().executionInfo(storage.readEvents(WFI1));
+
+    final WorkflowInstanceExecutionData executionData = storage.executionData(WFI1);
+    assertThat(executionData, is(replayed));
+    assertThat(executionData.triggers().size(), is(2));
+    assertThat(executionData.triggers().get(0).complete(), is(true));
+    assertThat(storage.executionData(WORKFLOW_ID1, "", 100), is(List.of(replayed)));
+    assertThat(storage.executionData(WORKFLOW_ID1, WFI1.parameter(), ""), is(List.of(replayed)));
+  }
+
   @Test
   public void shouldProduceIOExceptionIfTooManyPutRetries() throws Exception {
     setUp(BigtableStorage.MAX_BIGTABLE_RETRIES);
@@ -27,6 +27,9 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.datastore.DatastoreException;
+import com.google.cloud.datastore.Entity;
+import com.google.cloud.datastore.Key;
+import com.google.cloud.datastore.PathElement;
 import com.google.cloud.datastore.Transaction;
 import com.google.cloud.datastore.Transaction.Response;
 import junitparams.JUnitParamsRunner;
@@ -95,6 +98,29 @@ public class CheckedDatastoreTransactionTest {
     verify(transaction).isActive();
   }
 
+  @Test
+  public void shouldTrackMutationsAndEntityGroups() throws Exception {
+    final Key root1 = Key.newBuilder("project", "Foo", "root1").build();
+    final Key root2 = Key.newBuilder("project", "Foo", "root2").build();
+    final Key child1 = Key.newBuilder("project", "Bar", "child1")
+        .addAncestor(PathElement.of("Foo", "root1")).build();
+    final Key child2 = Key.newBuilder("project", "Bar", "child2")
+        .addAncestor(PathElement.of("Foo", "root2")).build();
+
+    sut.get(root1);
+    sut.put(Entity.newBuilder(root1).build());
+    sut.add(Entity.newBuilder(child1).build());
+    sut.delete(child2);
+
+    assertThat(sut.mutations(), is(3));
+    assertThat(sut.entityGroups(), is(2));
+
+    sut.update(Entity.newBuilder(root2).build());
+
+    assertThat(sut.mutations(), is(4));
+    assertThat(sut.entityGroups(), is(2));
+  }
+
   @Test
   public void getDatastore() {
     assertThat(sut.getDatastore(), is(datastore));
@@ -0,0 +1,71 @@
+/*-
+ * -\-\-
+ * Spotify Styx Common
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.storage;
+
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.datastore.testing.LocalDatastoreHelper;
+import java.time.Duration;
+import java.util.logging.Level;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+/**
+ * Runs the {@link StorageContractTest} suite against the Datastore backed {@link AggregateStorage}.
+ */
+public class DatastoreStorageContractTest extends StorageContractTest {
+
+  private static LocalDatastoreHelper helper;
+
+  @BeforeClass
+  public static void setUpClass() throws Exception {
+    final java.util.logging.Logger datastoreEmulatorLogger =
+        java.util.logging.Logger.getLogger(LocalDatastoreHelper.class.getName());
+    datastoreEmulatorLogger.setLevel(Level.OFF);
+
+    // TODO: the datastore emulator behavior wrt conflicts etc differs from the real datastore
+    helper = LocalDatastoreHelper.create(1.0); // 100% global consistency
+    helper.start();
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    if (helper != null) {
+      try {
+        helper.stop(org.threeten.bp.Duration.ofSeconds(30));
+      } catch (Throwable e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  @Override
+  protected Storage createStorage() {
+    final CheckedDatastore datastore = new CheckedDatastore(helper.getOptions().getService());
+    return new AggregateStorage(mock(BigtableStorage.class), new DatastoreStorage(datastore, Duration.ZERO));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    helper.reset();
+  }
+}
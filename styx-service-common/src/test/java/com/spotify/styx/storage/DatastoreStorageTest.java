@@ -37,7 +37,6 @@ import static com.spotify.styx.storage.DatastoreStorage.globalConfigKey;
 import static com.spotify.styx.storage.DatastoreStorage.instantToTimestamp;
 import static com.spotify.styx.storage.DatastoreStorage.workflowKey;
 import static com.spotify.styx.testdata.TestData.EXECUTION_DESCRIPTION;
-import static com.spotify.styx.testdata.TestData.FULL_WORKFLOW_CONFIGURATION;
 import static com.spotify.styx.testdata.TestData.WORKFLOW_INSTANCE;
 import static java.util.stream.Collectors.toMap;
 import static org.hamcrest.Matchers.allOf;
@@ -45,10 +44,8 @@ import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasEntry;
-import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
-import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
@@ -61,6 +58,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -78,14 +76,12 @@ import com.spotify.styx.model.Backfill;
 import com.spotify.styx.model.BackfillBuilder;
 import com.spotify.styx.model.ExecutionDescription;
 import com.spotify.styx.model.Resource;
-import com.spotify.styx.model.StyxConfig;
 import com.spotify.styx.model.TriggerParameters;
 import com.spotify.styx.model.Workflow;
 import com.spotify.styx.model.WorkflowConfiguration;
 import com.spotify.styx.model.WorkflowConfiguration.Secret;
 import com.spotify.styx.model.WorkflowId;
 import com.spotify.styx.model.WorkflowInstance;
-import com.spotify.styx.model.WorkflowState;
 import com.spotify.styx.serialization.Json;
 import com.spotify.styx.state.Message;
 import com.spotify.styx.state.Message.MessageLevel;
@@ -93,15 +89,11 @@ import com.spotify.styx.state.RunState;
 import com.spotify.styx.state.RunState.State;
 import com.spotify.styx.state.StateData;
 import com.spotify.styx.state.Trigger;
-import com.spotify.styx.util.Shard;
-import com.spotify.styx.util.TriggerInstantSpec;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -135,9 +127,6 @@ public class DatastoreStorageTest {
   private static final WorkflowInstance WORKFLOW_INSTANCE2 = WorkflowInstance.create(WORKFLOW_ID2, "2016-09-01");
   private static final WorkflowInstance WORKFLOW_INSTANCE3 = WorkflowInstance.create(WORKFLOW_ID3, "2016-09-01");
 
-  private static final Resource RESOURCE1 = Resource.create("resource1", 1L);
-  private static final Resource RESOURCE2 = Resource.create("resource2", 2L);
-
   static final Instant TIMESTAMP = Instant.parse("2017-01-01T00:00:00Z");
 
   private static final TriggerParameters TRIGGER_PARAMETERS = TriggerParameters.builder()
@@ -253,16 +242,6 @@ public class DatastoreStorageTest {
     storage.close();
   }
 
-  @Test
-  public void shouldPersistWorkflows() throws Exception {
-    Workflow workflow = Workflow.create("test",
-                                        FULL_WORKFLOW_CONFIGURATION);
-    storage.store(workflow);
-    Optional<Workflow> retrieved = storage.workflow(workflow.id());
-
-    assertThat(retrieved, is(Optional.of(workflow)));
-  }
-
   @Test
   public void shouldDeleteWorkflows() throws Exception {
     var foo = Workflow.create("foo", WORKFLOW_CONFIGURATION);
@@ -284,36 +263,6 @@ public class DatastoreStorageTest {
     assertThat(datastore.get(barKey), is(notNullValue()));
   }
 
-  @Test
-  public void shouldPersistNextScheduledRun() throws Exception {
-    Instant instant = Instant.parse("2016-03-14T14:00:00Z");
-    Instant offset = instant.plus(1, ChronoUnit.DAYS);
-    TriggerInstantSpec spec = TriggerInstantSpec.create(instant, offset);
-
-    storage.store(WORKFLOW);
-    storage.updateNextNaturalTrigger(WORKFLOW.id(), spec);
-
-    final Map<Workflow, TriggerInstantSpec> result = storage.workflowsWithNextNaturalTrigger();
-    assertThat(result.values().size(), is(1));
-    assertThat(result, hasEntry(WORKFLOW, spec));
-  }
-
-  @Test
-  public void shouldReturnEmptyOptionalWhenWorkflowIdDoesNotExist() throws Exception {
-    Optional<Workflow> retrieved = storage.workflow(WorkflowId.create("foo", "bar"));
-
-    assertThat(retrieved, is(Optional.empty()));
-  }
-
-  @Test
-  public void shouldReturnEmptyWorkflowStateExceptEnabledWhenWorkflowStateDoesNotExist() throws Exception {
-    final Workflow workflow = Workflow.create("foo",
-                                              WORKFLOW_CONFIGURATION);
-    storage.store(workflow);
-    WorkflowState retrieved = storage.workflowState(workflow.id());
-    assertThat(retrieved, is(WorkflowState.patchEnabled(false)));
-  }
-
   @Test
   public void shouldStoreWorkflowEnabledFlag() throws Exception {
     storage.store(workflow(WORKFLOW_ID1));
@@ -412,15 +361,6 @@ public class DatastoreStorageTest {
     assertThat(instance.getString(DatastoreStorage.PROPERTY_PARAMETER), is(WORKFLOW_INSTANCE.parameter()));
   }
 
-  @Test
-  public void testFullPersistentStatePersistence() throws Exception {
-    storage.writeActiveState(WORKFLOW_INSTANCE, FULLY_POPULATED_RUNSTATE);
-    final RunState read = storage
-        .readActiveStates(WORKFLOW_INSTANCE.workflowId().componentId())
-        .get(WORKFLOW_INSTANCE);
-    assertThat(read, is(FULLY_POPULATED_RUNSTATE));
-  }
-
   @Test
   public void shouldDeleteActiveWorkflowInstance() throws Exception {
     storage.writeActiveState(WORKFLOW_INSTANCE1, RUN_STATE);
@@ -432,30 +372,6 @@ public class DatastoreStorageTest {
     assertThat(entitiesOfKind(DatastoreStorage.KIND_ACTIVE_WORKFLOW_INSTANCE), hasSize(1));
   }
 
-  @Test
-  public void shouldReturnAllActiveStates() throws Exception {
-    storage.writeActiveState(WORKFLOW_INSTANCE1, RUN_STATE);
-    storage.writeActiveState(WORKFLOW_INSTANCE2, RUN_STATE2);
-
-    final Map<WorkflowInstance, RunState> activeStates = storage.readActiveStates();
-    assertThat(activeStates, is(Map.of(
-        WORKFLOW_INSTANCE1, RUN_STATE,
-        WORKFLOW_INSTANCE2, RUN_STATE2)));
-  }
-
-  @Test
-  public void shouldReturnAllActiveStatesForAComponent() throws Exception {
-    storage.writeActiveState(WORKFLOW_INSTANCE2, RUN_STATE2);
-    storage.writeActiveState(WORKFLOW_INSTANCE3, RUN_STATE3);
-
-    assertThat(entitiesOfKind(DatastoreStorage.KIND_ACTIVE_WORKFLOW_INSTANCE), hasSize(2));
-
-    final Map<WorkflowInstance, RunState> activeStates =
-        storage.readActiveStates(WORKFLOW_ID1.componentId());
-
-    assertThat(activeStates, is(Map.of(WORKFLOW_INSTANCE2, RUN_STATE2)));
-  }
-
   @Test
   public void readActiveStatesShouldPropagateIOException() throws Exception {
     final IOException cause = new IOException("foobar");
@@ -464,30 +380,6 @@ public class DatastoreStorageTest {
     storage.readActiveStates();
   }
 
-  @Test
-  public void shouldReturnAllActiveStatesForATriggerId() throws Exception {
-    storage.writeActiveState(WORKFLOW_INSTANCE, FULLY_POPULATED_RUNSTATE);
-
-    assertThat(entitiesOfKind(DatastoreStorage.KIND_ACTIVE_WORKFLOW_INSTANCE), hasSize(1));
-
-    final Map<WorkflowInstance, RunState> activeStates =
-        storage.activeStatesByTriggerId("foobar");
-
-    assertThat(activeStates, is(Map.of(WORKFLOW_INSTANCE, FULLY_POPULATED_RUNSTATE)));
-  }
-
-  @Test
-  public void shouldReturnActiveStateForWFI() throws Exception {
-    storage.writeActiveState(WORKFLOW_INSTANCE2, RUN_STATE2);
-
-    assertThat(entitiesOfKind(DatastoreStorage.KIND_ACTIVE_WORKFLOW_INSTANCE), hasSize(1));
-
-    final Optional<RunState> activeStates =
-        storage.readActiveState(WORKFLOW_INSTANCE2);
-
-    assertThat(activeStates, is(Optional.of(RUN_STATE2)));
-  }
-
   @Test
   public void shouldWriteActiveStatesWithSamePartitionAsSeparateEntities() throws Exception {
     storage.writeActiveState(WORKFLOW_INSTANCE1, RUN_STATE);
@@ -507,25 +399,6 @@ public class DatastoreStorageTest {
     return entities;
   }
 
-  @Test
-  public void allFieldsAreSetWhenRetrievingWorkflowState() throws Exception {
-    storage.store(WORKFLOW);
-    Instant instant = Instant.parse("2016-03-14T14:00:00Z");
-    Instant offset = instant.plus(1, ChronoUnit.DAYS);
-    TriggerInstantSpec spec = TriggerInstantSpec.create(instant, offset);
-    storage.updateNextNaturalTrigger(WORKFLOW.id(), spec);
-    WorkflowState state = WorkflowState.builder()
-        .enabled(true)
-        .nextNaturalTrigger(instant)
-        .nextNaturalOffsetTrigger(offset)
-        .build();
-    storage.patchState(WORKFLOW.id(), state);
-
-    WorkflowState retrieved = storage.workflowState(WORKFLOW.id());
-
-    assertThat(retrieved, is(state));
-  }
-
   @Test
   public void getsGlobalDockerRunnerId() throws Exception {
     Entity config = Entity.newBuilder(DatastoreStorage.globalConfigKey(datastore.newKeyFactory()))
@@ -559,48 +432,6 @@ public class DatastoreStorageTest {
     assertThat(blacklist.get(2), is("v3"));
   }
 
-  @Test
-  public void shouldReturnAllWorkflows() throws Exception {
-    assertThat(storage.workflows().isEmpty(), is(true));
-
-    Workflow workflow1 = workflow(WORKFLOW_ID1);
-    Workflow workflow2 = workflow(WORKFLOW_ID2);
-    Workflow workflow3 = workflow(WORKFLOW_ID3);
-
-    storage.store(workflow1);
-    storage.store(workflow2);
-    storage.store(workflow3);
-
-    var workflows = storage.workflows();
-    assertThat(workflows.size(), is(3));
-    assertThat(workflows, hasEntry(WORKFLOW_ID1, workflow1));
-    assertThat(workflows, hasEntry(WORKFLOW_ID2, workflow2));
-    assertThat(workflows, hasEntry(WORKFLOW_ID3, workflow3));
-  }
-
-  @Test
-  public void shouldReturnAllWorkflowsWithNextNaturalTrigger() throws Exception {
-    assertThat(storage.workflows().isEmpty(), is(true));
-
-    var workflow1 = workflow(WORKFLOW_ID1);
-    var workflow2 = workflow(WORKFLOW_ID2);
-    var workflow3 = workflow(WORKFLOW_ID3);
-
-    var now = Instant.parse("2019-04-03T00:00:00Z");
-    var triggerSpec1 = TriggerInstantSpec.create(now.plusSeconds(1), now.plusSeconds(11));
-    var triggerSpec2 = TriggerInstantSpec.create(now.plusSeconds(2), now.plusSeconds(22));
-    var triggerSpec3 = TriggerInstantSpec.create(now.plusSeconds(3), now.plusSeconds(33));
-    storage.runInTransaction(tx -> tx.storeWorkflowWithNextNaturalTrigger(workflow1, triggerSpec1));
-    storage.runInTransaction(tx -> tx.storeWorkflowWithNextNaturalTrigger(workflow2, triggerSpec2));
-    storage.runInTransaction(tx -> tx.storeWorkflowWithNextNaturalTrigger(workflow3, triggerSpec3));
-
-    var workflows = storage.workflowsWithNextNaturalTrigger();
-    assertThat(workflows.size(), is(3));
-    assertThat(workflows, hasEntry(workflow1, triggerSpec1));
-    assertThat(workflows, hasEntry(workflow2, triggerSpec2));
-    assertThat(workflows, hasEntry(workflow3, triggerSpec3));
-  }
-
   @Test
   public void shouldFailToReadCorruptWorkflow() throws Exception {
     assertThat(storage.workflows().isEmpty(), is(true));
@@ -619,69 +450,6 @@ public class DatastoreStorageTest {
     storage.workflow(workflow1.id());
   }
 
-  @Test
-  public void shouldGetAllWorkflowsByDoingBatchGet() throws Exception {
-    assertThat(storage.workflows().isEmpty(), is(true));
-
-    final Set<WorkflowId> workflowIds = ImmutableSet.of(WORKFLOW_ID1, WORKFLOW_ID2, WORKFLOW_ID3);
-    Workflow workflow1 = workflow(WORKFLOW_ID1);
-    Workflow workflow2 = workflow(WORKFLOW_ID2);
-    Workflow workflow3 = workflow(WORKFLOW_ID3);
-
-    storage.store(workflow1);
-    storage.store(workflow2);
-    storage.store(workflow3);
-
-    var workflows = storage.workflows(workflowIds);
-    assertThat(workflows.size(), is(3));
-    assertThat(workflows, hasEntry(WORKFLOW_ID1, workflow1));
-    assertThat(workflows, hasEntry(WORKFLOW_ID2, workflow2));
-    assertThat(workflows, hasEntry(WORKFLOW_ID3, workflow3));
-  }
-
-  @Test
-  public void shouldReturnAllWorkflowsInComponent() throws Exception {
-    String componentId = "component";
-
-    Workflow workflow1 = workflow(WORKFLOW_ID1);
-    Workflow workflow2 = workflow(WORKFLOW_ID2);
-    Workflow workflow3 = workflow(WORKFLOW_ID3);
-
-    assertThat(workflow1.componentId(), is(componentId));
-    assertThat(workflow2.componentId(), is(componentId));
-    assertThat(workflow3.componentId(), not(componentId));
-
-    storage.store(workflow1);
-    storage.store(workflow2);
-    storage.store(workflow3);
-
-
-    List<Workflow> l = storage.workflows(componentId);
-    assertThat(l, hasSize(2));
-
-    assertThat(l, hasItem(workflow1));
-    assertThat(l, hasItem(workflow2));
-  }
-
-  @Test
-  public void shouldReturnEmptyListIfComponentDoesNotExist() throws Exception {
-    String componentId = "component";
-    List<Workflow> l = storage.workflows(componentId);
-    assertThat(l, hasSize(0));
-  }
-
-  @Test
-  public void testDefaultConfig() throws IOException {
-    final StyxConfig expectedConfig = StyxConfig.newBuilder()
-        .globalDockerRunnerId("default")
-        .globalEnabled(true)
-        .debugEnabled(false)
-        .executionGatingEnabled(false)
-        .build();
-
-    assertThat(storage.config(), is(expectedConfig));
-  }
-
   @Parameters({
       "true, true",
       "false, false",
@@ -742,23 +510,6 @@ public class DatastoreStorageTest {
     assertThat(storage.getBackfill(backfill.id()), equalTo(Optional.of(backfill)));
   }
 
-  @Test
-  public void shouldStoreAndReadBackfillWithDescription() throws Exception {
-    final Backfill backfill = Backfill.newBuilder()
-        .id("backfill-2")
-        .start(Instant.parse("2017-01-01T00:00:00Z"))
-        .end(Instant.parse("2017-01-02T00:00:00Z"))
-        .workflowId(WorkflowId.create("component", "workflow2"))
-        .concurrency(2)
-        .description("Description")
-        .nextTrigger(Instant.parse("2017-01-01T00:00:00Z"))
-        .schedule(DAYS)
-        .build();
-
-    storage.storeBackfill(backfill);
-    assertThat(storage.getBackfill(backfill.id()), equalTo(Optional.of(backfill)));
-  }
-
   private Workflow workflow(WorkflowId workflowId) {
     return Workflow.create(
         workflowId.componentId(),
@@ -920,62 +671,61 @@ public class DatastoreStorageTest {
   }
 
   @Test
-  public void shouldReturnResource() throws IOException {
-    storage.runInTransaction(tx -> {
-      tx.store(RESOURCE1);
-      tx.store(RESOURCE2);
-      return null;
-    });
-    assertThat(storage.getResource(RESOURCE1.id()), is(Optional.of(RESOURCE1)));
-  }
+  public void runInBatchedTransactionsShouldGroupItemsIntoFewTransactions() throws Exception {
+    // every resource is an entity group of its own, so a transaction fits 25 of them
+    var resources = new ArrayList<Resource>();
+    for (int i = 0; i < 60; i++) {
+      resources.add(Resource.create("resource-" + i, i));
+    }
+    var transactions = new ArrayList<StorageTransaction>();
 
-  @Test
-  public void shouldReturnResources() throws IOException {
-    storage.runInTransaction(tx -> {
-      tx.store(RESOURCE1);
-      tx.store(RESOURCE2);
-      return null;
+    var results = storage.runInBatchedTransactions(resources, (tx, resource) -> {
+      transactions.add(tx);
+      tx.store(resource);
+      return resource.id();
     });
-    assertThat(storage.getResources(), is(List.of(RESOURCE1, RESOURCE2)));
-  }
 
-  @Test
-  public void shouldDeleteResource() throws IOException {
-    storage.runInTransaction(tx -> {
-      tx.store(RESOURCE1);
-      return null;
-    });
-    storage.deleteResource(RESOURCE1.id());
-    assertThat(storage.getResources(), is(List.of()));
-    assertThat(storage.shardsForCounter(RESOURCE1.id()), is(Map.of()));
+    assertThat(results.size(), is(resources.size()));
+    for (int i = 0; i < resources.size(); i++) {
+      assertThat(results.get(i).get(), is(resources.get(i).id()));
+    }
+    assertThat(Set.copyOf(storage.getResources()), is(Set.copyOf(resources)));
+    verify(datastore, times(3)).newTransaction();
+    assertThat(transactions.size(), is(resources.size()));
+    assertThat(Set.copyOf(transactions.subList(0, 25)).size(), is(1));
+    assertThat(Set.copyOf(transactions.subList(25, 50)).size(), is(1));
+    assertThat(Set.copyOf(transactions.subList(50, 60)).size(), is(1));
+    assertThat(Set.copyOf(transactions).size(), is(3));
   }
 
   @Test
-  public void shouldReturnShardsForCounter() throws Exception {
-    storage.runInTransaction(tx -> {
-      tx.store(Shard.create(RESOURCE1.id(), 0, 0));
-      tx.store(Shard.create(RESOURCE1.id(), 1, 3));
-      return null;
-    });
-    final Map<Integer, Long> map = storage.shardsForCounter(RESOURCE1.id());
-    assertEquals(2, map.size());
-    assertEquals(0, map.get(0).longValue());
-    assertEquals(3, map.get(1).longValue());
-  }
+  public void runInBatchedTransactionsShouldRetryOnlyItemsOfBatchWhoseCommitFailed() throws Exception {
+    final DatastoreStorage storage = new DatastoreStorage(datastore, Duration.ZERO, storageTransactionFactory, executor);
+    final DatastoreStorageTransaction failingTransaction =
+        spy(new DatastoreStorageTransaction(datastore.newTransaction()));
+    doThrow(new TransactionException(TransactionException.Failure.OTHER, "Commit failed", null))
+        .when(failingTransaction).commit();
+    when(storageTransactionFactory.apply(any()))
+        .thenReturn(failingTransaction)
+        .then(a -> new DatastoreStorageTransaction(a.getArgument(0)));
+    // every resource is an entity group of its own, so the first transaction fits 25 of them
+    var resources = new ArrayList<Resource>();
+    for (int i = 0; i < 30; i++) {
+      resources.add(Resource.create("resource-" + i, i));
+    }
+    var applied = new ArrayList<String>();
 
-  @Test
-  public void shouldReturnCounterLimit() throws IOException {
-    storage.runInTransaction(tx -> {
-      tx.store(RESOURCE1);
-      return null;
+    var results = storage.runInBatchedTransactions(resources, (tx, resource) -> {
+      applied.add(resource.id());
+      tx.store(resource);
+      return resource.id();
     });
 
-    assertEquals(1L, storage.getLimitForCounter(RESOURCE1.id()));
-  }
-
-  @Test
-  public void shouldReturnDefaultGlobalCounterLimit() throws IOException {
-    assertEquals(Long.MAX_VALUE, storage.getLimitForCounter("GLOBAL_STYX_CLUSTER"));
+    assertThat(results.size(), is(resources.size()));
+    assertThat(Set.copyOf(storage.getResources()), is(Set.copyOf(resources)));
+    // the 25 items of the failed batch are retried one by one, the rest in a new batch
+    assertThat(applied.size(), is(25 + 25 + 5));
+    verify(storageTransactionFactory, times(1 + 25 + 1)).apply(any());
   }
 
   @Test
@@ -20,19 +20,7 @@
 
 package com.spotify.styx.storage;
 
-import static com.spotify.styx.model.Schedule.DAYS;
-import static com.spotify.styx.storage.DatastoreStorageTest.RUN_STATE;
-import static com.spotify.styx.storage.DatastoreStorageTest.RUN_STATE1;
-import static com.spotify.styx.storage.DatastoreStorageTest.TIMESTAMP;
-import static com.spotify.styx.storage.DatastoreStorageTest.WORKFLOW;
-import static com.spotify.styx.storage.DatastoreStorageTest.WORKFLOW_INSTANCE1;
-import static com.spotify.styx.testdata.TestData.FULL_WORKFLOW_CONFIGURATION;
-import static com.spotify.styx.testdata.TestData.WORKFLOW_INSTANCE;
-import static org.hamcrest.Matchers.hasEntry;
-import static org.hamcrest.Matchers.is;
-import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -40,20 +28,7 @@ import com.google.cloud.datastore.Entity;
 import com.google.cloud.datastore.Key;
 import com.google.cloud.datastore.KeyFactory;
 import com.google.cloud.datastore.testing.LocalDatastoreHelper;
-import com.spotify.styx.model.Backfill;
-import com.spotify.styx.model.Workflow;
-import com.spotify.styx.model.WorkflowId;
-import com.spotify.styx.model.WorkflowState;
-import com.spotify.styx.state.RunState;
-import com.spotify.styx.state.StateData;
-import com.spotify.styx.util.Shard;
-import com.spotify.styx.util.TriggerInstantSpec;
 import java.io.IOException;
-import java.time.Duration;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.Map;
-import java.util.Optional;
 import java.util.logging.Level;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -68,7 +43,6 @@ public class DatastoreStorageTransactionTest {
 
   private static LocalDatastoreHelper helper;
   private static CheckedDatastore datastore;
-  private DatastoreStorage storage;
 
   @BeforeClass
   public static void setUpClass() throws Exception {
@@ -95,7 +69,6 @@ public class DatastoreStorageTransactionTest {
   @Before
   public void setUp() throws Exception {
     datastore = new CheckedDatastore(helper.getOptions().getService());
-    storage = new DatastoreStorage(datastore, Duration.ZERO);
   }
 
   @After
@@ -176,189 +149,4 @@ public class DatastoreStorageTransactionTest {
     }
   }
 
-  @Test
-  public void insertActiveStateShouldFailIfAlreadyExists() throws Exception {
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.writeActiveState(WORKFLOW_INSTANCE1, RUN_STATE);
-    tx.commit();
-    tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.writeActiveState(WORKFLOW_INSTANCE1, RUN_STATE);
-    try {
-      tx.commit();
-      fail("Expected exception!");
-    } catch (TransactionException e) {
-      assertThat(e.isAlreadyExists(), is(true));
-    }
-  }
-
-  @Test
-  public void updateActiveStateShouldFailIfNotFound() throws Exception {
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.updateActiveState(WORKFLOW_INSTANCE1, RUN_STATE);
-    try {
-      tx.commit();
-      fail("Expected exception!");
-    } catch (TransactionException e) {
-      assertThat(e.isNotFound(), is(true));
-    }
-  }
-
-  @Test
-  public void shouldStoreAndDeleteWorkflow() throws IOException {
-    var tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    Workflow workflow = Workflow.create("test", FULL_WORKFLOW_CONFIGURATION);
-    tx.store(workflow);
-    tx.commit();
-    assertThat(storage.workflow(workflow.id()), is(Optional.of(workflow)));
-
-    tx  = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.deleteWorkflow(workflow.id());
-    tx.commit();
-
-    tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    var deleted = tx.workflow(workflow.id());
-    assertThat(deleted, is(Optional.empty()));
-  }
-
-  @Test
-  public void shouldStoreWorkflowWithNextNaturalTrigger() throws IOException {
-    final Instant instant = Instant.parse("2016-03-14T14:00:00Z");
-    final Instant offset = instant.plus(1, ChronoUnit.DAYS);
-    final TriggerInstantSpec spec = TriggerInstantSpec.create(instant, offset);
-
-    final DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    final Workflow workflow = Workflow.create("test", FULL_WORKFLOW_CONFIGURATION);
-    tx.storeWorkflowWithNextNaturalTrigger(workflow, spec);
-    tx.commit();
-
-    final Map<Workflow, TriggerInstantSpec> result = storage.workflowsWithNextNaturalTrigger();
-    assertThat(result.values().size(), is(1));
-    assertThat(result, hasEntry(workflow, spec));
-  }
-
-
-  @Test
-  public void shouldStoreShards() throws IOException {
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    Shard shard1 = Shard.create("res1",0, 1);
-    Shard shard2 = Shard.create("res1",1, 1);
-    tx.store(shard1);
-    tx.store(shard2);
-    tx.commit();
-    assertEquals(storage.shardsForCounter("res1").size(), 2);
-  }
-
-  @Test
-  public void shouldGetWorkflow() throws IOException {
-    Workflow workflow = Workflow.create("test", FULL_WORKFLOW_CONFIGURATION);
-    storage.store(workflow);
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    Optional<Workflow> workflowOptional = tx.workflow(workflow.id());
-    tx.commit();
-    assertThat(workflowOptional, is(Optional.of(workflow)));
-  }
-
-  @Test
-  public void shouldPersistNextScheduledRun() throws Exception {
-    Instant instant = Instant.parse("2016-03-14T14:00:00Z");
-    Instant offset = instant.plus(1, ChronoUnit.DAYS);
-    TriggerInstantSpec spec = TriggerInstantSpec.create(instant, offset);
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.store(WORKFLOW);
-    tx.commit();
-    tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.updateNextNaturalTrigger(WORKFLOW.id(), spec);
-    tx.commit();
-
-    Map<Workflow, TriggerInstantSpec> result = storage.workflowsWithNextNaturalTrigger();
-    assertThat(result.values().size(), is(1));
-    assertThat(result, hasEntry(WORKFLOW, spec));
-  }
-
-  @Test
-  public void shouldPatchState() throws Exception {
-    storage.store(WORKFLOW);
-    Instant instant = Instant.parse("2016-03-14T14:00:00Z");
-    Instant offset = instant.plus(1, ChronoUnit.DAYS);
-    WorkflowState state = WorkflowState.builder()
-        .enabled(true)
-        .nextNaturalTrigger(instant)
-        .nextNaturalOffsetTrigger(offset)
-        .build();
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.patchState(WORKFLOW.id(), state);
-    tx.commit();
-    WorkflowState retrieved = storage.workflowState(WORKFLOW.id());
-
-    assertThat(retrieved, is(state));
-  }
-
-  @Test
-  public void shouldReturnAllActiveStateForWFI() throws Exception {
-    storage.writeActiveState(WORKFLOW_INSTANCE1, RUN_STATE);
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    Optional<RunState> activeStates =
-        tx.readActiveState(WORKFLOW_INSTANCE1);
-    tx.commit();
-
-    assertThat(activeStates, is(Optional.of(RUN_STATE)));
-  }
-
-  @Test
-  public void shouldInsertActiveState() throws Exception {
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.writeActiveState(WORKFLOW_INSTANCE1, RUN_STATE);
-    tx.commit();
-
-    assertThat(storage.readActiveState(WORKFLOW_INSTANCE1), is(Optional.of(RUN_STATE)));
-  }
-
-  @Test
-  public void shouldUpdateActiveState() throws Exception {
-    RunState runState = RunState.create(WORKFLOW_INSTANCE1, RunState.State.NEW,
-        StateData.zero(), TIMESTAMP, 42L);
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.writeActiveState(WORKFLOW_INSTANCE1, runState);
-    tx.commit();
-    tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    RunState newRunState = RunState.create(WORKFLOW_INSTANCE1, RunState.State.NEW,
-        StateData.zero(), TIMESTAMP, 43L);
-    tx.updateActiveState(WORKFLOW_INSTANCE1, newRunState);
-    tx.commit();
-
-    assertThat(storage.readActiveState(WORKFLOW_INSTANCE1), is(Optional.of(newRunState)));
-  }
-
-  @Test
-  public void shouldDeleteActiveState() throws Exception {
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.writeActiveState(WORKFLOW_INSTANCE, RUN_STATE1);
-    tx.commit();
-    tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    tx.deleteActiveState(WORKFLOW_INSTANCE);
-    tx.commit();
-
-    assertThat(storage.readActiveState(WORKFLOW_INSTANCE), is(Optional.empty()));
-  }
-
-  @Test
-  public void shouldStoreAndGetBackfill() throws IOException {
-    DatastoreStorageTransaction tx = new DatastoreStorageTransaction(datastore.newTransaction());
-    final Backfill backfill = Backfill.newBuilder()
-        .id("backfill-1")
-        .start(Instant.parse("2017-01-01T00:00:00Z"))
-        .end(Instant.parse("2017-01-02T00:00:00Z"))
-        .workflowId(WorkflowId.create("component", "workflow1"))
-        .concurrency(2)
-        .description("Description")
-        .nextTrigger(Instant.parse("2017-01-01T00:00:00Z"))
-        .schedule(DAYS)
-        .build();
-    tx.store(backfill);
-    tx.commit();
-
-    DatastoreStorageTransaction newTx = new DatastoreStorageTransaction(datastore.newTransaction());
-    assertThat(newTx.backfill(backfill.id()), is(Optional.of(backfill)));
-    newTx.commit();
-  }
 }
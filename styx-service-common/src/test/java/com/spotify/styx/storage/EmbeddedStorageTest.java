@@ -0,0 +1,224 @@
+/*-
+ * -\-\-
+ * Spotify Styx Common
+ * --
+ * Copyright (C) 2016 - 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.storage;
+
+import static com.spotify.styx.storage.DatastoreStorageTest.FULLY_POPULATED_RUNSTATE;
+import static com.spotify.styx.storage.DatastoreStorageTest.WORKFLOW;
+import static com.spotify.styx.testdata.TestData.WORKFLOW_INSTANCE;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.spotify.styx.model.Event;
+import com.spotify.styx.model.SequenceEvent;
+import com.spotify.styx.model.StyxConfig;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.model.data.WorkflowInstanceExecutionData;
+import com.spotify.styx.monitoring.Stats;
+import com.spotify.styx.state.Trigger;
+import com.spotify.styx.util.ResourceNotFoundException;
+import com.spotify.styx.util.Shard;
+import com.spotify.styx.util.ShardedCounter;
+import com.spotify.styx.util.ShardedCounterSnapshotFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+/**
+ * Runs the {@link StorageContractTest} suite against an in-memory {@link EmbeddedStorage}, and
+ * tests what is specific to it.
+ */
+public class EmbeddedStorageTest extends StorageContractTest {
+
+  private static final StyxConfig CONFIG = StyxConfig.newBuilder()
+      .globalEnabled(false)
+      .globalDockerRunnerId("foo")
+      .globalConcurrency(10L)
+      .build();
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private EmbeddedStorage embeddedStorage;
+
+  @Override
+  protected Storage createStorage() {
+    embeddedStorage = EmbeddedStorage.inMemory();
+    return embeddedStorage;
+  }
+
+  @Test
+  public void shouldFailNestedTransactionWritingEntryOfOuterTransactionWithConflict() throws Exception {
+    final String result = storage.runInTransaction(tx -> {
+      tx.store(Shard.create(RESOURCE1.id(), 0, 1));
+      try {
+        storage.runInTransaction(nested -> {
+          nested.store(Shard.create(RESOURCE1.id(), 0, 2));
+          return null;
+        });
+        fail("Expected exception!");
+      } catch (TransactionException e) {
+        assertThat(e.isConflict(), is(true));
+      }
+      storage.runInTransaction(nested -> {
+        nested.store(Shard.create(RESOURCE1.id(), 1, 3));
+        return null;
+      });
+      return "foo";
+    });
+
+    assertThat(result, is("foo"));
+    assertThat(storage.shardsForCounter(RESOURCE1.id()), is(Map.of(0, 1L, 1, 3L)));
+  }
+
+  @Test
+  public void shouldUpdateCounterWithinLimit() throws Exception {
+    storage.storeResource(RESOURCE1);
+    final ShardedCounter shardedCounter = new ShardedCounter(Mockito.mock(Stats.class),
+        new ShardedCounterSnapshotFactory(storage));
+
+    storage.runInTransaction(tx -> {
+      tx.updateCounter(shardedCounter, RESOURCE1.id(), 1);
+      return null;
+    });
+
+    final Map<Integer, Long> shards = storage.shardsForCounter(RESOURCE1.id());
+    assertThat(shards.size(), is(ShardedCounter.NUM_SHARDS));
+    assertThat(shards.values().stream().mapToLong(Long::longValue).sum(), is(1L));
+  }
+
+  @Test
+  public void shouldAdjustCounterAcrossShards() throws Exception {
+    storage.storeResource(RESOURCE1);
+    final ShardedCounter shardedCounter = new ShardedCounter(Mockito.mock(Stats.class),
+        new ShardedCounterSnapshotFactory(storage));
+    storage.runInTransaction(tx -> {
+      tx.store(Shard.create(RESOURCE1.id(), 0, 2));
+      tx.store(Shard.create(RESOURCE1.id(), 1, 1));
+      tx.store(Shard.create(RESOURCE1.id(), 2, 1));
+      return null;
+    });
+
+    final Map<Integer, Long> shards = storage.shardsForCounter(RESOURCE1.id());
+    assertThat(shardedCounter.adjustCounter(storage, RESOURCE1.id(), shards, -3L), is(-3L));
+    assertThat(storage.shardsForCounter(RESOURCE1.id()).values().stream().mapToLong(Long::longValue).sum(),
+        is(1L));
+
+    // shards that changed since they were read are not adjusted
+    assertThat(shardedCounter.adjustCounter(storage, RESOURCE1.id(), Map.of(0, 2L), -2L), is(0L));
+  }
+
+  @Test
+  public void shouldReturnGlobalCounterLimitFromConfig() throws Exception {
+    embeddedStorage.storeConfig(StyxConfig.newBuilder()
+        .globalEnabled(true)
+        .globalDockerRunnerId("default")
+        .globalConcurrency(17L)
+        .build());
+
+    assertThat(storage.getLimitForCounter(Storage.GLOBAL_RESOURCE_ID), is(17L));
+  }
+
+  @Test
+  public void shouldStoreConfig() throws Exception {
+    final StyxConfig config = StyxConfig.newBuilder()
+        .globalEnabled(false)
+        .globalDockerRunnerId("foo")
+        .debugEnabled(true)
+        .executionGatingEnabled(true)
+        .build();
+
+    embeddedStorage.storeConfig(config);
+
+    assertThat(storage.config(), is(config));
+  }
+
+  @Test
+  public void shouldReadEventsAndExecutionData() throws Exception {
+    writeEvents(WFI1, Trigger.natural());
+    writeEvents(WFI2, Trigger.adhoc("foo"));
+    writeEvents(WFI3, Trigger.backfill("bar"));
+    writeEvents(WorkflowInstance.create(WORKFLOW_ID2, "2016-09-01"), Trigger.natural());
+
+    assertThat(storage.readEvents(WFI1).stream().map(SequenceEvent::counter).collect(Collectors.toList()),
+        is(List.of(0L, 1L, 2L)));
+    assertThat(storage.getLatestStoredCounter(WFI1), is(Optional.of(2L)));
+    assertThat(storage.getLatestStoredCounter(WORKFLOW_INSTANCE), is(Optional.empty()));
+
+    final WorkflowInstanceExecutionData executionData = storage.executionData(WFI1);
+    assertThat(executionData, is(new WFIExecutionBuilder().executionInfo(storage.readEvents(WFI1))));
+    assertThat(executionData.triggers().get(0).executions().get(0).executionId(), is(Optional.of("execId")));
+
+    assertThat(instances(storage.executionData(WORKFLOW_ID1, "", 10)), contains(WFI1, WFI2, WFI3));
+    assertThat(instances(storage.executionData(WORKFLOW_ID1, WFI2.parameter(), 1)), contains(WFI2));
+    assertThat(instances(storage.executionData(WORKFLOW_ID1, WFI2.parameter(), "")), contains(WFI2, WFI3));
+    assertThat(instances(storage.executionData(WORKFLOW_ID1, WFI1.parameter(), WFI3.parameter())),
+        contains(WFI1, WFI2));
+  }
+
+  @Test
+  public void shouldFailToReadExecutionDataOfMissingInstance() throws Exception {
+    exception.expect(ResourceNotFoundException.class);
+    storage.executionData(WFI1);
+  }
+
+  @Test
+  public void shouldPersistDataAcrossReopen() throws Exception {
+    final Path path = temporaryFolder.getRoot().toPath().resolve("styx.db");
+    try (EmbeddedStorage storage = EmbeddedStorage.open(path)) {
+      storage.storeWorkflow(WORKFLOW);
+      storage.writeActiveState(WORKFLOW_INSTANCE, FULLY_POPULATED_RUNSTATE);
+      writeEvents(storage, WFI1, Trigger.natural());
+      storage.storeConfig(CONFIG);
+    }
+
+    try (EmbeddedStorage storage = EmbeddedStorage.open(path)) {
+      assertThat(storage.workflow(WORKFLOW.id()), is(Optional.of(WORKFLOW)));
+      assertThat(storage.readActiveState(WORKFLOW_INSTANCE), is(Optional.of(FULLY_POPULATED_RUNSTATE)));
+      assertThat(storage.getLatestStoredCounter(WFI1), is(Optional.of(2L)));
+      assertThat(storage.config(), is(CONFIG));
+    }
+  }
+
+  private void writeEvents(WorkflowInstance instance, Trigger trigger) throws Exception {
+    writeEvents(storage, instance, trigger);
+  }
+
+  private static void writeEvents(Storage storage, WorkflowInstance instance, Trigger trigger)
+      throws Exception {
+    storage.writeEvent(SequenceEvent.create(
+        Event.triggerExecution(instance, trigger, TRIGGER_PARAMETERS), 0L, 0L));
+    storage.writeEvent(SequenceEvent.create(Event.created(instance, "execId", "img"), 1L, 1L));
+    storage.writeEvent(SequenceEvent.create(Event.started(instance), 2L, 2L));
+  }
+
+  private static List<WorkflowInstance> instances(List<WorkflowInstanceExecutionData> executionData) {
+    return executionData.stream()
+        .map(WorkflowInstanceExecutionData::workflowInstance)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,497 @@
+/*-
+ * -\-\-
+ * Spotify Styx Common
+ * --
+ * Copyright (C) 2019 Spotify AB
+ * --
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * -/-/-
+ */
+
+package com.spotify.styx.storage;
+
+import static com.spotify.styx.model.Schedule.DAYS;
+import static com.spotify.styx.model.WorkflowState.patchEnabled;
+import static com.spotify.styx.storage.DatastoreStorageTest.FULLY_POPULATED_RUNSTATE;
+import static com.spotify.styx.storage.DatastoreStorageTest.RUN_STATE;
+import static com.spotify.styx.storage.DatastoreStorageTest.RUN_STATE2;
+import static com.spotify.styx.storage.DatastoreStorageTest.RUN_STATE3;
+import static com.spotify.styx.storage.DatastoreStorageTest.TIMESTAMP;
+import static com.spotify.styx.storage.DatastoreStorageTest.WORKFLOW;
+import static com.spotify.styx.testdata.TestData.FULL_WORKFLOW_CONFIGURATION;
+import static com.spotify.styx.testdata.TestData.WORKFLOW_INSTANCE;
+import static com.spotify.styx.util.TriggerUtil.activeInstancesCounterId;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import com.spotify.styx.api.RunStateDataPayload.RunStateData;
+import com.spotify.styx.model.Backfill;
+import com.spotify.styx.model.BackfillBuilder;
+import com.spotify.styx.model.Resource;
+import com.spotify.styx.model.StyxConfig;
+import com.spotify.styx.model.TriggerParameters;
+import com.spotify.styx.model.Workflow;
+import com.spotify.styx.model.WorkflowConfiguration;
+import com.spotify.styx.model.WorkflowId;
+import com.spotify.styx.model.WorkflowInstance;
+import com.spotify.styx.model.WorkflowState;
+import com.spotify.styx.state.RunState;
+import com.spotify.styx.state.StateData;
+import com.spotify.styx.util.ResourceNotFoundException;
+import com.spotify.styx.util.Shard;
+import com.spotify.styx.util.TriggerInstantSpec;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javaslang.control.Try;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * A suite of tests of the {@link Storage} contract that every storage backend has to pass.
+ */
+public abstract class StorageContractTest {
+
+  static final WorkflowId WORKFLOW_ID1 = WorkflowId.create("component", "endpoint1");
+  static final WorkflowId WORKFLOW_ID2 = WorkflowId.create("component", "endpoint2");
+  static final WorkflowId WORKFLOW_ID3 = WorkflowId.create("component2", "pointless");
+
+  static final WorkflowInstance WFI1 = WorkflowInstance.create(WORKFLOW_ID1, "2016-09-01");
+  static final WorkflowInstance WFI2 = WorkflowInstance.create(WORKFLOW_ID1, "2016-09-02");
+  static final WorkflowInstance WFI3 = WorkflowInstance.create(WORKFLOW_ID1, "2016-09-03");
+
+  static final Resource RESOURCE1 = Resource.create("resource1", 1L);
+  static final Resource RESOURCE2 = Resource.create("resource2", 2L);
+
+  static final TriggerParameters TRIGGER_PARAMETERS = TriggerParameters.builder()
+      .env("FOO", "foo")
+      .build();
+
+  @Rule public ExpectedException exception = ExpectedException.none();
+
+  protected Storage storage;
+
+  /**
+   * Create an empty storage for a test. It is closed after the test.
+   */
+  protected abstract Storage createStorage() throws Exception;
+
+  @Before
+  public void setUpStorage() throws Exception {
+    storage = createStorage();
+  }
+
+  @After
+  public void tearDownStorage() throws Exception {
+    storage.close();
+  }
+
+  @Test
+  public void shouldPersistWorkflows() throws Exception {
+    final Workflow workflow = Workflow.create("test", FULL_WORKFLOW_CONFIGURATION);
+    storage.storeWorkflow(workflow);
+    storage.storeWorkflow(WORKFLOW);
+
+    assertThat(storage.workflow(workflow.id()), is(Optional.of(workflow)));
+    assertThat(storage.workflows(), is(Map.of(workflow.id(), workflow, WORKFLOW.id(), WORKFLOW)));
+    assertThat(storage.workflows(WORKFLOW.componentId()), contains(WORKFLOW));
+    assertThat(storage.workflows(Set.of(WORKFLOW.id(), WORKFLOW_ID1)), is(Map.of(WORKFLOW.id(), WORKFLOW)));
+  }
+
+  @Test
+  public void shouldReturnEmptyOptionalWhenWorkflowIdDoesNotExist() throws Exception {
+    assertThat(storage.workflow(WorkflowId.create("foo", "bar")), is(Optional.empty()));
+  }
+
+  @Test
+  public void shouldReturnAllWorkflowsInComponent() throws Exception {
+    final Workflow workflow1 = workflow(WORKFLOW_ID1);
+    final Workflow workflow2 = workflow(WORKFLOW_ID2);
+    storage.storeWorkflow(workflow1);
+    storage.storeWorkflow(workflow2);
+    storage.storeWorkflow(workflow(WORKFLOW_ID3));
+
+    assertThat(storage.workflows("component"), containsInAnyOrder(workflow1, workflow2));
+    assertThat(storage.workflows("foo"), is(empty()));
+  }
+
+  @Test
+  public void shouldDeleteWorkflows() throws Exception {
+    final Workflow foo = workflow(WORKFLOW_ID1);
+    final Workflow bar = workflow(WORKFLOW_ID2);
+    storage.storeWorkflow(foo);
+    storage.storeWorkflow(bar);
+    storage.patchState(foo.id(), patchEnabled(true));
+
+    storage.delete(foo.id());
+
+    assertThat(storage.workflow(foo.id()), is(Optional.empty()));
+    assertThat(storage.workflow(bar.id()), is(Optional.of(bar)));
+    assertThat(storage.enabled(), is(empty()));
+  }
+
+  @Test
+  public void shouldStoreAndDeleteWorkflowInTransaction() throws Exception {
+    final Workflow workflow = Workflow.create("test", FULL_WORKFLOW_CONFIGURATION);
+    storage.runInTransaction(tx -> tx.store(workflow));
+    assertThat(storage.runInTransaction(tx -> tx.workflow(workflow.id())), is(Optional.of(workflow)));
+
+    storage.runInTransaction(tx -> {
+      tx.deleteWorkflow(workflow.id());
+      return null;
+    });
+
+    assertThat(storage.runInTransaction(tx -> tx.workflow(workflow.id())), is(Optional.empty()));
+  }
+
+  @Test
+  public void shouldPersistNextNaturalTrigger() throws Exception {
+    final Instant instant = Instant.parse("2016-03-14T14:00:00Z");
+    final TriggerInstantSpec spec = TriggerInstantSpec.create(instant, instant.plus(1, ChronoUnit.DAYS));
+
+    storage.storeWorkflow(WORKFLOW);
+    storage.updateNextNaturalTrigger(WORKFLOW.id(), spec);
+
+    assertThat(storage.workflowsWithNextNaturalTrigger(), is(Map.of(WORKFLOW, spec)));
+  }
+
+  @Test
+  public void shouldStoreWorkflowsWithNextNaturalTrigger() throws Exception {
+    final Workflow workflow1 = workflow(WORKFLOW_ID1);
+    final Workflow workflow2 = workflow(WORKFLOW_ID2);
+    final Instant now = Instant.parse("2019-04-03T00:00:00Z");
+    final TriggerInstantSpec spec1 = TriggerInstantSpec.create(now.plusSeconds(1), now.plusSeconds(11));
+    final TriggerInstantSpec spec2 = TriggerInstantSpec.create(now.plusSeconds(2), now.plusSeconds(22));
+
+    storage.runInTransaction(tx -> tx.storeWorkflowWithNextNaturalTrigger(workflow1, spec1));
+    storage.runInTransaction(tx -> tx.storeWorkflowWithNextNaturalTrigger(workflow2, spec2));
+
+    final Map<Workflow, TriggerInstantSpec> result = storage.workflowsWithNextNaturalTrigger();
+    assertThat(result.size(), is(2));
+    assertThat(result, hasEntry(workflow1, spec1));
+    assertThat(result, hasEntry(workflow2, spec2));
+  }
+
+  @Test
+  public void shouldFailToUpdateNextNaturalTriggerOfMissingWorkflow() throws Exception {
+    exception.expect(ResourceNotFoundException.class);
+    storage.updateNextNaturalTrigger(WORKFLOW_ID1,
+        TriggerInstantSpec.create(Instant.EPOCH, Instant.EPOCH));
+  }
+
+  @Test
+  public void shouldPatchWorkflowState() throws Exception {
+    final Instant instant = Instant.parse("2016-03-14T14:00:00Z");
+    final Instant offset = instant.plus(1, ChronoUnit.DAYS);
+    storage.storeWorkflow(WORKFLOW);
+    assertThat(storage.workflowState(WORKFLOW.id()), is(patchEnabled(false)));
+
+    storage.updateNextNaturalTrigger(WORKFLOW.id(), TriggerInstantSpec.create(instant, offset));
+    storage.patchState(WORKFLOW.id(), patchEnabled(true));
+    storage.storeWorkflow(WORKFLOW);
+
+    assertThat(storage.workflowState(WORKFLOW.id()), is(WorkflowState.builder()
+        .enabled(true)
+        .nextNaturalTrigger(instant)
+        .nextNaturalOffsetTrigger(offset)
+        .build()));
+  }
+
+  @Test
+  public void shouldReturnEnabledWorkflows() throws Exception {
+    storage.storeWorkflow(workflow(WORKFLOW_ID1));
+    storage.storeWorkflow(workflow(WORKFLOW_ID2));
+    storage.storeWorkflow(workflow(WORKFLOW_ID3));
+
+    storage.patchState(WORKFLOW_ID1, patchEnabled(true));
+    storage.patchState(WORKFLOW_ID2, patchEnabled(false));
+    storage.patchState(WORKFLOW_ID3, patchEnabled(true));
+
+    assertThat(storage.enabled(), containsInAnyOrder(WORKFLOW_ID1, WORKFLOW_ID3));
+    assertThat(storage.workflowState(WORKFLOW_ID2).enabled(), is(Optional.of(false)));
+  }
+
+  @Test
+  public void shouldPersistActiveStates() throws Exception {
+    storage.writeActiveState(WORKFLOW_INSTANCE, FULLY_POPULATED_RUNSTATE);
+    storage.writeActiveState(RUN_STATE.workflowInstance(), RUN_STATE);
+    storage.writeActiveState(RUN_STATE2.workflowInstance(), RUN_STATE2);
+    storage.writeActiveState(RUN_STATE3.workflowInstance(), RUN_STATE3);
+    storage.deleteActiveState(RUN_STATE2.workflowInstance());
+
+    assertThat(storage.readActiveState(WORKFLOW_INSTANCE), is(Optional.of(FULLY_POPULATED_RUNSTATE)));
+    assertThat(storage.readActiveState(RUN_STATE2.workflowInstance()), is(Optional.empty()));
+    assertThat(storage.readActiveStates(), is(Map.of(
+        WORKFLOW_INSTANCE, FULLY_POPULATED_RUNSTATE,
+        RUN_STATE.workflowInstance(), RUN_STATE,
+        RUN_STATE3.workflowInstance(), RUN_STATE3)));
+    assertThat(storage.listActiveInstances(), containsInAnyOrder(
+        WORKFLOW_INSTANCE, RUN_STATE.workflowInstance(), RUN_STATE3.workflowInstance()));
+    assertThat(storage.readActiveStates(RUN_STATE3.workflowInstance().workflowId().componentId()),
+        is(Map.of(RUN_STATE3.workflowInstance(), RUN_STATE3)));
+    assertThat(storage.readActiveStates(List.of(RUN_STATE.workflowInstance(), RUN_STATE2.workflowInstance())),
+        is(Map.of(RUN_STATE.workflowInstance(), RUN_STATE)));
+    assertThat(storage.readActiveStatesByTriggerId("foobar"),
+        is(Map.of(WORKFLOW_INSTANCE, FULLY_POPULATED_RUNSTATE)));
+  }
+
+  @Test
+  public void shouldUpdateActiveStateInTransaction() throws Exception {
+    final WorkflowInstance instance = RUN_STATE.workflowInstance();
+    final RunState newRunState = RunState.create(instance, RunState.State.QUEUED,
+        StateData.zero(), TIMESTAMP, RUN_STATE.counter() + 1);
+    storage.runInTransaction(tx -> tx.writeActiveState(instance, RUN_STATE));
+
+    storage.runInTransaction(tx -> tx.updateActiveState(instance, newRunState));
+
+    assertThat(storage.runInTransaction(tx -> tx.readActiveState(instance)), is(Optional.of(newRunState)));
+  }
+
+  @Test
+  public void shouldFailToWriteExistingActiveState() throws Exception {
+    storage.writeActiveState(RUN_STATE.workflowInstance(), RUN_STATE);
+    try {
+      storage.runInTransaction(tx -> tx.writeActiveState(RUN_STATE.workflowInstance(), RUN_STATE));
+      fail("Expected exception!");
+    } catch (TransactionException e) {
+      assertThat(e.isAlreadyExists(), is(true));
+    }
+  }
+
+  @Test
+  public void shouldFailToUpdateMissingActiveState() throws Exception {
+    try {
+      storage.runInTransaction(tx -> tx.updateActiveState(RUN_STATE.workflowInstance(), RUN_STATE));
+      fail("Expected exception!");
+    } catch (TransactionException e) {
+      assertThat(e.isNotFound(), is(true));
+    }
+    assertThat(storage.readActiveState(RUN_STATE.workflowInstance()), is(Optional.empty()));
+  }
+
+  @Test
+  public void shouldLeaveTombstoneUntilActiveStateIsWrittenAgain() throws Exception {
+    final WorkflowInstance instance = RUN_STATE.workflowInstance();
+    storage.writeActiveState(instance, RUN_STATE);
+    storage.runInTransaction(tx -> tx.deleteActiveState(instance, 17L));
+
+    assertThat(storage.readActiveState(instance), is(Optional.empty()));
+    assertThat(storage.runInTransaction(tx -> tx.readActiveStateTombstone(instance)), is(Optional.of(17L)));
+
+    storage.writeActiveState(instance, RUN_STATE);
+
+    assertThat(storage.runInTransaction(tx -> tx.readActiveStateTombstone(instance)), is(Optional.empty()));
+  }
+
+  @Test
+  public void shouldDeleteTombstonesOfDeletedWorkflow() throws Exception {
+    final WorkflowInstance otherInstance = WorkflowInstance.create(WORKFLOW_ID2, WFI1.parameter());
+    storage.storeWorkflow(workflow(WORKFLOW_ID1));
+    storage.runInTransaction(tx -> tx.deleteActiveState(WFI1, 17L));
+    storage.runInTransaction(tx -> tx.deleteActiveState(WFI2, 18L));
+    storage.runInTransaction(tx -> tx.deleteActiveState(otherInstance, 19L));
+
+    storage.delete(WORKFLOW_ID1);
+
+    assertThat(storage.runInTransaction(tx -> tx.readActiveStateTombstone(WFI1)), is(Optional.empty()));
+    assertThat(storage.runInTransaction(tx -> tx.readActiveStateTombstone(WFI2)), is(Optional.empty()));
+    assertThat(storage.runInTransaction(tx -> tx.readActiveStateTombstone(otherInstance)), is(Optional.of(19L)));
+  }
+
+  @Test
+  public void shouldRollbackTransactionOnFailure() throws Exception {
+    final Exception expectedException = new FooException();
+    try {
+      storage.runInTransaction(tx -> {
+        tx.store(WORKFLOW);
+        tx.store(RESOURCE1);
+        throw expectedException;
+      });
+      fail("Expected exception!");
+    } catch (FooException e) {
+      // a user defined checked exception thrown by the transaction body can be caught
+      assertThat(e, is(expectedException));
+    }
+
+    assertThat(storage.workflow(WORKFLOW.id()), is(Optional.empty()));
+    assertThat(storage.resources(), is(empty()));
+  }
+
+  @Test
+  public void shouldRunBatchedTransactionsPerItem() throws Exception {
+    storage.writeActiveState(RUN_STATE.workflowInstance(), RUN_STATE);
+
+    final List<Boolean> results = storage.runInBatchedTransactions(
+        List.of(RUN_STATE2, RUN_STATE, RUN_STATE3),
+        (tx, state) -> tx.writeActiveState(state.workflowInstance(), state) != null)
+        .stream()
+        .map(Try::isSuccess)
+        .collect(Collectors.toList());
+
+    assertThat(results, is(List.of(true, false, true)));
+    assertThat(storage.readActiveState(RUN_STATE.workflowInstance()), is(Optional.of(RUN_STATE)));
+    assertThat(storage.listActiveInstances(), containsInAnyOrder(
+        RUN_STATE.workflowInstance(), RUN_STATE2.workflowInstance(), RUN_STATE3.workflowInstance()));
+  }
+
+  @Test
+  public void shouldStoreAndDeleteResources() throws Exception {
+    storage.runInTransaction(tx -> {
+      tx.store(RESOURCE1);
+      tx.store(RESOURCE2);
+      tx.store(Shard.create(RESOURCE1.id(), 0, 0));
+      tx.store(Shard.create(RESOURCE1.id(), 1, 3));
+      return null;
+    });
+
+    assertThat(storage.resource(RESOURCE1.id()), is(Optional.of(RESOURCE1)));
+    assertThat(storage.resources(), is(List.of(RESOURCE1, RESOURCE2)));
+    assertThat(storage.getLimitForCounter(RESOURCE2.id()), is(2L));
+    assertThat(storage.shardsForCounter(RESOURCE1.id()), is(Map.of(0, 0L, 1, 3L)));
+
+    storage.deleteResource(RESOURCE1.id());
+
+    assertThat(storage.resources(), is(List.of(RESOURCE2)));
+    assertThat(storage.shardsForCounter(RESOURCE1.id()), is(Map.of()));
+  }
+
+  @Test
+  public void shouldNotReturnActiveInstancesCountersAsResources() throws Exception {
+    storage.runInTransaction(tx -> {
+      tx.store(RESOURCE1);
+      tx.updateLimitForCounter(activeInstancesCounterId("backfill-1"), Long.MAX_VALUE);
+      return null;
+    });
+
+    assertThat(storage.resources(), is(List.of(RESOURCE1)));
+  }
+
+  @Test
+  public void shouldStoreAndReadLease() throws Exception {
+    final Lease lease = Lease.create("backfill-1", "replica-1", Instant.parse("2019-01-01T00:00:30Z"));
+    assertThat(storage.runInTransaction(tx -> tx.lease(lease.id())), is(Optional.empty()));
+
+    storage.runInTransaction(tx -> {
+      tx.store(lease);
+      return null;
+    });
+
+    assertThat(storage.runInTransaction(tx -> tx.lease(lease.id())), is(Optional.of(lease)));
+  }
+
+  @Test
+  public void shouldReturnDefaultGlobalCounterLimit() throws Exception {
+    assertThat(storage.getLimitForCounter(Storage.GLOBAL_RESOURCE_ID), is(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void shouldGetExceptionForUnknownCounter() throws Exception {
+    exception.expect(IllegalArgumentException.class);
+    storage.getLimitForCounter("bar-resource");
+  }
+
+  @Test
+  public void shouldReturnDefaultConfig() throws Exception {
+    assertThat(storage.config(), is(StyxConfig.newBuilder()
+        .globalDockerRunnerId("default")
+        .globalEnabled(true)
+        .debugEnabled(false)
+        .executionGatingEnabled(false)
+        .build()));
+  }
+
+  @Test
+  public void shouldStoreAndFilterBackfills() throws Exception {
+    final Backfill active = backfill("backfill-1", WORKFLOW_ID1).build();
+    final Backfill halted = backfill("backfill-2", WORKFLOW_ID2).halted(true).build();
+    final Backfill other = backfill("backfill-3", WORKFLOW_ID3)
+        .triggerParameters(TRIGGER_PARAMETERS)
+        .description("foo")
+        .build();
+    storage.storeBackfill(active);
+    storage.storeBackfill(halted);
+    storage.storeBackfill(other);
+
+    assertThat(storage.backfill(other.id()), is(Optional.of(other)));
+    assertThat(storage.backfills(false), containsInAnyOrder(active, other));
+    assertThat(storage.backfills(true), containsInAnyOrder(active, halted, other));
+    assertThat(storage.backfillsForComponent(true, "component"), containsInAnyOrder(active, halted));
+    assertThat(storage.backfillsForWorkflow(false, WORKFLOW_ID2.id()), is(empty()));
+    assertThat(storage.backfillsForWorkflowId(true, WORKFLOW_ID2), contains(halted));
+  }
+
+  @Test
+  public void shouldStoreAndGetBackfillInTransaction() throws Exception {
+    final Backfill backfill = backfill("backfill-1", WORKFLOW_ID1)
+        .description("Description")
+        .build();
+
+    storage.runInTransaction(tx -> tx.store(backfill));
+
+    assertThat(storage.runInTransaction(tx -> tx.backfill(backfill.id())), is(Optional.of(backfill)));
+  }
+
+  @Test
+  public void shouldStoreAndPaginateBackfillStatuses() throws Exception {
+    final RunStateData status1 = RunStateData.create(WFI1, "DONE", StateData.zero());
+    final RunStateData status2 = RunStateData.create(WFI2, "FAILED", StateData.zero());
+    final RunStateData status3 = RunStateData.create(WFI3, "DONE", StateData.zero());
+    final RunStateData other = RunStateData.create(WFI1, "ERROR", StateData.zero());
+    storage.runInTransaction(tx -> {
+      tx.storeBackfillStatus("backfill-1", status3);
+      tx.storeBackfillStatus("backfill-1", status1);
+      tx.storeBackfillStatus("backfill-1", status2);
+      tx.storeBackfillStatus("backfill-10", other);
+      return null;
+    });
+
+    assertThat(storage.runInTransaction(tx -> tx.backfillStatus("backfill-1", WFI2)), is(Optional.of(status2)));
+    assertThat(storage.backfillStatuses("backfill-1", "", 10), contains(status1, status2, status3));
+    assertThat(storage.backfillStatuses("backfill-1", "", 2), contains(status1, status2));
+    assertThat(storage.backfillStatuses("backfill-1", WFI2.parameter(), 2), contains(status2, status3));
+    assertThat(storage.backfillStatuses("backfill-10", "", 10), contains(other));
+  }
+
+  static Workflow workflow(WorkflowId workflowId) {
+    return Workflow.create(workflowId.componentId(), WorkflowConfiguration.builder()
+        .id(workflowId.id())
+        .schedule(DAYS)
+        .build());
+  }
+
+  static BackfillBuilder backfill(String id, WorkflowId workflowId) {
+    return Backfill.newBuilder()
+        .id(id)
+        .start(Instant.parse("2017-01-01T00:00:00Z"))
+        .end(Instant.parse("2017-01-02T00:00:00Z"))
+        .workflowId(workflowId)
+        .concurrency(2)
+        .nextTrigger(Instant.parse("2017-01-01T00:00:00Z"))
+        .schedule(DAYS);
+  }
+
+  private static class FooException extends Exception {
+  }
+}
@@ -566,6 +566,36 @@ public class WFIExecutionBuilderTest {
     assertThat(workflowInstanceExecutionData, is(expected));
   }
 
+  @Test
+  public void testResumeFromCompletedTriggers() {
+    long c = 0L;
+    List<SequenceEvent> events = Arrays.asList(
+        SequenceEvent.create(E.triggerExecution(UNKNOWN_TRIGGER0), c++, ts("07:55")),
+        SequenceEvent.create(E.dequeue(RESOURCE_IDS), c++, ts("07:55")),
+        SequenceEvent.create(E.submit(desc("img1"), "exec1"), c++, ts("07:55")),
+        SequenceEvent.create(E.submitted("exec1"), c++, ts("07:55")),
+        SequenceEvent.create(E.started(), c++, ts("07:56")),
+        SequenceEvent.create(E.terminate(0), c++, ts("07:57")),
+        SequenceEvent.create(E.success(), c++, ts("07:57")),
+        SequenceEvent.create(E.triggerExecution(UNKNOWN_TRIGGER1), c++, ts("08:55")),
+        SequenceEvent.create(E.dequeue(RESOURCE_IDS), c++, ts("08:55")),
+        SequenceEvent.create(E.submit(desc("img2"), "exec2"), c++, ts("08:55")),
+        SequenceEvent.create(E.submitted("exec2"), c++, ts("08:55")),
+        SequenceEvent.create(E.started(), c++, ts("08:56"))
+    );
+    assertValidTransitionSequence(events);
+
+    WFIExecutionBuilder completed = new WFIExecutionBuilder().reduce(events);
+    assertThat(completed.completedCounter(), is(6L));
+    assertThat(completed.completedTriggers().get().triggers().size(), is(1));
+
+    WorkflowInstanceExecutionData resumed =
+        new WFIExecutionBuilder(completed.completedTriggers().get(), completed.completedCounter())
+            .executionInfo(events.subList(7, events.size()));
+
+    assertThat(resumed, is(new WFIExecutionBuilder().executionInfo(events)));
+  }
+
   private void assertValidTransitionSequence(List<SequenceEvent> events) {
     RunState runState = RunState.fresh(WORKFLOW_INSTANCE, Instant::now);
 
@@ -20,12 +20,10 @@
 
 package com.spotify.styx.util;
 
-import static com.spotify.styx.util.ShardedCounter.NUM_SHARDS;
-import static com.spotify.styx.util.ShardedCounterSnapshotFactory.TRANSACTION_GROUP_SIZE;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.google.cloud.datastore.Datastore;
@@ -86,6 +84,7 @@ public class ShardedCounterSnapshotFactoryTest {
   public void setUp() throws IOException {
     counterSnapshotFactory = spy(new ShardedCounterSnapshotFactory(storage));
     storage.storeResource(Resource.create(RESOURCE_ID, 10L));
+    Mockito.clearInvocations(storage);
   }
 
   @After
@@ -102,7 +101,9 @@ public class ShardedCounterSnapshotFactoryTest {
   @Test
   public void testSpeedOfCreate() throws IOException {
     counterSnapshotFactory.create(RESOURCE_ID);
-    verify(storage, times(NUM_SHARDS / TRANSACTION_GROUP_SIZE + 1)).runInTransaction(any());
+    // the shards are created in batches instead of one transaction per group of shards
+    verify(storage).runInBatchedTransactions(any(), any());
+    verify(storage, never()).runInTransaction(any());
     assertEquals(128, storage.shardsForCounter(RESOURCE_ID).size());
   }
 }
@@ -61,6 +61,8 @@ import com.spotify.styx.storage.StorageTransaction;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.stream.IntStream;
 import org.apache.hadoop.hbase.client.Connection;
@@ -154,6 +156,21 @@ public class ShardedCounterTest {
     assertThat(shardsForCounter.hasNext(), is(true));
   }
 
+  @Test
+  public void shouldReadCounterWithoutInitializingShards() throws IOException {
+    assertThat(ShardedCounter.readCounter(storage, COUNTER_ID1), is(Optional.of(0L)));
+    assertThat(getShardsForCounter(COUNTER_ID1).hasNext(), is(false));
+
+    updateCounterInTransaction(COUNTER_ID1, 1L);
+    assertThat(ShardedCounter.readCounter(storage, COUNTER_ID1), is(Optional.of(1L)));
+  }
+
+  @Test
+  public void shouldReadNoCounterWithoutLimit() throws IOException {
+    helper.reset();
+    assertThat(ShardedCounter.readCounter(storage, COUNTER_ID1), is(Optional.empty()));
+  }
+
   @Test
   public void shouldCreateLimit() throws IOException {
     helper.reset();
@@ -212,6 +229,46 @@ public class ShardedCounterTest {
     assertEquals(0L, shardedCounter.getCounter(COUNTER_ID1));
   }
 
+  @Test
+  public void shouldAdjustCounterUp() throws IOException {
+    // init counter
+    assertEquals(0, shardedCounter.getCounter(COUNTER_ID1));
+    updateShard(COUNTER_ID1, 3, 2);
+
+    final Map<Integer, Long> shards = storage.shardsForCounter(COUNTER_ID1);
+    assertEquals(3L, shardedCounter.adjustCounter(storage, COUNTER_ID1, shards, 3L));
+
+    assertThat(ShardedCounter.readCounter(storage, COUNTER_ID1), is(Optional.of(5L)));
+  }
+
+  @Test
+  public void shouldAdjustCounterDownAcrossShards() throws IOException {
+    // init counter
+    assertEquals(0, shardedCounter.getCounter(COUNTER_ID1));
+    updateShard(COUNTER_ID1, 3, 2);
+    updateShard(COUNTER_ID1, 7, 1);
+    updateShard(COUNTER_ID1, 9, 1);
+
+    final Map<Integer, Long> shards = storage.shardsForCounter(COUNTER_ID1);
+    assertEquals(-3L, shardedCounter.adjustCounter(storage, COUNTER_ID1, shards, -3L));
+
+    assertThat(ShardedCounter.readCounter(storage, COUNTER_ID1), is(Optional.of(1L)));
+    assertEquals(0L, datastore.get(getKey(COUNTER_ID1, 3)).getLong(PROPERTY_SHARD_VALUE));
+  }
+
+  @Test
+  public void shouldNotAdjustShardsUpdatedConcurrently() throws IOException {
+    // init counter
+    assertEquals(0, shardedCounter.getCounter(COUNTER_ID1));
+    updateShard(COUNTER_ID1, 3, 2);
+
+    final Map<Integer, Long> shards = storage.shardsForCounter(COUNTER_ID1);
+    updateShard(COUNTER_ID1, 3, 1);
+    assertEquals(0L, shardedCounter.adjustCounter(storage, COUNTER_ID1, shards, -2L));
+
+    assertThat(ShardedCounter.readCounter(storage, COUNTER_ID1), is(Optional.of(1L)));
+  }
+
   @Test
   public void shouldDecrementShardWithExcessUsage() throws IOException {
     // init counter
@@ -27,15 +27,19 @@ import com.spotify.metrics.core.SemanticMetricRegistry;
 import com.spotify.styx.api.AuthenticatorFactory;
 import com.spotify.styx.monitoring.MetricsStats;
 import com.spotify.styx.monitoring.StatsFactory;
+import com.spotify.styx.storage.EmbeddedStorage;
+import com.spotify.styx.util.StorageFactory;
 import io.opencensus.exporter.trace.stackdriver.StackdriverTraceConfiguration;
 import io.opencensus.exporter.trace.stackdriver.StackdriverTraceExporter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.Instant;
 import javaslang.Function1;
 
 public class StyxService {
 
   private static final String SERVICE_NAME = "styx-standalone";
+  private static final String STYX_EMBEDDED_STORAGE_PATH = "styx.embedded-storage.path";
 
   private StyxService() {
     throw new UnsupportedOperationException();
@@ -53,16 +57,26 @@ public class StyxService {
       final AuthenticatorFactory authenticatorFactory =
           Function1.of(AuthenticatorFactory.DEFAULT::apply).memoized()::apply;
 
-      final StyxScheduler scheduler = StyxScheduler.newBuilder()
+      final StyxScheduler.Builder schedulerBuilder = StyxScheduler.newBuilder()
           .setServiceName(SERVICE_NAME)
           .setStatsFactory(statsFactory)
-          .setAuthenticatorFactory(authenticatorFactory)
-          .build();
-      final StyxApi api = StyxApi.newBuilder()
+          .setAuthenticatorFactory(authenticatorFactory);
+      final StyxApi.Builder apiBuilder = StyxApi.newBuilder()
           .setServiceName(SERVICE_NAME)
           .setStatsFactory(statsFactory)
-          .setAuthenticatorFactory(authenticatorFactory)
-          .build();
+          .setAuthenticatorFactory(authenticatorFactory);
+
+      // The scheduler and the api share a single embedded store, as it can only be opened once
+      if (env.config().hasPath(STYX_EMBEDDED_STORAGE_PATH)) {
+        final EmbeddedStorage storage = EmbeddedStorage.open(
+            Paths.get(env.config().getString(STYX_EMBEDDED_STORAGE_PATH)));
+        final StorageFactory storageFactory = (environment, ignored) -> storage;
+        schedulerBuilder.setStorageFactory(storageFactory);
+        apiBuilder.setStorageFactory(storageFactory);
+      }
+
+      final StyxScheduler scheduler = schedulerBuilder.build();
+      final StyxApi api = apiBuilder.build();
 
       scheduler.create(env);
       api.create(env);
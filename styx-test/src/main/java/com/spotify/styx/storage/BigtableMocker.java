@@ -20,8 +20,10 @@
 
 package com.spotify.styx.storage;
 
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
-import static org.mockito.Matchers.any;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -31,10 +33,11 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Delete;
@@ -121,9 +124,24 @@ public class BigtableMocker {
               Cell cell = getCell(kv);
               list.add(cell);
             }));
+        // like a read of the latest version, a put replaces the previously stored cell
+        cells.removeIf(cell -> list.stream().anyMatch(newCell -> sameColumn(cell, newCell)));
         addRowsToTable(tableName, list);
         return null;
       }).when(table).put(any(Put.class));
+      doAnswer(invocation -> {
+        List<Put> puts = invocation.getArgument(0);
+        for (Put put : puts) {
+          table.put(put);
+        }
+        return null;
+      }).when(table).put(anyList());
+      when(table.get(anyList())).thenAnswer(invocation -> {
+        List<Get> gets = invocation.getArgument(0);
+        return gets.stream()
+            .map(get -> resultOfGet(cells, get))
+            .toArray(Result[]::new);
+      });
       doAnswer(invocation -> {
         if (numFailures > 0) {
           numFailures--;
@@ -144,6 +162,12 @@ public class BigtableMocker {
     }
   }
 
+  private static boolean sameColumn(Cell a, Cell b) {
+    return Bytes.equals(a.getRowArray(), b.getRowArray())
+           && Bytes.equals(a.getFamilyArray(), b.getFamilyArray())
+           && Bytes.equals(a.getQualifierArray(), b.getQualifierArray());
+  }
+
   private Cell getCell(Cell kv) {
     final byte[] rowArray;
     final byte[] familyArray;
@@ -174,21 +198,24 @@ public class BigtableMocker {
   private Result resultOfGet(List<Cell> cells, Get get) {
     final byte[] row = get.getRow();
 
-    return cells.stream()
+    return Result.create(cells.stream()
         .filter(cell -> Bytes.equals(cell.getRowArray(), row))
-        .findFirst()
-        .map(cell -> Result.create(new Cell[] {cell}))
-        .orElseGet(() -> Result.create(Collections.emptyList()));
+        .sorted(KeyValue.COMPARATOR)
+        .collect(toList()));
   }
 
   private ResultScanner resultOfScan(List<Cell> cells, Scan scan) throws IOException {
     byte[] startRow = scan.getStartRow();
     byte[] stopRow = scan.getStopRow();
 
+    // one result per row, in row order, like a real scan
     List<Result> inRangeResults = cells.stream().filter(
         cell -> Bytes.compareTo(startRow, cell.getRowArray()) <= 0
                 && Bytes.compareTo(stopRow, cell.getRowArray()) > 0)
-        .map(cell -> Result.create(new Cell[] {cell}))
+        .sorted(KeyValue.COMPARATOR)
+        .collect(groupingBy(cell -> Bytes.toString(cell.getRowArray()), TreeMap::new, toList()))
+        .values().stream()
+        .map(Result::create)
         .collect(toList());
 
     ResultScanner resultScanner = mock(ResultScanner.class);